@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util;
+
+import io.github.mzmine.util.files.FileAndPathUtil;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import sun.misc.Unsafe;
+
+/**
+ * The segments of a segmented {@link MemoryMapStorage}. Each writing thread bump-allocates into its
+ * own memory-mapped segment file, so there is no global lock. Every stored buffer holds a reference
+ * on its segment that is released once the buffer is garbage collected. The writing thread holds
+ * another reference until the segment is full or until the storage is no longer reachable. A
+ * segment without references is released: the temporary file is deleted and the mapping is left to
+ * the garbage collector, as buffers derived from the stored buffers may still point into it.
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+class MemoryMapSegments {
+
+  /**
+   * Smaller than the 1 GB files of the default storage, so that unused segments are released
+   * earlier. Larger arrays get their own segment.
+   */
+  static final long SEGMENT_CAPACITY = 128L << 20;
+
+  private static final Logger logger = Logger.getLogger(MemoryMapSegments.class.getName());
+
+  // bytes written by the storage, shared with the storage quota
+  private final AtomicLong usedTempSpace;
+  // thread ID to the segment the thread is currently writing into
+  private final Map<Long, Segment> writeSegments = new ConcurrentHashMap<>();
+  private final Set<Segment> openSegments = ConcurrentHashMap.newKeySet();
+
+  MemoryMapSegments(AtomicLong usedTempSpace) {
+    this.usedTempSpace = usedTempSpace;
+  }
+
+  /**
+   * Registers the release of all write segments once the storage is no longer reachable. The
+   * cleaning action must not reference the storage.
+   */
+  void registerCleanup(MemoryMapStorage storage) {
+    MemoryMapStorages.cleaner.register(storage, this::releaseWriteSegments);
+  }
+
+  @NotNull
+  DoubleBuffer storeData(final double[] data, int offset, int length) throws IOException {
+    final int bytes = length * Double.BYTES;
+    final Segment segment = getWriteSegment(bytes);
+    final DoubleBuffer view = segment.allocate(bytes).asDoubleBuffer();
+    view.put(data, offset, length);
+    return segment.track(view.asReadOnlyBuffer());
+  }
+
+  @NotNull
+  FloatBuffer storeData(final float[] data, int offset, int length) throws IOException {
+    final int bytes = length * Float.BYTES;
+    final Segment segment = getWriteSegment(bytes);
+    final FloatBuffer view = segment.allocate(bytes).asFloatBuffer();
+    view.put(data, offset, length);
+    return segment.track(view.asReadOnlyBuffer());
+  }
+
+  @NotNull
+  ByteBuffer storeData(final byte[] data, int offset, int length) throws IOException {
+    final Segment segment = getWriteSegment(length);
+    final ByteBuffer view = segment.allocate(length);
+    view.put(data, offset, length);
+    return segment.track(view.asReadOnlyBuffer());
+  }
+
+  @NotNull
+  IntBuffer storeData(final int[] data, int offset, int length) throws IOException {
+    final int bytes = length * Integer.BYTES;
+    final Segment segment = getWriteSegment(bytes);
+    final IntBuffer view = segment.allocate(bytes).asIntBuffer();
+    view.put(data, offset, length);
+    return segment.track(view.asReadOnlyBuffer());
+  }
+
+  /**
+   * @return the segment of the current thread with enough space for the bytes
+   */
+  private Segment getWriteSegment(int bytes) throws IOException {
+    final long threadId = Thread.currentThread().threadId();
+    final Segment current = writeSegments.get(threadId);
+    if (current != null && current.remaining() >= bytes) {
+      return current;
+    }
+    final Segment next = new Segment(Math.max(SEGMENT_CAPACITY, bytes));
+    openSegments.add(next);
+    writeSegments.put(threadId, next);
+    if (current != null) {
+      // full: remove the writer reference
+      current.releaseReference();
+    }
+    return next;
+  }
+
+  /**
+   * Removes the writer reference of all segments. Segments are released once all their buffers are
+   * garbage collected.
+   */
+  void releaseWriteSegments() {
+    for (final Long threadId : List.copyOf(writeSegments.keySet())) {
+      final Segment segment = writeSegments.remove(threadId);
+      if (segment != null) {
+        segment.releaseReference();
+      }
+    }
+  }
+
+  /**
+   * @return number of segments that are not released yet
+   */
+  int getNumOpenSegments() {
+    return openSegments.size();
+  }
+
+  /**
+   * Unmaps and deletes all segments. Buffers of this storage must not be used afterward.
+   */
+  void discard(@Nullable Unsafe theUnsafe) {
+    writeSegments.clear();
+    for (final Segment segment : new ArrayList<>(openSegments)) {
+      segment.release(theUnsafe);
+    }
+  }
+
+  /**
+   * One memory-mapped temporary file.
+   */
+  private final class Segment {
+
+    private final File file;
+    private final long capacity;
+    // the writer holds one reference, each tracked buffer another
+    private final AtomicInteger references = new AtomicInteger(1);
+    private volatile MappedByteBuffer mapped;
+    // only changed by the writing thread
+    private long position = 0;
+
+    private Segment(long capacity) throws IOException {
+      this.capacity = capacity;
+      file = FileAndPathUtil.createTempFile("mzmine", ".tmp");
+      logger.finest("Created a temporary segment file " + file);
+      try (RandomAccessFile storageFile = new RandomAccessFile(file, "rw")) {
+        // the memory mapping remains after closing the file
+        mapped = storageFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+      }
+      // fallback if the file cannot be deleted on release, e.g., on Windows while mapped
+      file.deleteOnExit();
+    }
+
+    private long remaining() {
+      return capacity - position;
+    }
+
+    /**
+     * @return a writable slice of the next bytes. Adds a reference for the new buffer.
+     */
+    private ByteBuffer allocate(int bytes) {
+      final ByteBuffer slice = mapped.slice((int) position, bytes);
+      position += bytes;
+      references.incrementAndGet();
+      return slice;
+    }
+
+    /**
+     * Releases the reference of this buffer once it is garbage collected
+     */
+    private <T extends Buffer> T track(T buffer) {
+      // the action only references the segment, not the buffer
+      MemoryMapStorages.cleaner.register(buffer, this::releaseReference);
+      return buffer;
+    }
+
+    private void releaseReference() {
+      if (references.decrementAndGet() == 0) {
+        release(null);
+      }
+    }
+
+    private synchronized void release(@Nullable Unsafe theUnsafe) {
+      if (mapped == null) {
+        return;
+      }
+      if (theUnsafe != null) {
+        theUnsafe.invokeCleaner(mapped);
+      }
+      // otherwise the garbage collector unmaps the buffer
+      mapped = null;
+      openSegments.remove(this);
+      usedTempSpace.addAndGet(-position);
+      MemoryMapStorages.releaseTempSpace(position);
+      if (!file.delete()) {
+        logger.finest("Could not delete temporary segment file " + file.getAbsolutePath());
+      }
+    }
+  }
+}
@@ -36,9 +36,12 @@ import java.nio.IntBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -67,6 +70,11 @@ import sun.misc.Unsafe;
  * The total amount of storage space is also limited by the amount of addressable virtual memory
  * (e.g., 128TB on Linux). For this reason, this approach requires a 64-bit system - the limit would
  * be only 2GB on a 32-bit system.
+ * <p>
+ * If {@link MemoryMapStorages#isSegmentedStorage()} is set on creation, the storage writes into
+ * smaller segments, one per thread, and deletes segment files once no buffer uses them anymore
+ * (see {@link MemoryMapSegments}). Data exceeding the per-storage or global temp space limit of
+ * {@link MemoryMapStorages} is kept in RAM.
  */
 public class MemoryMapStorage {
 
@@ -90,6 +98,7 @@ public class MemoryMapStorage {
   private static boolean storeFeaturesInRam = false;
   private static boolean storeRawFilesInRam = false;
   private static boolean storeMassListsInRam = false;
+  private static boolean compressSpectra = false;
   private final Logger logger = Logger.getLogger(this.getClass().getName());
   private final Set<File> temporaryFiles = new HashSet<>();
   private final List<MappedByteBuffer> mappedByteBufferList = new ArrayList<>();
@@ -97,8 +106,37 @@ public class MemoryMapStorage {
    * The file that we are currently writing into.
    */
   private MappedByteBuffer currentMappedFile = null;
+  /**
+   * Per thread segments or null for the synchronized single file mode
+   */
+  @Nullable
+  private final MemoryMapSegments segments;
+  private final long tempSpaceLimit;
+  // bytes written to temporary files
+  private final AtomicLong usedTempSpace = new AtomicLong(0);
+  private final AtomicBoolean reportedLimit = new AtomicBoolean(false);
+  /**
+   * Spectra stored in this storage are encoded losslessly to save temp space
+   */
+  private final boolean compressed;
 
   private MemoryMapStorage() {
+    this(false);
+  }
+
+  private MemoryMapStorage(boolean compressed) {
+    this.compressed = compressed;
+    tempSpaceLimit = MemoryMapStorages.getStorageTempSpaceLimit();
+    if (MemoryMapStorages.isSegmentedStorage()) {
+      segments = new MemoryMapSegments(usedTempSpace);
+      segments.registerCleanup(this);
+    } else {
+      segments = null;
+      // the files stay mapped by the buffers but the quota is freed with the storage
+      final AtomicLong used = usedTempSpace;
+      MemoryMapStorages.cleaner.register(this,
+          () -> MemoryMapStorages.releaseTempSpace(used.getAndSet(0)));
+    }
     // register this storage to MZmineCore, so we can delete all temp files later.
     MemoryMapStorages.registerStorage(this);
   }
@@ -150,7 +188,7 @@ public class MemoryMapStorage {
    */
   @Nullable
   public static MemoryMapStorage forRawDataFile() {
-    return storeRawFilesInRam ? null : new MemoryMapStorage();
+    return storeRawFilesInRam ? null : new MemoryMapStorage(compressSpectra);
   }
 
   /**
@@ -158,7 +196,7 @@ public class MemoryMapStorage {
    */
   @Nullable
   public static MemoryMapStorage forMassList() {
-    return storeMassListsInRam ? null : new MemoryMapStorage();
+    return storeMassListsInRam ? null : new MemoryMapStorage(compressSpectra);
   }
 
   @NotNull
@@ -190,6 +228,18 @@ public class MemoryMapStorage {
     MemoryMapStorage.storeMassListsInRam = storeMassListsInRam;
   }
 
+  public static boolean isCompressSpectra() {
+    return compressSpectra;
+  }
+
+  /**
+   * Storages for raw data files and mass lists created afterward store spectra in a lossless
+   * compressed form.
+   */
+  public static void setCompressSpectra(boolean compressSpectra) {
+    MemoryMapStorage.compressSpectra = compressSpectra;
+  }
+
   /**
    * Store everything in RAM instead of using MemoryMapStorage
    *
@@ -210,7 +260,7 @@ public class MemoryMapStorage {
    * @throws IOException
    */
   @NotNull
-  public synchronized DoubleBuffer storeData(@NotNull final double data[]) throws IOException {
+  public DoubleBuffer storeData(@NotNull final double data[]) throws IOException {
     return storeData(data, 0, data.length);
   }
 
@@ -225,8 +275,28 @@ public class MemoryMapStorage {
    * @throws IOException
    */
   @NotNull
-  public synchronized DoubleBuffer storeData(@NotNull final double data[], int offset, int length)
+  public DoubleBuffer storeData(@NotNull final double data[], int offset, int length)
       throws IOException {
+    final long bytes = (long) length * Double.BYTES;
+    if (!reserveTempSpace(bytes)) {
+      return DoubleBuffer.wrap(Arrays.copyOfRange(data, offset, offset + length))
+          .asReadOnlyBuffer();
+    }
+    try {
+      if (segments != null) {
+        return segments.storeData(data, offset, length);
+      }
+      return storeDataInFile(data, offset, length);
+    } catch (IOException e) {
+      // nothing was written
+      releaseTempSpace(bytes);
+      throw e;
+    }
+  }
+
+  @NotNull
+  private synchronized DoubleBuffer storeDataInFile(@NotNull final double data[], int offset,
+      int length) throws IOException {
 
     // If we have no storage file or if the current file is full, create a new one
     if ((currentMappedFile == null) || (currentMappedFile.position() + (length * Double.BYTES)
@@ -266,7 +336,7 @@ public class MemoryMapStorage {
    * @throws IOException
    */
   @NotNull
-  public synchronized FloatBuffer storeData(@NotNull final float data[]) throws IOException {
+  public FloatBuffer storeData(@NotNull final float data[]) throws IOException {
     return storeData(data, 0, data.length);
   }
 
@@ -281,8 +351,28 @@ public class MemoryMapStorage {
    * @throws IOException
    */
   @NotNull
-  public synchronized FloatBuffer storeData(@NotNull final float data[], int offset, int length)
+  public FloatBuffer storeData(@NotNull final float data[], int offset, int length)
       throws IOException {
+    final long bytes = (long) length * Float.BYTES;
+    if (!reserveTempSpace(bytes)) {
+      return FloatBuffer.wrap(Arrays.copyOfRange(data, offset, offset + length))
+          .asReadOnlyBuffer();
+    }
+    try {
+      if (segments != null) {
+        return segments.storeData(data, offset, length);
+      }
+      return storeDataInFile(data, offset, length);
+    } catch (IOException e) {
+      // nothing was written
+      releaseTempSpace(bytes);
+      throw e;
+    }
+  }
+
+  @NotNull
+  private synchronized FloatBuffer storeDataInFile(@NotNull final float data[], int offset,
+      int length) throws IOException {
 
     // If we have no storage file or if the current file is full, create a new one
     if ((currentMappedFile == null) || (currentMappedFile.position() + (length * Float.BYTES)
@@ -324,8 +414,27 @@ public class MemoryMapStorage {
    * @throws IOException
    */
   @NotNull
-  public synchronized IntBuffer storeData(@NotNull final int data[], int offset, int length)
+  public IntBuffer storeData(@NotNull final int data[], int offset, int length)
       throws IOException {
+    final long bytes = (long) length * Integer.BYTES;
+    if (!reserveTempSpace(bytes)) {
+      return IntBuffer.wrap(Arrays.copyOfRange(data, offset, offset + length)).asReadOnlyBuffer();
+    }
+    try {
+      if (segments != null) {
+        return segments.storeData(data, offset, length);
+      }
+      return storeDataInFile(data, offset, length);
+    } catch (IOException e) {
+      // nothing was written
+      releaseTempSpace(bytes);
+      throw e;
+    }
+  }
+
+  @NotNull
+  private synchronized IntBuffer storeDataInFile(@NotNull final int data[], int offset,
+      int length) throws IOException {
 
     // If we have no storage file or if the current file is full, create a new one
     if ((currentMappedFile == null) || (currentMappedFile.position() + (length * Integer.BYTES)
@@ -365,10 +474,141 @@ public class MemoryMapStorage {
    * @throws IOException
    */
   @NotNull
-  public synchronized IntBuffer storeData(@NotNull final int data[]) throws IOException {
+  public IntBuffer storeData(@NotNull final int data[]) throws IOException {
     return storeData(data, 0, data.length);
   }
 
+  /**
+   * Store the given byte[] array in a memory-mapped temporary file and return a read-only
+   * ByteBuffer that can access the data.
+   *
+   * @param data   the byte[] array with the data
+   * @param offset offset of the stored portion of the data[] array
+   * @param length size of the stored portion of the data[] array
+   * @return a read-only ByteBuffer that is directly mapped to the stored data on the disk
+   * @throws IOException
+   */
+  @NotNull
+  public ByteBuffer storeData(@NotNull final byte data[], int offset, int length)
+      throws IOException {
+    final long bytes = length;
+    if (!reserveTempSpace(bytes)) {
+      return ByteBuffer.wrap(Arrays.copyOfRange(data, offset, offset + length))
+          .asReadOnlyBuffer();
+    }
+    try {
+      if (segments != null) {
+        return segments.storeData(data, offset, length);
+      }
+      return storeDataInFile(data, offset, length);
+    } catch (IOException e) {
+      // nothing was written
+      releaseTempSpace(bytes);
+      throw e;
+    }
+  }
+
+  @NotNull
+  private synchronized ByteBuffer storeDataInFile(@NotNull final byte data[], int offset,
+      int length) throws IOException {
+
+    // If we have no storage file or if the current file is full, create a new one
+    if ((currentMappedFile == null) || (currentMappedFile.position() + length
+                                        > STORAGE_FILE_CAPACITY)) {
+      currentMappedFile = createNewMappedFile();
+    }
+
+    // Save the current position in the storage file
+    final int savedPosition = currentMappedFile.position();
+
+    // Set the limit to the end of the new array and create a buffer slice
+    currentMappedFile.limit(savedPosition + length);
+    final ByteBuffer slice = currentMappedFile.slice();
+
+    // Copy the data to the memory mapped storage
+    slice.put(data, offset, length);
+
+    // Update the position and the main buffer so we are ready to store the next array
+    currentMappedFile.position(savedPosition + length);
+
+    // Create a read-only version of the new buffer slice
+    return slice.asReadOnlyBuffer();
+  }
+
+  /**
+   * Store the given byte[] array in a memory-mapped temporary file and return a read-only
+   * ByteBuffer that can access the data.
+   *
+   * @param data the byte[] array with the data
+   * @return a read-only ByteBuffer that is directly mapped to the stored data on the disk
+   * @throws IOException
+   */
+  @NotNull
+  public ByteBuffer storeData(@NotNull final byte data[]) throws IOException {
+    return storeData(data, 0, data.length);
+  }
+
+  /**
+   * Reserve temporary disk space in the quota of this storage and the global quota of
+   * {@link MemoryMapStorages}.
+   *
+   * @return true if the data can be written to disk, false if it needs to stay in RAM
+   */
+  private boolean reserveTempSpace(long bytes) {
+    while (true) {
+      final long used = usedTempSpace.get();
+      if (used + bytes > tempSpaceLimit) {
+        reportLimit("storage limit of " + tempSpaceLimit + " bytes");
+        return false;
+      }
+      if (usedTempSpace.compareAndSet(used, used + bytes)) {
+        break;
+      }
+    }
+    if (!MemoryMapStorages.reserveTempSpace(bytes)) {
+      usedTempSpace.addAndGet(-bytes);
+      reportLimit("global limit of " + MemoryMapStorages.getGlobalTempSpaceLimit() + " bytes");
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Return reserved space that was not written to the quota of this storage and the global quota
+   */
+  private void releaseTempSpace(long bytes) {
+    usedTempSpace.addAndGet(-bytes);
+    MemoryMapStorages.releaseTempSpace(bytes);
+  }
+
+  private void reportLimit(String limit) {
+    if (!reportedLimit.getAndSet(true)) {
+      logger.warning("Temporary disk space reached the " + limit
+                     + ". Further data of this storage is kept in RAM.");
+    }
+  }
+
+  /**
+   * @return true if this storage writes into per thread segments that are released once unused
+   */
+  public boolean isSegmented() {
+    return segments != null;
+  }
+
+  /**
+   * @return true if spectra in this storage shall be stored in a lossless compressed form
+   */
+  public boolean isCompressed() {
+    return compressed;
+  }
+
+  /**
+   * @return bytes of this storage currently written to temporary files
+   */
+  public long getUsedTempSpace() {
+    return usedTempSpace.get();
+  }
+
   public enum Source {
     RAW, MASS_LISTS, FEATURE_LIST
   }
@@ -377,6 +617,11 @@ public class MemoryMapStorage {
    * Discard this memory-mapped storage and remove all the associated temporary files.
    */
   public synchronized void discard(Unsafe theUnsafe) throws IOException {
+    if (segments != null) {
+      // releases the quota of each segment
+      segments.discard(theUnsafe);
+      return;
+    }
 
     if (theUnsafe != null) {
       for (MappedByteBuffer mappedByteBuffer : mappedByteBufferList) {
@@ -391,6 +636,8 @@ public class MemoryMapStorage {
     }
 
     temporaryFiles.clear();
+    mappedByteBufferList.clear();
     currentMappedFile = null;
+    MemoryMapStorages.releaseTempSpace(usedTempSpace.getAndSet(0));
   }
 }
@@ -25,24 +25,180 @@
 
 package io.github.mzmine.util;
 
+import java.lang.ref.Cleaner;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Keeps a reference to all memory map storages
+ * Keeps a reference to all memory map storages and controls the temporary disk space they may use.
+ * Storages are only weakly referenced so that discarded feature lists and data files can be garbage
+ * collected. With {@link #setSegmentedStorage(boolean)}, new storages write into one segment per
+ * thread and release temporary files once no buffer uses them anymore.
  */
 public class MemoryMapStorages {
 
-  private static final List<MemoryMapStorage> storageList = Collections.synchronizedList(
-      new ArrayList<>());
+  /**
+   * No limit on temporary disk space
+   */
+  public static final long UNLIMITED = Long.MAX_VALUE;
+
+  /**
+   * Releases temporary files and their quota once storages or buffers are garbage collected
+   */
+  static final Cleaner cleaner = Cleaner.create();
+
+  private static final List<WeakReference<MemoryMapStorage>> storageList = new ArrayList<>();
+  // bytes currently written to temporary files by all storages
+  private static final AtomicLong usedTempSpace = new AtomicLong(0);
+  private static volatile long globalTempSpaceLimit = UNLIMITED;
+  private static volatile long storageTempSpaceLimit = UNLIMITED;
+  private static volatile boolean segmentedStorage = false;
+  private static int registeredSinceCleanup = 0;
 
   public static void registerStorage(MemoryMapStorage storage) {
-    storageList.add(storage);
+    synchronized (storageList) {
+      // remove storages that were garbage collected
+      if (++registeredSinceCleanup >= 256) {
+        storageList.removeIf(ref -> ref.get() == null);
+        registeredSinceCleanup = 0;
+      }
+      storageList.add(new WeakReference<>(storage));
+    }
   }
 
+  /**
+   * @return all storages that were not garbage collected yet
+   */
   public static List<MemoryMapStorage> getStorageList() {
-    return storageList;
+    synchronized (storageList) {
+      return storageList.stream().map(WeakReference::get).filter(Objects::nonNull).toList();
+    }
+  }
+
+  /**
+   * @return true if new storages write into one segment per thread and release segments that are
+   * no longer used
+   */
+  public static boolean isSegmentedStorage() {
+    return segmentedStorage;
+  }
+
+  /**
+   * Only applies to storages that are created afterward.
+   *
+   * @param segmentedStorage true: new storages write into one segment per thread without a global
+   *                         lock and release temporary files once no buffer uses them anymore.
+   *                         false: one synchronized file that is kept until the storage is
+   *                         discarded
+   */
+  public static void setSegmentedStorage(boolean segmentedStorage) {
+    MemoryMapStorages.segmentedStorage = segmentedStorage;
   }
 
+  /**
+   * @return the maximum temporary disk space in bytes used by all storages together
+   */
+  public static long getGlobalTempSpaceLimit() {
+    return globalTempSpaceLimit;
+  }
+
+  /**
+   * Data that exceeds the limit is kept in RAM instead.
+   *
+   * @param bytes maximum temporary disk space in bytes used by all storages together or
+   *              {@link #UNLIMITED}
+   */
+  public static void setGlobalTempSpaceLimit(long bytes) {
+    if (bytes <= 0) {
+      throw new IllegalArgumentException("Temp space limit needs to be positive: " + bytes);
+    }
+    globalTempSpaceLimit = bytes;
+  }
+
+  /**
+   * @return the maximum temporary disk space in bytes of a single storage
+   */
+  public static long getStorageTempSpaceLimit() {
+    return storageTempSpaceLimit;
+  }
+
+  /**
+   * Only applies to storages that are created afterward. Data that exceeds the limit is kept in RAM
+   * instead.
+   *
+   * @param bytes maximum temporary disk space in bytes of a single storage or {@link #UNLIMITED}
+   */
+  public static void setStorageTempSpaceLimit(long bytes) {
+    if (bytes <= 0) {
+      throw new IllegalArgumentException("Temp space limit needs to be positive: " + bytes);
+    }
+    storageTempSpaceLimit = bytes;
+  }
+
+  /**
+   * @return bytes currently written to temporary files by all storages
+   */
+  public static long getUsedTempSpace() {
+    return usedTempSpace.get();
+  }
+
+  /**
+   * Reserve space in the global quota
+   *
+   * @return true if the bytes were reserved, false if the global limit would be exceeded
+   */
+  static boolean reserveTempSpace(long bytes) {
+    final long limit = globalTempSpaceLimit;
+    while (true) {
+      final long used = usedTempSpace.get();
+      if (used + bytes > limit) {
+        return false;
+      }
+      if (usedTempSpace.compareAndSet(used, used + bytes)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Return space to the global quota. Called on discard and by the {@link #cleaner} once a storage
+   * or segment is garbage collected.
+   */
+  static void releaseTempSpace(long bytes) {
+    usedTempSpace.addAndGet(-bytes);
+  }
+
+  /**
+   * Parses a size like 500M, 20G, 1T (binary units) or plain bytes.
+   *
+   * @param size the size string
+   * @return the positive size in bytes or {@link #UNLIMITED} for "unlimited"
+   * @throws NumberFormatException if the format is not supported or the size is not positive
+   */
+  public static long parseSize(String size) {
+    final String s = size == null ? "" : size.trim().toUpperCase();
+    if (s.isEmpty()) {
+      throw new NumberFormatException("Size is empty");
+    }
+    if (s.equals("UNLIMITED")) {
+      return UNLIMITED;
+    }
+    final char unit = s.charAt(s.length() - 1);
+    final long factor = switch (unit) {
+      case 'K' -> 1L << 10;
+      case 'M' -> 1L << 20;
+      case 'G' -> 1L << 30;
+      case 'T' -> 1L << 40;
+      default -> 1L;
+    };
+    final String number = factor == 1L ? s : s.substring(0, s.length() - 1).trim();
+    final long bytes = (long) (Double.parseDouble(number) * factor);
+    if (bytes <= 0) {
+      throw new NumberFormatException("Size needs to be positive: " + size);
+    }
+    return bytes;
+  }
 }
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.benchmark;
+
+import io.github.mzmine.util.MemoryMapStorage;
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Stores arrays in the {@link MemoryMapStorage} from one and from multiple threads. Iterations are
+ * short and the storage is discarded after each iteration to limit the size of the temp files.
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MemoryMapStorageBenchmark {
+
+  @Param({"100", "10000"})
+  public int length;
+
+  private double[] data;
+  private MemoryMapStorage storage;
+
+  @Setup(Level.Trial)
+  public void createData() {
+    final Random rand = new Random(42);
+    data = new double[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = rand.nextDouble();
+    }
+  }
+
+  @Setup(Level.Iteration)
+  public void createStorage() {
+    storage = MemoryMapStorage.create();
+  }
+
+  @TearDown(Level.Iteration)
+  public void discardStorage() throws IOException {
+    SyntheticData.discard(storage);
+  }
+
+  @Benchmark
+  public DoubleBuffer storeData() throws IOException {
+    return storage.storeData(data);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public DoubleBuffer storeDataParallel() throws IOException {
+    return storage.storeData(data);
+  }
+}
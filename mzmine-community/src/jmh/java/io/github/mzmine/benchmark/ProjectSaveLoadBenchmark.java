@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.benchmark;
+
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.modules.io.projectload.version_3_0.FeatureListBlockReader;
+import io.github.mzmine.modules.io.projectload.version_3_0.FeatureListBlockReader.DecodedBlock;
+import io.github.mzmine.modules.io.projectsave.FeatureListBlockWriter;
+import io.github.mzmine.project.impl.MZmineProjectImpl;
+import io.github.mzmine.util.MemoryMapStorage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Writes and reads the blocks of a feature list like project save and load, without the zip
+ * container.
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ProjectSaveLoadBenchmark {
+
+  @Param({"10000"})
+  public int numRows;
+
+  @Param({"false", "true"})
+  public boolean mapSeriesBuffers;
+
+  private MemoryMapStorage storage;
+  private MZmineProjectImpl project;
+  private ModularFeatureList flist;
+  private Path dir;
+  private File headerFile;
+  private File[] blockFiles;
+
+  @Setup
+  public void setup() throws IOException {
+    storage = MemoryMapStorage.create();
+    final RawDataFile file = SyntheticData.rawDataFile(storage, 1000, 500, 42);
+    project = new MZmineProjectImpl();
+    project.addFile(file);
+    flist = SyntheticData.featureList(file, storage, numRows, 42);
+
+    dir = Files.createTempDirectory("mzmine_benchmark");
+    final FeatureListBlockWriter writer = new FeatureListBlockWriter(flist);
+    headerFile = dir.resolve("header").toFile();
+    Files.write(headerFile.toPath(), writer.writeHeader());
+    blockFiles = new File[writer.getNumBlocks()];
+    for (int i = 0; i < blockFiles.length; i++) {
+      blockFiles[i] = dir.resolve("block_" + i).toFile();
+      Files.write(blockFiles[i].toPath(), writer.writeBlock(i));
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(dir.toFile());
+    SyntheticData.discard(storage);
+  }
+
+  @Benchmark
+  public long write() throws IOException {
+    final FeatureListBlockWriter writer = new FeatureListBlockWriter(flist);
+    long bytes = writer.writeHeader().length;
+    for (int i = 0; i < writer.getNumBlocks(); i++) {
+      bytes += writer.writeBlock(i).length;
+    }
+    return bytes;
+  }
+
+  @Benchmark
+  public ModularFeatureList read() throws IOException {
+    final ModularFeatureList loaded = new ModularFeatureList(flist.getName(), storage,
+        flist.getRawDataFiles());
+    loaded.setDateCreated(flist.getDateCreated());
+    final FeatureListBlockReader reader = new FeatureListBlockReader(project, loaded,
+        mapSeriesBuffers);
+    reader.readHeaderCreateRows(headerFile);
+    for (File blockFile : blockFiles) {
+      final DecodedBlock block = reader.decodeBlock(blockFile);
+      reader.applyBlock(block);
+    }
+    return loaded;
+  }
+}
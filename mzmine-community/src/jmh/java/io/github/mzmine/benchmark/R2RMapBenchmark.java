@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.benchmark;
+
+import io.github.mzmine.datamodel.features.correlation.R2RMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Filling and querying the {@link R2RMap} with random row pairs like in feature grouping and
+ * networking.
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class R2RMapBenchmark {
+
+  private static final int NUM_ROWS = 20_000;
+
+  @Param({"100000", "1000000"})
+  public int numPairs;
+
+  private int[] idsA;
+  private int[] idsB;
+  private R2RMap<Double> filled;
+
+  @Setup
+  public void setup() {
+    final Random rand = new Random(42);
+    idsA = new int[numPairs];
+    idsB = new int[numPairs];
+    for (int i = 0; i < numPairs; i++) {
+      idsA[i] = rand.nextInt(NUM_ROWS);
+      idsB[i] = rand.nextInt(NUM_ROWS);
+    }
+    filled = put();
+  }
+
+  @Benchmark
+  public R2RMap<Double> put() {
+    final R2RMap<Double> map = new R2RMap<>();
+    for (int i = 0; i < numPairs; i++) {
+      map.put(idsA[i], idsB[i], (double) i);
+    }
+    return map;
+  }
+
+  @Benchmark
+  public R2RMap<Double> putParallel() {
+    final R2RMap<Double> map = new R2RMap<>();
+    IntStream.range(0, numPairs).parallel().forEach(i -> map.put(idsA[i], idsB[i], (double) i));
+    return map;
+  }
+
+  @Benchmark
+  public double get() {
+    double sum = 0;
+    for (int i = 0; i < numPairs; i++) {
+      final Double value = filled.get(idsB[i], idsA[i]);
+      if (value != null) {
+        sum += value;
+      }
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long neighbours() {
+    long sum = 0;
+    for (int id = 0; id < NUM_ROWS; id++) {
+      sum += filled.getNeighbourIDs(id).length;
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.benchmark;
+
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.datamodel.features.correlation.SpectralSimilarity;
+import io.github.mzmine.modules.dataprocessing.group_spectral_networking.SpectralNetworkingTask;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cosine and modification aware cosine similarity of two MS2 spectra that share half of their
+ * signals.
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SpectralSimilarityBenchmark {
+
+  private static final MZTolerance MZ_TOL = new MZTolerance(0.005, 10);
+
+  @Param({"50", "500"})
+  public int signals;
+
+  private DataPoint[] sortedA;
+  private DataPoint[] sortedB;
+
+  @Setup
+  public void setup() {
+    final Random rand = new Random(42);
+    final double[][] a = SyntheticData.centroidSpectrum(rand, signals);
+    final double[][] b = SyntheticData.centroidSpectrum(rand, signals);
+    // share every second signal
+    for (int i = 0; i < signals; i += 2) {
+      b[0][i] = a[0][i];
+    }
+    sortedA = SyntheticData.sortedDataPoints(a);
+    sortedB = SyntheticData.sortedDataPoints(b);
+  }
+
+  @Benchmark
+  public SpectralSimilarity cosine() {
+    return SpectralNetworkingTask.createMS2Sim(MZ_TOL, sortedA, sortedB, 2);
+  }
+
+  @Benchmark
+  public SpectralSimilarity modificationAwareCosine() {
+    return SpectralNetworkingTask.createMS2SimModificationAware(MZ_TOL, sortedA, sortedB, 2,
+        SpectralNetworkingTask.SIZE_OVERLAP, 800.25, 842.31);
+  }
+}
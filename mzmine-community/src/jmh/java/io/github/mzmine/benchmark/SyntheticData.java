@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.benchmark;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.featuredata.impl.SimpleIonTimeSeries;
+import io.github.mzmine.datamodel.impl.SimpleDataPoint;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import io.github.mzmine.util.DataPointSorter;
+import io.github.mzmine.util.MemoryMapStorage;
+import io.github.mzmine.util.SortingDirection;
+import io.github.mzmine.util.SortingProperty;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import javafx.scene.paint.Color;
+import org.jetbrains.annotations.Nullable;
+import sun.misc.Unsafe;
+
+/**
+ * Reproducible synthetic spectra, chromatograms, raw data files and feature lists for the
+ * benchmarks. All data is generated from a seed, so results of different versions are comparable.
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+public final class SyntheticData {
+
+  public static final double MIN_MZ = 50;
+  public static final double MAX_MZ = 1500;
+
+  private SyntheticData() {
+  }
+
+  /**
+   * @return [mzs, intensities] of random centroid signals sorted by m/z
+   */
+  public static double[][] centroidSpectrum(Random rand, int numSignals) {
+    final double[] mzs = new double[numSignals];
+    for (int i = 0; i < numSignals; i++) {
+      mzs[i] = MIN_MZ + rand.nextDouble() * (MAX_MZ - MIN_MZ);
+    }
+    Arrays.sort(mzs);
+    final double[] intensities = new double[numSignals];
+    for (int i = 0; i < numSignals; i++) {
+      // log normal distributed like real spectra
+      intensities[i] = Math.exp(8 + 2 * rand.nextGaussian());
+    }
+    return new double[][]{mzs, intensities};
+  }
+
+  /**
+   * @param step distance between profile data points
+   * @return [mzs, intensities] of random gaussian profile peaks sampled every step
+   */
+  public static double[][] profileSpectrum(Random rand, int numPeaks, double step) {
+    final int numValues = (int) ((MAX_MZ - MIN_MZ) / step);
+    final double[] mzs = new double[numValues];
+    final double[] intensities = new double[numValues];
+    for (int i = 0; i < numValues; i++) {
+      mzs[i] = MIN_MZ + i * step;
+      // low noise
+      intensities[i] = rand.nextDouble() * 10;
+    }
+    final double sigma = step * 3;
+    for (int p = 0; p < numPeaks; p++) {
+      final int center = rand.nextInt(numValues);
+      final double height = Math.exp(8 + 2 * rand.nextGaussian());
+      for (int i = Math.max(0, center - 15); i < Math.min(numValues, center + 15); i++) {
+        final double d = (mzs[i] - mzs[center]) / sigma;
+        intensities[i] += height * Math.exp(-0.5 * d * d);
+      }
+    }
+    return new double[][]{mzs, intensities};
+  }
+
+  /**
+   * @param numPeaks gaussian peaks on top of the noise
+   * @return intensities of a chromatogram with noise
+   */
+  public static double[] chromatogram(Random rand, int numValues, int numPeaks) {
+    final double[] intensities = new double[numValues];
+    for (int i = 0; i < numValues; i++) {
+      intensities[i] = 500 + rand.nextDouble() * 200;
+    }
+    for (int p = 0; p < numPeaks; p++) {
+      final int center = rand.nextInt(numValues);
+      final double sigma = 2 + rand.nextDouble() * 6;
+      final double height = Math.exp(10 + rand.nextGaussian());
+      for (int i = Math.max(0, center - 40); i < Math.min(numValues, center + 40); i++) {
+        final double d = (i - center) / sigma;
+        intensities[i] += height * Math.exp(-0.5 * d * d);
+      }
+    }
+    return intensities;
+  }
+
+  /**
+   * @return the data points sorted by descending intensity
+   */
+  public static DataPoint[] sortedDataPoints(double[][] spectrum) {
+    final DataPoint[] dps = new DataPoint[spectrum[0].length];
+    for (int i = 0; i < dps.length; i++) {
+      dps[i] = new SimpleDataPoint(spectrum[0][i], spectrum[1][i]);
+    }
+    Arrays.sort(dps, new DataPointSorter(SortingProperty.Intensity, SortingDirection.Descending));
+    return dps;
+  }
+
+  /**
+   * @param storage null to store all scans in RAM
+   * @return a raw data file with MS1 scans of random centroid spectra
+   */
+  public static RawDataFile rawDataFile(@Nullable MemoryMapStorage storage, int numScans,
+      int signalsPerScan, long seed) throws IOException {
+    final Random rand = new Random(seed);
+    final RawDataFile file = new RawDataFileImpl("synthetic_" + seed, null, storage, Color.BLACK);
+    for (int i = 0; i < numScans; i++) {
+      final double[][] spectrum = centroidSpectrum(rand, signalsPerScan);
+      file.addScan(new SimpleScan(file, i, 1, i * 0.01f, null, spectrum[0], spectrum[1],
+          MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, "", Range.closed(MIN_MZ, MAX_MZ)));
+    }
+    return file;
+  }
+
+  /**
+   * @param file the raw data file, each feature spans 50 scans
+   * @return a feature list with one detected feature per row
+   */
+  public static ModularFeatureList featureList(RawDataFile file,
+      @Nullable MemoryMapStorage storage, int numRows, long seed) {
+    final Random rand = new Random(seed);
+    final ModularFeatureList flist = new ModularFeatureList("synthetic", storage, file);
+    final List<Scan> scans = file.getScans();
+    final int width = Math.min(50, scans.size());
+    for (int id = 1; id <= numRows; id++) {
+      final int start = rand.nextInt(scans.size() - width + 1);
+      final double mz = MIN_MZ + rand.nextDouble() * (MAX_MZ - MIN_MZ);
+      final double[] mzs = new double[width];
+      final double[] intensities = chromatogram(rand, width, 1);
+      for (int i = 0; i < width; i++) {
+        mzs[i] = mz + rand.nextGaussian() * 0.001;
+      }
+      final SimpleIonTimeSeries series = new SimpleIonTimeSeries(storage, mzs, intensities,
+          scans.subList(start, start + width));
+      final ModularFeature feature = new ModularFeature(flist, file, series,
+          FeatureStatus.DETECTED);
+      flist.addRow(new ModularFeatureListRow(flist, id, feature));
+    }
+    return flist;
+  }
+
+  /**
+   * Releases the memory mapped files of a storage
+   */
+  public static void discard(@Nullable MemoryMapStorage storage) throws IOException {
+    if (storage == null) {
+      return;
+    }
+    try {
+      final Field theUnsafeField = Unsafe.class.getDeclaredField("theUnsafe");
+      theUnsafeField.setAccessible(true);
+      storage.discard((Unsafe) theUnsafeField.get(null));
+    } catch (NoSuchFieldException | IllegalAccessException e) {
+      throw new IOException("Cannot discard memory map storage", e);
+    }
+  }
+}
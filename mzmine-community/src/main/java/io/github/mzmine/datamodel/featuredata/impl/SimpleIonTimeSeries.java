@@ -70,7 +70,33 @@ public class SimpleIonTimeSeries implements IonTimeSeries<Scan> {
    */
   public SimpleIonTimeSeries(@Nullable MemoryMapStorage storage, @NotNull double[] mzValues,
       @NotNull double[] intensityValues, @NotNull List<? extends Scan> scans) {
-    if (mzValues.length != intensityValues.length || mzValues.length != scans.size()) {
+    checkValues(mzValues.length, intensityValues.length, scans);
+
+    this.scans = scans;
+
+    this.mzValues = StorageUtils.storeValuesToDoubleBuffer(storage, mzValues);
+    this.intensityValues = StorageUtils.storeValuesToDoubleBuffer(storage, intensityValues);
+  }
+
+  /**
+   * Uses the buffers as they are, without copying them to a storage. Used to map the feature data
+   * of a loaded project read only from the extracted project files.
+   *
+   * @param mzValues        the m/z values, the capacity is the number of values
+   * @param intensityValues the intensity values, the capacity is the number of values
+   * @param scans           the scans
+   */
+  public SimpleIonTimeSeries(@NotNull DoubleBuffer mzValues, @NotNull DoubleBuffer intensityValues,
+      @NotNull List<? extends Scan> scans) {
+    checkValues(mzValues.capacity(), intensityValues.capacity(), scans);
+
+    this.scans = scans;
+    this.mzValues = mzValues;
+    this.intensityValues = intensityValues;
+  }
+
+  private static void checkValues(int numMzs, int numIntensities, List<? extends Scan> scans) {
+    if (numMzs != numIntensities || numMzs != scans.size()) {
       throw new IllegalArgumentException("Length of mz, intensity and/or scans does not match.");
     }
     for (int i = 1; i < scans.size(); i++) {
@@ -79,11 +105,6 @@ public class SimpleIonTimeSeries implements IonTimeSeries<Scan> {
             "Scans not sorted in retention time dimension! Cannot create chromatogram.");
       }
     }
-
-    this.scans = scans;
-
-    this.mzValues = StorageUtils.storeValuesToDoubleBuffer(storage, mzValues);
-    this.intensityValues = StorageUtils.storeValuesToDoubleBuffer(storage, intensityValues);
   }
 
   public static SimpleIonTimeSeries loadFromXML(XMLStreamReader reader, MemoryMapStorage storage,
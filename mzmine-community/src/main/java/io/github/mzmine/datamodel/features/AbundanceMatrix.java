@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.features;
+
+import io.github.mzmine.datamodel.AbundanceMeasure;
+import io.github.mzmine.datamodel.RawDataFile;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Dense snapshot of one {@link AbundanceMeasure} for all rows x raw data files of a
+ * {@link ModularFeatureList}. Values are stored row by row [row * numFiles + file] with NaN for
+ * missing features. Matrices are rebuilt on changes of the feature list, so the values stay on the
+ * heap and are collected with outdated matrices. Instances are immutable and shared, obtain them by
+ * {@link ModularFeatureList#getAbundanceMatrix}, which creates a new matrix whenever the
+ * {@link #getVersion() version} is outdated.
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+public final class AbundanceMatrix {
+
+  private final long version;
+  private final @NotNull AbundanceMeasure measure;
+  private final @NotNull List<FeatureListRow> rows;
+  private final @NotNull List<RawDataFile> files;
+  private final @NotNull Reference2IntOpenHashMap<FeatureListRow> rowIndices;
+  private final @NotNull Reference2IntOpenHashMap<RawDataFile> fileIndices;
+  private final float[] values;
+
+  private AbundanceMatrix(long version, @NotNull AbundanceMeasure measure,
+      @NotNull List<FeatureListRow> rows, @NotNull List<RawDataFile> files,
+      float[] values) {
+    this.version = version;
+    this.measure = measure;
+    this.rows = rows;
+    this.files = files;
+    this.values = values;
+    rowIndices = createIndexMap(rows);
+    fileIndices = createIndexMap(files);
+  }
+
+  /**
+   * Extracts the abundances of all rows in parallel. Should only be called by the feature list.
+   *
+   * @param version the modification version of the feature list before the extraction started
+   */
+  static AbundanceMatrix create(@NotNull ModularFeatureList flist,
+      @NotNull AbundanceMeasure measure, long version) {
+    final List<FeatureListRow> rows = List.copyOf(flist.getRows());
+    final List<RawDataFile> files = List.copyOf(flist.getRawDataFiles());
+    final int numFiles = files.size();
+    final float[] values = new float[rows.size() * numFiles];
+
+    IntStream.range(0, rows.size()).parallel().forEach(r -> {
+      final FeatureListRow row = rows.get(r);
+      final int offset = r * numFiles;
+      for (int f = 0; f < numFiles; f++) {
+        final Feature feature = row.getFeature(files.get(f));
+        final Float abundance = feature != null ? measure.get((ModularDataModel) feature) : null;
+        values[offset + f] = abundance != null ? abundance : Float.NaN;
+      }
+    });
+
+    return new AbundanceMatrix(version, measure, rows, files, values);
+  }
+
+  private static <T> Reference2IntOpenHashMap<T> createIndexMap(List<T> list) {
+    final Reference2IntOpenHashMap<T> map = new Reference2IntOpenHashMap<>(list.size());
+    map.defaultReturnValue(-1);
+    for (int i = 0; i < list.size(); i++) {
+      map.put(list.get(i), i);
+    }
+    return map;
+  }
+
+  /**
+   * @return the modification version of the feature list that this matrix reflects
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  public @NotNull AbundanceMeasure getMeasure() {
+    return measure;
+  }
+
+  /**
+   * @return the rows in the order of the matrix. Snapshot at the time of creation
+   */
+  public @NotNull List<FeatureListRow> getRows() {
+    return rows;
+  }
+
+  /**
+   * @return the raw data files in the order of the matrix. Snapshot at the time of creation
+   */
+  public @NotNull List<RawDataFile> getFiles() {
+    return files;
+  }
+
+  public int getNumberOfRows() {
+    return rows.size();
+  }
+
+  public int getNumberOfFiles() {
+    return files.size();
+  }
+
+  /**
+   * @return the index of the row or -1 if the row is not in this matrix
+   */
+  public int indexOf(@NotNull FeatureListRow row) {
+    return rowIndices.getInt(row);
+  }
+
+  /**
+   * @return the index of the raw data file or -1 if the file is not in this matrix
+   */
+  public int indexOf(@NotNull RawDataFile file) {
+    return fileIndices.getInt(file);
+  }
+
+  /**
+   * @return the indices of all files, -1 for files that are not in this matrix
+   */
+  public int[] indicesOf(@NotNull List<RawDataFile> files) {
+    final int[] indices = new int[files.size()];
+    for (int i = 0; i < indices.length; i++) {
+      indices[i] = indexOf(files.get(i));
+    }
+    return indices;
+  }
+
+  /**
+   * @return the abundance or NaN if missing
+   */
+  public float get(int rowIndex, int fileIndex) {
+    return values[rowIndex * files.size() + fileIndex];
+  }
+
+  /**
+   * @return the abundance or NaN if the row or file is not in this matrix or the value is missing
+   */
+  public double get(@NotNull FeatureListRow row, @NotNull RawDataFile file) {
+    final int rowIndex = indexOf(row);
+    final int fileIndex = indexOf(file);
+    return rowIndex < 0 || fileIndex < 0 ? Double.NaN : get(rowIndex, fileIndex);
+  }
+
+  /**
+   * Copies the abundances of one row in the order of the file indices
+   *
+   * @param fileIndices from {@link #indicesOf(List)}. Negative indices result in NaN
+   * @param dst         destination array
+   * @param dstOffset   start index in the destination
+   */
+  public void copyRow(int rowIndex, int[] fileIndices, double[] dst, int dstOffset) {
+    final int offset = rowIndex * files.size();
+    for (int i = 0; i < fileIndices.length; i++) {
+      final int file = fileIndices[i];
+      dst[dstOffset + i] = file < 0 ? Double.NaN : values[offset + file];
+    }
+  }
+}
@@ -0,0 +1,591 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.features;
+
+import io.github.mzmine.datamodel.features.types.DataType;
+import io.github.mzmine.datamodel.features.types.numbers.abstr.DoubleType;
+import io.github.mzmine.datamodel.features.types.numbers.abstr.FloatType;
+import io.github.mzmine.datamodel.features.types.numbers.abstr.IntegerType;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.lang.ref.Cleaner;
+import java.lang.ref.Cleaner.Cleanable;
+import java.lang.ref.WeakReference;
+import java.util.AbstractMap;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Columnar storage of the values of all rows or all features of a {@link ModularFeatureList}.
+ * Each data model owns a slot in all columns. Values of {@link FloatType}, {@link DoubleType} and
+ * {@link IntegerType} are kept in primitive columns, all other values in object columns. Values
+ * that do not match the primitive type of a column (e.g., a Double for a FloatType) are kept in a
+ * map of the column. Columns are split into pages, so growing never copies values and parallel
+ * writers to different slots do not interfere. Slots are released when a model is removed from its
+ * feature list or once it becomes unreachable. The release actions only weakly reference the
+ * store, so a store and its feature list are never kept reachable by the cleaner.
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+final class ColumnarDataStore {
+
+  private static final Cleaner CLEANER = Cleaner.create();
+
+  private static final int PAGE_BITS = 12;
+  // a detached store only holds the values of one model
+  private static final int DETACHED_PAGE_BITS = 0;
+
+  // state of a slot in a column
+  private static final byte ABSENT = 0;
+  private static final byte VALUE = 1;
+  private static final byte NULL_VALUE = 2;
+  // value of another class than the primitive values of the column
+  private static final byte OTHER_VALUE = 3;
+
+  private final Map<DataType, Column> columns = new ConcurrentHashMap<>();
+  private final @NotNull Consumer<DataType> onTypeAdded;
+  private final int pageBits;
+  // guarded by this
+  private final IntArrayList freeSlots = new IntArrayList();
+  private int nextSlot;
+
+  /**
+   * @param onTypeAdded called whenever a type is mapped for a slot that had no mapping
+   */
+  ColumnarDataStore(@NotNull Consumer<DataType> onTypeAdded) {
+    this(onTypeAdded, PAGE_BITS);
+  }
+
+  private ColumnarDataStore(@NotNull Consumer<DataType> onTypeAdded, int pageBits) {
+    this.onTypeAdded = onTypeAdded;
+    this.pageBits = pageBits;
+  }
+
+  /**
+   * @return a store for the values of a single model that was removed from its feature list
+   */
+  static ColumnarDataStore detached() {
+    return new ColumnarDataStore(_ -> {
+    }, DETACHED_PAGE_BITS);
+  }
+
+  /**
+   * Allocates a slot that is released once the model becomes unreachable
+   *
+   * @param model the owner of the slot, not referenced by the release action
+   * @return the slot and the cleanable to release it early
+   */
+  Slot allocate(@NotNull Object model) {
+    final int slot;
+    synchronized (this) {
+      slot = freeSlots.isEmpty() ? nextSlot++ : freeSlots.popInt();
+    }
+    return new Slot(this, slot,
+        CLEANER.register(model, new SlotRelease(new WeakReference<>(this), slot)));
+  }
+
+  /**
+   * Moves all mappings of a slot to a new slot in this store and releases the old slot
+   *
+   * @param model the owner of the slot
+   * @return the new slot in this store
+   */
+  Slot move(@NotNull Slot slot, @NotNull Object model) {
+    final Slot newSlot = allocate(model);
+    slot.store().copyTo(slot.index(), this, newSlot.index());
+    slot.cleanable().clean();
+    return newSlot;
+  }
+
+  private void release(int slot) {
+    for (Column column : columns.values()) {
+      column.clear(slot);
+    }
+    synchronized (this) {
+      freeSlots.add(slot);
+    }
+  }
+
+  /**
+   * @return the value or null if there is no mapping
+   */
+  @Nullable
+  Object get(int slot, @NotNull DataType type) {
+    final Column column = columns.get(type);
+    return column == null ? null : column.get(slot);
+  }
+
+  boolean containsKey(int slot, @NotNull DataType type) {
+    final Column column = columns.get(type);
+    return column != null && column.state(slot) != ABSENT;
+  }
+
+  /**
+   * @return the previous value or null
+   */
+  @Nullable
+  Object put(int slot, @NotNull DataType type, @Nullable Object value) {
+    final Column column = columns.computeIfAbsent(type, this::createColumn);
+    final boolean added = column.state(slot) == ABSENT;
+    final Object old = column.put(slot, value);
+    if (added) {
+      onTypeAdded.accept(type);
+    }
+    return old;
+  }
+
+  /**
+   * @return the removed value or null
+   */
+  @Nullable
+  Object remove(int slot, @NotNull DataType type) {
+    final Column column = columns.get(type);
+    return column == null ? null : column.remove(slot);
+  }
+
+  boolean isEmpty(int slot) {
+    for (Column column : columns.values()) {
+      if (column.state(slot) != ABSENT) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Performs the action for all mappings of a slot
+   */
+  void forEach(int slot, @NotNull BiConsumer<DataType, Object> action) {
+    for (Entry<DataType, Column> entry : columns.entrySet()) {
+      final Column column = entry.getValue();
+      if (column.state(slot) != ABSENT) {
+        action.accept(entry.getKey(), column.get(slot));
+      }
+    }
+  }
+
+  /**
+   * @return the mappings of a slot
+   */
+  List<Entry<DataType, Object>> entries(int slot) {
+    final List<Entry<DataType, Object>> entries = new ArrayList<>();
+    forEach(slot, (type, value) -> entries.add(new SimpleEntry<>(type, value)));
+    return entries;
+  }
+
+  int size(int slot) {
+    int size = 0;
+    for (Column column : columns.values()) {
+      if (column.state(slot) != ABSENT) {
+        size++;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Copies all mappings of a slot to another store
+   */
+  void copyTo(int slot, @NotNull ColumnarDataStore target, int targetSlot) {
+    for (Entry<DataType, Column> entry : columns.entrySet()) {
+      final Column column = entry.getValue();
+      if (column.state(slot) != ABSENT) {
+        target.put(targetSlot, entry.getKey(), column.get(slot));
+      }
+    }
+  }
+
+  /**
+   * @param owner the model that owns the slot is kept reachable by the view
+   * @return a live map view of one slot
+   */
+  Map<DataType, Object> mapView(int slot, @NotNull Object owner) {
+    return new SlotMap(slot, owner);
+  }
+
+  private Column createColumn(DataType type) {
+    return switch (type) {
+      case FloatType _ -> new FloatColumn(pageBits);
+      case DoubleType _ -> new DoubleColumn(pageBits);
+      case IntegerType _ -> new IntColumn(pageBits);
+      default -> new ObjectColumn(pageBits);
+    };
+  }
+
+  /**
+   * The slot of a data model in a store
+   *
+   * @param store     the store of the values
+   * @param index     index in all columns
+   * @param cleanable releases the slot
+   */
+  record Slot(ColumnarDataStore store, int index, Cleanable cleanable) {
+
+  }
+
+  /**
+   * Must not reference the model, otherwise it never becomes phantom reachable. The store is only
+   * weakly referenced, otherwise the cleaner keeps all stores and their feature lists reachable.
+   */
+  private record SlotRelease(WeakReference<ColumnarDataStore> store, int slot) implements
+      Runnable {
+
+    @Override
+    public void run() {
+      final ColumnarDataStore store = this.store.get();
+      if (store != null) {
+        store.release(slot);
+      }
+    }
+  }
+
+  /**
+   * Pages of states and values. Only the arrays of pages are replaced when growing.
+   */
+  private abstract static class Column {
+
+    private final int pageBits;
+    private final int pageMask;
+    private volatile byte[][] states = new byte[0][];
+    private volatile Object[] pages = new Object[0];
+    // values that are not accepted by the pages
+    private final Map<Integer, Object> otherValues = new ConcurrentHashMap<>();
+
+    Column(int pageBits) {
+      this.pageBits = pageBits;
+      pageMask = (1 << pageBits) - 1;
+    }
+
+    abstract Object createPage(int size);
+
+    /**
+     * @return true if the value can be stored in the pages
+     */
+    abstract boolean accepts(@NotNull Object value);
+
+    abstract Object getValue(Object page, int index);
+
+    abstract void setValue(Object page, int index, Object value);
+
+    abstract void clearValue(Object page, int index);
+
+    byte state(int slot) {
+      final byte[][] states = this.states;
+      final int page = slot >>> pageBits;
+      return page < states.length ? states[page][slot & pageMask] : ABSENT;
+    }
+
+    Object get(int slot) {
+      final int page = slot >>> pageBits;
+      final byte[][] states = this.states;
+      if (page >= states.length) {
+        return null;
+      }
+      return switch (states[page][slot & pageMask]) {
+        case VALUE -> getValue(pages[page], slot & pageMask);
+        case OTHER_VALUE -> otherValues.get(slot);
+        default -> null;
+      };
+    }
+
+    Object put(int slot, Object value) {
+      final int page = slot >>> pageBits;
+      ensurePage(page);
+      final Object old = get(slot);
+      if (states[page][slot & pageMask] == OTHER_VALUE) {
+        otherValues.remove(slot);
+      }
+      if (value == null) {
+        clearValue(pages[page], slot & pageMask);
+        states[page][slot & pageMask] = NULL_VALUE;
+      } else if (accepts(value)) {
+        setValue(pages[page], slot & pageMask, value);
+        states[page][slot & pageMask] = VALUE;
+      } else {
+        clearValue(pages[page], slot & pageMask);
+        otherValues.put(slot, value);
+        states[page][slot & pageMask] = OTHER_VALUE;
+      }
+      return old;
+    }
+
+    Object remove(int slot) {
+      final Object old = get(slot);
+      clear(slot);
+      return old;
+    }
+
+    void clear(int slot) {
+      final int page = slot >>> pageBits;
+      if (page < states.length) {
+        if (states[page][slot & pageMask] == OTHER_VALUE) {
+          otherValues.remove(slot);
+        }
+        states[page][slot & pageMask] = ABSENT;
+        clearValue(pages[page], slot & pageMask);
+      }
+    }
+
+    private void ensurePage(int page) {
+      if (page < states.length) {
+        return;
+      }
+      synchronized (this) {
+        final int oldLength = states.length;
+        if (page < oldLength) {
+          return;
+        }
+        final Object[] newPages = Arrays.copyOf(pages, page + 1);
+        final byte[][] newStates = Arrays.copyOf(states, page + 1);
+        for (int i = oldLength; i <= page; i++) {
+          newPages[i] = createPage(pageMask + 1);
+          newStates[i] = new byte[pageMask + 1];
+        }
+        // pages first, readers check the states
+        pages = newPages;
+        states = newStates;
+      }
+    }
+  }
+
+  private static final class FloatColumn extends Column {
+
+    FloatColumn(int pageBits) {
+      super(pageBits);
+    }
+
+    @Override
+    boolean accepts(@NotNull Object value) {
+      return value instanceof Float;
+    }
+
+    @Override
+    Object createPage(int size) {
+      return new float[size];
+    }
+
+    @Override
+    Object getValue(Object page, int index) {
+      return ((float[]) page)[index];
+    }
+
+    @Override
+    void setValue(Object page, int index, Object value) {
+      ((float[]) page)[index] = (Float) value;
+    }
+
+    @Override
+    void clearValue(Object page, int index) {
+      // primitive values do not need to be cleared
+    }
+  }
+
+  private static final class DoubleColumn extends Column {
+
+    DoubleColumn(int pageBits) {
+      super(pageBits);
+    }
+
+    @Override
+    boolean accepts(@NotNull Object value) {
+      return value instanceof Double;
+    }
+
+    @Override
+    Object createPage(int size) {
+      return new double[size];
+    }
+
+    @Override
+    Object getValue(Object page, int index) {
+      return ((double[]) page)[index];
+    }
+
+    @Override
+    void setValue(Object page, int index, Object value) {
+      ((double[]) page)[index] = (Double) value;
+    }
+
+    @Override
+    void clearValue(Object page, int index) {
+      // primitive values do not need to be cleared
+    }
+  }
+
+  private static final class IntColumn extends Column {
+
+    IntColumn(int pageBits) {
+      super(pageBits);
+    }
+
+    @Override
+    boolean accepts(@NotNull Object value) {
+      return value instanceof Integer;
+    }
+
+    @Override
+    Object createPage(int size) {
+      return new int[size];
+    }
+
+    @Override
+    Object getValue(Object page, int index) {
+      return ((int[]) page)[index];
+    }
+
+    @Override
+    void setValue(Object page, int index, Object value) {
+      ((int[]) page)[index] = (Integer) value;
+    }
+
+    @Override
+    void clearValue(Object page, int index) {
+      // primitive values do not need to be cleared
+    }
+  }
+
+  private static final class ObjectColumn extends Column {
+
+    ObjectColumn(int pageBits) {
+      super(pageBits);
+    }
+
+    @Override
+    boolean accepts(@NotNull Object value) {
+      return true;
+    }
+
+    @Override
+    Object createPage(int size) {
+      return new Object[size];
+    }
+
+    @Override
+    Object getValue(Object page, int index) {
+      return ((Object[]) page)[index];
+    }
+
+    @Override
+    void setValue(Object page, int index, Object value) {
+      ((Object[]) page)[index] = value;
+    }
+
+    @Override
+    void clearValue(Object page, int index) {
+      // release the reference
+      ((Object[]) page)[index] = null;
+    }
+  }
+
+  /**
+   * Map view of one slot for code that still works on {@link ModularDataModel#getMap()}
+   */
+  private final class SlotMap extends AbstractMap<DataType, Object> {
+
+    private final int slot;
+    // keeps the slot from being released
+    private final Object owner;
+
+    private SlotMap(int slot, Object owner) {
+      this.slot = slot;
+      this.owner = owner;
+    }
+
+    @Override
+    public Object get(Object key) {
+      return key instanceof DataType type ? ColumnarDataStore.this.get(slot, type) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return key instanceof DataType type && ColumnarDataStore.this.containsKey(slot, type);
+    }
+
+    @Override
+    public Object put(DataType key, Object value) {
+      return ColumnarDataStore.this.put(slot, key, value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+      return key instanceof DataType type ? ColumnarDataStore.this.remove(slot, type) : null;
+    }
+
+    @Override
+    public int size() {
+      return ColumnarDataStore.this.size(slot);
+    }
+
+    @Override
+    public @NotNull Set<Entry<DataType, Object>> entrySet() {
+      return new AbstractSet<>() {
+        @Override
+        public @NotNull Iterator<Entry<DataType, Object>> iterator() {
+          // snapshot
+          final Iterator<Entry<DataType, Object>> iterator = entries(slot).iterator();
+          return new Iterator<>() {
+            private Entry<DataType, Object> last;
+
+            @Override
+            public boolean hasNext() {
+              return iterator.hasNext();
+            }
+
+            @Override
+            public Entry<DataType, Object> next() {
+              return last = iterator.next();
+            }
+
+            @Override
+            public void remove() {
+              if (last == null) {
+                throw new IllegalStateException();
+              }
+              ColumnarDataStore.this.remove(slot, last.getKey());
+              last = null;
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return ColumnarDataStore.this.size(slot);
+        }
+      };
+    }
+  }
+}
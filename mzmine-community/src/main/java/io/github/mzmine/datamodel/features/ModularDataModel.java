@@ -36,10 +36,10 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
 import javafx.beans.property.Property;
-import javafx.collections.ObservableMap;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -57,17 +57,45 @@ public interface ModularDataModel {
   }
 
   /**
-   * The map containing all mappings to the types defined in getTypes
+   * The map containing all mappings to the types defined in getTypes. Feature list rows and
+   * features store their values in columns of the feature list and return a live view, see
+   * {@link ColumnarDataStore}.
    *
    * @param
    * @return
    */
-  ObservableMap<DataType, Object> getMap();
+  Map<DataType, Object> getMap();
+
+  /**
+   * Maps the value without notifying listeners. Use {@link #set(DataType, Object)} instead.
+   *
+   * @return the previous value or null
+   */
+  default Object putValue(DataType type, Object value) {
+    return getMap().put(type, value);
+  }
+
+  /**
+   * Removes the value without notifying listeners. Use {@link #remove(DataType)} instead.
+   *
+   * @return the removed value or null
+   */
+  default Object removeValue(DataType type) {
+    return getMap().remove(type);
+  }
 
   default boolean isEmpty() {
     return getMap().isEmpty();
   }
 
+  /**
+   * Performs the action for all mappings of this model. Prefer this over {@link #getMap()} to
+   * iterate the values.
+   */
+  default void forEach(@NotNull BiConsumer<DataType, Object> action) {
+    getMap().forEach(action);
+  }
+
   /**
    * has DataType column of this DataModel
    *
@@ -169,7 +197,7 @@ public interface ModularDataModel {
    */
   @NotNull
   default <T> T getNonNullElse(DataType<T> type, @NotNull T defaultValue) {
-    return (T) requireNonNullElse(getMap().getOrDefault(type, null), defaultValue);
+    return requireNonNullElse(get(type), defaultValue);
   }
 
 
@@ -179,7 +207,7 @@ public interface ModularDataModel {
    */
   @Nullable
   default <T extends Object> boolean hasValueFor(DataType<T> type) {
-    return getMap().get(type) != null;
+    return get(type) != null;
   }
 
   /**
@@ -228,10 +256,10 @@ public interface ModularDataModel {
           STR."Type \{type.getClass()} is not meant to be added to a feature.");
     }
 
-    Object old = getMap().put(type, value);
-    // send changes to all listeners for this data type
-    List<DataTypeValueChangeListener<?>> listeners = getValueChangeListeners().get(type);
+    Object old = putValue(type, value);
     if (!Objects.equals(old, value)) {
+      // send changes to all listeners for this data type
+      List<DataTypeValueChangeListener<?>> listeners = getValueChangeListeners().get(type);
       if (listeners != null) {
         for (DataTypeValueChangeListener listener : listeners) {
           listener.valueChanged(this, type, old, value);
@@ -273,7 +301,7 @@ public interface ModularDataModel {
    */
   default <T> void remove(DataType<T> type) {
     if (type != null) {
-      Object old = getMap().remove(type);
+      Object old = removeValue(type);
       if (old != null) {
         List<DataTypeValueChangeListener<?>> listeners = getValueChangeListeners().get(type);
         if (listeners != null) {
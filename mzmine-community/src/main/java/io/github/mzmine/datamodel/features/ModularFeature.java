@@ -63,17 +63,18 @@ import io.github.mzmine.datamodel.impl.SimpleDataPoint;
 import io.github.mzmine.modules.tools.qualityparameters.QualityParameters;
 import io.github.mzmine.util.DataPointUtils;
 import io.github.mzmine.util.FeatureUtils;
+import java.lang.ref.Reference;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javafx.collections.FXCollections;
-import javafx.collections.MapChangeListener;
-import javafx.collections.ObservableMap;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -85,22 +86,18 @@ import org.jetbrains.annotations.Nullable;
 public class ModularFeature implements Feature, ModularDataModel {
 
   private static final Logger logger = Logger.getLogger(ModularFeature.class.getName());
-  private final ObservableMap<DataType, Object> map = FXCollections.observableMap(new HashMap<>());
   // buffert col charts and nodes
   @NotNull
   private ModularFeatureList flist;
+  // values are stored in the feature columns of the feature list
+  @NotNull
+  private ColumnarDataStore.Slot slot;
 
   private FeatureListRow parentRow;
 
   public ModularFeature(@NotNull ModularFeatureList flist) {
     this.flist = flist;
-
-    //
-    map.addListener((MapChangeListener<? super DataType, ? super Object>) change -> {
-      if (change.wasAdded()) {
-        flist.addFeatureType(change.getKey());
-      }
-    });
+    slot = flist.getFeatureStore().allocate(this);
   }
 
   // NOT TESTED
@@ -283,10 +280,78 @@ public class ModularFeature implements Feature, ModularDataModel {
     return flist.getFeatureTypes();
   }
 
-  // todo make this private?
+  /**
+   * @return a live view of the values in the feature columns of the feature list
+   */
+  @Override
+  public Map<DataType, Object> getMap() {
+    return slot.store().mapView(slot.index(), this);
+  }
+
+  @Override
+  public <T> T get(DataType<T> type) {
+    try {
+      return (T) slot.store().get(slot.index(), type);
+    } finally {
+      // the slot is released once this is unreachable
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  @Override
+  public Object putValue(DataType type, Object value) {
+    try {
+      return slot.store().put(slot.index(), type, value);
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  @Override
+  public Object removeValue(DataType type) {
+    try {
+      return slot.store().remove(slot.index(), type);
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  @Override
+  public boolean isEmpty() {
+    try {
+      return slot.store().isEmpty(slot.index());
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  @Override
+  public <T> T getOrDefault(DataType<T> type, T defaultValue) {
+    try {
+      final ColumnarDataStore store = slot.store();
+      return store.containsKey(slot.index(), type) ? (T) store.get(slot.index(), type)
+          : defaultValue;
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
   @Override
-  public ObservableMap<DataType, Object> getMap() {
-    return map;
+  public void forEach(@NotNull BiConsumer<DataType, Object> action) {
+    try {
+      slot.store().forEach(slot.index(), action);
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  @Override
+  public Stream<Entry<DataType, Object>> stream() {
+    try {
+      return slot.store().entries(slot.index()).stream();
+    } finally {
+      Reference.reachabilityFence(this);
+    }
   }
 
   /**
@@ -430,7 +495,33 @@ public class ModularFeature implements Feature, ModularDataModel {
 
   @Override
   public void setFeatureList(@NotNull FeatureList flist) {
-    this.flist = (ModularFeatureList) flist;
+    final ModularFeatureList newList = (ModularFeatureList) flist;
+    if (slot.store() != newList.getFeatureStore()) {
+      // move values to the columns of the new feature list and release the old slot
+      slot = newList.getFeatureStore().move(slot, this);
+    }
+    this.flist = newList;
+  }
+
+  /**
+   * Moves the values out of the columns of the feature list and releases the slot. Called when the
+   * feature is removed from its row.
+   */
+  void detachValues() {
+    if (slot.store() == flist.getFeatureStore()) {
+      slot = ColumnarDataStore.detached().move(slot, this);
+    }
+  }
+
+  /**
+   * Releases the slot in the columns of the feature list and clears all values. Called when the
+   * feature list is removed or discarded.
+   */
+  void releaseValues() {
+    if (slot.store() == flist.getFeatureStore()) {
+      slot.cleanable().clean();
+      slot = ColumnarDataStore.detached().allocate(this);
+    }
   }
 
   @Override
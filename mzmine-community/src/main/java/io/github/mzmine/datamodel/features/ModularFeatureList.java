@@ -26,6 +26,7 @@
 package io.github.mzmine.datamodel.features;
 
 import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.AbundanceMeasure;
 import io.github.mzmine.datamodel.Frame;
 import io.github.mzmine.datamodel.IMSRawDataFile;
 import io.github.mzmine.datamodel.MZmineProject;
@@ -35,6 +36,8 @@ import io.github.mzmine.datamodel.features.correlation.R2RNetworkingMaps;
 import io.github.mzmine.datamodel.features.correlation.RowGroup;
 import io.github.mzmine.datamodel.features.types.DataType;
 import io.github.mzmine.datamodel.features.types.FeatureDataType;
+import io.github.mzmine.datamodel.features.types.DataTypes;
+import io.github.mzmine.datamodel.features.types.DetectionType;
 import io.github.mzmine.datamodel.features.types.annotations.ManualAnnotationType;
 import io.github.mzmine.datamodel.features.types.modifiers.GraphicalColumType;
 import io.github.mzmine.datamodel.features.types.numbers.IDType;
@@ -55,6 +58,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
+import java.util.EnumMap;
 import java.util.DoubleSummaryStatistics;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -63,12 +67,17 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.collections.ObservableMap;
 import javafx.collections.ObservableSet;
@@ -111,6 +120,12 @@ public class ModularFeatureList implements FeatureList {
   private final ObservableSet<DataType> featureTypes = FXCollections.observableSet(
       new LinkedHashSet<>());
   private final ObservableList<FeatureListRow> featureListRows;
+  /**
+   * Columnar values of all rows and features, types are added on first use
+   */
+  private final ColumnarDataStore rowStore = new ColumnarDataStore(type -> addRowType(type));
+  private final ColumnarDataStore featureStore = new ColumnarDataStore(
+      type -> addFeatureType(type));
   private final ObservableList<FeatureListAppliedMethod> descriptionOfAppliedTasks;
 
   private final R2RNetworkingMaps r2rNetworkingMaps = new R2RNetworkingMaps();
@@ -132,6 +147,22 @@ public class ModularFeatureList implements FeatureList {
    */
   private final Map<String, Node> bufferedCharts = new HashMap<>();
 
+  /**
+   * Incremented whenever rows, raw data files or abundances of features change. Outdated
+   * {@link AbundanceMatrix} versions are recreated on demand
+   */
+  private final AtomicLong abundanceVersion = new AtomicLong();
+  private final Map<AbundanceMeasure, AbundanceMatrix> abundanceMatrices = new EnumMap<>(
+      AbundanceMeasure.class);
+
+  /**
+   * Number of open {@link BulkUpdate} scopes. Row bindings of changed rows are deferred until all
+   * scopes are closed
+   */
+  private final AtomicInteger bulkUpdates = new AtomicInteger();
+  private final Set<FeatureListRow> dirtyRows = ConcurrentHashMap.newKeySet();
+  private final AtomicBoolean applyingDirtyRows = new AtomicBoolean();
+
   public ModularFeatureList(String name, @Nullable MemoryMapStorage storage,
       @NotNull RawDataFile... dataFiles) {
     this(name, storage, List.of(dataFiles));
@@ -179,6 +210,141 @@ public class ModularFeatureList implements FeatureList {
         parallelStream().forEach(row -> row.remove(removed));
       }
     });
+
+    // invalidate abundance matrices
+    featureListRows.addListener(
+        (ListChangeListener<? super FeatureListRow>) _ -> invalidateAbundanceMatrices());
+    dataFiles.addListener(
+        (ListChangeListener<? super RawDataFile>) _ -> invalidateAbundanceMatrices());
+    // the status defines if a feature is detected or unknown (missing)
+    addFeatureTypeListener(DataTypes.get(DetectionType.class),
+        (_, _, _, _) -> invalidateAbundanceMatrices());
+    for (AbundanceMeasure measure : AbundanceMeasure.values()) {
+      addFeatureTypeListener(DataTypes.get(measure.type()),
+          (_, _, _, _) -> invalidateAbundanceMatrices());
+    }
+  }
+
+  /**
+   * A dense matrix of all rows x raw data files for this abundance measure that is shared by all
+   * consumers. The matrix is only recreated if rows, files, or abundances changed since the last
+   * call.
+   *
+   * @return the current abundance matrix
+   */
+  @NotNull
+  public AbundanceMatrix getAbundanceMatrix(@NotNull AbundanceMeasure measure) {
+    synchronized (abundanceMatrices) {
+      // read version first so that changes during creation result in an outdated matrix
+      final long version = abundanceVersion.get();
+      final AbundanceMatrix cached = abundanceMatrices.get(measure);
+      if (cached != null && cached.getVersion() == version) {
+        return cached;
+      }
+      final AbundanceMatrix matrix = AbundanceMatrix.create(this, measure, version);
+      abundanceMatrices.put(measure, matrix);
+      return matrix;
+    }
+  }
+
+  /**
+   * @return the modification version of rows, raw data files, and feature abundances
+   */
+  public long getAbundanceVersion() {
+    return abundanceVersion.get();
+  }
+
+  /**
+   * Marks all {@link AbundanceMatrix} as outdated. Called automatically on changes of rows, raw
+   * data files, features, and their abundances.
+   */
+  public void invalidateAbundanceMatrices() {
+    abundanceVersion.incrementAndGet();
+  }
+
+  /**
+   * Starts a bulk update that defers all row bindings until the scope is closed. Each row that was
+   * changed in the meantime is then recalculated once. Use for modules that set many values on
+   * features that are already added to rows. Scopes may be nested and shared by multiple threads.
+   * <pre>{@code
+   * try (var _ = flist.startBulkUpdate()) {
+   *   // change features
+   * }
+   * }</pre>
+   *
+   * @return the scope to close
+   */
+  @NotNull
+  public BulkUpdate startBulkUpdate() {
+    bulkUpdates.incrementAndGet();
+    return new BulkUpdate(this);
+  }
+
+  /**
+   * @return true if a {@link BulkUpdate} is open
+   */
+  public boolean isBulkUpdate() {
+    return bulkUpdates.get() > 0;
+  }
+
+  /**
+   * Marks the row to be recalculated at the end of the current {@link BulkUpdate}
+   *
+   * @param row the changed row, may be null if a feature was not yet added to a row
+   * @return true if the row bindings are deferred, false if there is no bulk update and the
+   * bindings should be applied directly
+   */
+  public boolean deferRowBindings(@Nullable FeatureListRow row) {
+    if (!isBulkUpdate()) {
+      return false;
+    }
+    if (row != null) {
+      dirtyRows.add(row);
+      // the last scope might have been closed in the meantime
+      if (!isBulkUpdate()) {
+        applyDirtyRowBindings();
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @param apply false to drop the dirty rows without applying the row bindings if this was the
+   *              last scope
+   */
+  private void endBulkUpdate(boolean apply) {
+    if (bulkUpdates.decrementAndGet() == 0) {
+      if (apply) {
+        applyDirtyRowBindings();
+      } else {
+        dirtyRows.clear();
+      }
+    }
+  }
+
+  private void applyDirtyRowBindings() {
+    // only one thread applies at a time, so that the latest values win. It repeats until no
+    // dirty rows are left or a new scope is open, which applies the rows when closed
+    while (!isBulkUpdate() && !dirtyRows.isEmpty() && applyingDirtyRows.compareAndSet(false,
+        true)) {
+      try {
+        final List<FeatureListRow> rows = new ArrayList<>(dirtyRows.size());
+        for (var it = dirtyRows.iterator(); it.hasNext(); ) {
+          rows.add(it.next());
+          it.remove();
+        }
+        rows.parallelStream().forEach(this::applyRowBindings);
+      } finally {
+        applyingDirtyRows.set(false);
+      }
+    }
+  }
+
+  @Override
+  public void fireFeatureChangedEvent(FeatureListRow row, Feature newFeature, RawDataFile raw,
+      boolean updateByRowBindings) {
+    invalidateAbundanceMatrices();
+    FeatureList.super.fireFeatureChangedEvent(row, newFeature, raw, updateByRowBindings);
   }
 
   @Override
@@ -343,6 +509,9 @@ public class ModularFeatureList implements FeatureList {
 
   @Override
   public void applyRowBindings(FeatureListRow row) {
+    if (deferRowBindings(row)) {
+      return;
+    }
     for (var listeners : featureTypeListeners.values()) {
       for (var listener : listeners) {
         if (listener instanceof RowBinding bind) {
@@ -352,6 +521,20 @@ public class ModularFeatureList implements FeatureList {
     }
   }
 
+  /**
+   * @return the columnar values of all rows
+   */
+  ColumnarDataStore getRowStore() {
+    return rowStore;
+  }
+
+  /**
+   * @return the columnar values of all features
+   */
+  ColumnarDataStore getFeatureStore() {
+    return featureStore;
+  }
+
   /**
    * Summary of all feature type columns
    *
@@ -545,6 +728,10 @@ public class ModularFeatureList implements FeatureList {
       }
     }
     //    logger.finest("ADD ROW");
+    if (modularRow.getFeatureList() == this) {
+      // values of a removed row were detached from the columns
+      modularRow.attachValues();
+    }
     featureListRows.add(modularRow);
     applyRowBindings(modularRow);
 
@@ -592,7 +779,24 @@ public class ModularFeatureList implements FeatureList {
    */
   @Override
   public void removeRow(FeatureListRow row) {
-    featureListRows.remove(row);
+    if (featureListRows.remove(row) && row instanceof ModularFeatureListRow modularRow
+        && modularRow.getFeatureList() == this) {
+      // release the slots in the columns, the row keeps its values
+      modularRow.detachValues();
+    }
+  }
+
+  /**
+   * Releases the slots of all rows and features in the columns of this feature list and clears
+   * their values. Call when this feature list is removed from the project or discarded and is not
+   * used anymore.
+   */
+  public void releaseValues() {
+    for (FeatureListRow row : featureListRows) {
+      if (row instanceof ModularFeatureListRow modularRow && modularRow.getFeatureList() == this) {
+        modularRow.releaseValues();
+      }
+    }
   }
 
   /**
@@ -798,14 +1002,16 @@ public class ModularFeatureList implements FeatureList {
 
     // key is original row and value is copied row
     Map<FeatureListRow, ModularFeatureListRow> mapCopied = new HashMap<>();
-    // copy all rows and features
-    int id = 0;
-    for (FeatureListRow row : this.getRows()) {
-      id = renumberIDs ? id + 1 : row.getID();
-      ModularFeatureListRow copyRow = new ModularFeatureListRow(flist, id,
-          (ModularFeatureListRow) row, true);
-      flist.addRow(copyRow);
-      mapCopied.put(row, copyRow);
+    // copy all rows and features, calculate row bindings once per row
+    try (var _ = flist.startBulkUpdate()) {
+      int id = 0;
+      for (FeatureListRow row : this.getRows()) {
+        id = renumberIDs ? id + 1 : row.getID();
+        ModularFeatureListRow copyRow = new ModularFeatureListRow(flist, id,
+            (ModularFeatureListRow) row, true);
+        flist.addRow(copyRow);
+        mapCopied.put(row, copyRow);
+      }
     }
 
     // todo copy all row to row relationships and exchange row references in datatypes
@@ -917,4 +1123,35 @@ public class ModularFeatureList implements FeatureList {
 
     bufferedCharts.clear();
   }
+
+  /**
+   * Scope of a bulk update, see {@link #startBulkUpdate()}. Closing more than once or after
+   * {@link #discard()} has no effect.
+   */
+  public static final class BulkUpdate implements AutoCloseable {
+
+    private final ModularFeatureList flist;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private BulkUpdate(ModularFeatureList flist) {
+      this.flist = flist;
+    }
+
+    @Override
+    public void close() {
+      if (closed.compareAndSet(false, true)) {
+        flist.endBulkUpdate(true);
+      }
+    }
+
+    /**
+     * Closes the scope without applying the row bindings, e.g., if the feature list is discarded
+     * after a cancel. If other scopes are still open, their close applies the dirty rows.
+     */
+    public void discard() {
+      if (closed.compareAndSet(false, true)) {
+        flist.endBulkUpdate(false);
+      }
+    }
+  }
 }
@@ -72,6 +72,7 @@ import io.github.mzmine.util.SortingDirection;
 import io.github.mzmine.util.SortingProperty;
 import io.github.mzmine.util.scans.FragmentScanSorter;
 import io.github.mzmine.util.spectraldb.entry.SpectralDBAnnotation;
+import java.lang.ref.Reference;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -81,12 +82,11 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
 import javafx.collections.FXCollections;
-import javafx.collections.MapChangeListener;
 import javafx.collections.ObservableList;
-import javafx.collections.ObservableMap;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -107,10 +107,12 @@ public class ModularFeatureListRow implements FeatureListRow {
    * this final map is used in the FeaturesType - only ModularFeatureListRow is supposed to change
    * this map see {@link #addFeature}
    */
-  private final ObservableMap<DataType, Object> map = FXCollections.observableMap(new HashMap<>());
   private final Map<RawDataFile, ModularFeature> features;
   @NotNull
   private ModularFeatureList flist;
+  // values are stored in the row columns of the feature list
+  @NotNull
+  private ColumnarDataStore.Slot slot;
 
   /**
    * Creates an empty row
@@ -120,12 +122,7 @@ public class ModularFeatureListRow implements FeatureListRow {
    */
   public ModularFeatureListRow(@NotNull ModularFeatureList flist, int id) {
     this.flist = flist;
-
-    map.addListener((MapChangeListener<? super DataType, ? super Object>) change -> {
-      if (change.wasAdded()) {
-        flist.addRowType(change.getKey());
-      }
-    });
+    slot = flist.getRowStore().allocate(this);
 
     // features
     List<RawDataFile> raws = flist.getRawDataFiles();
@@ -199,10 +196,78 @@ public class ModularFeatureListRow implements FeatureListRow {
     return flist.getRowTypes();
   }
 
-  // todo make private?
+  /**
+   * @return a live view of the values in the row columns of the feature list
+   */
+  @Override
+  public Map<DataType, Object> getMap() {
+    return slot.store().mapView(slot.index(), this);
+  }
+
+  @Override
+  public <T> T get(DataType<T> type) {
+    try {
+      return (T) slot.store().get(slot.index(), type);
+    } finally {
+      // the slot is released once this is unreachable
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  @Override
+  public Object putValue(DataType type, Object value) {
+    try {
+      return slot.store().put(slot.index(), type, value);
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  @Override
+  public Object removeValue(DataType type) {
+    try {
+      return slot.store().remove(slot.index(), type);
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  @Override
+  public boolean isEmpty() {
+    try {
+      return slot.store().isEmpty(slot.index());
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  @Override
+  public <T> T getOrDefault(DataType<T> type, T defaultValue) {
+    try {
+      final ColumnarDataStore store = slot.store();
+      return store.containsKey(slot.index(), type) ? (T) store.get(slot.index(), type)
+          : defaultValue;
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
   @Override
-  public ObservableMap<DataType, Object> getMap() {
-    return map;
+  public void forEach(@NotNull BiConsumer<DataType, Object> action) {
+    try {
+      slot.store().forEach(slot.index(), action);
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  @Override
+  public Stream<Entry<DataType, Object>> stream() {
+    try {
+      return slot.store().entries(slot.index()).stream();
+    } finally {
+      Reference.reachabilityFence(this);
+    }
   }
 
   @Override
@@ -281,7 +346,13 @@ public class ModularFeatureListRow implements FeatureListRow {
 
   @Override
   public void removeFeature(RawDataFile file) {
-    this.features.remove(file);
+    final ModularFeature removed = this.features.remove(file);
+    if (removed != null) {
+      if (removed.getFeatureList() == flist) {
+        removed.detachValues();
+      }
+      flist.invalidateAbundanceMatrices();
+    }
   }
 
   @Override
@@ -379,7 +450,56 @@ public class ModularFeatureListRow implements FeatureListRow {
       throw new IllegalArgumentException(
           "Cannot set non-modular feature list to modular feature list row.");
     }
-    this.flist = (ModularFeatureList) flist;
+    final ModularFeatureList newList = (ModularFeatureList) flist;
+    if (slot.store() != newList.getRowStore()) {
+      // move values to the columns of the new feature list and release the old slot
+      slot = newList.getRowStore().move(slot, this);
+    }
+    this.flist = newList;
+  }
+
+  /**
+   * Moves the values of this row and its features out of the columns of the feature list and
+   * releases their slots. Called when the row is removed from the feature list.
+   */
+  void detachValues() {
+    if (slot.store() == flist.getRowStore()) {
+      slot = ColumnarDataStore.detached().move(slot, this);
+    }
+    for (ModularFeature feature : features.values()) {
+      if (feature.getFeatureList() == flist) {
+        feature.detachValues();
+      }
+    }
+  }
+
+  /**
+   * Moves detached values of this row and its features back to the columns of the feature list.
+   * Called when the row is added to its feature list.
+   */
+  void attachValues() {
+    setFeatureList(flist);
+    for (ModularFeature feature : features.values()) {
+      if (feature.getFeatureList() == flist) {
+        feature.setFeatureList(flist);
+      }
+    }
+  }
+
+  /**
+   * Releases the slots of this row and its features in the columns of the feature list and
+   * clears all values. Called when the feature list is removed or discarded.
+   */
+  void releaseValues() {
+    if (slot.store() == flist.getRowStore()) {
+      slot.cleanable().clean();
+      slot = ColumnarDataStore.detached().allocate(this);
+    }
+    for (ModularFeature feature : features.values()) {
+      if (feature.getFeatureList() == flist) {
+        feature.releaseValues();
+      }
+    }
   }
 
   @Override
@@ -499,7 +619,7 @@ public class ModularFeatureListRow implements FeatureListRow {
 
   @Override
   public void addCompoundAnnotation(CompoundDBAnnotation id) {
-    synchronized (getMap()) {
+    synchronized (this) {
       List<CompoundDBAnnotation> matches = get(CompoundDatabaseMatchesType.class);
       if (matches == null) {
         matches = new ArrayList<>();
@@ -525,8 +645,7 @@ public class ModularFeatureListRow implements FeatureListRow {
    */
   @Override
   public boolean isIdentified() {
-    for (Entry<DataType, Object> entry : getMap().entrySet()) {
-      final DataType dt = entry.getKey();
+    for (final DataType dt : getTypes()) {
       if (dt instanceof ListWithSubsType<?> listType && dt instanceof AnnotationType) {
         final List<?> list = get(listType);
         if (list != null && !list.isEmpty()) {
@@ -539,14 +658,14 @@ public class ModularFeatureListRow implements FeatureListRow {
 
   @Override
   public void setCompoundAnnotations(List<CompoundDBAnnotation> annotations) {
-    synchronized (getMap()) {
+    synchronized (this) {
       set(CompoundDatabaseMatchesType.class, annotations);
     }
   }
 
   @Override
   public void addSpectralLibraryMatch(SpectralDBAnnotation id) {
-    synchronized (getMap()) {
+    synchronized (this) {
       List<SpectralDBAnnotation> matches = get(SpectralLibraryMatchesType.class);
       if (matches == null) {
         matches = new ArrayList<>();
@@ -558,7 +677,7 @@ public class ModularFeatureListRow implements FeatureListRow {
 
   @Override
   public void addSpectralLibraryMatches(List<SpectralDBAnnotation> matches) {
-    synchronized (getMap()) {
+    synchronized (this) {
       List<SpectralDBAnnotation> old = get(SpectralLibraryMatchesType.class);
       if (old == null) {
         old = new ArrayList<>();
@@ -576,7 +695,7 @@ public class ModularFeatureListRow implements FeatureListRow {
 
   @Override
   public void setSpectralLibraryMatch(List<SpectralDBAnnotation> matches) {
-    synchronized (getMap()) {
+    synchronized (this) {
       set(SpectralLibraryMatchesType.class, matches);
     }
   }
@@ -77,8 +77,13 @@ public class SimpleRowBinding implements RowBinding {
   public void valueChanged(ModularDataModel dataModel, DataType type, Object oldValue,
       Object newValue) {
     if (dataModel instanceof Feature feature) {
-      // change in feature applied to its row
-      apply(feature.getRow());
+      // change in feature applied to its row, or once at the end of a bulk update
+      final FeatureListRow row = feature.getRow();
+      if (feature.getFeatureList() instanceof ModularFeatureList flist
+          && flist.deferRowBindings(row)) {
+        return;
+      }
+      apply(row);
     } else {
       throw new UnsupportedOperationException(
           "Cannot apply a SimpleRowBinding if the changed data model is not a Feature");
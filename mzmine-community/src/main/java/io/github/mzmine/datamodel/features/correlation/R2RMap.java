@@ -26,30 +26,85 @@
 package io.github.mzmine.datamodel.features.correlation;
 
 import io.github.mzmine.datamodel.features.FeatureListRow;
-import io.github.mzmine.util.MathUtils;
-import java.util.Collection;
-import java.util.concurrent.ConcurrentHashMap;
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
- * Map an object to two rows
+ * Map an object to two rows. Values are stored under a primitive long key that is computed from
+ * the two row IDs. The map is split into lock striped segments so that many threads can add
+ * relationships concurrently without boxing the keys. An adjacency list of neighbour row IDs is
+ * kept for each row, so that all relationships of a single row are found in O(degree) instead of
+ * checking all other rows.
  *
  * @author Robin Schmid
  */
-public class R2RMap<T> extends ConcurrentHashMap<Integer, T> {
+public class R2RMap<T> {
 
+  // power of 2
+  private static final int SEGMENTS = 64;
+  private static final int SEGMENT_MASK = SEGMENTS - 1;
+
+  private final Long2ObjectOpenHashMap<T>[] values;
+  // row ID to neighbour row IDs
+  private final Int2ObjectOpenHashMap<IntArrayList>[] adjacency;
+
+  @SuppressWarnings("unchecked")
   public R2RMap() {
+    values = new Long2ObjectOpenHashMap[SEGMENTS];
+    adjacency = new Int2ObjectOpenHashMap[SEGMENTS];
+    for (int i = 0; i < SEGMENTS; i++) {
+      values[i] = new Long2ObjectOpenHashMap<>();
+      adjacency[i] = new Int2ObjectOpenHashMap<>();
+    }
   }
 
   /**
    * A unique undirected key is computed from the two row.getIDs
    *
-   * @param a Feature list row with getID >=0
-   * @param b Feature list row with getID >=0
-   * @return unique undirected ID
+   * @param a Feature list row
+   * @param b Feature list row
+   * @return unique undirected key
    */
-  public static int toKey(FeatureListRow a, FeatureListRow b) {
-    return MathUtils.undirectedPairing(a.getID(), b.getID());
+  public static long toKey(FeatureListRow a, FeatureListRow b) {
+    return toKey(a.getID(), b.getID());
+  }
+
+  /**
+   * A unique undirected key is computed from the two row IDs. The lower ID is stored in the upper
+   * 32 bits.
+   *
+   * @return unique undirected key
+   */
+  public static long toKey(int idA, int idB) {
+    final int lower = Math.min(idA, idB);
+    final int upper = Math.max(idA, idB);
+    return ((long) lower << 32) | (upper & 0xffffffffL);
+  }
+
+  private static int firstID(long key) {
+    return (int) (key >>> 32);
+  }
+
+  private static int secondID(long key) {
+    return (int) key;
+  }
+
+  private static int segment(long key) {
+    return (int) HashCommon.mix(key) & SEGMENT_MASK;
+  }
+
+  private static int segment(int rowID) {
+    return HashCommon.mix(rowID) & SEGMENT_MASK;
   }
 
   /**
@@ -59,7 +114,7 @@ public class R2RMap<T> extends ConcurrentHashMap<Integer, T> {
    * @param value values is mapped to the pair of FeatureListRows a and b
    */
   public void add(FeatureListRow a, FeatureListRow b, T value) {
-    this.put(toKey(a, b), value);
+    put(a.getID(), b.getID(), value);
   }
 
   /**
@@ -69,7 +124,44 @@ public class R2RMap<T> extends ConcurrentHashMap<Integer, T> {
    * @param value values is mapped to the pair of FeatureListRows a and b
    */
   public void put(FeatureListRow a, FeatureListRow b, T value) {
-    super.put(toKey(a, b), value);
+    put(a.getID(), b.getID(), value);
+  }
+
+  /**
+   * Maps a value to two row IDs. Arguments are interchangeable and yield the same mapping.
+   *
+   * @param value non-null value mapped to the pair of row IDs
+   * @return the previous value or null if there was no mapping
+   */
+  @Nullable
+  public T put(int idA, int idB, @NotNull T value) {
+    Objects.requireNonNull(value, "Null values are not supported");
+    final long key = toKey(idA, idB);
+    final Long2ObjectOpenHashMap<T> map = values[segment(key)];
+    final T previous;
+    synchronized (map) {
+      previous = map.put(key, value);
+    }
+    if (previous == null) {
+      // new edge: register both directions. Only one segment lock is held at a time
+      addNeighbour(idA, idB);
+      if (idA != idB) {
+        addNeighbour(idB, idA);
+      }
+    }
+    return previous;
+  }
+
+  private void addNeighbour(int rowID, int neighbourID) {
+    final Int2ObjectOpenHashMap<IntArrayList> map = adjacency[segment(rowID)];
+    synchronized (map) {
+      IntArrayList neighbours = map.get(rowID);
+      if (neighbours == null) {
+        neighbours = new IntArrayList(4);
+        map.put(rowID, neighbours);
+      }
+      neighbours.add(neighbourID);
+    }
   }
 
   /**
@@ -77,26 +169,23 @@ public class R2RMap<T> extends ConcurrentHashMap<Integer, T> {
    *
    * @return the value mapped to the pair of a-b (== b-a) or null if no mapping exists
    */
+  @Nullable
   public T get(FeatureListRow a, FeatureListRow b) {
-    return get(toKey(a, b));
+    return get(a.getID(), b.getID());
   }
 
   /**
-   * Performance optimised version to get a stream of all correlated rows in this {@link R2RMap}.
-   * Mapping is based on the ID of the two rows. Make sure the row and allRows originate from the
-   * same feature list as this R2RMap relates to. Rows from other feature lists with common ids will
-   * be falsely correlated.
+   * Arguments are interchangeable.
    *
-   * @param row     the row to search relationships for
-   * @param allRows a collection of all rows to check for correlation
+   * @return the value mapped to the pair of row IDs or null if no mapping exists
    */
-  public Stream<T> streamAllCorrelatedRows(FeatureListRow row, Collection<FeatureListRow> allRows) {
-    return allRows.stream().<T>mapMulti((otherRow, consumer) -> {
-      final T relationship = get(row, otherRow);
-      if (relationship != null) {
-        consumer.accept(relationship);
-      }
-    });
+  @Nullable
+  public T get(int idA, int idB) {
+    final long key = toKey(idA, idB);
+    final Long2ObjectOpenHashMap<T> map = values[segment(key)];
+    synchronized (map) {
+      return map.get(key);
+    }
   }
 
   /**
@@ -107,4 +196,123 @@ public class R2RMap<T> extends ConcurrentHashMap<Integer, T> {
   public boolean contains(final FeatureListRow a, final FeatureListRow b) {
     return get(a, b) != null;
   }
+
+  /**
+   * @return the IDs of all rows that have a relationship to this row ID. Empty array if none
+   */
+  public int[] getNeighbourIDs(int rowID) {
+    final Int2ObjectOpenHashMap<IntArrayList> map = adjacency[segment(rowID)];
+    synchronized (map) {
+      final IntArrayList neighbours = map.get(rowID);
+      return neighbours == null ? new int[0] : neighbours.toIntArray();
+    }
+  }
+
+  /**
+   * @return number of relationships of this row
+   */
+  public int getDegree(FeatureListRow row) {
+    final int rowID = row.getID();
+    final Int2ObjectOpenHashMap<IntArrayList> map = adjacency[segment(rowID)];
+    synchronized (map) {
+      final IntArrayList neighbours = map.get(rowID);
+      return neighbours == null ? 0 : neighbours.size();
+    }
+  }
+
+  /**
+   * Stream all relationships of a row by its adjacency list. Mapping is based on the ID of the two
+   * rows. Make sure the row originates from the same feature list as this R2RMap relates to. Rows
+   * from other feature lists with common ids will be falsely correlated.
+   *
+   * @param row the row to search relationships for
+   */
+  public Stream<T> streamAllCorrelatedRows(FeatureListRow row) {
+    final int rowID = row.getID();
+    final int[] neighbours = getNeighbourIDs(rowID);
+    final List<T> relationships = new ArrayList<>(neighbours.length);
+    for (int neighbour : neighbours) {
+      final T relationship = get(rowID, neighbour);
+      if (relationship != null) {
+        relationships.add(relationship);
+      }
+    }
+    return relationships.stream();
+  }
+
+  /**
+   * Adds all mappings of another map. Existing mappings of the same pair of rows are replaced.
+   */
+  public void putAll(R2RMap<? extends T> other) {
+    for (int i = 0; i < SEGMENTS; i++) {
+      final Long2ObjectOpenHashMap<? extends T> map = other.values[i];
+      final long[] keys;
+      final List<T> segmentValues;
+      // copy first to only hold one lock at a time
+      synchronized (map) {
+        keys = new long[map.size()];
+        segmentValues = new ArrayList<>(map.size());
+        int k = 0;
+        for (Long2ObjectMap.Entry<? extends T> entry : map.long2ObjectEntrySet()) {
+          keys[k++] = entry.getLongKey();
+          segmentValues.add(entry.getValue());
+        }
+      }
+      for (int k = 0; k < keys.length; k++) {
+        put(firstID(keys[k]), secondID(keys[k]), segmentValues.get(k));
+      }
+    }
+  }
+
+  /**
+   * @return number of mapped pairs of rows
+   */
+  public int size() {
+    int size = 0;
+    for (Long2ObjectOpenHashMap<T> map : values) {
+      synchronized (map) {
+        size += map.size();
+      }
+    }
+    return size;
+  }
+
+  public boolean isEmpty() {
+    for (Long2ObjectOpenHashMap<T> map : values) {
+      synchronized (map) {
+        if (!map.isEmpty()) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Applies the action to all values. Each segment is locked while its values are consumed, so the
+   * action must not modify this map.
+   */
+  public void forEachValue(Consumer<? super T> action) {
+    for (Long2ObjectOpenHashMap<T> map : values) {
+      synchronized (map) {
+        map.values().forEach(action);
+      }
+    }
+  }
+
+  /**
+   * @return a snapshot of all values
+   */
+  public List<T> values() {
+    final List<T> all = new ArrayList<>(size());
+    forEachValue(all::add);
+    return all;
+  }
+
+  /**
+   * @return a stream over a snapshot of all values
+   */
+  public Stream<T> stream() {
+    return values().stream();
+  }
 }
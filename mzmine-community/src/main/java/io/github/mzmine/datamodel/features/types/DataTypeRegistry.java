@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.features.types;
+
+import com.google.common.reflect.ClassPath;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Static registry of all {@link DataType} classes and their unique IDs. The registry file is
+ * generated at build time by the gradle task generateDataTypeRegistry, which runs {@link #main}
+ * on the compiled classes. Loading the registry avoids scanning the whole classpath on startup.
+ * Classpath scanning is only used if the registry is missing, e.g., when running from an IDE
+ * without gradle, or if it is forced by the system property {@value #SCAN_PROPERTY} to pick up
+ * types of plugins. {@link DataTypes} scans the classpath once if a type is missing in the
+ * registry.
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+@SuppressWarnings("rawtypes")
+public final class DataTypeRegistry {
+
+  /**
+   * Resource path of the registry. Each line is: unique ID, tab, class name
+   */
+  public static final String RESOURCE = "io/github/mzmine/datamodel/features/types/datatypes.tsv";
+  public static final String SCAN_PROPERTY = "mzmine.datatypes.scan";
+
+  private static final Logger logger = Logger.getLogger(DataTypeRegistry.class.getName());
+  private static final String TYPES_PACKAGE = "io.github.mzmine.datamodel.features.types";
+
+  private DataTypeRegistry() {
+  }
+
+  /**
+   * Instantiates all data types of the registry or scans the classpath as a fallback
+   *
+   * @return all data type instances
+   */
+  @NotNull
+  static List<DataType> loadTypes() {
+    if (!Boolean.getBoolean(SCAN_PROPERTY)) {
+      final List<DataType> types = loadRegistry();
+      if (types != null) {
+        return types;
+      }
+      logger.fine("No data type registry found. Scanning the classpath for data types.");
+    }
+    return scanClassPath();
+  }
+
+  /**
+   * @return the data types of the registry or null if the registry is not available or outdated
+   */
+  @Nullable
+  static List<DataType> loadRegistry() {
+    final ClassLoader loader = DataType.class.getClassLoader();
+    try (InputStream in = loader.getResourceAsStream(RESOURCE)) {
+      if (in == null) {
+        return null;
+      }
+      final List<DataType> types = new ArrayList<>(1024);
+      final var reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isBlank()) {
+          continue;
+        }
+        final int tab = line.indexOf('\t');
+        final String uniqueId = line.substring(0, tab);
+        final DataType type = instantiate(Class.forName(line.substring(tab + 1), true, loader));
+        if (type == null || !uniqueId.equals(type.getUniqueID())) {
+          logger.warning("Data type registry is outdated at " + line);
+          return null;
+        }
+        types.add(type);
+      }
+      return types;
+    } catch (IOException | ClassNotFoundException | RuntimeException e) {
+      logger.log(Level.WARNING, "Cannot read data type registry " + e.getMessage(), e);
+      return null;
+    }
+  }
+
+  /**
+   * Scans the types package and instantiates all classes that are data types
+   */
+  @NotNull
+  static List<DataType> scanClassPath() {
+    final List<DataType> types = new ArrayList<>(1024);
+    try {
+      ClassPath classPath = ClassPath.from(DataType.class.getClassLoader());
+      for (var classInfo : classPath.getTopLevelClassesRecursive(TYPES_PACKAGE)) {
+        try {
+          final DataType type = instantiate(classInfo.load());
+          if (type != null) {
+            types.add(type);
+          }
+        } catch (LinkageError e) {
+          // can go silent
+        }
+      }
+    } catch (IOException e) {
+      logger.severe("Cannot instantiate classPath for DataType.class. Cannot load projects.");
+    }
+    return types;
+  }
+
+  @Nullable
+  private static DataType instantiate(Class<?> clazz) {
+    if (!DataType.class.isAssignableFrom(clazz)) {
+      return null;
+    }
+    try {
+      return (DataType) clazz.getDeclaredConstructor().newInstance();
+    } catch (InstantiationException | IllegalAccessException | InvocationTargetException |
+             NoSuchMethodException e) {
+      // abstract types and types without default constructor can go silent
+      return null;
+    }
+  }
+
+  /**
+   * Generates the registry file by scanning the classpath. Called by gradle after compilation.
+   *
+   * @param args the output directory of generated resources
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 1) {
+      throw new IllegalArgumentException("Usage: DataTypeRegistry <output resources directory>");
+    }
+    final List<DataType> types = new ArrayList<>(scanClassPath());
+    types.sort(Comparator.comparing(t -> t.getClass().getName()));
+
+    final Path file = Path.of(args[0]).resolve(RESOURCE);
+    Files.createDirectories(file.getParent());
+    try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      for (DataType type : types) {
+        writer.write(type.getUniqueID() + "\t" + type.getClass().getName() + "\n");
+      }
+    }
+    logger.info("Generated data type registry with " + types.size() + " types in " + file);
+  }
+}
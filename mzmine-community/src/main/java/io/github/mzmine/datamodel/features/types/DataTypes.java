@@ -25,7 +25,6 @@
 
 package io.github.mzmine.datamodel.features.types;
 
-import com.google.common.reflect.ClassPath;
 import io.github.mzmine.datamodel.MobilityType;
 import io.github.mzmine.datamodel.features.types.alignment.AlignmentMainType;
 import io.github.mzmine.datamodel.features.types.annotations.CommentType;
@@ -70,13 +69,12 @@ import io.github.mzmine.datamodel.features.types.numbers.PrecursorMZType;
 import io.github.mzmine.datamodel.features.types.numbers.RTRangeType;
 import io.github.mzmine.datamodel.features.types.numbers.RTType;
 import io.github.mzmine.datamodel.features.types.numbers.TailingFactorType;
-import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -95,45 +93,64 @@ public class DataTypes {
    * map class.name to instance. Cannot use class as key as this leads to memory leaks trhough class
    * loader
    */
-  private static final HashMap<String, DataType> TYPES = new HashMap<>();
+  private static final Map<String, DataType> TYPES = new ConcurrentHashMap<>();
   /**
    * map unique ID to instance
    */
-  private static final HashMap<String, DataType<?>> map = new HashMap<>();
+  private static final Map<String, DataType<?>> map = new ConcurrentHashMap<>();
+  /**
+   * The classpath is scanned at most once for types that are missing in the registry
+   */
+  private static boolean scannedMissingTypes;
 
   static {
-    try {
-      ClassPath classPath = ClassPath.from(DataType.class.getClassLoader());
-      classPath.getTopLevelClassesRecursive("io.github.mzmine.datamodel.features.types")
-          .forEach(classInfo -> {
-            try {
-              Object o = classInfo.load().getDeclaredConstructor().newInstance();
-              if (o instanceof DataType dt) {
-                var value = map.put(dt.getUniqueID(), dt);
-                if (value != null) {
-                  throw new IllegalStateException(
-                      "FATAL: Multiple data types with unique ID " + dt.getUniqueID() + "\n"
-                      + value.getClass().getName() + "\n" + dt.getClass().getName());
-                }
-                TYPES.put(dt.getClass().getName(), dt);
-              }
-            } catch (InstantiationException | IllegalAccessException | InvocationTargetException |
-                     NoSuchMethodException e) {
-              //               can go silent
-              //              logger.log(Level.INFO, e.getMessage(), e);
-            }
-          });
-    } catch (IOException e) {
-      logger.severe("Cannot instantiate classPath for DataType.class. Cannot load projects.");
+    // generated registry at build time, classpath scanning only as fallback
+    for (DataType dt : DataTypeRegistry.loadTypes()) {
+      var value = map.put(dt.getUniqueID(), dt);
+      if (value != null) {
+        throw new IllegalStateException(
+            "FATAL: Multiple data types with unique ID " + dt.getUniqueID() + "\n"
+            + value.getClass().getName() + "\n" + dt.getClass().getName());
+      }
+      TYPES.put(dt.getClass().getName(), dt);
     }
   }
 
   private DataTypes() {
   }
 
+  /**
+   * The registry may be outdated if types were added without regenerating it, e.g., when only
+   * compiled by the IDE. Scans the classpath once and adds the missing types.
+   *
+   * @return true if types were added
+   */
+  private static synchronized boolean addMissingTypes() {
+    if (scannedMissingTypes) {
+      return false;
+    }
+    scannedMissingTypes = true;
+    int added = 0;
+    for (DataType dt : DataTypeRegistry.scanClassPath()) {
+      if (TYPES.putIfAbsent(dt.getClass().getName(), dt) == null) {
+        map.putIfAbsent(dt.getUniqueID(), dt);
+        added++;
+      }
+    }
+    if (added > 0) {
+      logger.warning("The data type registry is missing " + added
+                     + " types. Rebuild with gradle to regenerate the registry.");
+    }
+    return added > 0;
+  }
+
   @Nullable
   public static DataType<?> getTypeForId(String uniqueId) {
-    return map.get(uniqueId);
+    final DataType<?> type = map.get(uniqueId);
+    if (type == null && addMissingTypes()) {
+      return map.get(uniqueId);
+    }
+    return type;
   }
 
   public static <T extends DataType<?>> T get(T instance) {
@@ -141,11 +158,15 @@ public class DataTypes {
   }
 
   public static <T extends DataType<?>> T get(Class<T> clazz) {
-    return (T) TYPES.get(clazz.getName());
+    return (T) get(clazz.getName());
   }
 
   public static DataType get(String className) {
-    return TYPES.get(className);
+    final DataType type = TYPES.get(className);
+    if (type == null && addMissingTypes()) {
+      return TYPES.get(className);
+    }
+    return type;
   }
 
   /**
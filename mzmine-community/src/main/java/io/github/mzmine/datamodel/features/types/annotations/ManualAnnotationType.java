@@ -105,7 +105,7 @@ public class ManualAnnotationType extends DataType<ManualAnnotation> implements
       @Nullable ModularFeature feature, @Nullable RawDataFile file) throws XMLStreamException {
 
     var model = loadSubColumnsFromXML(reader, project, flist, row, feature, file);
-    if (model.getMap().isEmpty()) {
+    if (model.isEmpty()) {
       return null;
     }
 
@@ -237,7 +237,7 @@ public abstract class SimpleStatisticsType extends NumberType<SimpleStatistics>
 
     SimpleModularDataModel model = loadSubColumnsFromXML(reader, project, flist, row, feature,
         file);
-    if (model.getMap().isEmpty()) {
+    if (model.isEmpty()) {
       return null;
     }
 
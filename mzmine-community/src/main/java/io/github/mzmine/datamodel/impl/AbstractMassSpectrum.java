@@ -33,6 +33,7 @@ import io.github.mzmine.util.DataPointUtils;
 import io.github.mzmine.util.scans.ScanUtils;
 import java.nio.DoubleBuffer;
 import java.util.Iterator;
+import java.util.function.IntToDoubleFunction;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -59,8 +60,22 @@ public abstract class AbstractMassSpectrum implements MassSpectrum {
     assert intensityValues != null;
     assert mzValues.limit() == intensityValues.limit();
 
+    updateMzRangeAndTICValues(mzValues.limit(), mzValues::get, intensityValues::get);
+  }
+
+  /**
+   * Update from the original arrays, e.g., if the stored values are compressed
+   */
+  protected synchronized void updateMzRangeAndTICValues(@NotNull double[] mzValues,
+      @NotNull double[] intensityValues) {
+    assert mzValues.length == intensityValues.length;
+
+    updateMzRangeAndTICValues(mzValues.length, i -> mzValues[i], i -> intensityValues[i]);
+  }
 
-    if (mzValues.limit() == 0) {
+  private void updateMzRangeAndTICValues(int numValues, IntToDoubleFunction mzValues,
+      IntToDoubleFunction intensityValues) {
+    if (numValues == 0) {
       totalIonCurrent = 0.0;
       mzRange = null;
       basePeakIndex = null;
@@ -69,19 +84,19 @@ public abstract class AbstractMassSpectrum implements MassSpectrum {
 
     basePeakIndex = 0;
 
-    double lastMz = mzValues.get(0);
-    double maxIntensity = intensityValues.get(0);
+    double lastMz = mzValues.applyAsDouble(0);
+    double maxIntensity = intensityValues.applyAsDouble(0);
     totalIonCurrent = maxIntensity;
-    for (int i = 1; i < mzValues.limit(); i++) {
+    for (int i = 1; i < numValues; i++) {
 
       // Check the order of the m/z values
-      double mz = mzValues.get(i);
+      double mz = mzValues.applyAsDouble(i);
       if (lastMz > mz) {
         throw new IllegalArgumentException("The m/z values must be sorted in ascending order");
       }
 
       // Update base peak index
-      double intensity = intensityValues.get(i);
+      double intensity = intensityValues.applyAsDouble(i);
       if (intensity > maxIntensity) {
         basePeakIndex = i;
         maxIntensity = intensity;
@@ -93,7 +108,7 @@ public abstract class AbstractMassSpectrum implements MassSpectrum {
       lastMz = mz;
     }
     // set range after checking the order
-    mzRange = Range.closed(mzValues.get(0), mzValues.get(mzValues.limit() - 1));
+    mzRange = Range.closed(mzValues.applyAsDouble(0), mzValues.applyAsDouble(numValues - 1));
   }
 
 
@@ -161,7 +176,7 @@ public abstract class AbstractMassSpectrum implements MassSpectrum {
     if (basePeakIndex == null) {
       return null;
     } else {
-      return getMzValues().get(basePeakIndex);
+      return getMzValue(basePeakIndex);
     }
   }
 
@@ -171,7 +186,7 @@ public abstract class AbstractMassSpectrum implements MassSpectrum {
     if (basePeakIndex == null) {
       return null;
     } else {
-      return getIntensityValues().get(basePeakIndex);
+      return getIntensityValue(basePeakIndex);
     }
   }
 
@@ -30,13 +30,17 @@ import io.github.mzmine.datamodel.featuredata.impl.StorageUtils;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.SimpleSpectralArrays;
 import io.github.mzmine.util.DataPointUtils;
 import io.github.mzmine.util.MemoryMapStorage;
+import java.io.IOException;
 import java.nio.DoubleBuffer;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 /**
- * An implementation of MassSpectrum that stores the data points in a MemoryMapStorage.
+ * An implementation of MassSpectrum that stores the data points in a MemoryMapStorage. If the
+ * storage is {@link MemoryMapStorage#isCompressed()}, values are stored as
+ * {@link CompressedSpectrumValues} whenever this is smaller than plain doubles.
  */
 public abstract class AbstractStorableSpectrum extends AbstractMassSpectrum {
 
@@ -45,6 +49,9 @@ public abstract class AbstractStorableSpectrum extends AbstractMassSpectrum {
 
   protected DoubleBuffer mzValues;
   protected DoubleBuffer intensityValues;
+  // either the buffer or the compressed values are set
+  private CompressedSpectrumValues compressedMzValues;
+  private CompressedSpectrumValues compressedIntensityValues;
 
   /**
    * Note: mz and intensity values for a scan shall only be set once and are enforced to be
@@ -90,8 +97,8 @@ public abstract class AbstractStorableSpectrum extends AbstractMassSpectrum {
     // values shall not be reset, but can be set at a later stage
     if (!(this instanceof Frame)) {
       // allow re-generation of frame spectra
-      assert this.mzValues == null;
-      assert this.intensityValues == null;
+      assert this.mzValues == null && this.compressedMzValues == null;
+      assert this.intensityValues == null && this.compressedIntensityValues == null;
     }
 
     // so many data sources have unsorted spectra - so better sort the spectrum here
@@ -99,53 +106,112 @@ public abstract class AbstractStorableSpectrum extends AbstractMassSpectrum {
     SimpleSpectralArrays sorted = DataPointUtils.ensureSortingMzAscendingDefault(
         new SimpleSpectralArrays(mzValues, intensityValues));
 
-    this.mzValues = StorageUtils.storeValuesToDoubleBuffer(storage, sorted.mzs());
-    this.intensityValues = StorageUtils.storeValuesToDoubleBuffer(storage, sorted.intensities());
-    onDataChangedEvent();
+    compressedMzValues = compress(storage, sorted.mzs());
+    compressedIntensityValues = compress(storage, sorted.intensities());
+    this.mzValues = compressedMzValues != null ? null
+        : StorageUtils.storeValuesToDoubleBuffer(storage, sorted.mzs());
+    this.intensityValues = compressedIntensityValues != null ? null
+        : StorageUtils.storeValuesToDoubleBuffer(storage, sorted.intensities());
+    // the arrays are at hand, no need to decode the stored values
+    updateMzRangeAndTICValues(sorted.mzs(), sorted.intensities());
+  }
+
+  @Nullable
+  private static CompressedSpectrumValues compress(@Nullable MemoryMapStorage storage,
+      double[] values) {
+    if (storage == null || !storage.isCompressed()) {
+      return null;
+    }
+    try {
+      return CompressedSpectrumValues.compress(storage, values);
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Cannot store compressed values, storing uncompressed", e);
+      return null;
+    }
   }
 
   private void onDataChangedEvent() {
     updateMzRangeAndTICValues();
   }
 
+  /**
+   * Decodes compressed values into a new buffer
+   */
   DoubleBuffer getMzValues() {
-    if (mzValues == null) {
-      return EMPTY_BUFFER;
-    } else {
+    if (mzValues != null) {
       return mzValues;
+    } else if (compressedMzValues != null) {
+      return DoubleBuffer.wrap(getMzValues(new double[0]));
+    } else {
+      return EMPTY_BUFFER;
     }
   }
 
+  /**
+   * Decodes compressed values into a new buffer
+   */
   DoubleBuffer getIntensityValues() {
-    if (intensityValues == null) {
+    if (intensityValues != null) {
+      return intensityValues;
+    } else if (compressedIntensityValues != null) {
+      return DoubleBuffer.wrap(getIntensityValues(new double[0]));
+    } else {
       return EMPTY_BUFFER;
+    }
+  }
+
+  @Override
+  public int getNumberOfDataPoints() {
+    if (mzValues != null) {
+      return mzValues.limit();
+    } else if (compressedMzValues != null) {
+      return compressedMzValues.size();
     } else {
-      return intensityValues;
+      return 0;
     }
   }
 
+  @Override
+  public double getMzValue(int index) {
+    return compressedMzValues != null ? compressedMzValues.get(index) : mzValues.get(index);
+  }
+
+  @Override
+  public double getIntensityValue(int index) {
+    return compressedIntensityValues != null ? compressedIntensityValues.get(index)
+        : intensityValues.get(index);
+  }
+
   @Override
   public double[] getMzValues(@NotNull double[] dst) {
-    if (mzValues == null) {
+    if (mzValues == null && compressedMzValues == null) {
       return new double[0];
     }
     if (dst.length < getNumberOfDataPoints()) {
       dst = new double[getNumberOfDataPoints()];
     }
-    mzValues.get(0, dst, 0, getNumberOfDataPoints());
+    if (compressedMzValues != null) {
+      compressedMzValues.get(dst);
+    } else {
+      mzValues.get(0, dst, 0, getNumberOfDataPoints());
+    }
     return dst;
   }
 
   @Override
   public double[] getIntensityValues(@NotNull double[] dst) {
-    if (intensityValues == null) {
+    if (intensityValues == null && compressedIntensityValues == null) {
       return new double[0];
     }
 
     if (dst.length < getNumberOfDataPoints()) {
       dst = new double[getNumberOfDataPoints()];
     }
-    intensityValues.get(0, dst, 0, getNumberOfDataPoints());
+    if (compressedIntensityValues != null) {
+      compressedIntensityValues.get(dst);
+    } else {
+      intensityValues.get(0, dst, 0, getNumberOfDataPoints());
+    }
     return dst;
   }
 
@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.impl;
+
+import io.github.mzmine.util.MemoryMapStorage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Lossless compressed storage of spectral values. Values that are exactly representable as float,
+ * like intensities read from 32 bit arrays, are stored as floats. Sorted values like m/z are
+ * stored as variable length deltas of their IEEE 754 bits in blocks of {@link #BLOCK_SIZE} values.
+ * Each block starts with the full value, so single values are decoded without reading the whole
+ * array.
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+public abstract sealed class CompressedSpectrumValues {
+
+  /**
+   * Number of delta encoded values per block
+   */
+  public static final int BLOCK_SIZE = 32;
+
+  /**
+   * Encodes the values in the smallest lossless form
+   *
+   * @param storage stores the encoded values or null to keep them in RAM
+   * @param values  the values to encode
+   * @return the compressed values or null if no encoding is smaller than plain doubles
+   * @throws IOException if the storage cannot store the data
+   */
+  @Nullable
+  public static CompressedSpectrumValues compress(@Nullable MemoryMapStorage storage,
+      @NotNull double[] values) throws IOException {
+    final int n = values.length;
+    if (n == 0) {
+      return null;
+    }
+    final long doubleBytes = (long) n * Double.BYTES;
+    final long floatBytes = isFloatExact(values) ? (long) n * Float.BYTES : Long.MAX_VALUE;
+    final long deltaBytes = DeltaValues.encodedSize(values);
+
+    if (floatBytes < doubleBytes && floatBytes <= deltaBytes) {
+      final float[] floats = new float[n];
+      for (int i = 0; i < n; i++) {
+        floats[i] = (float) values[i];
+      }
+      return new FloatValues(storage == null ? FloatBuffer.wrap(floats).asReadOnlyBuffer()
+          : storage.storeData(floats));
+    }
+    if (deltaBytes < doubleBytes) {
+      final byte[] encoded = DeltaValues.encode(values, (int) deltaBytes);
+      return new DeltaValues(storage == null ? ByteBuffer.wrap(encoded).asReadOnlyBuffer()
+          : storage.storeData(encoded), n);
+    }
+    return null;
+  }
+
+  private static boolean isFloatExact(double[] values) {
+    for (double value : values) {
+      if (Double.doubleToRawLongBits((float) value) != Double.doubleToRawLongBits(value)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the number of values
+   */
+  public abstract int size();
+
+  /**
+   * @param index value index
+   * @return the decoded value
+   */
+  public abstract double get(int index);
+
+  /**
+   * Decodes all values into the array
+   *
+   * @param dst destination with a length of at least {@link #size()}
+   */
+  public abstract void get(@NotNull double[] dst);
+
+  /**
+   * @return the number of bytes of the encoded values
+   */
+  public abstract int getStoredBytes();
+
+  /**
+   * Values stored as floats
+   */
+  static final class FloatValues extends CompressedSpectrumValues {
+
+    private final FloatBuffer values;
+
+    private FloatValues(FloatBuffer values) {
+      this.values = values;
+    }
+
+    @Override
+    public int size() {
+      return values.limit();
+    }
+
+    @Override
+    public double get(int index) {
+      return values.get(index);
+    }
+
+    @Override
+    public void get(@NotNull double[] dst) {
+      final int n = values.limit();
+      for (int i = 0; i < n; i++) {
+        dst[i] = values.get(i);
+      }
+    }
+
+    @Override
+    public int getStoredBytes() {
+      return values.limit() * Float.BYTES;
+    }
+  }
+
+  /**
+   * Sorted values stored as varint deltas of their bits. The buffer starts with the int offsets of
+   * all blocks, each block holds the long bits of its first value followed by the deltas.
+   */
+  static final class DeltaValues extends CompressedSpectrumValues {
+
+    private final ByteBuffer data;
+    private final int size;
+
+    private DeltaValues(ByteBuffer data, int size) {
+      this.data = data;
+      this.size = size;
+    }
+
+    /**
+     * @return the encoded size in bytes or {@link Long#MAX_VALUE} if the values are not sorted or
+     * negative
+     */
+    private static long encodedSize(double[] values) {
+      long previous = Double.doubleToRawLongBits(values[0]);
+      if (previous < 0) {
+        return Long.MAX_VALUE;
+      }
+      final int blocks = (values.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+      long bytes = (long) blocks * (Integer.BYTES + Long.BYTES);
+      for (int i = 1; i < values.length; i++) {
+        final long bits = Double.doubleToRawLongBits(values[i]);
+        if (bits < previous) {
+          return Long.MAX_VALUE;
+        }
+        if (i % BLOCK_SIZE != 0) {
+          bytes += varLongSize(bits - previous);
+        }
+        previous = bits;
+      }
+      return bytes;
+    }
+
+    private static int varLongSize(long value) {
+      return value == 0 ? 1 : (Long.SIZE - Long.numberOfLeadingZeros(value) + 6) / 7;
+    }
+
+    private static byte[] encode(double[] values, int encodedSize) {
+      final int blocks = (values.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+      final ByteBuffer buffer = ByteBuffer.wrap(new byte[encodedSize]);
+      int pos = blocks * Integer.BYTES;
+      long previous = 0;
+      for (int i = 0; i < values.length; i++) {
+        final long bits = Double.doubleToRawLongBits(values[i]);
+        if (i % BLOCK_SIZE == 0) {
+          buffer.putInt(i / BLOCK_SIZE * Integer.BYTES, pos);
+          buffer.putLong(pos, bits);
+          pos += Long.BYTES;
+        } else {
+          long delta = bits - previous;
+          while ((delta & ~0x7FL) != 0) {
+            buffer.put(pos++, (byte) ((delta & 0x7F) | 0x80));
+            delta >>>= 7;
+          }
+          buffer.put(pos++, (byte) delta);
+        }
+        previous = bits;
+      }
+      assert pos == encodedSize;
+      return buffer.array();
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public double get(int index) {
+      int pos = data.getInt(index / BLOCK_SIZE * Integer.BYTES);
+      long bits = data.getLong(pos);
+      pos += Long.BYTES;
+      for (int i = index % BLOCK_SIZE; i > 0; i--) {
+        long delta = 0;
+        int shift = 0;
+        byte b;
+        do {
+          b = data.get(pos++);
+          delta |= (long) (b & 0x7F) << shift;
+          shift += 7;
+        } while (b < 0);
+        bits += delta;
+      }
+      return Double.longBitsToDouble(bits);
+    }
+
+    @Override
+    public void get(@NotNull double[] dst) {
+      // blocks are stored consecutively after the offsets
+      int pos = ((size + BLOCK_SIZE - 1) / BLOCK_SIZE) * Integer.BYTES;
+      long bits = 0;
+      for (int i = 0; i < size; i++) {
+        if (i % BLOCK_SIZE == 0) {
+          bits = data.getLong(pos);
+          pos += Long.BYTES;
+        } else {
+          long delta = 0;
+          int shift = 0;
+          byte b;
+          do {
+            b = data.get(pos++);
+            delta |= (long) (b & 0x7F) << shift;
+            shift += 7;
+          } while (b < 0);
+          bits += delta;
+        }
+        dst[i] = Double.longBitsToDouble(bits);
+      }
+    }
+
+    @Override
+    public int getStoredBytes() {
+      return data.limit();
+    }
+  }
+}
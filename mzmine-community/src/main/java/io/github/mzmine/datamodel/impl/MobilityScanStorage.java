@@ -121,7 +121,8 @@ public class MobilityScanStorage {
   public void generateAndAddMobilityScanMassLists(@Nullable MemoryMapStorage storage,
       @NotNull MassDetector massDetector, boolean denormalizeMSnScans) {
 
-    if (!massDetector.filtersActive()) {
+    final List<double[][]> data = detectMobilityScanMassLists(massDetector, denormalizeMSnScans);
+    if (data == null) {
       // no need to run mass detection in this case.
       massListBasePeakIndices = rawBasePeakIndices;
       massListMaxNumPoints = rawMaxNumPoints;
@@ -131,6 +132,23 @@ public class MobilityScanStorage {
       return;
     }
 
+    setMassLists(storage, data);
+  }
+
+  /**
+   * Runs the mass detection on all mobility scans without storing the results. Thread safe, the
+   * results can be added later by {@link #setMassLists(MemoryMapStorage, List)}.
+   *
+   * @return the mass lists as [0,1] as [mzs, intensities] arrays, one for each MobilityScan. Null
+   * if the mass detector has no active filters and the raw data is used as mass lists.
+   */
+  @Nullable
+  public List<double[][]> detectMobilityScanMassLists(@NotNull MassDetector massDetector,
+      boolean denormalizeMSnScans) {
+    if (!massDetector.filtersActive()) {
+      return null;
+    }
+
     // mobility scan -> [0][] = mzs, [1][] = intensities
     final List<double[][]> data = new ArrayList<>();
 
@@ -142,8 +160,7 @@ public class MobilityScanStorage {
       }
       data.add(mzIntensity);
     }
-
-    setMassLists(storage, data);
+    return data;
   }
 
   /**
@@ -93,12 +93,10 @@ public class SimpleMassList extends AbstractStorableSpectrum implements MassList
     writer.writeStartElement(XML_ELEMENT);
 
     writer.writeStartElement(CONST.XML_MZ_VALUES_ELEMENT);
-    writer.writeCharacters(
-        ParsingUtils.doubleArrayToString(DataPointUtils.getDoubleBufferAsArray(mzValues)));
+    writer.writeCharacters(ParsingUtils.doubleArrayToString(getMzValues(new double[0])));
     writer.writeEndElement();
     writer.writeStartElement(CONST.XML_INTENSITY_VALUES_ELEMENT);
-    writer.writeCharacters(
-        ParsingUtils.doubleArrayToString(DataPointUtils.getDoubleBufferAsArray(intensityValues)));
+    writer.writeCharacters(ParsingUtils.doubleArrayToString(getIntensityValues(new double[0])));
     writer.writeEndElement();
 
     writer.writeEndElement();
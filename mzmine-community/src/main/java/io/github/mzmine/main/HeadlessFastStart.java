@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.main;
+
+import io.github.mzmine.datamodel.features.types.DataTypes;
+import io.github.mzmine.modules.MZmineModule;
+import java.io.File;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.jetbrains.annotations.NotNull;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Fast start of headless batch runs. Only the modules that are referenced in the batch file are
+ * initialized and their classes are loaded in parallel while the configuration is read.
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+final class HeadlessFastStart {
+
+  private static final Logger logger = Logger.getLogger(HeadlessFastStart.class.getName());
+
+  private HeadlessFastStart() {
+  }
+
+  /**
+   * Reads the module class names of all batch steps
+   *
+   * @return the module class names in the order of the batch, empty on error
+   */
+  @NotNull
+  static Set<String> readBatchModules(@NotNull File batchFile) {
+    final Set<String> modules = new LinkedHashSet<>();
+    try {
+      final var document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+          .parse(batchFile);
+      final NodeList steps = document.getElementsByTagName("batchstep");
+      for (int i = 0; i < steps.getLength(); i++) {
+        modules.add(((Element) steps.item(i)).getAttribute("method"));
+      }
+    } catch (Exception e) {
+      logger.log(Level.WARNING, "Cannot read modules of batch file " + batchFile, e);
+    }
+    return modules;
+  }
+
+  /**
+   * Runs the static initialization of all data types and of the modules and their parameter sets
+   * in parallel.
+   *
+   * @param moduleClassNames the modules to initialize
+   * @return a future that completes when all classes are initialized
+   */
+  @NotNull
+  static CompletableFuture<Void> preloadModules(@NotNull Set<String> moduleClassNames) {
+    final var futures = new CompletableFuture<?>[moduleClassNames.size() + 1];
+    int i = 0;
+    futures[i++] = CompletableFuture.runAsync(() -> DataTypes.getInstances().size());
+    for (String moduleClassName : moduleClassNames) {
+      futures[i++] = CompletableFuture.runAsync(() -> preloadModule(moduleClassName));
+    }
+    return CompletableFuture.allOf(futures);
+  }
+
+  private static void preloadModule(String moduleClassName) {
+    try {
+      final ClassLoader loader = HeadlessFastStart.class.getClassLoader();
+      final Class<?> moduleClass = Class.forName(moduleClassName, true, loader);
+      // throw away instance, the module instance is created later by MZmineCore
+      if (moduleClass.getDeclaredConstructor().newInstance() instanceof MZmineModule module) {
+        final var parameterSetClass = module.getParameterSetClass();
+        if (parameterSetClass != null) {
+          Class.forName(parameterSetClass.getName(), true, loader);
+        }
+      }
+    } catch (Exception | LinkageError e) {
+      // errors are reported when the batch is loaded
+      logger.log(Level.FINE, "Cannot preload module " + moduleClassName, e);
+    }
+  }
+}
@@ -26,6 +26,7 @@
 package io.github.mzmine.main;
 
 import io.github.mzmine.modules.io.import_rawdata_all.AllSpectralDataImportModule;
+import io.github.mzmine.util.MemoryMapStorages;
 import io.github.mzmine.util.files.FileAndPathUtil;
 import java.io.File;
 import java.io.IOException;
@@ -59,6 +60,14 @@ public class MZmineArgumentParser {
   private boolean loadTsfProfile = false;
   private KeepInMemory isKeepInMemory = null;
   private String numCores;
+  private @Nullable Long tempSpaceLimit = null;
+  private @Nullable Long storageTempSpaceLimit = null;
+  private boolean compressSpectra = false;
+  private boolean fastStart = false;
+  private @Nullable Integer pipelineFiles = null;
+  private @Nullable File checkpointDirectory = null;
+  private int checkpointSteps = 1;
+  private boolean resume = false;
 
   public void parse(String[] args) {
     Options options = new Options();
@@ -115,6 +124,55 @@ public class MZmineArgumentParser {
     numCores.setRequired(false);
     options.addOption(numCores);
 
+    Option tempSpace = new Option(null, "temp-space", true, """
+        limit of temporary disk space for memory mapped data (scans, features, etc), e.g., 200G or
+        unlimited. Temporary files are split into segments that are deleted once no longer used.
+        Data exceeding the limit is kept in RAM.""");
+    tempSpace.setRequired(false);
+    options.addOption(tempSpace);
+
+    Option storageTempSpace = new Option(null, "temp-space-storage", true, """
+        limit of temporary disk space for each single storage, e.g., of one data file or feature
+        list, e.g., 20G. Data exceeding the limit is kept in RAM.""");
+    storageTempSpace.setRequired(false);
+    options.addOption(storageTempSpace);
+
+    Option compress = new Option(null, "compress-spectra", false, """
+        stores memory mapped scans and mass lists in a lossless compressed form to reduce temporary
+        disk space. Decoding slightly slows down data access.""");
+    compress.setRequired(false);
+    options.addOption(compress);
+
+    Option fastStartOption = new Option(null, "fast-start", false, """
+        fast start of headless batch runs. Only initializes the modules of the batch and logs a
+        breakdown of the start up time.""");
+    fastStartOption.setRequired(false);
+    options.addOption(fastStartOption);
+
+    Option pipeline = new Option(null, "pipeline", true, """
+        number of files processed in parallel by the leading per-file steps of the batch (import,
+        mass detection, chromatogram building, smoothing, resolving, isotope grouping). Each file
+        runs through these steps on its own until the first step that combines files.""");
+    pipeline.setRequired(false);
+    options.addOption(pipeline);
+
+    Option checkpoint = new Option(null, "checkpoint", true, """
+        directory to save checkpoints of the batch, which contain the project and the position in
+        the batch.""");
+    checkpoint.setRequired(false);
+    options.addOption(checkpoint);
+
+    Option checkpointStepsOption = new Option(null, "checkpoint-steps", true,
+        "number of batch steps between checkpoints (default 1)");
+    checkpointStepsOption.setRequired(false);
+    options.addOption(checkpointStepsOption);
+
+    Option resumeOption = new Option(null, "resume", false, """
+        resume the batch after the last checkpoint in the --checkpoint directory. Starts from the
+        first step if there is no checkpoint.""");
+    resumeOption.setRequired(false);
+    options.addOption(resumeOption);
+
     Option loadTdfPseudoProfile = new Option("tdfpseudoprofile", false,
         "Loads pseudo-profile frame spectra for tdf files instead of centroided spectra.");
     loadTdfPseudoProfile.setRequired(false);
@@ -203,6 +261,74 @@ public class MZmineArgumentParser {
 
       this.numCores = cmd.getOptionValue(numCores.getLongOpt());
 
+      String stempSpace = cmd.getOptionValue(tempSpace.getLongOpt());
+      if (stempSpace != null) {
+        try {
+          tempSpaceLimit = MemoryMapStorages.parseSize(stempSpace);
+          logger.info(
+              () -> "the --temp-space argument limits temporary disk space to " + stempSpace);
+        } catch (NumberFormatException e) {
+          throw new ParseException(
+              "Cannot parse --temp-space %s: %s".formatted(stempSpace, e.getMessage()));
+        }
+      }
+
+      String sstorageTempSpace = cmd.getOptionValue(storageTempSpace.getLongOpt());
+      if (sstorageTempSpace != null) {
+        try {
+          storageTempSpaceLimit = MemoryMapStorages.parseSize(sstorageTempSpace);
+          logger.info(() -> "the --temp-space-storage argument limits temporary disk space of "
+                            + "each storage to " + sstorageTempSpace);
+        } catch (NumberFormatException e) {
+          throw new ParseException("Cannot parse --temp-space-storage %s: %s".formatted(
+              sstorageTempSpace, e.getMessage()));
+        }
+      }
+
+      if (cmd.hasOption(compress.getLongOpt())) {
+        compressSpectra = true;
+        logger.info("the --compress-spectra argument enables compressed storage of spectra");
+      }
+
+      if (cmd.hasOption(fastStartOption.getLongOpt())) {
+        fastStart = true;
+        logger.info("the --fast-start argument only initializes the modules of the batch");
+      }
+
+      String spipeline = cmd.getOptionValue(pipeline.getLongOpt());
+      if (spipeline != null) {
+        try {
+          pipelineFiles = Integer.parseInt(spipeline);
+          logger.info(() -> "the --pipeline argument processes %s files in parallel".formatted(
+              spipeline));
+        } catch (NumberFormatException e) {
+          throw new ParseException("Cannot parse --pipeline " + spipeline);
+        }
+      }
+
+      String scheckpoint = cmd.getOptionValue(checkpoint.getLongOpt());
+      if (scheckpoint != null) {
+        checkpointDirectory = new File(scheckpoint);
+        logger.info(() -> "the --checkpoint argument saves batch checkpoints to " + scheckpoint);
+      }
+
+      String scheckpointSteps = cmd.getOptionValue(checkpointStepsOption.getLongOpt());
+      if (scheckpointSteps != null) {
+        try {
+          checkpointSteps = Math.max(1, Integer.parseInt(scheckpointSteps));
+        } catch (NumberFormatException e) {
+          throw new ParseException("Cannot parse --checkpoint-steps " + scheckpointSteps);
+        }
+      }
+
+      if (cmd.hasOption(resumeOption.getLongOpt())) {
+        if (checkpointDirectory == null) {
+          throw new ParseException("The --resume argument requires the --checkpoint directory");
+        }
+        resume = true;
+        logger.info("the --resume argument continues the batch after the last checkpoint");
+      }
+
       if (cmd.hasOption(loadTdfPseudoProfile.getOpt())) {
         this.loadTdfPseudoProfile = true;
       }
@@ -261,6 +387,70 @@ public class MZmineArgumentParser {
     return isKeepInMemory;
   }
 
+  /**
+   * Enables segmented memory mapping with a limit on temporary disk space
+   *
+   * @return the limit in bytes or null if not set
+   */
+  @Nullable
+  public Long getTempSpaceLimit() {
+    return tempSpaceLimit;
+  }
+
+  /**
+   * Enables segmented memory mapping with a limit on temporary disk space of each storage
+   *
+   * @return the limit in bytes or null if not set
+   */
+  @Nullable
+  public Long getStorageTempSpaceLimit() {
+    return storageTempSpaceLimit;
+  }
+
+  /**
+   * @return true to store scans and mass lists in a lossless compressed form
+   */
+  public boolean isCompressSpectra() {
+    return compressSpectra;
+  }
+
+  /**
+   * @return true to only initialize the modules of the batch in headless mode
+   */
+  public boolean isFastStart() {
+    return fastStart;
+  }
+
+  /**
+   * @return number of files in parallel in the per-file batch pipeline or null if not set
+   */
+  @Nullable
+  public Integer getPipelineFiles() {
+    return pipelineFiles;
+  }
+
+  /**
+   * @return directory of the batch checkpoints or null if checkpoints are disabled
+   */
+  @Nullable
+  public File getCheckpointDirectory() {
+    return checkpointDirectory;
+  }
+
+  /**
+   * @return number of batch steps between checkpoints
+   */
+  public int getCheckpointSteps() {
+    return checkpointSteps;
+  }
+
+  /**
+   * @return true to resume the batch after the last checkpoint
+   */
+  public boolean isResume() {
+    return resume;
+  }
+
   public boolean isLoadTdfPseudoProfile() {
     return loadTdfPseudoProfile;
   }
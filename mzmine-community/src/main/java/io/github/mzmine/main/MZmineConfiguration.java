@@ -40,9 +40,11 @@ import io.github.mzmine.util.color.SimpleColorPalette;
 import java.io.File;
 import java.io.IOException;
 import java.text.NumberFormat;
+import java.util.Collection;
 import java.util.List;
 import org.apache.commons.io.FileUtils;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * MZmine configuration interface
@@ -104,7 +106,16 @@ public interface MZmineConfiguration {
 
   UnitFormat getUnitFormat();
 
-  void loadConfiguration(File file, boolean loadPreferences) throws IOException;
+  default void loadConfiguration(File file, boolean loadPreferences) throws IOException {
+    loadConfiguration(file, loadPreferences, null);
+  }
+
+  /**
+   * @param moduleClassNames only load the parameters of these modules or all modules if null. Used
+   *                         to speed up the headless start up.
+   */
+  void loadConfiguration(File file, boolean loadPreferences,
+      @Nullable Collection<String> moduleClassNames) throws IOException;
 
   void saveConfiguration(File file) throws IOException;
 
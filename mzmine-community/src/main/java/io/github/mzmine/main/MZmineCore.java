@@ -53,6 +53,7 @@ import io.github.mzmine.taskcontrol.TaskController;
 import io.github.mzmine.taskcontrol.TaskService;
 import io.github.mzmine.util.ExitCode;
 import io.github.mzmine.util.MemoryMapStorage;
+import io.github.mzmine.util.MemoryMapStorages;
 import io.github.mzmine.util.files.FileAndPathUtil;
 import java.io.File;
 import java.io.IOException;
@@ -68,6 +69,8 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javafx.application.Application;
@@ -99,6 +102,7 @@ public final class MZmineCore {
    * Main method
    */
   public static void main(final String[] args) {
+    final StartupTimer startupTimer = new StartupTimer();
     try {
       Semver version = getMZmineVersion();
       logger.info("Starting MZmine " + version);
@@ -130,6 +134,17 @@ public final class MZmineCore {
       getInstance().tdfPseudoProfile = argsParser.isLoadTdfPseudoProfile();
       getInstance().tsfProfile = argsParser.isLoadTsfProfile();
 
+      // fast start only initializes the modules of the batch, in parallel to the configuration
+      final File batchFile = argsParser.getBatchFile();
+      final boolean fastStart = argsParser.isFastStart() && batchFile != null;
+      Set<String> batchModules = null;
+      CompletableFuture<Void> preloadModules = null;
+      if (fastStart) {
+        batchModules = HeadlessFastStart.readBatchModules(batchFile);
+        preloadModules = HeadlessFastStart.preloadModules(batchModules);
+      }
+      startupTimer.lap("arguments");
+
       // override preferences file by command line argument pref
       final File prefFile = Objects.requireNonNullElse(argsParser.getPreferencesFile(),
           MZmineConfiguration.CONFIG_FILE);
@@ -138,7 +153,7 @@ public final class MZmineCore {
       // Load configuration
       if (prefFile.exists() && prefFile.canRead()) {
         try {
-          getInstance().configuration.loadConfiguration(prefFile, true);
+          getInstance().configuration.loadConfiguration(prefFile, true, batchModules);
           updateTempDir = true;
         } catch (Exception e) {
           logger.log(Level.WARNING,
@@ -184,9 +199,20 @@ public final class MZmineCore {
 
       // apply memory management option
       keepInMemory.enforceToMemoryMapping();
+      final Long tempSpaceLimit = argsParser.getTempSpaceLimit();
+      if (tempSpaceLimit != null) {
+        MemoryMapStorages.setSegmentedStorage(true);
+        MemoryMapStorages.setGlobalTempSpaceLimit(tempSpaceLimit);
+      }
+      final Long storageTempSpaceLimit = argsParser.getStorageTempSpaceLimit();
+      if (storageTempSpaceLimit != null) {
+        MemoryMapStorages.setSegmentedStorage(true);
+        MemoryMapStorages.setStorageTempSpaceLimit(storageTempSpaceLimit);
+      }
+      MemoryMapStorage.setCompressSpectra(argsParser.isCompressSpectra());
+      startupTimer.lap("configuration");
 
       // batch mode defined by command line argument
-      File batchFile = argsParser.getBatchFile();
       File[] overrideDataFiles = argsParser.getOverrideDataFiles();
       File[] overrideSpectralLibraryFiles = argsParser.getOverrideSpectralLibrariesFiles();
       boolean keepRunningInHeadless = argsParser.isKeepRunningAfterBatch();
@@ -222,9 +248,20 @@ public final class MZmineCore {
             System.exit(1);
           }
 
+          if (preloadModules != null) {
+            preloadModules.join();
+            startupTimer.lap("modules");
+          }
+          if (fastStart) {
+            // log before the batch runs synchronously, only the startup is measured
+            startupTimer.log();
+          }
+
           // run batch file
           batchTask = BatchModeModule.runBatch(ProjectService.getProject(),
-              batchFile, overrideDataFiles, overrideSpectralLibraryFiles, Instant.now());
+              batchFile, overrideDataFiles, overrideSpectralLibraryFiles,
+              argsParser.getPipelineFiles(), argsParser.getCheckpointDirectory(),
+              argsParser.getCheckpointSteps(), argsParser.isResume(), Instant.now());
         }
 
         // option to keep MZmine running after the batch is finished
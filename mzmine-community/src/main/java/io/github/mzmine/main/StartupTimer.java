@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.main;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Measures the phases of the application start up and logs a breakdown
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+final class StartupTimer {
+
+  private static final Logger logger = Logger.getLogger(StartupTimer.class.getName());
+
+  private final long start = System.nanoTime();
+  private final List<Phase> phases = new ArrayList<>();
+  private long last = start;
+
+  /**
+   * Ends the current phase
+   *
+   * @param phase name of the phase that ended
+   */
+  synchronized void lap(String phase) {
+    final long now = System.nanoTime();
+    phases.add(new Phase(phase, now - last));
+    last = now;
+  }
+
+  synchronized void log() {
+    final String breakdown = phases.stream()
+        .map(p -> "%s %d ms".formatted(p.name(), p.nanos() / 1_000_000))
+        .collect(Collectors.joining(", "));
+    logger.info("Start up took %d ms: %s".formatted((last - start) / 1_000_000, breakdown));
+  }
+
+  private record Phase(String name, long nanos) {
+
+  }
+}
@@ -50,6 +50,7 @@ import java.nio.file.Files;
 import java.nio.file.LinkOption;
 import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
@@ -251,7 +252,8 @@ public class MZmineConfigurationImpl implements MZmineConfiguration {
 
   @SuppressWarnings("unchecked")
   @Override
-  public void loadConfiguration(File file, boolean loadPreferences) throws IOException {
+  public void loadConfiguration(File file, boolean loadPreferences,
+      @Nullable Collection<String> moduleClassNames) throws IOException {
 
     try {
       DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
@@ -297,6 +299,9 @@ public class MZmineConfigurationImpl implements MZmineConfiguration {
       for (int i = 0; i < nodes.getLength(); i++) {
         Element moduleElement = (Element) nodes.item(i);
         String moduleClassName = moduleElement.getAttribute("class");
+        if (moduleClassNames != null && !moduleClassNames.contains(moduleClassName)) {
+          continue;
+        }
 
         try {
           Class<? extends MZmineModule> moduleClass = (Class<? extends MZmineModule>) Class.forName(
@@ -28,6 +28,8 @@ package io.github.mzmine.modules.batchmode;
 import io.github.mzmine.parameters.Parameter;
 import io.github.mzmine.parameters.impl.SimpleParameterSet;
 import io.github.mzmine.parameters.parametertypes.BooleanParameter;
+import io.github.mzmine.parameters.parametertypes.IntegerParameter;
+import io.github.mzmine.parameters.parametertypes.OptionalParameter;
 import io.github.mzmine.parameters.parametertypes.filenames.DirectoryParameter;
 
 public class AdvancedBatchModeParameters extends SimpleParameterSet {
@@ -47,9 +49,17 @@ public class AdvancedBatchModeParameters extends SimpleParameterSet {
       "Search for files in sub directories. Still uses the first subdirectories as datasets each.",
       false);
 
+  public static final OptionalParameter<IntegerParameter> parallelDatasets = new OptionalParameter<>(
+      new IntegerParameter("Parallel datasets", """
+          Process multiple datasets (sub directories) at the same time, each in its own project.
+          All datasets share the threads of MZmine. A new dataset is only started if enough memory
+          is available. Batches with steps that use the sample metadata, spectral libraries, or
+          other data files and feature lists than the results of the previous step process one
+          dataset after the other.""", 2, 1, null), false);
+
   public AdvancedBatchModeParameters() {
     super(new Parameter[]{skipOnError, processingParentDir, includeSubdirectories,
-        createResultsDirectory});
+        createResultsDirectory, parallelDatasets});
   }
 
 }
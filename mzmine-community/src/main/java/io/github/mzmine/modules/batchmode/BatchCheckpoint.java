@@ -0,0 +1,349 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.modules.batchmode;
+
+import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.modules.io.import_rawdata_all.AllSpectralDataImportParameters;
+import io.github.mzmine.modules.io.import_spectral_library.SpectralLibraryImportParameters;
+import io.github.mzmine.modules.io.projectload.ProjectOpeningTask;
+import io.github.mzmine.modules.io.projectsave.ProjectSaveAsParameters;
+import io.github.mzmine.modules.io.projectsave.ProjectSaveOption;
+import io.github.mzmine.modules.io.projectsave.ProjectSavingTask;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.project.ProjectService;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Checkpoint of a running batch. The project is saved next to a cursor file that points to the
+ * next batch step and to the data files and feature lists that were created last, which are the
+ * input of the next step. The cursor is only replaced after the project was saved completely, so
+ * a batch that is killed while saving resumes from the previous checkpoint. The cursor contains a
+ * hash of the batch and its input files and is only loaded by the same batch.
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+final class BatchCheckpoint {
+
+  static final String CURSOR_FILENAME = "batch_checkpoint.properties";
+  private static final Logger logger = Logger.getLogger(BatchCheckpoint.class.getName());
+  private static final String NEXT_STEP = "nextStep";
+  private static final String PROJECT = "project";
+  private static final String BATCH_HASH = "batchHash";
+  private static final String DATA_FILE = "dataFile.";
+  private static final String FEATURE_LIST = "featureList.";
+
+  private final File directory;
+  private final ProjectSaveOption projectFormat;
+  private final String batchHash;
+
+  /**
+   * @param batchHash identifies the batch, see {@link #hashBatch(BatchQueue)}
+   */
+  BatchCheckpoint(@NotNull File directory, @NotNull ProjectSaveOption projectFormat,
+      @NotNull String batchHash) {
+    this.directory = directory;
+    this.projectFormat = projectFormat;
+    this.batchHash = batchHash;
+  }
+
+  /**
+   * @param queue the batch before it runs, the steps change the parameters
+   */
+  static BatchCheckpoint of(@NotNull ParameterSet checkpointParameters,
+      @NotNull BatchQueue queue) {
+    return new BatchCheckpoint(
+        checkpointParameters.getValue(BatchCheckpointParameters.directory),
+        checkpointParameters.getValue(BatchCheckpointParameters.projectFormat), hashBatch(queue));
+  }
+
+  /**
+   * Saves the project and then replaces the cursor. The project of the previous checkpoint is
+   * deleted afterwards.
+   *
+   * @param nextStep         index of the next batch step
+   * @param lastDataFiles    the data files of the last step, input of the next step
+   * @param lastFeatureLists the feature lists of the last step, input of the next step
+   * @return true if the checkpoint was saved
+   */
+  boolean save(@NotNull MZmineProject project, int nextStep,
+      @NotNull List<RawDataFile> lastDataFiles, @NotNull List<FeatureList> lastFeatureLists) {
+    final File projectFile = new File(directory,
+        "batch_checkpoint_step%d_%d.mzmine".formatted(nextStep, System.currentTimeMillis()));
+    final ParameterSet saveParameters = new ProjectSaveAsParameters().cloneParameterSet();
+    saveParameters.setParameter(ProjectSaveAsParameters.projectFile, projectFile);
+    saveParameters.setParameter(ProjectSaveAsParameters.option, projectFormat);
+    final ProjectSavingTask saveTask = new ProjectSavingTask(project, saveParameters,
+        Instant.now());
+    saveTask.run();
+    if (saveTask.getStatus() != TaskStatus.FINISHED) {
+      logger.warning("Could not save the batch checkpoint project: " + saveTask.getErrorMessage());
+      return false;
+    }
+
+    final Cursor cursor = new Cursor(batchHash, nextStep, projectFile.getName(),
+        lastDataFiles.stream().map(RawDataFile::getName).toList(),
+        lastFeatureLists.stream().map(FeatureList::getName).toList());
+    final Cursor previous;
+    try {
+      previous = readCursor();
+      writeCursor(cursor);
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Could not save the batch checkpoint: " + e.getMessage(), e);
+      return false;
+    }
+
+    if (previous != null) {
+      deleteProject(previous);
+    }
+    logger.info("Saved batch checkpoint before step %d to %s".formatted(nextStep + 1, directory));
+    return true;
+  }
+
+  /**
+   * Opens the project of the last checkpoint as the current project
+   *
+   * @return the state to resume the batch or null if there is no checkpoint
+   * @throws IOException if the checkpoint was created by another batch or cannot be opened
+   */
+  @Nullable
+  State load() throws IOException {
+    final Cursor cursor = readCursor();
+    if (cursor == null) {
+      return null;
+    }
+    if (!batchHash.equals(cursor.batchHash())) {
+      throw new IOException("""
+          The batch checkpoint in %s was created by a different batch or the parameters or \
+          input files changed""".formatted(directory));
+    }
+
+    final File projectFile = new File(directory, cursor.project());
+    final ProjectOpeningTask openTask = new ProjectOpeningTask(projectFile, Instant.now());
+    openTask.run();
+    if (openTask.getStatus() != TaskStatus.FINISHED) {
+      throw new IOException(
+          "Could not open the batch checkpoint project %s: %s".formatted(projectFile,
+              openTask.getErrorMessage()));
+    }
+
+    final MZmineProject project = ProjectService.getProject();
+    final List<RawDataFile> dataFiles = new ArrayList<>();
+    for (String name : cursor.dataFiles()) {
+      final RawDataFile dataFile = project.getDataFileByName(name);
+      if (dataFile == null) {
+        throw new IOException("Data file %s of the batch checkpoint is missing".formatted(name));
+      }
+      dataFiles.add(dataFile);
+    }
+    final List<FeatureList> featureLists = new ArrayList<>();
+    for (String name : cursor.featureLists()) {
+      final FeatureList featureList = project.getFeatureList(name);
+      if (featureList == null) {
+        throw new IOException(
+            "Feature list %s of the batch checkpoint is missing".formatted(name));
+      }
+      featureLists.add(featureList);
+    }
+    return new State(project, cursor.nextStep(), dataFiles, featureLists);
+  }
+
+  /**
+   * Deletes the cursor and the project of the last checkpoint, called when the batch finished
+   */
+  void delete() {
+    try {
+      final Cursor cursor = readCursor();
+      Files.deleteIfExists(new File(directory, CURSOR_FILENAME).toPath());
+      if (cursor != null) {
+        deleteProject(cursor);
+      }
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Could not delete the batch checkpoint: " + e.getMessage(), e);
+    }
+  }
+
+  private void deleteProject(@NotNull Cursor cursor) {
+    final File projectFile = new File(directory, cursor.project());
+    if (!cursor.project().isBlank() && projectFile.isFile()) {
+      projectFile.delete();
+    }
+  }
+
+  /**
+   * Replaces the cursor file atomically
+   */
+  void writeCursor(@NotNull Cursor cursor) throws IOException {
+    final Properties properties = new Properties();
+    properties.setProperty(BATCH_HASH, cursor.batchHash());
+    properties.setProperty(NEXT_STEP, String.valueOf(cursor.nextStep()));
+    properties.setProperty(PROJECT, cursor.project());
+    for (int i = 0; i < cursor.dataFiles().size(); i++) {
+      properties.setProperty(DATA_FILE + i, cursor.dataFiles().get(i));
+    }
+    for (int i = 0; i < cursor.featureLists().size(); i++) {
+      properties.setProperty(FEATURE_LIST + i, cursor.featureLists().get(i));
+    }
+
+    final Path temp = Files.createTempFile(directory.toPath(), CURSOR_FILENAME, ".tmp");
+    try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+      properties.store(writer, "MZmine batch checkpoint");
+    }
+    Files.move(temp, new File(directory, CURSOR_FILENAME).toPath(),
+        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * @return the cursor or null if there is no checkpoint
+   */
+  @Nullable
+  Cursor readCursor() throws IOException {
+    final File cursorFile = new File(directory, CURSOR_FILENAME);
+    if (!cursorFile.exists()) {
+      return null;
+    }
+    final Properties properties = new Properties();
+    try (Reader reader = Files.newBufferedReader(cursorFile.toPath(), StandardCharsets.UTF_8)) {
+      properties.load(reader);
+    }
+    final int nextStep;
+    try {
+      nextStep = Integer.parseInt(properties.getProperty(NEXT_STEP));
+    } catch (NumberFormatException e) {
+      throw new IOException("Invalid batch checkpoint cursor " + cursorFile, e);
+    }
+    final List<String> dataFiles = new ArrayList<>();
+    for (int i = 0; properties.containsKey(DATA_FILE + i); i++) {
+      dataFiles.add(properties.getProperty(DATA_FILE + i));
+    }
+    final List<String> featureLists = new ArrayList<>();
+    for (int i = 0; properties.containsKey(FEATURE_LIST + i); i++) {
+      featureLists.add(properties.getProperty(FEATURE_LIST + i));
+    }
+    return new Cursor(properties.getProperty(BATCH_HASH, ""), nextStep,
+        properties.getProperty(PROJECT, ""), dataFiles, featureLists);
+  }
+
+  /**
+   * Hash of the batch XML and of the path, size, and modification time of all input files. The
+   * XML only contains the paths of the files.
+   */
+  @NotNull
+  static String hashBatch(@NotNull BatchQueue queue) {
+    try {
+      final Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+          .newDocument();
+      final Element batch = document.createElement("batch");
+      document.appendChild(batch);
+      queue.saveToXml(batch);
+      final StringWriter xml = new StringWriter();
+      TransformerFactory.newInstance().newTransformer()
+          .transform(new DOMSource(document), new StreamResult(xml));
+
+      final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(xml.toString().getBytes(StandardCharsets.UTF_8));
+      for (File file : getInputFiles(queue)) {
+        digest.update("%s\t%d\t%d\n".formatted(file.getAbsolutePath(), file.length(),
+            file.lastModified()).getBytes(StandardCharsets.UTF_8));
+      }
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (ParserConfigurationException | TransformerException | NoSuchAlgorithmException e) {
+      throw new IllegalStateException("Cannot hash the batch: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * @return the data files and spectral libraries imported by the first step
+   */
+  private static List<File> getInputFiles(BatchQueue queue) {
+    final List<File> files = new ArrayList<>();
+    if (queue.isEmpty()) {
+      return files;
+    }
+    final ParameterSet importParameters = queue.getFirst().getParameterSet();
+    if (AllSpectralDataImportParameters.isParameterSetClass(importParameters)) {
+      final File[] dataFiles = importParameters.getValue(AllSpectralDataImportParameters.fileNames);
+      final File[] libraries = importParameters.getValue(
+          SpectralLibraryImportParameters.dataBaseFiles);
+      files.addAll(Arrays.asList(dataFiles != null ? dataFiles : new File[0]));
+      files.addAll(Arrays.asList(libraries != null ? libraries : new File[0]));
+    }
+    return files;
+  }
+
+  /**
+   * @param project      the opened project of the checkpoint, now the current project
+   * @param nextStep     index of the next batch step
+   * @param dataFiles    the data files of the last step before the checkpoint
+   * @param featureLists the feature lists of the last step before the checkpoint
+   */
+  record State(MZmineProject project, int nextStep, List<RawDataFile> dataFiles,
+               List<FeatureList> featureLists) {
+
+  }
+
+  /**
+   * Content of the cursor file
+   *
+   * @param batchHash    see {@link #hashBatch(BatchQueue)}
+   * @param project      file name of the project in the checkpoint directory
+   * @param dataFiles    names of the data files of the last step
+   * @param featureLists names of the feature lists of the last step
+   */
+  record Cursor(@NotNull String batchHash, int nextStep, @NotNull String project,
+                @NotNull List<String> dataFiles, @NotNull List<String> featureLists) {
+
+  }
+}
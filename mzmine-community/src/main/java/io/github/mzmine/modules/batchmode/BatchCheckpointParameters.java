@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.modules.batchmode;
+
+import io.github.mzmine.modules.io.projectsave.ProjectSaveOption;
+import io.github.mzmine.parameters.Parameter;
+import io.github.mzmine.parameters.impl.SimpleParameterSet;
+import io.github.mzmine.parameters.parametertypes.ComboParameter;
+import io.github.mzmine.parameters.parametertypes.IntegerParameter;
+import io.github.mzmine.parameters.parametertypes.filenames.DirectoryParameter;
+
+public class BatchCheckpointParameters extends SimpleParameterSet {
+
+  public static final DirectoryParameter directory = new DirectoryParameter(
+      "Checkpoint directory",
+      "The project and the position in the batch are saved to this directory. Use the --resume "
+      + "command line argument to continue a batch after the last checkpoint.");
+
+  public static final IntegerParameter stepInterval = new IntegerParameter("Step interval",
+      "Save a checkpoint after this number of batch steps", 5, 1, null);
+
+  public static final ComboParameter<ProjectSaveOption> projectFormat = new ComboParameter<>(
+      "Project format",
+      "Referencing projects are faster to save and point to the raw data files in their "
+      + "original path",
+      ProjectSaveOption.values(), ProjectSaveOption.REFERENCING);
+
+  public BatchCheckpointParameters() {
+    super(new Parameter[]{directory, stepInterval, projectFormat});
+  }
+}
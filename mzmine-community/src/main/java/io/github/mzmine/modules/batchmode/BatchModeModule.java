@@ -80,6 +80,46 @@ public class BatchModeModule implements MZmineProcessingModule {
   @Nullable
   public static BatchTask runBatch(@NotNull MZmineProject project, File batchFile,
       @Nullable File[] overrideDataFiles, final File[] overrideSpectralLibraryFiles, @NotNull Instant moduleCallDate) {
+    return runBatch(project, batchFile, overrideDataFiles, overrideSpectralLibraryFiles, null,
+        moduleCallDate);
+  }
+
+  /**
+   * Run from batch file (usually in headless mode)
+   *
+   * @param batchFile                    local file
+   * @param overrideDataFiles            change the data import to those files if not null
+   * @param overrideSpectralLibraryFiles change the spectral libraries imported
+   * @param pipelineFiles                number of files to process in parallel in the per-file
+   *                                     pipeline, null to run step by step
+   * @return the batch task if successful or null on error
+   */
+  @Nullable
+  public static BatchTask runBatch(@NotNull MZmineProject project, File batchFile,
+      @Nullable File[] overrideDataFiles, final File[] overrideSpectralLibraryFiles,
+      @Nullable Integer pipelineFiles, @NotNull Instant moduleCallDate) {
+    return runBatch(project, batchFile, overrideDataFiles, overrideSpectralLibraryFiles,
+        pipelineFiles, null, 1, false, moduleCallDate);
+  }
+
+  /**
+   * Run from batch file (usually in headless mode)
+   *
+   * @param batchFile                    local file
+   * @param overrideDataFiles            change the data import to those files if not null
+   * @param overrideSpectralLibraryFiles change the spectral libraries imported
+   * @param pipelineFiles                number of files to process in parallel in the per-file
+   *                                     pipeline, null to run step by step
+   * @param checkpointDirectory          directory for batch checkpoints, null to disable
+   * @param checkpointSteps              number of steps between checkpoints
+   * @param resume                       resume after the last checkpoint in the directory
+   * @return the batch task if successful or null on error
+   */
+  @Nullable
+  public static BatchTask runBatch(@NotNull MZmineProject project, File batchFile,
+      @Nullable File[] overrideDataFiles, final File[] overrideSpectralLibraryFiles,
+      @Nullable Integer pipelineFiles, @Nullable File checkpointDirectory, int checkpointSteps,
+      boolean resume, @NotNull Instant moduleCallDate) {
     if (MZmineCore.getTaskController().isTaskInstanceRunningOrQueued(BatchTask.class)) {
       MZmineCore.getDesktop().displayErrorMessage(
           "Cannot run a second batch while the current batch is not finished.");
@@ -126,7 +166,19 @@ public class BatchModeModule implements MZmineProcessingModule {
 
       ParameterSet parameters = new BatchModeParameters();
       parameters.getParameter(BatchModeParameters.batchQueue).setValue(newQueue);
+      parameters.setParameter(BatchModeParameters.pipelineFiles, pipelineFiles != null,
+          pipelineFiles);
+      if (checkpointDirectory != null) {
+        parameters.setParameter(BatchModeParameters.checkpoints, true);
+        final ParameterSet checkpointParameters = parameters.getParameter(
+            BatchModeParameters.checkpoints).getEmbeddedParameters();
+        checkpointParameters.setParameter(BatchCheckpointParameters.directory,
+            checkpointDirectory);
+        checkpointParameters.setParameter(BatchCheckpointParameters.stepInterval,
+            checkpointSteps);
+      }
       BatchTask batchTask = new BatchTask(project, parameters, moduleCallDate);
+      batchTask.setResumeFromCheckpoint(resume);
       batchTask.run();
       return batchTask;
     } catch (Throwable e) {
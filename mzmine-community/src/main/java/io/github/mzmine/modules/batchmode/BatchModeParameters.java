@@ -28,7 +28,10 @@ package io.github.mzmine.modules.batchmode;
 import io.github.mzmine.parameters.Parameter;
 import io.github.mzmine.parameters.impl.SimpleParameterSet;
 import io.github.mzmine.parameters.parametertypes.AdvancedParametersParameter;
+import io.github.mzmine.parameters.parametertypes.IntegerParameter;
+import io.github.mzmine.parameters.parametertypes.OptionalParameter;
 import io.github.mzmine.parameters.parametertypes.filenames.FileNameListSilentParameter;
+import io.github.mzmine.parameters.parametertypes.submodules.OptionalModuleParameter;
 import io.github.mzmine.util.ExitCode;
 
 public class BatchModeParameters extends SimpleParameterSet {
@@ -40,8 +43,22 @@ public class BatchModeParameters extends SimpleParameterSet {
   public static final AdvancedParametersParameter<AdvancedBatchModeParameters> advanced = new AdvancedParametersParameter<>(
       new AdvancedBatchModeParameters());
 
+  public static final OptionalParameter<IntegerParameter> pipelineFiles = new OptionalParameter<>(
+      new IntegerParameter("Pipeline files in parallel", """
+          Runs the data import and the following steps that process each file on its own (mass
+          detection, chromatogram building, smoothing, resolving, isotope grouping) for each file
+          independently, without waiting for other files between steps. The value limits the number
+          of files processed at the same time. All files finish before the first step that combines
+          files, e.g., alignment.""", 4, 1, null), false);
+
+  public static final OptionalModuleParameter<BatchCheckpointParameters> checkpoints = new OptionalModuleParameter<>(
+      "Checkpoints", """
+          Saves the project and the position in the batch after a number of steps. A batch that
+          was stopped can continue after the last checkpoint with the --resume command line
+          argument.""", new BatchCheckpointParameters(), false);
+
   public BatchModeParameters() {
-    super(new Parameter[]{batchQueue, advanced, lastFiles});
+    super(new Parameter[]{batchQueue, pipelineFiles, checkpoints, advanced, lastFiles});
   }
 
   @Override
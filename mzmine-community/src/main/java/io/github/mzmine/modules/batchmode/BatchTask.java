@@ -58,6 +58,7 @@ import io.github.mzmine.util.ExitCode;
 import io.github.mzmine.util.files.ExtensionFilters;
 import io.github.mzmine.util.files.FileAndPathUtil;
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Paths;
 import java.time.Duration;
 import java.time.Instant;
@@ -68,6 +69,7 @@ import java.util.Objects;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Batch mode task
@@ -79,10 +81,19 @@ public class BatchTask extends AbstractTask {
   private final int stepsPerDataset;
   private final Logger logger = Logger.getLogger(this.getClass().getName());
   private final int totalSteps;
-  private final MZmineProject project;
+  private MZmineProject project;
   private int processedSteps;
   private final boolean useAdvanced;
   private final int datasets;
+  // max files in parallel in the per-file pipeline or null to run step by step
+  private final Integer pipelineFiles;
+  // max datasets in parallel in advanced mode or null to process one after the other
+  private final Integer parallelDatasets;
+  private volatile ConcurrentDatasetBatchRunner datasetRunner;
+  // saves checkpoints every checkpointInterval steps or null if disabled
+  private final BatchCheckpoint checkpoint;
+  private final int checkpointInterval;
+  private boolean resumeFromCheckpoint;
   private List<File> subDirectories;
   private List<RawDataFile> createdDataFiles;
   private List<RawDataFile> previousCreatedDataFiles;
@@ -117,11 +128,28 @@ public class BatchTask extends AbstractTask {
       searchSubdirs = advanced.getValue(AdvancedBatchModeParameters.includeSubdirectories);
       createResultsDir = advanced.getValue(AdvancedBatchModeParameters.createResultsDirectory);
       parentDir = advanced.getValue(AdvancedBatchModeParameters.processingParentDir);
+      parallelDatasets = advanced.getEmbeddedParameterValueIfSelectedOrElse(
+          AdvancedBatchModeParameters.parallelDatasets, null);
       this.subDirectories = subDirectories;
       datasets = subDirectories == null || subDirectories.isEmpty() ? 1 : subDirectories.size();
     } else {
+      parallelDatasets = null;
       datasets = 1;
     }
+    pipelineFiles = parameters.getEmbeddedParameterValueIfSelectedOrElse(
+        BatchModeParameters.pipelineFiles, null);
+    final ParameterSet checkpointParameters = parameters.getEmbeddedParametersIfSelectedOrElse(
+        BatchModeParameters.checkpoints, null);
+    if (checkpointParameters != null && useAdvanced) {
+      logger.warning("Batch checkpoints are not supported in the advanced batch mode");
+    }
+    if (checkpointParameters != null && !useAdvanced) {
+      checkpoint = BatchCheckpoint.of(checkpointParameters, queue);
+      checkpointInterval = checkpointParameters.getValue(BatchCheckpointParameters.stepInterval);
+    } else {
+      checkpoint = null;
+      checkpointInterval = 0;
+    }
     stepsPerDataset = queue.size();
     totalSteps = stepsPerDataset * datasets;
     createdDataFiles = new ArrayList<>();
@@ -130,6 +158,40 @@ public class BatchTask extends AbstractTask {
     previousCreatedFeatureLists = new ArrayList<>();
   }
 
+  /**
+   * Processes a single dataset of the advanced batch mode, see {@link ConcurrentDatasetBatchRunner}
+   *
+   * @param project the isolated project of this dataset
+   * @param queue   the batch queue with the input and output files of this dataset
+   */
+  BatchTask(final MZmineProject project, final BatchQueue queue,
+      final @Nullable Integer pipelineFiles, final String datasetName,
+      final Instant moduleCallDate) {
+    super(null, moduleCallDate);
+    setName("Batch task " + datasetName);
+    this.project = project;
+    this.queue = queue;
+    this.pipelineFiles = pipelineFiles;
+    useAdvanced = false;
+    parallelDatasets = null;
+    checkpoint = null;
+    checkpointInterval = 0;
+    datasets = 1;
+    stepsPerDataset = queue.size();
+    totalSteps = stepsPerDataset;
+    createdDataFiles = new ArrayList<>();
+    createdFeatureLists = new ArrayList<>();
+    previousCreatedDataFiles = new ArrayList<>();
+    previousCreatedFeatureLists = new ArrayList<>();
+  }
+
+  /**
+   * @param resume open the project of the last checkpoint and continue with the next step
+   */
+  void setResumeFromCheckpoint(final boolean resume) {
+    this.resumeFromCheckpoint = resume;
+  }
+
   /**
    * Runs all tasks in a single {@link ThreadPoolTask} on the {@link TaskController#getExecutor()}
    * default executor
@@ -160,11 +222,29 @@ public class BatchTask extends AbstractTask {
     setStatus(TaskStatus.PROCESSING);
     logger.info("Starting a batch of " + totalSteps + " steps");
 
+    int firstStep = 0;
+    if (resumeFromCheckpoint) {
+      firstStep = resumeFromCheckpoint();
+      if (firstStep < 0) {
+        return;
+      }
+    }
+
+    if (useAdvanced && parallelDatasets != null && parallelDatasets > 1 && datasets > 1) {
+      if (ConcurrentDatasetBatchRunner.canRunConcurrently(queue)) {
+        runDatasetsConcurrently(batchStart);
+        return;
+      }
+      logger.info("""
+          Batch steps use the sample metadata or select data from the whole project, processing \
+          one dataset after the other""");
+    }
+
     int errorDataset = 0;
     currentDataset = -1;
     String datasetName = "";
     // Process individual batch steps
-    for (int i = 0; i < totalSteps; i++) {
+    for (int i = firstStep; i < totalSteps; i++) {
       // at the end of one dataset, clear the project and start over again
       if (useAdvanced && currentStep() == 0) {
         // clear the old project
@@ -202,7 +282,7 @@ public class BatchTask extends AbstractTask {
             }
           }
           // set files to output
-          setOutputFiles(parentDir, createResultsDir, datasetName);
+          setOutputFiles(queue, parentDir, createResultsDir, datasetName);
 
         } else {
           errorDataset++;
@@ -219,9 +299,16 @@ public class BatchTask extends AbstractTask {
         }
       }
 
-      // run step
-      processQueueStep(i % stepsPerDataset);
-      processedSteps++;
+      // run step or all leading per-file steps
+      final int stepsBefore = processedSteps;
+      final int pipelinedSteps = i % stepsPerDataset == 0 ? runPerFilePipeline() : 0;
+      if (pipelinedSteps > 0) {
+        processedSteps += pipelinedSteps;
+        i += pipelinedSteps - 1;
+      } else {
+        processQueueStep(i % stepsPerDataset);
+        processedSteps++;
+      }
 
       // If we are canceled or ran into error, stop here
       if (isCanceled()) {
@@ -237,15 +324,115 @@ public class BatchTask extends AbstractTask {
           return;
         }
       }
+
+      if (checkpoint != null && processedSteps < totalSteps
+          && processedSteps / checkpointInterval > stepsBefore / checkpointInterval) {
+        saveCheckpoint();
+      }
     }
 
     logger.info("Finished a batch of " + totalSteps + " steps");
+    if (checkpoint != null) {
+      // the batch cannot be resumed anymore
+      checkpoint.delete();
+    }
     setStatus(TaskStatus.FINISHED);
     printBatchTimes(batchStart);
     Duration duration = Duration.between(batchStart, Instant.now());
     stepTimes.addFirst(new StepTimeMeasurement(0, getName(), duration));
   }
 
+  /**
+   * Processes multiple datasets at the same time, each in its own project
+   */
+  private void runDatasetsConcurrently(final Instant batchStart) {
+    final int parallel = Math.min(parallelDatasets, datasets);
+    // all datasets share the threads, so split the files that are pipelined at the same time
+    final Integer datasetPipelineFiles =
+        pipelineFiles == null ? null : Math.max(1, pipelineFiles / parallel);
+    datasetRunner = new ConcurrentDatasetBatchRunner(this, project, subDirectories, parallel,
+        skipOnError, datasetPipelineFiles, stepsPerDataset);
+    if (!datasetRunner.run()) {
+      // error or cancel was set
+      return;
+    }
+
+    processedSteps = totalSteps;
+    logger.info("Finished a batch of " + totalSteps + " steps");
+    setStatus(TaskStatus.FINISHED);
+    Duration duration = Duration.between(batchStart, Instant.now());
+    logger.info(STR."Timing: Whole batch of \{datasets} datasets took \{duration} to finish");
+    stepTimes.addFirst(new StepTimeMeasurement(0, getName(), duration));
+  }
+
+  /**
+   * @return a copy of the queue that imports all data files of the dataset and exports to the
+   * output directory of the dataset or null if there are no data files or they cannot be set
+   * @throws IllegalStateException if the queue has no export steps
+   */
+  @Nullable
+  BatchQueue createDatasetQueue(final File datasetDir) throws IllegalStateException {
+    final String datasetName = datasetDir.getName();
+    final File[] allFiles = FileAndPathUtil.findFilesInDirFlat(datasetDir,
+        ExtensionFilters.ALL_MS_DATA_FILTER, searchSubdirs);
+    if (allFiles.length == 0) {
+      logger.info("No data files found in directory: " + datasetName);
+      return null;
+    }
+    final BatchQueue datasetQueue = queue.clone();
+    if (!datasetQueue.setImportFiles(allFiles, null)) {
+      return null;
+    }
+    setOutputFiles(datasetQueue, parentDir, createResultsDir, datasetName);
+    return datasetQueue;
+  }
+
+  /**
+   * Opens the project of the last checkpoint and restores the input of the next step
+   *
+   * @return the index of the next step or -1 on error
+   */
+  private int resumeFromCheckpoint() {
+    if (checkpoint == null) {
+      error("Cannot resume the batch because checkpoints are disabled");
+      return -1;
+    }
+    try {
+      final BatchCheckpoint.State state = checkpoint.load();
+      if (state == null) {
+        logger.info("No batch checkpoint found, starting the batch at the first step");
+        return 0;
+      }
+      project = state.project();
+      createdDataFiles = new ArrayList<>(state.dataFiles());
+      createdFeatureLists = new ArrayList<>(state.featureLists());
+      previousCreatedDataFiles = createdDataFiles;
+      previousCreatedFeatureLists = createdFeatureLists;
+      processedSteps = state.nextStep();
+      logger.info("Resuming the batch at step %d of %d".formatted(processedSteps + 1, totalSteps));
+      return processedSteps;
+    } catch (IOException e) {
+      error("Cannot resume the batch from the checkpoint: " + e.getMessage(), e);
+      return -1;
+    }
+  }
+
+  /**
+   * Saves the project and the input of the next step. A failed checkpoint does not stop the batch
+   */
+  private void saveCheckpoint() {
+    Instant start = Instant.now();
+    // the next step uses the results of the last step that created data
+    final List<RawDataFile> lastDataFiles =
+        createdDataFiles.isEmpty() ? previousCreatedDataFiles : createdDataFiles;
+    final List<FeatureList> lastFeatureLists =
+        createdFeatureLists.isEmpty() ? previousCreatedFeatureLists : createdFeatureLists;
+    if (checkpoint.save(project, processedSteps, lastDataFiles, lastFeatureLists)) {
+      Duration duration = Duration.between(start, Instant.now());
+      stepTimes.add(new StepTimeMeasurement(processedSteps - 1, "Batch checkpoint", duration));
+    }
+  }
+
   private void printBatchTimes(final Instant batchStart) {
     Duration duration = Duration.between(batchStart, Instant.now());
     String times = stepTimes.stream().map(Objects::toString).collect(Collectors.joining("\n"));
@@ -254,8 +441,8 @@ public class BatchTask extends AbstractTask {
     \{times}""");
   }
 
-  private void setOutputFiles(final File parentDir, final boolean createResultsDir,
-      final String datasetName) {
+  private void setOutputFiles(final BatchQueue queue, final File parentDir,
+      final boolean createResultsDir, final String datasetName) {
     int changedOutputSteps = 0;
     for (MZmineProcessingStep<?> currentStep : queue) {
       // only change for export modules
@@ -297,10 +484,49 @@ public class BatchTask extends AbstractTask {
     return stepTimes;
   }
 
+  int getProcessedSteps() {
+    return processedSteps;
+  }
+
   public int currentStep() {
     return processedSteps % stepsPerDataset;
   }
 
+  /**
+   * Runs the leading per-file steps for each file independently if the pipeline is enabled
+   *
+   * @return the number of steps that were processed, 0 if the pipeline was not used
+   */
+  private int runPerFilePipeline() {
+    if (pipelineFiles == null) {
+      return 0;
+    }
+    final int numSteps = PerFileBatchPipeline.countPipelinedSteps(queue);
+    if (numSteps == 0) {
+      logger.info("Batch cannot be pipelined per file, running step by step");
+      return 0;
+    }
+
+    Instant start = Instant.now();
+    var pipeline = new PerFileBatchPipeline(this, project, queue, numSteps, pipelineFiles);
+    final PerFileBatchPipeline.Result result = pipeline.run();
+    if (result == null) {
+      // error or cancel was set
+      return numSteps;
+    }
+
+    createdDataFiles = new ArrayList<>(result.dataFiles());
+    createdFeatureLists = new ArrayList<>(result.featureLists());
+    previousCreatedDataFiles = createdDataFiles;
+    previousCreatedFeatureLists = createdFeatureLists;
+
+    Duration duration = Duration.between(start, Instant.now());
+    stepTimes.add(new StepTimeMeasurement(0,
+        "Steps 1-%d per file on %d files".formatted(numSteps, result.dataFiles().size()),
+        duration));
+    return numSteps;
+  }
+
   private void processQueueStep(int stepNumber) {
 
     Instant start = Instant.now();
@@ -438,7 +664,7 @@ public class BatchTask extends AbstractTask {
   private void setLastFilesIfAllDataImportStep(final ParameterSet batchStepParameters) {
     if (AllSpectralDataImportParameters.isParameterSetClass(batchStepParameters)) {
       var loadedRawDataFiles = AllSpectralDataImportParameters.getLoadedRawDataFiles(
-          ProjectService.getProject(), batchStepParameters);
+          project, batchStepParameters);
 
       // loaded should always be >= created as we are at most skipping files
       if (loadedRawDataFiles.size() >= createdDataFiles.size()) {
@@ -490,16 +716,32 @@ public class BatchTask extends AbstractTask {
     return TaskPriority.HIGH;
   }
 
+  @Override
+  public void cancel() {
+    super.cancel();
+    final ConcurrentDatasetBatchRunner runner = datasetRunner;
+    if (runner != null) {
+      runner.cancelRunningDatasets();
+    }
+  }
+
   @Override
   public double getFinishedPercentage() {
     if (totalSteps == 0) {
       return 0;
     }
-    return (double) processedSteps / totalSteps;
+    final ConcurrentDatasetBatchRunner runner = datasetRunner;
+    final int steps = runner != null ? runner.getProcessedSteps() : processedSteps;
+    return (double) Math.min(steps, totalSteps) / totalSteps;
   }
 
   @Override
   public String getTaskDescription() {
+    final ConcurrentDatasetBatchRunner runner = datasetRunner;
+    if (runner != null) {
+      return String.format("Batch of %d datasets, %d running, %d done", datasets,
+          runner.getRunningDatasets(), runner.getFinishedDatasets());
+    }
     if (datasets > 1) {
       if (stepsPerDataset == 0) {
         return "Batch mode";
@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.modules.batchmode;
+
+import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.modules.MZmineProcessingStep;
+import io.github.mzmine.parameters.Parameter;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.parameters.parametertypes.EmbeddedParameter;
+import io.github.mzmine.parameters.parametertypes.EmbeddedParameterSet;
+import io.github.mzmine.parameters.parametertypes.OptionalParameter;
+import io.github.mzmine.parameters.parametertypes.metadata.MetadataGroupSelectionParameter;
+import io.github.mzmine.parameters.parametertypes.metadata.MetadataGroupingParameter;
+import io.github.mzmine.parameters.parametertypes.selectors.FeatureListsParameter;
+import io.github.mzmine.parameters.parametertypes.selectors.FeatureListsSelectionType;
+import io.github.mzmine.parameters.parametertypes.selectors.FeaturesParameter;
+import io.github.mzmine.parameters.parametertypes.selectors.RawDataFilesParameter;
+import io.github.mzmine.parameters.parametertypes.selectors.RawDataFilesSelectionType;
+import io.github.mzmine.parameters.parametertypes.selectors.SpectralLibrarySelectionParameter;
+import io.github.mzmine.parameters.parametertypes.statistics.TTestConfigurationParameter;
+import io.github.mzmine.project.impl.MZmineProjectImpl;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.spectraldb.entry.SpectralLibrary;
+import java.io.File;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Runs the datasets (sub directories) of the advanced batch mode concurrently. Each dataset is
+ * processed by its own {@link BatchTask} in a new project with its own copy of the batch queue and
+ * its own output directory. All datasets share the thread pool of the task controller. Another
+ * dataset is only started while the free heap is larger than the share of a single dataset.
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+final class ConcurrentDatasetBatchRunner {
+
+  private static final Logger logger = Logger.getLogger(
+      ConcurrentDatasetBatchRunner.class.getName());
+  // check the free memory again after this time while waiting for admission
+  private static final long ADMISSION_WAIT_MILLIS = 2000;
+
+  private final BatchTask batchTask;
+  private final MZmineProject mainProject;
+  private final List<File> datasetDirs;
+  private final int maxParallelDatasets;
+  private final boolean skipOnError;
+  private final @Nullable Integer pipelineFiles;
+  private final int stepsPerDataset;
+  private final List<BatchTask> runningDatasets = new CopyOnWriteArrayList<>();
+  private final AtomicInteger finishedDatasets = new AtomicInteger();
+  private final AtomicInteger errorDatasets = new AtomicInteger();
+  private final Object admissionLock = new Object();
+
+  /**
+   * @param mainProject         spectral libraries of this project are added to each dataset
+   * @param maxParallelDatasets maximum number of datasets processed at the same time
+   * @param pipelineFiles       files pipelined in parallel by each dataset or null to run step by
+   *                            step
+   */
+  ConcurrentDatasetBatchRunner(@NotNull BatchTask batchTask, @NotNull MZmineProject mainProject,
+      @NotNull List<File> datasetDirs, int maxParallelDatasets, boolean skipOnError,
+      @Nullable Integer pipelineFiles, int stepsPerDataset) {
+    this.batchTask = batchTask;
+    this.mainProject = mainProject;
+    this.datasetDirs = datasetDirs;
+    this.maxParallelDatasets = Math.max(1, maxParallelDatasets);
+    this.skipOnError = skipOnError;
+    this.pipelineFiles = pipelineFiles;
+    this.stepsPerDataset = stepsPerDataset;
+  }
+
+  /**
+   * Some steps read the current project of MZmine and not the project of the dataset: the sample
+   * metadata, spectral library selections, selected features, and selections of data files or
+   * feature lists that are not the results of the previous step, like all files, name patterns,
+   * or specific files.
+   *
+   * @return true if no step reads the current project
+   */
+  static boolean canRunConcurrently(@NotNull BatchQueue queue) {
+    for (MZmineProcessingStep<?> step : queue) {
+      if (readsCurrentProject(step.getParameterSet())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean readsCurrentProject(ParameterSet parameters) {
+    for (Parameter<?> p : parameters.getParameters()) {
+      if (readsCurrentProject(p)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean readsCurrentProject(Parameter<?> p) {
+    if (p instanceof OptionalParameter<?> optional && !optional.getValue()) {
+      return false;
+    }
+    if (p instanceof MetadataGroupingParameter || p instanceof MetadataGroupSelectionParameter
+        || p instanceof TTestConfigurationParameter || p instanceof SpectralLibrarySelectionParameter
+        || p instanceof FeaturesParameter) {
+      return true;
+    }
+    if (p instanceof RawDataFilesParameter rdp) {
+      return rdp.getValue() == null
+             || rdp.getValue().getSelectionType() != RawDataFilesSelectionType.BATCH_LAST_FILES;
+    }
+    if (p instanceof FeatureListsParameter flp) {
+      return flp.getValue() == null || flp.getValue().getSelectionType()
+                                       != FeatureListsSelectionType.BATCH_LAST_FEATURELISTS;
+    }
+    if (p instanceof EmbeddedParameter<?, ?, ?> embedded) {
+      return readsCurrentProject(embedded.getEmbeddedParameter());
+    }
+    if (p instanceof EmbeddedParameterSet<?, ?> embedded) {
+      return readsCurrentProject(embedded.getEmbeddedParameters());
+    }
+    return false;
+  }
+
+  /**
+   * Runs all datasets and waits for them to finish
+   *
+   * @return true if all datasets finished or were skipped on error. Otherwise, the error or
+   * cancel is set to the batch task.
+   */
+  boolean run() {
+    logger.info("Processing %d batch datasets with %d datasets in parallel".formatted(
+        datasetDirs.size(), maxParallelDatasets));
+
+    final List<CompletableFuture<?>> futures = new ArrayList<>();
+    try (ExecutorService executor = Executors.newFixedThreadPool(maxParallelDatasets, runnable -> {
+      final Thread thread = new Thread(runnable, "Batch dataset");
+      thread.setDaemon(true);
+      return thread;
+    })) {
+      for (File datasetDir : datasetDirs) {
+        futures.add(CompletableFuture.runAsync(() -> processDataset(datasetDir), executor));
+      }
+      CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+    } catch (Exception e) {
+      batchTask.error("Error while processing batch datasets in parallel: " + e.getMessage(), e);
+      return false;
+    }
+
+    logger.info("Finished %d batch datasets, %d datasets with errors".formatted(
+        finishedDatasets.get(), errorDatasets.get()));
+    return !isStopped();
+  }
+
+  /**
+   * Cancels all datasets that are currently processed
+   */
+  void cancelRunningDatasets() {
+    runningDatasets.forEach(BatchTask::cancel);
+  }
+
+  /**
+   * @return the processed steps of all datasets, including skipped datasets
+   */
+  int getProcessedSteps() {
+    int steps = (finishedDatasets.get() + errorDatasets.get()) * stepsPerDataset;
+    for (BatchTask dataset : runningDatasets) {
+      steps += dataset.getProcessedSteps();
+    }
+    return steps;
+  }
+
+  int getRunningDatasets() {
+    return runningDatasets.size();
+  }
+
+  int getFinishedDatasets() {
+    return finishedDatasets.get() + errorDatasets.get();
+  }
+
+  private void processDataset(File datasetDir) {
+    if (isStopped()) {
+      return;
+    }
+    final String datasetName = datasetDir.getName();
+    final BatchQueue datasetQueue;
+    try {
+      datasetQueue = batchTask.createDatasetQueue(datasetDir);
+    } catch (IllegalStateException e) {
+      handleError(datasetName, e.getMessage());
+      return;
+    }
+    if (datasetQueue == null) {
+      handleError(datasetName, "No data files found or could not set data files");
+      return;
+    }
+
+    final MZmineProject project = new MZmineProjectImpl();
+    // keep libraries like when the project is cleared between datasets
+    project.addSpectralLibrary(
+        mainProject.getCurrentSpectralLibraries().toArray(new SpectralLibrary[0]));
+    final BatchTask datasetTask = new BatchTask(project, datasetQueue, pipelineFiles, datasetName,
+        Instant.now());
+    if (!awaitAdmission(datasetTask, datasetName)) {
+      return;
+    }
+
+    logger.info("Processing batch dataset %s (%d running, %d/%d done)".formatted(datasetName,
+        runningDatasets.size(), getFinishedDatasets(), datasetDirs.size()));
+    try {
+      datasetTask.run();
+    } catch (Exception e) {
+      datasetTask.error("Error in batch dataset " + datasetName, e);
+    } finally {
+      runningDatasets.remove(datasetTask);
+      synchronized (admissionLock) {
+        admissionLock.notifyAll();
+      }
+    }
+
+    switch (datasetTask.getStatus()) {
+      case FINISHED -> finishedDatasets.incrementAndGet();
+      case ERROR -> handleError(datasetName, datasetTask.getErrorMessage());
+      default -> {
+        // canceled with the batch
+      }
+    }
+  }
+
+  /**
+   * Waits until the free heap is larger than the share of one dataset. A dataset is always
+   * admitted if no other dataset is running.
+   *
+   * @return true if the dataset was added to the running datasets, false if the batch was stopped
+   * while waiting
+   */
+  private boolean awaitAdmission(BatchTask datasetTask, String datasetName) {
+    final Runtime runtime = Runtime.getRuntime();
+    final long datasetHeap = runtime.maxMemory() / maxParallelDatasets;
+    boolean waiting = false;
+    synchronized (admissionLock) {
+      while (!isStopped()) {
+        final long freeHeap = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        if (runningDatasets.isEmpty() || freeHeap >= datasetHeap) {
+          runningDatasets.add(datasetTask);
+          return true;
+        }
+        if (!waiting) {
+          waiting = true;
+          logger.info("Waiting for %d MB of free memory to start batch dataset %s".formatted(
+              datasetHeap / 1_000_000, datasetName));
+        }
+        try {
+          admissionLock.wait(ADMISSION_WAIT_MILLIS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return false;
+        }
+      }
+    }
+    return false;
+  }
+
+  private void handleError(String datasetName, String message) {
+    final int errors = errorDatasets.incrementAndGet();
+    if (skipOnError) {
+      logger.warning("Error in batch dataset %s (total error datasets: %d): %s".formatted(
+          datasetName, errors, message));
+    } else {
+      batchTask.error("Error in batch dataset %s: %s".formatted(datasetName, message));
+      cancelRunningDatasets();
+    }
+  }
+
+  private boolean isStopped() {
+    return batchTask.isCanceled() || batchTask.getStatus() == TaskStatus.ERROR;
+  }
+}
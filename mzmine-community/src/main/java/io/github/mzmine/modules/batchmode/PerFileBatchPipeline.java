@@ -0,0 +1,360 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.batchmode;
+
+import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.main.GoogleAnalyticsTracker;
+import io.github.mzmine.modules.MZmineModule;
+import io.github.mzmine.modules.MZmineProcessingModule;
+import io.github.mzmine.modules.MZmineProcessingStep;
+import io.github.mzmine.modules.dataprocessing.featdet_adapchromatogrambuilder.ModularADAPChromatogramBuilderModule;
+import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.ADAPpeakpicking.AdapResolverModule;
+import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.baseline.BaselineFeatureResolverModule;
+import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.minimumsearch.MinimumSearchFeatureResolverModule;
+import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.noiseamplitude.NoiseAmplitudeResolverModule;
+import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.savitzkygolay.SavitzkyGolayResolverModule;
+import io.github.mzmine.modules.dataprocessing.featdet_imsexpander.ImsExpanderModule;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.MassDetectionModule;
+import io.github.mzmine.modules.dataprocessing.featdet_mobilityscanmerger.MobilityScanMergerModule;
+import io.github.mzmine.modules.dataprocessing.featdet_smoothing.SmoothingModule;
+import io.github.mzmine.modules.dataprocessing.filter_isotopefinder.IsotopeFinderModule;
+import io.github.mzmine.modules.dataprocessing.filter_isotopegrouper.IsotopeGrouperModule;
+import io.github.mzmine.modules.io.import_rawdata_all.AllSpectralDataImportModule;
+import io.github.mzmine.modules.io.import_rawdata_all.AllSpectralDataImportParameters;
+import io.github.mzmine.modules.io.import_spectral_library.SpectralLibraryImportParameters;
+import io.github.mzmine.modules.visualization.projectmetadata.io.ProjectMetadataImportParameters;
+import io.github.mzmine.modules.visualization.projectmetadata.io.ProjectMetadataImportTask;
+import io.github.mzmine.parameters.Parameter;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.parameters.parametertypes.EmbeddedParameterSet;
+import io.github.mzmine.parameters.parametertypes.selectors.FeatureListsParameter;
+import io.github.mzmine.parameters.parametertypes.selectors.FeatureListsSelection;
+import io.github.mzmine.parameters.parametertypes.selectors.FeatureListsSelectionType;
+import io.github.mzmine.parameters.parametertypes.selectors.RawDataFilesParameter;
+import io.github.mzmine.parameters.parametertypes.selectors.RawDataFilesSelection;
+import io.github.mzmine.parameters.parametertypes.selectors.RawDataFilesSelectionType;
+import io.github.mzmine.taskcontrol.Task;
+import io.github.mzmine.taskcontrol.TaskService;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.taskcontrol.ThreadBudget;
+import io.github.mzmine.taskcontrol.impl.WrappedTask;
+import io.github.mzmine.taskcontrol.utils.TaskUtils;
+import io.github.mzmine.util.ExitCode;
+import java.io.File;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Runs the leading per-file steps of a batch for each raw data file on its own. Each file flows
+ * through the data import and the following steps that only process single files, e.g., mass
+ * detection, chromatogram building, smoothing, resolving, and isotope grouping. A limited number
+ * of files is processed in parallel. All files are then collected as a barrier before the first
+ * step that combines files, like alignment, which is run by the {@link BatchTask} as usual.
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+final class PerFileBatchPipeline {
+
+  private static final Logger logger = Logger.getLogger(PerFileBatchPipeline.class.getName());
+
+  /**
+   * Modules that process each raw data file or feature list independently
+   */
+  private static final Set<Class<? extends MZmineModule>> PER_FILE_MODULES = Set.of(
+      MassDetectionModule.class, MobilityScanMergerModule.class,
+      ModularADAPChromatogramBuilderModule.class, ImsExpanderModule.class, SmoothingModule.class,
+      MinimumSearchFeatureResolverModule.class, AdapResolverModule.class,
+      SavitzkyGolayResolverModule.class, BaselineFeatureResolverModule.class,
+      NoiseAmplitudeResolverModule.class, IsotopeFinderModule.class, IsotopeGrouperModule.class);
+
+  private final BatchTask batchTask;
+  private final MZmineProject project;
+  private final BatchQueue queue;
+  private final int numSteps;
+  private final int maxParallelFiles;
+  private final AtomicInteger finishedFiles = new AtomicInteger();
+
+  /**
+   * @param numSteps         the number of leading steps to pipeline, see
+   *                         {@link #countPipelinedSteps(BatchQueue)}
+   * @param maxParallelFiles maximum number of files processed at the same time
+   */
+  PerFileBatchPipeline(@NotNull BatchTask batchTask, @NotNull MZmineProject project,
+      @NotNull BatchQueue queue, int numSteps, int maxParallelFiles) {
+    this.batchTask = batchTask;
+    this.project = project;
+    this.queue = queue;
+    this.numSteps = numSteps;
+    this.maxParallelFiles = Math.max(1, maxParallelFiles);
+  }
+
+  /**
+   * The queue needs to start with the data import followed by at least one per-file step. All file
+   * and feature list selections of the per-file steps need to use the results of the previous
+   * step.
+   *
+   * @return the number of leading steps that can be run per file including the import, or 0 if
+   * the queue cannot be pipelined
+   */
+  static int countPipelinedSteps(@NotNull BatchQueue queue) {
+    if (queue.isEmpty() || !(queue.getFirst()
+        .getModule() instanceof AllSpectralDataImportModule)) {
+      return 0;
+    }
+    int steps = 1;
+    while (steps < queue.size() && isPerFileStep(queue.get(steps))) {
+      steps++;
+    }
+    return steps > 1 ? steps : 0;
+  }
+
+  /**
+   * @return true if the module processes each file on its own and all inputs are the results of
+   * the previous step
+   */
+  static boolean isPerFileStep(MZmineProcessingStep<?> step) {
+    if (!PER_FILE_MODULES.contains(step.getModule().getClass())) {
+      return false;
+    }
+    for (Parameter<?> p : step.getParameterSet().getParameters()) {
+      if (p instanceof RawDataFilesParameter rdp && (rdp.getValue() == null
+          || rdp.getValue().getSelectionType() != RawDataFilesSelectionType.BATCH_LAST_FILES)) {
+        return false;
+      }
+      if (p instanceof FeatureListsParameter flp && (flp.getValue() == null
+          || flp.getValue().getSelectionType()
+             != FeatureListsSelectionType.BATCH_LAST_FEATURELISTS)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Runs the pipelined steps for all files and waits for all files to finish
+   *
+   * @return the results in the order of the import files or null on error or cancel. The error is
+   * set to the batch task.
+   */
+  @Nullable
+  Result run() {
+    final ParameterSet importParameters = queue.getFirst().getParameterSet();
+    final File[] files = importParameters.getValue(AllSpectralDataImportParameters.fileNames);
+    final File[] libraries = importParameters.getValue(
+        SpectralLibraryImportParameters.dataBaseFiles);
+    final File metadataFile = importParameters.getEmbeddedParameterValueIfSelectedOrElse(
+        AllSpectralDataImportParameters.metadataFile, null);
+    logger.info("Running %d batch steps for each of %d files with %d files in parallel".formatted(
+        numSteps, files.length, maxParallelFiles));
+
+    final FileResult[] results = new FileResult[files.length];
+    final List<CompletableFuture<?>> futures = new ArrayList<>();
+    try (ExecutorService executor = Executors.newFixedThreadPool(maxParallelFiles, runnable -> {
+      final Thread thread = new Thread(runnable, "Batch per-file pipeline");
+      thread.setDaemon(true);
+      return thread;
+    })) {
+      // libraries are imported once next to the files
+      if (libraries != null && libraries.length > 0) {
+        final ParameterSet libraryImport = createImportParameters(importParameters, new File[0]);
+        libraryImport.setParameter(SpectralLibraryImportParameters.dataBaseFiles, libraries);
+        futures.add(CompletableFuture.runAsync(() -> runStep(queue.getFirst(), libraryImport),
+            executor));
+      }
+      // files in parallel share the threads of multithreaded steps
+      final int parallelFiles = Math.min(maxParallelFiles, Math.max(1, files.length));
+      for (int i = 0; i < files.length; i++) {
+        final int index = i;
+        futures.add(CompletableFuture.runAsync(() -> results[index] = ThreadBudget.callShared(
+            parallelFiles, () -> processFile(files[index])), executor));
+      }
+      CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+    } catch (Exception e) {
+      batchTask.error("Error in per-file batch pipeline: " + e.getMessage(), e);
+      return null;
+    }
+
+    if (batchTask.isCanceled() || batchTask.getStatus() == TaskStatus.ERROR) {
+      return null;
+    }
+    for (int i = 0; i < results.length; i++) {
+      if (results[i] == null) {
+        batchTask.error("Per-file batch pipeline did not finish for file " + files[i]);
+        return null;
+      }
+    }
+
+    // metadata needs all files
+    if (metadataFile != null) {
+      var metadataParameters = ProjectMetadataImportParameters.create(metadataFile, false);
+      new ProjectMetadataImportTask(project, metadataParameters, Instant.now()).run();
+    }
+
+    final List<RawDataFile> dataFiles = new ArrayList<>();
+    final List<FeatureList> featureLists = new ArrayList<>();
+    for (FileResult result : results) {
+      dataFiles.add(result.dataFile());
+      featureLists.addAll(result.featureLists());
+    }
+    return new Result(dataFiles, featureLists);
+  }
+
+  /**
+   * @return the number of files that finished all pipelined steps
+   */
+  int getFinishedFiles() {
+    return finishedFiles.get();
+  }
+
+  /**
+   * Imports and processes a single file
+   *
+   * @return the result or null on error or cancel
+   */
+  @Nullable
+  private FileResult processFile(File file) {
+    final ParameterSet importParameters = createImportParameters(queue.getFirst().getParameterSet(),
+        new File[]{file});
+    if (!runStep(queue.getFirst(), importParameters)) {
+      return null;
+    }
+    final List<RawDataFile> imported = AllSpectralDataImportParameters.getLoadedRawDataFiles(
+        project, importParameters);
+    if (imported.size() != 1) {
+      batchTask.error("Cannot find imported data file " + file);
+      return null;
+    }
+    final RawDataFile dataFile = imported.getFirst();
+
+    List<FeatureList> lastFeatureLists = List.of();
+    for (int s = 1; s < numSteps; s++) {
+      if (batchTask.isCanceled()) {
+        return null;
+      }
+      final MZmineProcessingStep<?> step = queue.get(s);
+      final ParameterSet parameters = step.getParameterSet().cloneParameterSet();
+      setBatchLast(parameters, dataFile, lastFeatureLists);
+
+      final Set<FeatureList> before = new HashSet<>(project.getCurrentFeatureLists());
+      if (!runStep(step, parameters)) {
+        return null;
+      }
+      // other files are processed in parallel, only keep the feature lists of this file
+      final List<FeatureList> created = project.getCurrentFeatureLists().stream()
+          .filter(flist -> !before.contains(flist)
+                           && flist.getRawDataFiles().equals(List.of(dataFile))).toList();
+      if (!created.isEmpty()) {
+        lastFeatureLists = created;
+      }
+    }
+    finishedFiles.incrementAndGet();
+    return new FileResult(dataFile, lastFeatureLists);
+  }
+
+  /**
+   * Import of data files without libraries and metadata, which are imported once
+   */
+  private static ParameterSet createImportParameters(ParameterSet importParameters,
+      File[] files) {
+    final ParameterSet parameters = importParameters.cloneParameterSet();
+    parameters.setParameter(AllSpectralDataImportParameters.fileNames, files);
+    parameters.setParameter(SpectralLibraryImportParameters.dataBaseFiles, new File[0]);
+    parameters.setParameter(AllSpectralDataImportParameters.metadataFile, false);
+    return parameters;
+  }
+
+  /**
+   * Sets the input of the step to the results of the previous step of the same file
+   */
+  private static void setBatchLast(ParameterSet parameters, RawDataFile dataFile,
+      List<FeatureList> featureLists) {
+    for (Parameter<?> p : parameters.getParameters()) {
+      if (p instanceof RawDataFilesParameter rdp) {
+        final RawDataFilesSelection selection = rdp.getValue();
+        selection.setBatchLastFiles(new RawDataFile[]{dataFile});
+      } else if (p instanceof FeatureListsParameter flp) {
+        final FeatureListsSelection selection = flp.getValue();
+        selection.setBatchLastFeatureLists(featureLists.toArray(FeatureList[]::new));
+      } else if (p instanceof EmbeddedParameterSet embedded) {
+        setBatchLast(embedded.getEmbeddedParameters(), dataFile, featureLists);
+      }
+    }
+  }
+
+  /**
+   * Checks the parameters like the {@link BatchTask}, runs the module and waits for all tasks
+   *
+   * @return true if all tasks finished
+   */
+  private boolean runStep(MZmineProcessingStep<?> step, ParameterSet parameters) {
+    final MZmineProcessingModule module = (MZmineProcessingModule) step.getModule();
+    final List<String> messages = new ArrayList<>();
+    if (!parameters.checkParameterValues(messages)) {
+      batchTask.error("Invalid parameter settings for module " + module.getName() + ": "
+                      + Arrays.toString(messages.toArray()));
+      return false;
+    }
+
+    final List<Task> tasks = new ArrayList<>();
+    if (module.runModule(project, parameters, tasks, Instant.now()) != ExitCode.OK) {
+      batchTask.error("Could not start batch step " + module.getName());
+      return false;
+    }
+    GoogleAnalyticsTracker.trackModule(module);
+    if (tasks.isEmpty()) {
+      return true;
+    }
+    final WrappedTask[] wrappedTasks = TaskService.getController()
+        .addTasks(tasks.toArray(new Task[0]));
+    tasks.clear(); // do not keep the instance alive during long-running tasks
+    return TaskUtils.waitForTasksToFinish(batchTask, wrappedTasks) == TaskStatus.FINISHED;
+  }
+
+  /**
+   * @param dataFiles    all imported data files in the order of the import
+   * @param featureLists the feature lists of the last pipelined step for all files
+   */
+  record Result(List<RawDataFile> dataFiles, List<FeatureList> featureLists) {
+
+  }
+
+  private record FileResult(RawDataFile dataFile, List<FeatureList> featureLists) {
+
+  }
+}
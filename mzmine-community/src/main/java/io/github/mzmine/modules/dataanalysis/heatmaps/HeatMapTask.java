@@ -25,11 +25,13 @@
 
 package io.github.mzmine.modules.dataanalysis.heatmaps;
 
+import io.github.mzmine.datamodel.AbundanceMeasure;
 import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.RawDataFile;
-import io.github.mzmine.datamodel.features.Feature;
+import io.github.mzmine.datamodel.features.AbundanceMatrix;
 import io.github.mzmine.datamodel.features.FeatureList;
 import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.modules.dataanalysis.utils.StatisticUtils;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.UserParameter;
 import io.github.mzmine.taskcontrol.AbstractTask;
@@ -359,6 +361,15 @@ public class HeatMapTask extends AbstractTask {
       shownDataFiles = nonReferenceDataFiles;
     }
 
+    // abundances are read from the shared matrix of the feature list
+    final AbundanceMeasure measure = area ? AbundanceMeasure.Area : AbundanceMeasure.Height;
+    final AbundanceMatrix matrix = StatisticUtils.getAbundanceMatrix(featureList.getRows(),
+        measure);
+    final int[] referenceIndices = matrix != null ? matrix.indicesOf(referenceDataFiles) : null;
+    final int[] shownIndices = matrix != null ? matrix.indicesOf(shownDataFiles) : null;
+    final double[] referenceValues = new double[referenceDataFiles.size()];
+    final double[] shownValues = new double[shownDataFiles.size()];
+
     for (int row = 0, rowIndex = 0; row < featureList.getNumberOfRows(); row++) {
       FeatureListRow rowFeature = featureList.getRow(row);
       if (!onlyIdentified || (onlyIdentified && rowFeature.getPeakIdentities().size() > 0)) {
@@ -366,17 +377,11 @@ public class HeatMapTask extends AbstractTask {
         // Average area or height of the reference group
         double referenceAverage = 0;
         int referenceFeatureCount = 0;
-        for (int column = 0; column < referenceDataFiles.size(); column++) {
-
-          if (rowFeature.getFeature(referenceDataFiles.get(column)) != null) {
-
-            if (area) {
-
-              referenceAverage += rowFeature.getFeature(referenceDataFiles.get(column)).getArea();
-            } else {
-
-              referenceAverage += rowFeature.getFeature(referenceDataFiles.get(column)).getHeight();
-            }
+        StatisticUtils.copyAbundances(matrix, rowFeature, referenceDataFiles, referenceIndices,
+            measure, referenceValues, 0);
+        for (double referenceValue : referenceValues) {
+          if (!Double.isNaN(referenceValue)) {
+            referenceAverage += referenceValue;
             referenceFeatureCount++;
           }
         }
@@ -387,18 +392,13 @@ public class HeatMapTask extends AbstractTask {
 
         // Divide the area or height of each feature by the average of the
         // area or height of the reference features in each row
+        StatisticUtils.copyAbundances(matrix, rowFeature, shownDataFiles, shownIndices, measure,
+            shownValues, 0);
         for (int column = 0; column < shownDataFiles.size(); column++) {
-          double value = Double.NaN;
-          if (rowFeature.getFeature(shownDataFiles.get(column)) != null) {
+          double value = shownValues[column];
+          if (!Double.isNaN(value)) {
 
-            Feature feature = rowFeature.getFeature(shownDataFiles.get(column));
-            if (area) {
-
-              value = feature.getArea() / referenceAverage;
-            } else {
-
-              value = feature.getHeight() / referenceAverage;
-            }
+            value /= referenceAverage;
             if (log) {
 
               value = Math.log(value);
@@ -511,26 +511,36 @@ public class HeatMapTask extends AbstractTask {
     // data files that should be in the heat map
     List<RawDataFile> shownDataFiles = nonReferenceDataFiles;
 
+    // group of each shown file
+    final String[] shownGroups = new String[shownDataFiles.size()];
+    for (int dataColumn = 0; dataColumn < shownDataFiles.size(); dataColumn++) {
+      shownGroups[dataColumn] = String.valueOf(
+          project.getParameterValue(selectedParameter, shownDataFiles.get(dataColumn)));
+    }
+
+    // abundances are read from the shared matrix of the feature list
+    final AbundanceMeasure measure = area ? AbundanceMeasure.Area : AbundanceMeasure.Height;
+    final AbundanceMatrix matrix = StatisticUtils.getAbundanceMatrix(featureList.getRows(),
+        measure);
+    final int[] referenceIndices = matrix != null ? matrix.indicesOf(referenceDataFiles) : null;
+    final int[] shownIndices = matrix != null ? matrix.indicesOf(shownDataFiles) : null;
+    final double[] referenceValues = new double[referenceDataFiles.size()];
+    final double[] shownValues = new double[shownDataFiles.size()];
+
     for (int row = 0, rowIndex = 0; row < featureList.getNumberOfRows(); row++) {
       FeatureListRow rowFeature = featureList.getRow(row);
       if (!onlyIdentified || (onlyIdentified && rowFeature.getPeakIdentities().size() > 0)) {
         // Average area or height of the reference group
         meanControlStats.clear();
-        for (int column = 0; column < referenceDataFiles.size(); column++) {
-
-          if (rowFeature.getFeature(referenceDataFiles.get(column)) != null) {
-
-            if (area) {
-
-              meanControlStats.addValue(rowFeature.getFeature(referenceDataFiles.get(column)).getArea());
-            } else {
-
-              meanControlStats
-                  .addValue(rowFeature.getFeature(referenceDataFiles.get(column)).getHeight());
-            }
-
+        StatisticUtils.copyAbundances(matrix, rowFeature, referenceDataFiles, referenceIndices,
+            measure, referenceValues, 0);
+        for (double referenceValue : referenceValues) {
+          if (!Double.isNaN(referenceValue)) {
+            meanControlStats.addValue(referenceValue);
           }
         }
+        StatisticUtils.copyAbundances(matrix, rowFeature, shownDataFiles, shownIndices, measure,
+            shownValues, 0);
 
         // Divide the area or height of each feature by the average of the
         // area or height of the reference features in each row
@@ -542,24 +552,10 @@ public class HeatMapTask extends AbstractTask {
 
             for (int dataColumn = 0; dataColumn < shownDataFiles.size(); dataColumn++) {
 
-              Object paramValue =
-                  project.getParameterValue(selectedParameter, shownDataFiles.get(dataColumn));
-              if (rowFeature.getFeature(shownDataFiles.get(dataColumn)) != null
-                  && String.valueOf(paramValue).equals(group)) {
-
-                Feature feature = rowFeature.getFeature(shownDataFiles.get(dataColumn));
-
-                if (!Double.isInfinite(feature.getArea()) && !Double.isNaN(feature.getArea())) {
-
-                  if (area) {
-
-                    meanGroupStats.addValue(feature.getArea());
-                  } else {
-
-                    meanGroupStats.addValue(feature.getHeight());
-                  }
-                }
-
+              final double value = shownValues[dataColumn];
+              if (shownGroups[dataColumn].equals(group) && !Double.isInfinite(value)
+                  && !Double.isNaN(value)) {
+                meanGroupStats.addValue(value);
               }
             }
 
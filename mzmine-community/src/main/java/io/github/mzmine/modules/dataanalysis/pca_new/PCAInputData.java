@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataanalysis.pca_new;
+
+import io.github.mzmine.datamodel.AbundanceMeasure;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.modules.dataanalysis.utils.ColumnMajorMatrix;
+import io.github.mzmine.modules.dataanalysis.utils.imputation.ImputationFunctions;
+import io.github.mzmine.modules.dataanalysis.utils.scaling.ScalingFunctions;
+import java.util.List;
+
+/**
+ * The imputed, centered and scaled data matrix of a PCA and the inputs it was created from. Kept
+ * in the {@link PCAModel} so that updates that only change the displayed components or the
+ * coloring reuse the matrix.
+ *
+ * @param abundanceVersion the modification version of the feature list abundances
+ * @param data             rows = files, columns = feature list rows
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+public record PCAInputData(List<FeatureListRow> rows, List<RawDataFile> files,
+                           AbundanceMeasure abundance, ScalingFunctions scaling,
+                           ImputationFunctions imputation, long abundanceVersion,
+                           ColumnMajorMatrix data) {
+
+  /**
+   * @return true if this data was created from the same inputs
+   */
+  public boolean matches(List<FeatureListRow> rows, List<RawDataFile> files,
+      AbundanceMeasure abundance, ScalingFunctions scaling, ImputationFunctions imputation,
+      long abundanceVersion) {
+    return this.abundanceVersion == abundanceVersion && this.abundance == abundance
+        && this.scaling == scaling && this.imputation == imputation && this.files.equals(files)
+        && this.rows.equals(rows);
+  }
+}
@@ -58,6 +58,8 @@ public class PCAModel {
       List.of());
 
   private final ObjectProperty<PCARowsResult> pcaResult = new SimpleObjectProperty<>();
+  // not observed, the pretreated data of the current pcaResult is reused by later updates
+  private PCAInputData pcaInputData;
   private final ObjectProperty<@NotNull ScalingFunctions> scalingFunction = new SimpleObjectProperty<>(
       ScalingFunctions.AutoScaling);
 
@@ -176,6 +178,14 @@ public class PCAModel {
     return pcaResult;
   }
 
+  public PCAInputData getPcaInputData() {
+    return pcaInputData;
+  }
+
+  public void setPcaInputData(PCAInputData pcaInputData) {
+    this.pcaInputData = pcaInputData;
+  }
+
   public @NotNull ScalingFunctions getScalingFunction() {
     return scalingFunction.get();
   }
@@ -26,6 +26,7 @@
 package io.github.mzmine.modules.dataanalysis.pca_new;
 
 import io.github.mzmine.datamodel.AbundanceMeasure;
+import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.features.FeatureAnnotationPriority;
 import io.github.mzmine.datamodel.features.FeatureList;
 import io.github.mzmine.datamodel.features.FeatureListRow;
@@ -35,6 +36,8 @@ import io.github.mzmine.gui.chartbasics.simplechart.datasets.DatasetAndRenderer;
 import io.github.mzmine.gui.chartbasics.simplechart.datasets.RunOption;
 import io.github.mzmine.gui.chartbasics.simplechart.renderers.ColoredXYShapeRenderer;
 import io.github.mzmine.javafx.mvci.FxUpdateTask;
+import io.github.mzmine.modules.dataanalysis.utils.ColumnMajorMatrix;
+import io.github.mzmine.modules.dataanalysis.utils.StatisticUtils;
 import io.github.mzmine.modules.dataanalysis.utils.imputation.ImputationFunction;
 import io.github.mzmine.modules.dataanalysis.utils.imputation.ImputationFunctions;
 import io.github.mzmine.modules.dataanalysis.utils.scaling.ScalingFunction;
@@ -65,8 +68,14 @@ public class PCAUpdateTask extends FxUpdateTask<PCAModel> {
   private final List<DatasetAndRenderer> loadingsDatasets = new ArrayList<>();
   private final List<Integer> components = new ArrayList<>();
   private final ImputationFunction imputer;
+  private final ImputationFunctions imputationType;
 
   private final ScalingFunction scaling;
+  private final ScalingFunctions scalingType;
+  // the last result and its data are reused if the inputs did not change
+  private final PCAInputData lastInputData;
+  private final PCARowsResult lastResult;
+  private PCAInputData inputData;
   private PCARowsResult pcaRowsResult;
 
   protected PCAUpdateTask(@NotNull String taskName, PCAModel model) {
@@ -79,11 +88,14 @@ public class PCAUpdateTask extends FxUpdateTask<PCAModel> {
     flists = model.getFlists();
     abundance = model.getAbundance();
 
-    final ScalingFunctions scalingFunction = model.getScalingFunction();
-    scaling = scalingFunction.getScalingFunction();
+    scalingType = model.getScalingFunction();
+    scaling = scalingType.getScalingFunction();
 
-    final ImputationFunctions imputationFunction = model.getImputationFunction();
-    imputer = imputationFunction.getImputer();
+    imputationType = model.getImputationFunction();
+    imputer = imputationType.getImputer();
+
+    lastInputData = model.getPcaInputData();
+    lastResult = model.getPcaResult();
   }
 
   @Override
@@ -119,8 +131,31 @@ public class PCAUpdateTask extends FxUpdateTask<PCAModel> {
         ((r1, r2) -> annotationPrioSorter.compare(rowsMappedToBestAnnotation.get(r1),
             rowsMappedToBestAnnotation.get(r2)))).toList();
 
-    pcaRowsResult = PCAUtils.performPCAOnRows(rowsSortedByAnnotationPrio, abundance, scaling,
-        imputer);
+    final List<RawDataFile> files = rowsSortedByAnnotationPrio.stream()
+        .flatMap(row -> row.getRawDataFiles().stream()).distinct().toList();
+    // only changes of the data require a new pretreatment
+    final long abundanceVersion = StatisticUtils.getAbundanceVersion(flists.getFirst());
+    if (lastInputData != null && lastInputData.matches(rowsSortedByAnnotationPrio, files,
+        abundance, scalingType, imputationType, abundanceVersion)) {
+      inputData = lastInputData;
+    } else {
+      inputData = new PCAInputData(rowsSortedByAnnotationPrio, files, abundance, scalingType,
+          imputationType, abundanceVersion,
+          PCAUtils.createPretreatedMatrix(rowsSortedByAnnotationPrio, files, abundance, scaling,
+              imputer));
+    }
+
+    final int numComponents = Math.max(PCAUtils.DEFAULT_COMPONENTS,
+        Math.max(domainPcIndex, rangePcIndex) + 1);
+    final ColumnMajorMatrix data = inputData.data();
+    final int maxComponents = Math.min(data.getRowDimension(), data.getColumnDimension());
+    if (inputData == lastInputData && lastResult != null
+        && lastResult.pcaResult().componentCount() >= Math.min(numComponents, maxComponents)) {
+      pcaRowsResult = lastResult;
+    } else {
+      pcaRowsResult = new PCARowsResult(PCAUtils.truncatedPCA(data, numComponents),
+          rowsSortedByAnnotationPrio, files);
+    }
     progressProvider.getAndIncrement();
 
     final PCAScoresProvider scores = new PCAScoresProvider(pcaRowsResult, "Scores", Color.RED,
@@ -136,8 +171,8 @@ public class PCAUpdateTask extends FxUpdateTask<PCAModel> {
     loadingsDatasets.add(new DatasetAndRenderer(loadingsDS, new ColoredXYShapeRenderer()));
     scoresDatasets.add(new DatasetAndRenderer(scoresDS, new ColoredXYShapeRenderer()));
 
-    for (int i = 1; i <= pcaRowsResult.pcaResult().principalComponentsMatrix().getRowDimension();
-        i++) {
+    // all components can be selected, missing components are computed on selection
+    for (int i = 1; i <= maxComponents; i++) {
       components.add(i);
     }
   }
@@ -146,6 +181,7 @@ public class PCAUpdateTask extends FxUpdateTask<PCAModel> {
   protected void updateGuiModel() {
     model.setScoresDatasets(scoresDatasets);
     model.setLoadingsDatasets(loadingsDatasets);
+    model.setPcaInputData(inputData);
     model.setPcaResult(pcaRowsResult);
 
     if (model.getAvailablePCs().size() != components.size()) {
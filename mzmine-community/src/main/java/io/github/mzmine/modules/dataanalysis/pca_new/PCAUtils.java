@@ -28,6 +28,7 @@ package io.github.mzmine.modules.dataanalysis.pca_new;
 import io.github.mzmine.datamodel.AbundanceMeasure;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.modules.dataanalysis.utils.ColumnMajorMatrix;
 import io.github.mzmine.modules.dataanalysis.utils.StatisticUtils;
 import io.github.mzmine.modules.dataanalysis.utils.imputation.ImputationFunction;
 import io.github.mzmine.modules.dataanalysis.utils.scaling.ScalingFunction;
@@ -38,6 +39,10 @@ import org.apache.commons.math3.linear.SingularValueDecomposition;
 
 public class PCAUtils {
 
+  /**
+   * Number of components computed by default, more are computed if requested.
+   */
+  public static final int DEFAULT_COMPONENTS = 10;
   private static final Logger logger = Logger.getLogger(PCAUtils.class.getName());
 
   /**
@@ -57,7 +62,7 @@ public class PCAUtils {
     SingularValueDecomposition svd = new SingularValueDecomposition(centeredMatrix);
     // https://stats.stackexchange.com/questions/134282/relationship-between-svd-and-pca-how-to-use-svd-to-perform-pca
 
-    return new PCAResult(svd);
+    return PCAResult.of(svd);
   }
 
   /**
@@ -68,7 +73,7 @@ public class PCAUtils {
     SingularValueDecomposition svd = new SingularValueDecomposition(pretreatedData);
     // https://stats.stackexchange.com/questions/134282/relationship-between-svd-and-pca-how-to-use-svd-to-perform-pca
 
-    return new PCAResult(svd);
+    return PCAResult.of(svd);
   }
 
   /**
@@ -82,9 +87,40 @@ public class PCAUtils {
       ScalingFunction scalingFunction, ImputationFunction imputationFunction) {
     final List<RawDataFile> files = rows.stream().flatMap(row -> row.getRawDataFiles().stream())
         .distinct().toList();
-    final RealMatrix data = StatisticUtils.createDatasetFromRows(rows, files, measure);
-    StatisticUtils.imputeMissingValues(data, true, imputationFunction);
-    final PCAResult pcaResult = quickPCA(data, scalingFunction);
+    final ColumnMajorMatrix data = createPretreatedMatrix(rows, files, measure, scalingFunction,
+        imputationFunction);
+    final PCAResult pcaResult = truncatedPCA(data, DEFAULT_COMPONENTS);
     return new PCARowsResult(pcaResult, rows, files);
   }
+
+  /**
+   * Creates the data matrix (rows = files, columns = feature list rows), imputes missing values
+   * and centers and scales each column.
+   */
+  public static ColumnMajorMatrix createPretreatedMatrix(List<FeatureListRow> rows,
+      List<RawDataFile> files, AbundanceMeasure measure, ScalingFunction scalingFunction,
+      ImputationFunction imputationFunction) {
+    final ColumnMajorMatrix data = StatisticUtils.createColumnMajorDatasetFromRows(rows, files,
+        measure);
+    data.imputeMissingValues(imputationFunction);
+    logger.finest(() -> "Performing scaling and centering");
+    data.centerAndScale(scalingFunction);
+    return data;
+  }
+
+  /**
+   * Computes only the first components of the PCA by a randomized truncated singular value
+   * decomposition.
+   *
+   * @param pretreatedData the imputed, centered and scaled data, see
+   *                       {@link #createPretreatedMatrix(List, List, AbundanceMeasure,
+   *                       ScalingFunction, ImputationFunction)}
+   * @param numComponents  the number of components, limited by the data dimensions
+   */
+  public static PCAResult truncatedPCA(ColumnMajorMatrix pretreatedData, int numComponents) {
+    logger.finest(
+        () -> "Performing truncated singular value decomposition for %d components".formatted(
+            numComponents));
+    return RandomizedSVD.decompose(pretreatedData, numComponents);
+  }
 }
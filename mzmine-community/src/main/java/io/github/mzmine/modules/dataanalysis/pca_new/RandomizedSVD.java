@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataanalysis.pca_new;
+
+import io.github.mzmine.modules.dataanalysis.utils.ColumnMajorMatrix;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.linear.SingularValueDecomposition;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Truncated singular value decomposition that only computes the first components of a large
+ * matrix. The range of the matrix is sampled with random vectors and refined by power iterations,
+ * then only a small projected matrix is decomposed exactly (Halko, Martinsson, Tropp 2011, Finding
+ * structure with randomness). Matrices with few rows or columns are decomposed exactly.
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+public final class RandomizedSVD {
+
+  /**
+   * additional random vectors to sample the range more accurately
+   */
+  public static final int OVERSAMPLING = 10;
+  /**
+   * power iterations improve the accuracy for slowly decaying singular values
+   */
+  public static final int POWER_ITERATIONS = 4;
+  /**
+   * fixed seed so that repeated decompositions of the same data are identical
+   */
+  private static final long SEED = 42;
+
+  private RandomizedSVD() {
+  }
+
+  /**
+   * @param a             the matrix, rows = samples, columns = features
+   * @param numComponents the number of components to compute, limited by the matrix dimensions
+   * @return the truncated decomposition with at most numComponents components
+   */
+  public static PCAResult decompose(@NotNull ColumnMajorMatrix a, int numComponents) {
+    final int rank = Math.min(a.getRowDimension(), a.getColumnDimension());
+    final int k = Math.min(numComponents, rank);
+    final int l = k + OVERSAMPLING;
+    if (l >= rank) {
+      return truncate(PCAResult.of(new SingularValueDecomposition(a.toRealMatrix())), k);
+    }
+
+    final Random rand = new Random(SEED);
+    final int n = a.getColumnDimension();
+    final double[][] omega = new double[l][n];
+    for (double[] vector : omega) {
+      for (int j = 0; j < n; j++) {
+        vector[j] = rand.nextGaussian();
+      }
+    }
+
+    // orthonormal basis Q of the range of A, refined by power iterations on A*A^T
+    double[][] q = orthonormalize(multiply(a, omega));
+    for (int i = 0; i < POWER_ITERATIONS; i++) {
+      q = orthonormalize(multiply(a, orthonormalize(multiplyTransposed(a, q))));
+    }
+
+    // B = Q^T * A is small (l x n), decompose its transpose B^T = A^T * Q (n x l)
+    final double[][] bt = multiplyTransposed(a, q);
+    final double[][] btRows = new double[n][l];
+    for (int t = 0; t < l; t++) {
+      for (int j = 0; j < n; j++) {
+        btRows[j][t] = bt[t][j];
+      }
+    }
+    final SingularValueDecomposition svd = new SingularValueDecomposition(
+        new Array2DRowRealMatrix(btRows, false));
+    // B = V' * S * U'^T, so U = Q * V' and V = U'
+    final RealMatrix smallV = svd.getV();
+    final int m = a.getRowDimension();
+    final double[][] u = new double[m][l];
+    for (int r = 0; r < m; r++) {
+      for (int i = 0; i < l; i++) {
+        double sum = 0;
+        for (int t = 0; t < l; t++) {
+          sum += q[t][r] * smallV.getEntry(t, i);
+        }
+        u[r][i] = sum;
+      }
+    }
+    return truncate(
+        new PCAResult(new Array2DRowRealMatrix(u, false), svd.getSingularValues(), svd.getU()), k);
+  }
+
+  private static PCAResult truncate(PCAResult result, int k) {
+    if (result.componentCount() <= k) {
+      return result;
+    }
+    final RealMatrix u = result.u();
+    final RealMatrix v = result.v();
+    return new PCAResult(u.getSubMatrix(0, u.getRowDimension() - 1, 0, k - 1),
+        Arrays.copyOf(result.singularValues(), k),
+        v.getSubMatrix(0, v.getRowDimension() - 1, 0, k - 1));
+  }
+
+  /**
+   * A * X for vectors x of length columns. Blocks of columns are multiplied in parallel and summed.
+   *
+   * @return one vector of length rows per input vector
+   */
+  static double[][] multiply(ColumnMajorMatrix a, double[][] x) {
+    final int m = a.getRowDimension();
+    final int n = a.getColumnDimension();
+    final double[] values = a.values();
+    final int numBlocks = Math.max(1,
+        Math.min(Runtime.getRuntime().availableProcessors(), n / 256));
+    final int blockSize = (n + numBlocks - 1) / numBlocks;
+
+    return IntStream.range(0, numBlocks).parallel().mapToObj(block -> {
+      final double[][] partial = new double[x.length][m];
+      final int end = Math.min(n, (block + 1) * blockSize);
+      for (int j = block * blockSize; j < end; j++) {
+        final int offset = a.columnOffset(j);
+        for (int t = 0; t < x.length; t++) {
+          final double w = x[t][j];
+          final double[] y = partial[t];
+          for (int r = 0; r < m; r++) {
+            y[r] += w * values[offset + r];
+          }
+        }
+      }
+      return partial;
+    }).reduce((y1, y2) -> {
+      for (int t = 0; t < y1.length; t++) {
+        for (int r = 0; r < m; r++) {
+          y1[t][r] += y2[t][r];
+        }
+      }
+      return y1;
+    }).orElseThrow();
+  }
+
+  /**
+   * A^T * Y for vectors y of length rows. Each column of A is a contiguous dot product.
+   *
+   * @return one vector of length columns per input vector
+   */
+  static double[][] multiplyTransposed(ColumnMajorMatrix a, double[][] y) {
+    final int m = a.getRowDimension();
+    final double[] values = a.values();
+    final double[][] result = new double[y.length][a.getColumnDimension()];
+    IntStream.range(0, a.getColumnDimension()).parallel().forEach(j -> {
+      final int offset = a.columnOffset(j);
+      for (int t = 0; t < y.length; t++) {
+        final double[] vector = y[t];
+        double sum = 0;
+        for (int r = 0; r < m; r++) {
+          sum += values[offset + r] * vector[r];
+        }
+        result[t][j] = sum;
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Modified Gram-Schmidt, repeated once for numerical stability. Linearly dependent vectors are
+   * set to 0.
+   */
+  static double[][] orthonormalize(double[][] vectors) {
+    for (int pass = 0; pass < 2; pass++) {
+      for (int i = 0; i < vectors.length; i++) {
+        final double[] v = vectors[i];
+        final double before = norm(v);
+        for (int p = 0; p < i; p++) {
+          final double[] prev = vectors[p];
+          double dot = 0;
+          for (int r = 0; r < v.length; r++) {
+            dot += v[r] * prev[r];
+          }
+          for (int r = 0; r < v.length; r++) {
+            v[r] -= dot * prev[r];
+          }
+        }
+        final double norm = norm(v);
+        final double scale = norm > before * 1E-10 ? 1 / norm : 0;
+        for (int r = 0; r < v.length; r++) {
+          v[r] *= scale;
+        }
+      }
+    }
+    return vectors;
+  }
+
+  private static double norm(double[] v) {
+    double sum = 0;
+    for (double value : v) {
+      sum += value * value;
+    }
+    return Math.sqrt(sum);
+  }
+}
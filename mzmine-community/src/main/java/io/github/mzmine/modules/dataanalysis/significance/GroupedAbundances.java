@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataanalysis.significance;
+
+import io.github.mzmine.datamodel.AbundanceMeasure;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.AbundanceMatrix;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.modules.dataanalysis.utils.StatisticUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The abundances of all rows in groups of raw data files, copied once from the shared
+ * {@link AbundanceMatrix} of the feature list into primitive arrays (NaN for missing values). Rows
+ * are then tested in parallel chunks that reuse their buffers, see
+ * {@link #mapRowsParallel(GroupedRowFunction)}.
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+public final class GroupedAbundances {
+
+  private static final int MIN_CHUNK_SIZE = 256;
+
+  private final int numRows;
+  private final int[] groupSizes;
+  // one matrix per group [row * groupSize + file]
+  private final double[][] values;
+
+  private GroupedAbundances(int numRows, int[] groupSizes, double[][] values) {
+    this.numRows = numRows;
+    this.groupSizes = groupSizes;
+    this.values = values;
+  }
+
+  /**
+   * Extracts the abundances of all rows in parallel
+   */
+  public static GroupedAbundances of(@NotNull List<? extends FeatureListRow> rows,
+      @NotNull List<List<RawDataFile>> groups, @NotNull AbundanceMeasure measure) {
+    final int numRows = rows.size();
+    final int[] groupSizes = groups.stream().mapToInt(List::size).toArray();
+    final double[][] values = new double[groups.size()][];
+    for (int g = 0; g < groupSizes.length; g++) {
+      values[g] = new double[numRows * groupSizes[g]];
+    }
+
+    final AbundanceMatrix matrix = StatisticUtils.getAbundanceMatrix(rows, measure);
+    final int[][] fileIndices = new int[groups.size()][];
+    for (int g = 0; g < groupSizes.length; g++) {
+      fileIndices[g] = matrix != null ? matrix.indicesOf(groups.get(g)) : null;
+    }
+
+    IntStream.range(0, numRows).parallel().forEach(r -> {
+      final FeatureListRow row = rows.get(r);
+      for (int g = 0; g < groupSizes.length; g++) {
+        StatisticUtils.copyAbundances(matrix, row, groups.get(g), fileIndices[g], measure,
+            values[g], r * groupSizes[g]);
+      }
+    });
+    return new GroupedAbundances(numRows, groupSizes, values);
+  }
+
+  public int getNumberOfRows() {
+    return numRows;
+  }
+
+  public int getNumberOfGroups() {
+    return groupSizes.length;
+  }
+
+  /**
+   * Copies the existing (not NaN) abundances of a row in a group to the buffer
+   *
+   * @param buffer needs a length of at least the group size
+   * @return the number of values
+   */
+  public int copyValues(int row, int group, double[] buffer) {
+    final double[] groupValues = values[group];
+    final int offset = row * groupSizes[group];
+    int n = 0;
+    for (int i = offset; i < offset + groupSizes[group]; i++) {
+      if (!Double.isNaN(groupValues[i])) {
+        buffer[n++] = groupValues[i];
+      }
+    }
+    return n;
+  }
+
+  /**
+   * Applies the function to all rows in parallel chunks. Each chunk reuses one buffer per group.
+   *
+   * @return the non-null results in the order of the rows
+   */
+  public <T> List<T> mapRowsParallel(@NotNull GroupedRowFunction<T> function) {
+    final int numChunks = Math.max(1, Math.min(numRows / MIN_CHUNK_SIZE,
+        Runtime.getRuntime().availableProcessors() * 4));
+    final int chunkSize = (numRows + numChunks - 1) / numChunks;
+
+    return IntStream.range(0, numChunks).parallel().mapToObj(chunk -> {
+      final double[][] buffers = new double[groupSizes.length][];
+      for (int g = 0; g < groupSizes.length; g++) {
+        buffers[g] = new double[groupSizes[g]];
+      }
+      final int[] counts = new int[groupSizes.length];
+
+      final int end = Math.min(numRows, (chunk + 1) * chunkSize);
+      final List<T> results = new ArrayList<>(Math.max(0, end - chunk * chunkSize));
+      for (int row = chunk * chunkSize; row < end; row++) {
+        for (int g = 0; g < groupSizes.length; g++) {
+          counts[g] = copyValues(row, g, buffers[g]);
+        }
+        final T result = function.apply(row, buffers, counts);
+        if (result != null) {
+          results.add(result);
+        }
+      }
+      return results;
+    }).flatMap(List::stream).toList();
+  }
+
+  /**
+   * Tests a single row on the values of all groups
+   */
+  @FunctionalInterface
+  public interface GroupedRowFunction<T> {
+
+    /**
+     * @param row    the row index
+     * @param values one buffer per group with the values of this row, only valid during this call
+     * @param counts the number of values in each buffer
+     * @return the result or null if the row cannot be tested
+     */
+    @Nullable T apply(int row, double[][] values, int[] counts);
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataanalysis.significance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Adjusts the p-values of many tests, e.g., one test per feature list row. NaN p-values are kept
+ * and do not count as tests.
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+public enum MultipleTestingCorrection {
+  NONE, BONFERRONI, BENJAMINI_HOCHBERG;
+
+  /**
+   * @return the adjusted p-values in the same order, capped at 1
+   */
+  public double[] adjust(double @NotNull [] pValues) {
+    final double[] adjusted = pValues.clone();
+    final int numTests = (int) Arrays.stream(pValues).filter(p -> !Double.isNaN(p)).count();
+    switch (this) {
+      case NONE -> {
+      }
+      case BONFERRONI -> {
+        for (int i = 0; i < adjusted.length; i++) {
+          adjusted[i] = Math.min(1, pValues[i] * numTests);
+        }
+      }
+      case BENJAMINI_HOCHBERG -> {
+        // rank ascending, adjusted p is the minimum of p * m / rank of all higher ranks
+        final int[] order = IntStream.range(0, pValues.length)
+            .filter(i -> !Double.isNaN(pValues[i])).boxed()
+            .sorted((a, b) -> Double.compare(pValues[a], pValues[b])).mapToInt(Integer::intValue)
+            .toArray();
+        double min = 1;
+        for (int rank = order.length; rank >= 1; rank--) {
+          final int i = order[rank - 1];
+          min = Math.min(min, pValues[i] * numTests / rank);
+          adjusted[i] = min;
+        }
+      }
+    }
+    return adjusted;
+  }
+
+  /**
+   * @return the results with adjusted p-values in the same order
+   */
+  public List<RowSignificanceTestResult> adjust(
+      @NotNull List<? extends RowSignificanceTestResult> results) {
+    if (this == NONE) {
+      return new ArrayList<>(results);
+    }
+    final double[] adjusted = adjust(
+        results.stream().mapToDouble(RowSignificanceTestResult::pValue).toArray());
+    final List<RowSignificanceTestResult> adjustedResults = new ArrayList<>(results.size());
+    for (int i = 0; i < adjusted.length; i++) {
+      adjustedResults.add(results.get(i).withPValue(adjusted[i]));
+    }
+    return adjustedResults;
+  }
+
+  @Override
+  public String toString() {
+    return switch (this) {
+      case NONE -> "None";
+      case BONFERRONI -> "Bonferroni";
+      case BENJAMINI_HOCHBERG -> "Benjamini-Hochberg (FDR)";
+    };
+  }
+}
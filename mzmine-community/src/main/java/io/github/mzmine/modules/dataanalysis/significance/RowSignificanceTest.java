@@ -27,6 +27,8 @@ package io.github.mzmine.modules.dataanalysis.significance;
 
 import io.github.mzmine.datamodel.AbundanceMeasure;
 import io.github.mzmine.datamodel.features.FeatureListRow;
+import java.util.List;
+import java.util.Objects;
 import org.jetbrains.annotations.Nullable;
 
 public interface RowSignificanceTest {
@@ -36,4 +38,15 @@ public interface RowSignificanceTest {
    */
   @Nullable RowSignificanceTestResult test(FeatureListRow row, AbundanceMeasure abundanceMeasure);
 
+  /**
+   * Tests all rows in parallel. Implementations extract all abundances once, see
+   * {@link GroupedAbundances}.
+   *
+   * @return the results of all rows that could be tested in the order of the rows
+   */
+  default List<? extends RowSignificanceTestResult> testAll(List<? extends FeatureListRow> rows,
+      AbundanceMeasure abundanceMeasure) {
+    return rows.parallelStream().map(row -> test(row, abundanceMeasure)).filter(Objects::nonNull)
+        .toList();
+  }
 }
@@ -38,6 +38,12 @@ public interface RowSignificanceTestResult {
 
   String groupingColumn();
 
+  /**
+   * @return a copy of this result with a different p-value, e.g., after
+   * {@link MultipleTestingCorrection}
+   */
+  RowSignificanceTestResult withPValue(double pValue);
+
   @Nullable
   default MetadataColumn<?> column() {
     return MZmineCore.getProjectMetadata().getColumnByName(groupingColumn());
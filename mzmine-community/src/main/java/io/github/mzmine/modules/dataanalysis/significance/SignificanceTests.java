@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataanalysis.significance;
+
+import org.apache.commons.math3.special.Beta;
+import org.apache.commons.math3.stat.inference.TestUtils;
+
+/**
+ * Allocation free versions of the t-tests and the one-way ANOVA of {@link TestUtils} on the
+ * first values of reused arrays. Computations and p-values follow commons-math to yield the same
+ * results.
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+public final class SignificanceTests {
+
+  private SignificanceTests() {
+  }
+
+  /**
+   * Two-sided unpaired t-test without the assumption of equal variances (Welch), like
+   * {@link TestUtils#tTest(double[], double[])}
+   *
+   * @return the p-value
+   */
+  public static double tTest(double[] a, int na, double[] b, int nb) {
+    final double meanA = mean(a, na);
+    final double meanB = mean(b, nb);
+    final double varA = variance(a, na, meanA);
+    final double varB = variance(b, nb, meanB);
+    final double t = Math.abs((meanA - meanB) / Math.sqrt((varA / na) + (varB / nb)));
+    // Welch-Satterthwaite degrees of freedom
+    final double df = (((varA / na) + (varB / nb)) * ((varA / na) + (varB / nb)))
+        / ((varA * varA) / ((double) na * na * (na - 1d))
+        + (varB * varB) / ((double) nb * nb * (nb - 1d)));
+    return twoSidedTPValue(t, df);
+  }
+
+  /**
+   * Two-sided paired t-test of the first n values, like
+   * {@link TestUtils#pairedTTest(double[], double[])}
+   *
+   * @return the p-value
+   */
+  public static double pairedTTest(double[] a, double[] b, int n) {
+    double sum = 0;
+    for (int i = 0; i < n; i++) {
+      sum += a[i] - b[i];
+    }
+    final double meanDiff = sum / n;
+    double sumSq = 0;
+    double sumDev = 0;
+    for (int i = 0; i < n; i++) {
+      final double dev = a[i] - b[i] - meanDiff;
+      sumSq += dev * dev;
+      sumDev += dev;
+    }
+    final double varDiff = (sumSq - sumDev * sumDev / n) / (n - 1);
+    final double t = Math.abs(meanDiff / Math.sqrt(varDiff / n));
+    return twoSidedTPValue(t, n - 1);
+  }
+
+  /**
+   * F-value of a one-way ANOVA, like {@link TestUtils#oneWayAnovaFValue(java.util.Collection)}
+   *
+   * @param groups the values of each group
+   * @param counts the number of values in each group
+   */
+  public static double oneWayAnovaFValue(double[][] groups, int[] counts) {
+    double totalSum = 0;
+    double totalSumSq = 0;
+    int totalN = 0;
+    double sumSqWithinGroups = 0;
+    for (int g = 0; g < groups.length; g++) {
+      double sum = 0;
+      double sumSq = 0;
+      for (int i = 0; i < counts[g]; i++) {
+        sum += groups[g][i];
+        sumSq += groups[g][i] * groups[g][i];
+      }
+      totalSum += sum;
+      totalSumSq += sumSq;
+      totalN += counts[g];
+      sumSqWithinGroups += sumSq - sum * sum / counts[g];
+    }
+    final double sumSqTotal = totalSumSq - totalSum * totalSum / totalN;
+    final double sumSqBetweenGroups = sumSqTotal - sumSqWithinGroups;
+    final int dfBetweenGroups = groups.length - 1;
+    final int dfWithinGroups = totalN - groups.length;
+    return (sumSqBetweenGroups / dfBetweenGroups) / (sumSqWithinGroups / dfWithinGroups);
+  }
+
+  /**
+   * p-value of a one-way ANOVA, like {@link TestUtils#oneWayAnovaPValue(java.util.Collection)}
+   *
+   * @param fValue    see {@link #oneWayAnovaFValue(double[][], int[])}
+   * @param numGroups the number of groups
+   * @param numValues the total number of values
+   */
+  public static double oneWayAnovaPValue(double fValue, int numGroups, int numValues) {
+    final double dfBetweenGroups = numGroups - 1;
+    final double dfWithinGroups = numValues - numGroups;
+    if (fValue <= 0) {
+      return 1;
+    }
+    return 1 - Beta.regularizedBeta(
+        dfBetweenGroups * fValue / (dfWithinGroups + dfBetweenGroups * fValue),
+        0.5 * dfBetweenGroups, 0.5 * dfWithinGroups);
+  }
+
+  /**
+   * @param t  the absolute t statistic
+   * @param df degrees of freedom
+   * @return 2 * P(T < -t) of the t-distribution
+   */
+  private static double twoSidedTPValue(double t, double df) {
+    if (t == 0) {
+      return 1;
+    }
+    return Beta.regularizedBeta(df / (df + t * t), 0.5 * df, 0.5);
+  }
+
+  /**
+   * Mean with a correction term for rounding errors like commons-math
+   */
+  private static double mean(double[] values, int n) {
+    double sum = 0;
+    for (int i = 0; i < n; i++) {
+      sum += values[i];
+    }
+    final double mean = sum / n;
+    double correction = 0;
+    for (int i = 0; i < n; i++) {
+      correction += values[i] - mean;
+    }
+    return mean + correction / n;
+  }
+
+  /**
+   * Bias corrected sample variance with a correction term for rounding errors like commons-math
+   */
+  private static double variance(double[] values, int n, double mean) {
+    double sumSq = 0;
+    double sumDev = 0;
+    for (int i = 0; i < n; i++) {
+      final double dev = values[i] - mean;
+      sumSq += dev * dev;
+      sumDev += dev;
+    }
+    return (sumSq - sumDev * sumDev / n) / (n - 1);
+  }
+}
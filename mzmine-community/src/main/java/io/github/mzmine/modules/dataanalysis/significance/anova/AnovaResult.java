@@ -37,6 +37,11 @@ import org.jetbrains.annotations.NotNull;
 public record AnovaResult(FeatureListRow row, String groupingColumn, double pValue, double fValue) implements
     RowSignificanceTestResult, ModularDataRecord {
 
+  @Override
+  public AnovaResult withPValue(double pValue) {
+    return new AnovaResult(row, groupingColumn, pValue, fValue);
+  }
+
   @Override
   public Object getValue(@NotNull DataType<?> sub) {
     return switch (sub) {
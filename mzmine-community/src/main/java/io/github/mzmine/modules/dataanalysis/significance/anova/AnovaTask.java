@@ -37,7 +37,6 @@ import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import java.time.Instant;
 import java.util.List;
-import java.util.Objects;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
@@ -85,13 +84,11 @@ public class AnovaTask extends AbstractTask {
       return;
     }
 
-    final List<AnovaResult> anovaResults = flist.getRows().stream().map(row -> {
-      if (isCanceled()) {
-        return null;
-      }
-      processed++;
-      return calc.test(row, AbundanceMeasure.Height);
-    }).filter(Objects::nonNull).toList();
+    final List<AnovaResult> anovaResults = calc.testAll(flist.getRows(), AbundanceMeasure.Height);
+    processed = flist.getNumberOfRows();
+    if (isCanceled()) {
+      return;
+    }
 
     anovaResults.forEach(r -> r.row().set(AnovaPValueType.class, r.pValue()));
     flist.getAppliedMethods()
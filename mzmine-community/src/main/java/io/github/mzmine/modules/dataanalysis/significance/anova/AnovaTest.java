@@ -30,11 +30,14 @@ import io.github.mzmine.datamodel.AbundanceMeasure;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.modules.dataanalysis.significance.GroupedAbundances;
 import io.github.mzmine.modules.dataanalysis.significance.RowSignificanceTest;
+import io.github.mzmine.modules.dataanalysis.significance.SignificanceTests;
 import io.github.mzmine.modules.dataanalysis.utils.StatisticUtils;
 import io.github.mzmine.modules.visualization.projectmetadata.MetadataColumnDoesNotExistException;
 import io.github.mzmine.modules.visualization.projectmetadata.table.MetadataTable;
 import io.github.mzmine.modules.visualization.projectmetadata.table.columns.MetadataColumn;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
@@ -57,11 +60,19 @@ public class AnovaTest implements RowSignificanceTest {
   }
 
   /**
-   * @param groupAbundances one array of abundances for each group or an 2D
-   *                        array[group][abundances]
+   * @param counts the number of abundances in each group
    */
-  private boolean checkConditions(List<double[]> groupAbundances) {
-    return groupAbundances.size() > 2; // anova usually used for more than two groups
+  private static boolean checkConditions(int[] counts) {
+    if (counts.length <= 2) {
+      return false; // anova usually used for more than two groups
+    }
+    for (int count : counts) {
+      // the anova requires at least two values per group
+      if (count < 2) {
+        return false;
+      }
+    }
+    return true;
   }
 
   @Override
@@ -69,7 +80,7 @@ public class AnovaTest implements RowSignificanceTest {
     final List<double[]> intensityGroups = groupedFiles.stream()
         .map(group -> StatisticUtils.extractAbundance(row, group, abundanceMeasure)).toList();
 
-    if (checkConditions(intensityGroups)) {
+    if (checkConditions(intensityGroups.stream().mapToInt(group -> group.length).toArray())) {
       final double pValue = TestUtils.oneWayAnovaPValue(intensityGroups);
       final double fValue = TestUtils.oneWayAnovaFValue(intensityGroups);
       return new AnovaResult(row, groupingColumn.getTitle(), pValue, fValue);
@@ -77,4 +88,24 @@ public class AnovaTest implements RowSignificanceTest {
 
     return null;
   }
+
+  @Override
+  public List<AnovaResult> testAll(List<? extends FeatureListRow> rows,
+      AbundanceMeasure abundanceMeasure) {
+    if (groupedFiles.size() <= 2) {
+      return List.of();
+    }
+    final GroupedAbundances abundances = GroupedAbundances.of(rows, groupedFiles,
+        abundanceMeasure);
+    final String title = groupingColumn.getTitle();
+    return abundances.mapRowsParallel((row, values, counts) -> {
+      if (!checkConditions(counts)) {
+        return null;
+      }
+      final int numValues = Arrays.stream(counts).sum();
+      final double fValue = SignificanceTests.oneWayAnovaFValue(values, counts);
+      final double pValue = SignificanceTests.oneWayAnovaPValue(fValue, counts.length, numValues);
+      return new AnovaResult(rows.get(row), title, pValue, fValue);
+    });
+  }
 }
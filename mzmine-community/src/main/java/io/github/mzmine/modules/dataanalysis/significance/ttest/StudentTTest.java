@@ -29,8 +29,10 @@ import io.github.mzmine.datamodel.AbundanceMeasure;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.modules.dataanalysis.significance.GroupedAbundances;
 import io.github.mzmine.modules.dataanalysis.significance.RowSignificanceTest;
 import io.github.mzmine.modules.dataanalysis.significance.RowSignificanceTestResult;
+import io.github.mzmine.modules.dataanalysis.significance.SignificanceTests;
 import io.github.mzmine.modules.dataanalysis.utils.StatisticUtils;
 import io.github.mzmine.modules.visualization.projectmetadata.table.MetadataTable;
 import io.github.mzmine.modules.visualization.projectmetadata.table.columns.MetadataColumn;
@@ -69,7 +71,7 @@ public final class StudentTTest<T> implements RowSignificanceTest {
     final double[] groupBAbundance = StatisticUtils.extractAbundance(row, groupedFilesB,
         abundanceMeasure);
 
-    if (!checkConditions(groupAAbundance, groupBAbundance)) {
+    if (!checkConditions(groupAAbundance.length, groupBAbundance.length)) {
       return null;
     }
     final double p = switch (samplingConfig) {
@@ -79,16 +81,34 @@ public final class StudentTTest<T> implements RowSignificanceTest {
     return new TTestResult(row, column.getTitle(), p);
   }
 
-  private boolean checkConditions(double[] abundancesA, double[] abundancesB) {
+  @Override
+  public List<TTestResult> testAll(List<? extends FeatureListRow> rows,
+      AbundanceMeasure abundanceMeasure) {
+    final GroupedAbundances abundances = GroupedAbundances.of(rows,
+        List.of(groupedFilesA, groupedFilesB), abundanceMeasure);
+    final String title = column.getTitle();
+    return abundances.mapRowsParallel((row, values, counts) -> {
+      if (!checkConditions(counts[0], counts[1])) {
+        return null;
+      }
+      final double p = switch (samplingConfig) {
+        case PAIRED -> SignificanceTests.pairedTTest(values[0], values[1], counts[0]);
+        case UNPAIRED -> SignificanceTests.tTest(values[0], counts[0], values[1], counts[1]);
+      };
+      return new TTestResult(rows.get(row), title, p);
+    });
+  }
+
+  private boolean checkConditions(int numA, int numB) {
     switch (samplingConfig) {
       case PAIRED -> {
         // only perform paired test if the number of abundances is equal (pre/post treatment)
-        if (abundancesA.length != abundancesB.length || abundancesA.length < 2) {
+        if (numA != numB || numA < 2) {
           return false;
         }
       }
       case UNPAIRED -> {
-        if (abundancesA.length < 2 || abundancesB.length < 2) {
+        if (numA < 2 || numB < 2) {
           return false;
         }
       }
@@ -31,4 +31,8 @@ import io.github.mzmine.modules.dataanalysis.significance.RowSignificanceTestRes
 public record TTestResult(FeatureListRow row, String groupingColumn, double pValue) implements
     RowSignificanceTestResult {
 
+  @Override
+  public TTestResult withPValue(double pValue) {
+    return new TTestResult(row, groupingColumn, pValue);
+  }
 }
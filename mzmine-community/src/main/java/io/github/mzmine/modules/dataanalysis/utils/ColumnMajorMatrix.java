@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataanalysis.utils;
+
+import io.github.mzmine.modules.dataanalysis.utils.imputation.ImputationFunction;
+import io.github.mzmine.modules.dataanalysis.utils.scaling.ScalingFunction;
+import java.util.Arrays;
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.linear.RealVector;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Dense matrix in a single primitive array in column major order. Each column (feature) is a
+ * contiguous block of row (sample) values, which is what imputation and scaling iterate over.
+ * Avoids the per row arrays of {@link Array2DRowRealMatrix} for large feature tables.
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+public final class ColumnMajorMatrix {
+
+  private final int rows;
+  private final int columns;
+  private final double[] values;
+
+  public ColumnMajorMatrix(int rows, int columns) {
+    this(rows, columns, new double[Math.multiplyExact(rows, columns)]);
+  }
+
+  /**
+   * @param values column major values, not copied
+   */
+  public ColumnMajorMatrix(int rows, int columns, double[] values) {
+    if (values.length != (long) rows * columns) {
+      throw new IllegalArgumentException(
+          "Length of values %d does not match %d x %d".formatted(values.length, rows, columns));
+    }
+    this.rows = rows;
+    this.columns = columns;
+    this.values = values;
+  }
+
+  public static ColumnMajorMatrix of(@NotNull RealMatrix matrix) {
+    final ColumnMajorMatrix result = new ColumnMajorMatrix(matrix.getRowDimension(),
+        matrix.getColumnDimension());
+    for (int c = 0; c < result.columns; c++) {
+      for (int r = 0; r < result.rows; r++) {
+        result.values[c * result.rows + r] = matrix.getEntry(r, c);
+      }
+    }
+    return result;
+  }
+
+  public int getRowDimension() {
+    return rows;
+  }
+
+  public int getColumnDimension() {
+    return columns;
+  }
+
+  /**
+   * @return the backing column major values, changes write through
+   */
+  public double[] values() {
+    return values;
+  }
+
+  public double getEntry(int row, int column) {
+    return values[column * rows + row];
+  }
+
+  public void setEntry(int row, int column, double value) {
+    values[column * rows + row] = value;
+  }
+
+  /**
+   * @return offset of the column in {@link #values()}
+   */
+  public int columnOffset(int column) {
+    return column * rows;
+  }
+
+  public double[] getColumn(int column) {
+    final int offset = column * rows;
+    return Arrays.copyOfRange(values, offset, offset + rows);
+  }
+
+  public void setColumn(int column, double[] columnValues) {
+    System.arraycopy(columnValues, 0, values, column * rows, rows);
+  }
+
+  public ColumnMajorMatrix copy() {
+    return new ColumnMajorMatrix(rows, columns, values.clone());
+  }
+
+  /**
+   * Replaces NaN values in each column by the value of the imputation function for this column.
+   */
+  public void imputeMissingValues(@NotNull ImputationFunction imputationFunction) {
+    for (int c = 0; c < columns; c++) {
+      final int offset = c * rows;
+      boolean missing = false;
+      for (int r = offset; r < offset + rows; r++) {
+        if (Double.isNaN(values[r])) {
+          missing = true;
+          break;
+        }
+      }
+      if (!missing) {
+        continue;
+      }
+      final double imputed = imputationFunction.apply(new ArrayRealVector(getColumn(c), false));
+      for (int r = offset; r < offset + rows; r++) {
+        if (Double.isNaN(values[r])) {
+          values[r] = imputed;
+        }
+      }
+    }
+  }
+
+  /**
+   * Centers each column around its mean and applies the scaling function afterwards, like
+   * {@link StatisticUtils#centerAndScale(RealMatrix, ScalingFunction, boolean)}.
+   */
+  public void centerAndScale(@NotNull ScalingFunction scaling) {
+    for (int c = 0; c < columns; c++) {
+      final int offset = c * rows;
+      double sum = 0;
+      for (int r = offset; r < offset + rows; r++) {
+        sum += values[r];
+      }
+      final double mean = sum / rows;
+      final double[] column = new double[rows];
+      for (int r = 0; r < rows; r++) {
+        column[r] = values[offset + r] - mean;
+      }
+      final RealVector scaled = scaling.apply(new ArrayRealVector(column, false));
+      for (int r = 0; r < rows; r++) {
+        values[offset + r] = scaled.getEntry(r);
+      }
+    }
+  }
+
+  public RealMatrix toRealMatrix() {
+    final double[][] data = new double[rows][columns];
+    for (int c = 0; c < columns; c++) {
+      for (int r = 0; r < rows; r++) {
+        data[r][c] = values[c * rows + r];
+      }
+    }
+    return new Array2DRowRealMatrix(data, false);
+  }
+}
@@ -27,20 +27,25 @@ package io.github.mzmine.modules.dataanalysis.utils;
 
 import io.github.mzmine.datamodel.AbundanceMeasure;
 import io.github.mzmine.datamodel.RawDataFile;
-import io.github.mzmine.datamodel.features.Feature;
+import io.github.mzmine.datamodel.features.AbundanceMatrix;
+import io.github.mzmine.datamodel.features.FeatureList;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularDataModel;
 import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.modules.dataanalysis.significance.RowSignificanceTestResult;
 import io.github.mzmine.modules.dataanalysis.utils.scaling.ScalingFunction;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.function.Function;
+import java.util.stream.IntStream;
 import org.apache.commons.math.util.MathUtils;
 import org.apache.commons.math3.linear.Array2DRowRealMatrix;
 import org.apache.commons.math3.linear.RealMatrix;
 import org.apache.commons.math3.linear.RealVector;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class StatisticUtils {
 
@@ -50,11 +55,72 @@ public class StatisticUtils {
         .filter(Objects::nonNull).mapToDouble(Float::doubleValue).toArray();
   }
 
+  /**
+   * The shared abundance matrix of the feature list of the rows
+   *
+   * @return the abundance matrix or null if the rows are empty or not part of a
+   * {@link ModularFeatureList}
+   */
+  @Nullable
+  public static AbundanceMatrix getAbundanceMatrix(List<? extends FeatureListRow> rows,
+      AbundanceMeasure measure) {
+    if (rows.isEmpty() || !(rows.getFirst()
+        .getFeatureList() instanceof ModularFeatureList flist)) {
+      return null;
+    }
+    return flist.getAbundanceMatrix(measure);
+  }
+
+  /**
+   * @return the modification version of the abundances of a {@link ModularFeatureList} or -1 for
+   * other feature lists
+   */
+  public static long getAbundanceVersion(@Nullable FeatureList flist) {
+    return flist instanceof ModularFeatureList mflist ? mflist.getAbundanceVersion() : -1;
+  }
+
+  /**
+   * Copies the abundances of a row to the destination, NaN for missing values. Uses the matrix if
+   * it contains the row, otherwise the values are read from the features.
+   *
+   * @param matrix      the shared abundance matrix or null
+   * @param fileIndices the indices of the files in the matrix, see
+   *                    {@link AbundanceMatrix#indicesOf(List)}. Only used if matrix is not null
+   */
+  public static void copyAbundances(@Nullable AbundanceMatrix matrix, @NotNull FeatureListRow row,
+      @NotNull List<RawDataFile> files, int[] fileIndices, @NotNull AbundanceMeasure measure,
+      double[] dst, int dstOffset) {
+    final int rowIndex = matrix != null ? matrix.indexOf(row) : -1;
+    if (rowIndex >= 0) {
+      matrix.copyRow(rowIndex, fileIndices, dst, dstOffset);
+      return;
+    }
+    for (int i = 0; i < files.size(); i++) {
+      final Float abundance = measure.get((ModularDataModel) row.getFeature(files.get(i)));
+      dst[dstOffset + i] = abundance != null ? abundance : Double.NaN;
+    }
+  }
+
   public static double[] calculateLog2FoldChange(List<RowSignificanceTestResult> testResults,
       List<RawDataFile> groupAFiles, List<RawDataFile> groupBFiles,
       AbundanceMeasure abundanceMeasure) {
-    return testResults.stream().mapToDouble(result -> {
-      return calculateLog2FoldChange(groupAFiles, groupBFiles, abundanceMeasure, result);
+    final AbundanceMatrix matrix = getAbundanceMatrix(
+        testResults.stream().map(RowSignificanceTestResult::row).toList(), abundanceMeasure);
+    if (matrix == null) {
+      return testResults.parallelStream().mapToDouble(result -> {
+        return calculateLog2FoldChange(groupAFiles, groupBFiles, abundanceMeasure, result);
+      }).toArray();
+    }
+
+    final int[] indicesA = matrix.indicesOf(groupAFiles);
+    final int[] indicesB = matrix.indicesOf(groupBFiles);
+    return testResults.parallelStream().mapToDouble(result -> {
+      final double[] a = new double[groupAFiles.size()];
+      final double[] b = new double[groupBFiles.size()];
+      copyAbundances(matrix, result.row(), groupAFiles, indicesA, abundanceMeasure, a, 0);
+      copyAbundances(matrix, result.row(), groupBFiles, indicesB, abundanceMeasure, b, 0);
+      return MathUtils.log(2, Arrays.stream(a).filter(v -> !Double.isNaN(v)).average().getAsDouble()
+          / Arrays.stream(b).filter(v -> !Double.isNaN(v)).average().getAsDouble());
     }).toArray();
   }
 
@@ -143,24 +209,24 @@ public class StatisticUtils {
     // file2  2   2   1   1
     // file3  3   4   4   5
 
-    final RealMatrix data = new Array2DRowRealMatrix(allFiles.size(), rows.size());
-
-    for (int fileIndex = 0; fileIndex < allFiles.size(); fileIndex++) {
-      final RawDataFile file = allFiles.get(fileIndex);
-      for (int rowIndex = 0; rowIndex < rows.size(); rowIndex++) {
-        final FeatureListRow row = rows.get(rowIndex);
-        final Feature feature = row.getFeature(file);
-
-        final double abundance;
-        if (feature != null) {
-          abundance = measure.getOrNaN((ModularDataModel) feature);
-        } else {
-          abundance = Double.NaN;
-        }
-        data.setEntry(fileIndex, rowIndex, abundance);
-      }
-    }
+    // column major matrix is filled from the shared abundance matrix of the feature list
+    return createColumnMajorDatasetFromRows(rows, allFiles, measure).toRealMatrix();
+  }
 
+  /**
+   * Same layout as {@link #createDatasetFromRows(List, List, AbundanceMeasure)} with rows = raw
+   * files and columns = features, but stored column major. Columns are filled in parallel.
+   */
+  public static ColumnMajorMatrix createColumnMajorDatasetFromRows(List<FeatureListRow> rows,
+      List<RawDataFile> allFiles, AbundanceMeasure measure) {
+    final ColumnMajorMatrix data = new ColumnMajorMatrix(allFiles.size(), rows.size());
+    final double[] values = data.values();
+    final AbundanceMatrix matrix = getAbundanceMatrix(rows, measure);
+    final int[] fileIndices = matrix != null ? matrix.indicesOf(allFiles) : null;
+
+    IntStream.range(0, rows.size()).parallel().forEach(
+        rowIndex -> copyAbundances(matrix, rows.get(rowIndex), allFiles, fileIndices, measure,
+            values, data.columnOffset(rowIndex)));
     return data;
   }
 }
@@ -60,7 +60,8 @@ public class VolcanoPlotController extends FxController<VolcanoPlotModel> implem
 
   private void initializeListeners() {
     PropertyUtils.onChange(this::computeDataset, model.testProperty(), model.flistsProperty(),
-        model.abundanceMeasureProperty(), model.pValueProperty());
+        model.abundanceMeasureProperty(), model.pValueProperty(),
+        model.pValueCorrectionProperty());
   }
 
   private void computeDataset() {
@@ -29,6 +29,7 @@ import io.github.mzmine.datamodel.AbundanceMeasure;
 import io.github.mzmine.datamodel.features.FeatureList;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.gui.chartbasics.simplechart.datasets.DatasetAndRenderer;
+import io.github.mzmine.modules.dataanalysis.significance.MultipleTestingCorrection;
 import io.github.mzmine.modules.dataanalysis.significance.RowSignificanceTest;
 import java.util.Collection;
 import java.util.List;
@@ -48,6 +49,10 @@ public class VolcanoPlotModel {
   private final ObjectProperty<@Nullable RowSignificanceTest> test = new SimpleObjectProperty<>();
 
   private final DoubleProperty pValue = new SimpleDoubleProperty(0.05);
+  private final ObjectProperty<MultipleTestingCorrection> pValueCorrection = new SimpleObjectProperty<>(
+      MultipleTestingCorrection.NONE);
+  // not observed, only reused by the next update
+  private @Nullable VolcanoTestResults testResults;
 
   private final ObjectProperty<List<FeatureListRow>> selectedRows = new SimpleObjectProperty<>();
 
@@ -111,6 +116,26 @@ public class VolcanoPlotModel {
     this.pValue.set(pValue);
   }
 
+  public MultipleTestingCorrection getPValueCorrection() {
+    return pValueCorrection.get();
+  }
+
+  public void setPValueCorrection(MultipleTestingCorrection pValueCorrection) {
+    this.pValueCorrection.set(pValueCorrection);
+  }
+
+  public ObjectProperty<MultipleTestingCorrection> pValueCorrectionProperty() {
+    return pValueCorrection;
+  }
+
+  @Nullable VolcanoTestResults getTestResults() {
+    return testResults;
+  }
+
+  void setTestResults(@Nullable VolcanoTestResults testResults) {
+    this.testResults = testResults;
+  }
+
   public List<FeatureListRow> getSelectedRows() {
     return selectedRows.get();
   }
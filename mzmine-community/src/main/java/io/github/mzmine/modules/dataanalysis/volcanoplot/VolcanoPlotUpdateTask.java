@@ -28,7 +28,6 @@ package io.github.mzmine.modules.dataanalysis.volcanoplot;
 import io.github.mzmine.datamodel.AbundanceMeasure;
 import io.github.mzmine.datamodel.features.FeatureAnnotationPriority;
 import io.github.mzmine.datamodel.features.FeatureList;
-import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.types.DataType;
 import io.github.mzmine.datamodel.features.types.DataTypes;
 import io.github.mzmine.datamodel.features.types.annotations.MissingValueType;
@@ -38,9 +37,11 @@ import io.github.mzmine.gui.chartbasics.simplechart.datasets.RunOption;
 import io.github.mzmine.gui.chartbasics.simplechart.renderers.ColoredXYShapeRenderer;
 import io.github.mzmine.javafx.mvci.FxUpdateTask;
 import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.modules.dataanalysis.significance.MultipleTestingCorrection;
 import io.github.mzmine.modules.dataanalysis.significance.RowSignificanceTest;
 import io.github.mzmine.modules.dataanalysis.significance.RowSignificanceTestResult;
 import io.github.mzmine.modules.dataanalysis.significance.ttest.StudentTTest;
+import io.github.mzmine.modules.dataanalysis.utils.StatisticUtils;
 import io.github.mzmine.taskcontrol.progress.TotalFinishedItemsProgress;
 import io.github.mzmine.util.DataTypeUtils;
 import io.github.mzmine.util.color.SimpleColorPalette;
@@ -61,7 +62,10 @@ class VolcanoPlotUpdateTask extends FxUpdateTask<VolcanoPlotModel> {
   private final RowSignificanceTest test;
   private final AbundanceMeasure abundanceMeasure;
   private final double pValue;
-  private final TotalFinishedItemsProgress progress = new TotalFinishedItemsProgress();
+  private final MultipleTestingCorrection correction;
+  private final @Nullable VolcanoTestResults lastTestResults;
+  private @Nullable VolcanoTestResults testResults;
+  private final TotalFinishedItemsProgress progress = new TotalFinishedItemsProgress(1);
   private @Nullable List<DatasetAndRenderer> temporaryDatasets;
 
 
@@ -77,7 +81,8 @@ class VolcanoPlotUpdateTask extends FxUpdateTask<VolcanoPlotModel> {
     test = model.getTest();
     abundanceMeasure = model.getAbundanceMeasure();
     pValue = model.getpValue();
-    progress.setTotal(flist != null ? flist.getNumberOfRows() : 0);
+    correction = model.getPValueCorrection();
+    lastTestResults = model.getTestResults();
   }
 
   @Override
@@ -90,17 +95,22 @@ class VolcanoPlotUpdateTask extends FxUpdateTask<VolcanoPlotModel> {
     if (!checkPreConditions()) {
       return;
     }
-    List<RowSignificanceTestResult> rowSignificanceTestResults = new ArrayList<>();
-    for (final FeatureListRow row : flist.getRows()) {
-      if (isCanceled()) {
-        return;
-      }
-      RowSignificanceTestResult result = test.test(row, abundanceMeasure);
-      if (result != null) {
-        rowSignificanceTestResults.add(result);
-      }
-      progress.getAndIncrement();
+    // a changed p-value threshold only requires new datasets
+    final long abundanceVersion = StatisticUtils.getAbundanceVersion(flist);
+    if (lastTestResults != null && lastTestResults.matches(flist, test, abundanceMeasure,
+        correction, abundanceVersion)) {
+      testResults = lastTestResults;
+    } else {
+      final List<RowSignificanceTestResult> results = correction.adjust(
+          test.testAll(flist.getRows(), abundanceMeasure));
+      testResults = new VolcanoTestResults(flist, test, abundanceMeasure, correction,
+          abundanceVersion, results);
+    }
+    progress.getAndIncrement();
+    if (isCanceled()) {
+      return;
     }
+    final List<RowSignificanceTestResult> rowSignificanceTestResults = testResults.results();
 
     final Map<DataType<?>, List<RowSignificanceTestResult>> dataTypeMap = DataTypeUtils.groupByBestDataType(
         rowSignificanceTestResults, RowSignificanceTestResult::row, true,
@@ -148,6 +158,7 @@ class VolcanoPlotUpdateTask extends FxUpdateTask<VolcanoPlotModel> {
     if (temporaryDatasets == null && !isFinished()) {
       return;
     }
+    model.setTestResults(testResults);
     model.setDatasets(temporaryDatasets);
   }
 
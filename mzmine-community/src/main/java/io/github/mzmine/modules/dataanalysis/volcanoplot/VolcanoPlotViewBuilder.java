@@ -36,6 +36,7 @@ import io.github.mzmine.gui.chartbasics.simplechart.providers.XYItemObjectProvid
 import io.github.mzmine.gui.chartbasics.simplechart.renderers.ColoredXYShapeRenderer;
 import io.github.mzmine.javafx.mvci.FxViewBuilder;
 import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.modules.dataanalysis.significance.MultipleTestingCorrection;
 import io.github.mzmine.modules.dataanalysis.significance.RowSignificanceTest;
 import io.github.mzmine.modules.dataanalysis.significance.RowSignificanceTestModules;
 import io.github.mzmine.modules.dataanalysis.significance.RowSignificanceTestResult;
@@ -139,7 +140,12 @@ public class VolcanoPlotViewBuilder extends FxViewBuilder<VolcanoPlotModel> {
         new DecimalFormat("0.###"), 0.05);
     Bindings.bindBidirectional(pValueComponent.getTextField().textProperty(),
         model.pValueProperty(), new DecimalFormat("0.###"));
-    pValueBox.getChildren().addAll(label, pValueComponent.getTextField());
+    final ComboBox<MultipleTestingCorrection> correctionCombo = new ComboBox<>(
+        FXCollections.observableList(List.of(MultipleTestingCorrection.values())));
+    correctionCombo.setValue(model.getPValueCorrection());
+    model.pValueCorrectionProperty().bindBidirectional(correctionCombo.valueProperty());
+    pValueBox.getChildren().addAll(label, pValueComponent.getTextField(),
+        new Label("Correction:"), correctionCombo);
     return pValueBox;
   }
 
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataanalysis.volcanoplot;
+
+import io.github.mzmine.datamodel.AbundanceMeasure;
+import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.modules.dataanalysis.significance.MultipleTestingCorrection;
+import io.github.mzmine.modules.dataanalysis.significance.RowSignificanceTest;
+import io.github.mzmine.modules.dataanalysis.significance.RowSignificanceTestResult;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The test results of the last update, reused if only the p-value threshold changes and the
+ * abundances of the feature list were not modified.
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+record VolcanoTestResults(FeatureList flist, RowSignificanceTest test,
+                          AbundanceMeasure abundanceMeasure, MultipleTestingCorrection correction,
+                          long abundanceVersion, List<RowSignificanceTestResult> results) {
+
+  boolean matches(FeatureList flist, RowSignificanceTest test, AbundanceMeasure abundanceMeasure,
+      MultipleTestingCorrection correction, long abundanceVersion) {
+    return this.flist == flist && this.abundanceVersion == abundanceVersion
+        && Objects.equals(this.test, test)
+        && this.abundanceMeasure == abundanceMeasure && this.correction == correction;
+  }
+}
@@ -111,6 +111,36 @@ public class MergeAlignerTask extends AbstractTask {
     ModularFeatureList alignedFeatureList = featureLists[0].createCopy(featureListName,
         getMemoryMapStorage(), allDataFiles, true);
 
+    // copied features mark their rows, which are recalculated once at the end
+    try (var bulkUpdate = alignedFeatureList.startBulkUpdate()) {
+      if (!appendRows(alignedFeatureList)) {
+        // the merged list is discarded
+        bulkUpdate.discard();
+        alignedFeatureList.releaseValues();
+        return;
+      }
+    }
+
+    // Add new aligned feature list to the project
+    project.addFeatureList(alignedFeatureList);
+
+    // Add task description to peakList
+    alignedFeatureList
+        .addDescriptionOfAppliedTask(
+            new SimpleFeatureListAppliedMethod("Feature list merger", MergeAlignerModule.class,
+                parameters, getModuleCallDate()));
+
+    logger.info("Finished feature list merger");
+
+    setStatus(TaskStatus.FINISHED);
+  }
+
+  /**
+   * Appends copies of the rows of all other feature lists with new IDs
+   *
+   * @return false on error or cancel
+   */
+  private boolean appendRows(ModularFeatureList alignedFeatureList) {
     // next row will have this id
     int newRowID = alignedFeatureList.getNumberOfRows() + 1;
 
@@ -132,7 +162,7 @@ public class MergeAlignerTask extends AbstractTask {
           setErrorMessage(
               "Cannot merge feature lists from the same RawDataFile that were created with different selected scans (e.g., during chromatogram building). Try to harmonize the scan filters in the previous steps or split the raw data file in two data files, e.g., for positive and negative mode data.");
           setStatus(TaskStatus.ERROR);
-          return;
+          return false;
         } else {
           alignedFeatureList.setSelectedScans(file, seletedScansNew);
         }
@@ -141,7 +171,7 @@ public class MergeAlignerTask extends AbstractTask {
       // Calculate scores for all possible alignments of this row
       for (FeatureListRow row : featureList.getRows()) {
         if (isCanceled()) {
-          return;
+          return false;
         }
         if (row instanceof ModularFeatureListRow mrow) {
           ModularFeatureListRow targetRow = new ModularFeatureListRow(alignedFeatureList, newRowID,
@@ -152,23 +182,10 @@ public class MergeAlignerTask extends AbstractTask {
         } else {
           setErrorMessage("Not supported for non  modular feature list rows");
           setStatus(TaskStatus.ERROR);
-          return;
+          return false;
         }
       }
     }
-
-    // Add new aligned feature list to the project
-    project.addFeatureList(alignedFeatureList);
-
-    // Add task description to peakList
-    alignedFeatureList
-        .addDescriptionOfAppliedTask(
-            new SimpleFeatureListAppliedMethod("Feature list merger", MergeAlignerModule.class,
-                parameters, getModuleCallDate()));
-
-    logger.info("Finished feature list merger");
-
-    setStatus(TaskStatus.FINISHED);
+    return true;
   }
-
 }
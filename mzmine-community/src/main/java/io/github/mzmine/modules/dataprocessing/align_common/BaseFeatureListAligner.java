@@ -107,6 +107,10 @@ public class BaseFeatureListAligner {
     return alignedFeatureList;
   }
 
+  /**
+   * Adds the features of the best scoring rows to the aligned base rows. Call within a bulk update
+   * of the aligned feature list to apply the row bindings once per changed row.
+   */
   @NotNull
   public static Object2BooleanOpenHashMap<FeatureListRow> addFeaturesBasedOnScores(
       Collection<RowVsRowScore> scoresList, final ModularFeatureList alignedFeatureList,
@@ -128,7 +132,8 @@ public class BaseFeatureListAligner {
           final RawDataFile dataFile = feature.getRawDataFile();
           if (!alignedRow.hasFeature(dataFile)) {
             var newFeature = featureCloner.cloneFeature(feature, alignedFeatureList, alignedRow);
-            alignedRow.addFeature(dataFile, newFeature, false);
+            // during a bulk update, this only marks the row for the row bindings
+            alignedRow.addFeature(dataFile, newFeature, true);
             alignedRowsMap.put(row, true);
             alignedRows.getAndIncrement();
           }
@@ -189,24 +194,27 @@ public class BaseFeatureListAligner {
       allRows.add(new ArrayList<>(flist.getRows()));
     }
 
-    // still contains rows from unaligned feature lists
-    while (!allRows.isEmpty()) {
-      if (parentTask.isCanceled()) {
-        return null;
-      }
-      var finishedAll = nextAlignmentIteration(allRows, alignedFeatureList, newRowID);
-      if (finishedAll) {
-        break; // end loop
+    // row bindings are calculated once per row when the bulk update is closed
+    // base rows keep the values of their original rows until then
+    try (var bulkUpdate = alignedFeatureList.startBulkUpdate()) {
+      // still contains rows from unaligned feature lists
+      while (!allRows.isEmpty()) {
+        if (parentTask.isCanceled()) {
+          // the aligned list is discarded
+          bulkUpdate.discard();
+          alignedFeatureList.releaseValues();
+          return null;
+        }
+        var finishedAll = nextAlignmentIteration(allRows, alignedFeatureList, newRowID);
+        if (finishedAll) {
+          break; // end loop
+        }
+        iteration++;
       }
-      iteration++;
-    }
 
-    // sort by RT and reset IDs
-    FeatureListUtils.sortByDefaultRT(alignedFeatureList, true);
-
-    // update row bindings
-    alignedFeatureList.parallelStream().filter(row -> row.getNumberOfFeatures() > 1)
-        .forEach(FeatureListRow::applyRowBindings);
+      // sort by RT and reset IDs
+      FeatureListUtils.sortByDefaultRT(alignedFeatureList, true);
+    }
 
     // score alignment by the number of features that fall within the mz, RT, mobility range
     // do not apply all the advanced filters to keep it simple
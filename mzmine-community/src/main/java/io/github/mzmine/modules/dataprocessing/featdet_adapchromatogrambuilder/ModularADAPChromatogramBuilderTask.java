@@ -29,8 +29,6 @@ package io.github.mzmine.modules.dataprocessing.featdet_adapchromatogrambuilder;
 import static java.util.Objects.requireNonNullElse;
 
 import com.google.common.collect.Range;
-import com.google.common.collect.RangeMap;
-import com.google.common.collect.TreeRangeMap;
 import io.github.mzmine.datamodel.IMSRawDataFile;
 import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.MassSpectrum;
@@ -53,18 +51,16 @@ import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
-import io.github.mzmine.util.DataPointSorter;
 import io.github.mzmine.util.DataTypeUtils;
 import io.github.mzmine.util.FeatureConvertors;
 import io.github.mzmine.util.FeatureListUtils;
 import io.github.mzmine.util.MemoryMapStorage;
-import io.github.mzmine.util.SortingDirection;
-import io.github.mzmine.util.SortingProperty;
+import io.github.mzmine.util.collections.MzIntervalMap;
 import io.github.mzmine.util.exceptions.MissingMassListException;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
 import java.time.Instant;
 import java.util.Arrays;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -222,31 +218,31 @@ public class ModularADAPChromatogramBuilderTask extends AbstractTask {
     // add data point to chromatogrm or make new one
     // update mz avg and other stuff
     //
-
-    // map the mz tolerance to chromatograms
-    RangeMap<Double, ADAPChromatogram> rangeToChromMap = TreeRangeMap.create();
-
-    // make a list of all the data points
+    // all data points are kept in parallel primitive arrays
 
     final int totalDps = Arrays.stream(scans).map(Scan::getMassList)
         .mapToInt(MassSpectrum::getNumberOfDataPoints).sum();
     int dpCounter = 0;
 
-    ExpandedDataPoint[] allMzValues = new ExpandedDataPoint[totalDps];
+    final double[] mzs = new double[totalDps];
+    final double[] intensities = new double[totalDps];
+    final int[] scanIndices = new int[totalDps];
 
     ScanDataAccess scanData = EfficientDataAccess.of(dataFile, ScanDataType.MASS_LIST,
         scanSelection);
 
+    // the scans of the data points by index
+    final Scan[] dataScans = new Scan[scanData.getNumberOfScans()];
+
     progress = 0;
     double progressStep = 0.1 / scanData.getNumberOfScans();
-    while (scanData.hasNextScan()) {
+    for (int scanIndex = 0; scanData.hasNextScan(); scanIndex++) {
       if (isCanceled()) {
         return;
       }
 
-      Scan scan;
       try {
-        scan = scanData.nextScan();
+        dataScans[scanIndex] = scanData.nextScan();
       } catch (MissingMassListException e) {
         setStatus(TaskStatus.ERROR);
         StringBuilder b = new StringBuilder("Scan #");
@@ -265,23 +261,42 @@ public class ModularADAPChromatogramBuilderTask extends AbstractTask {
 
       int dps = scanData.getNumberOfDataPoints();
       for (int i = 0; i < dps; i++) {
-        ExpandedDataPoint curDatP = new ExpandedDataPoint(scanData.getMzValue(i),
-            scanData.getIntensityValue(i), scan);
-        allMzValues[dpCounter] = curDatP;
+        final double mz = scanData.getMzValue(i);
+        final double intensity = scanData.getIntensityValue(i);
+        if (Double.isNaN(mz) || Double.isNaN(intensity)) {
+          continue;
+        }
+        mzs[dpCounter] = mz;
+        intensities[dpCounter] = intensity;
+        scanIndices[dpCounter] = scanIndex;
         dpCounter++;
       }
       progress += progressStep;
     }
 
-    // sort data points by intensity
-    Arrays.parallelSort(allMzValues,
-        new DataPointSorter(SortingProperty.Intensity, SortingDirection.Descending));
+    // sort data points by intensity (and m/z) descending, equal data points stay in scan order
+    final int[] sortedDps = new int[dpCounter];
+    Arrays.setAll(sortedDps, i -> i);
+    IntArrays.parallelQuickSort(sortedDps, (a, b) -> {
+      int result = Double.compare(intensities[b], intensities[a]);
+      if (result == 0) {
+        result = Double.compare(mzs[b], mzs[a]);
+      }
+      return result != 0 ? result : Integer.compare(a, b);
+    });
 
     // count starts at 1 since we already have added one with a single point.
     progress = 0.1;
-    progressStep = (allMzValues.length > 0) ? 0.45 / allMzValues.length : 0.0;
+    progressStep = (sortedDps.length > 0) ? 0.45 / sortedDps.length : 0.0;
+
+    // map the mz tolerance to chromatograms (interval ids)
+    final MzIntervalMap mzToChromMap = new MzIntervalMap();
+    // the chromatogram of each data point or -1
+    final int[] dpChromatograms = new int[dpCounter];
+    Arrays.fill(dpChromatograms, -1);
+    int chromatogramDps = 0;
 
-    for (ExpandedDataPoint mzFeature : allMzValues) {
+    for (int dp : sortedDps) {
 
       progress += progressStep;
 
@@ -289,30 +304,44 @@ public class ModularADAPChromatogramBuilderTask extends AbstractTask {
         return;
       }
 
-      if (mzFeature == null || Double.isNaN(mzFeature.getMZ()) || Double.isNaN(
-          mzFeature.getIntensity())) {
-        continue;
-      }
-
-      final Entry<Range<Double>, ADAPChromatogram> existing = rangeToChromMap.getEntry(
-          mzFeature.getMZ());
-      if (existing != null) {
-        // add data point to chromatogram
-        existing.getValue().addMzFeature(mzFeature.getScan(), mzFeature);
-      } else {
+      int chrom = mzToChromMap.find(mzs[dp]);
+      if (chrom == -1) {
         // skip it entierly if the intensity is not high enough
-        if (mzFeature.getIntensity() < minHighestPoint) {
+        if (intensities[dp] < minHighestPoint) {
           continue;
         }
         // add a new chromatogram to the range map - limit ranges to avoid overlap
-        startNewChromatogramLimitMzRanges(rangeToChromMap, mzFeature);
+        chrom = startNewChromatogramLimitMzRanges(mzToChromMap, mzs[dp]);
+      }
+      // duplicate scans are removed when the chromatograms are created
+      dpChromatograms[dp] = chrom;
+      chromatogramDps++;
+    }
+
+    // group the data points by chromatogram, in the order they were added
+    final int numStartedChromatograms = mzToChromMap.getNumberOfIds();
+    final int[] chromStarts = new int[numStartedChromatograms + 1];
+    for (int chrom : dpChromatograms) {
+      if (chrom != -1) {
+        chromStarts[chrom + 1]++;
+      }
+    }
+    for (int i = 0; i < numStartedChromatograms; i++) {
+      chromStarts[i + 1] += chromStarts[i];
+    }
+    final int[] chromDps = new int[chromatogramDps];
+    final int[] nextChromDp = Arrays.copyOf(chromStarts, numStartedChromatograms);
+    for (int dp : sortedDps) {
+      final int chrom = dpChromatograms[dp];
+      if (chrom != -1) {
+        chromDps[nextChromDp[chrom]++] = dp;
       }
     }
 
     // finish chromatograms sorted by m/z
-    final Map<Range<Double>, ADAPChromatogram> finalRangeMap = rangeToChromMap.asMapOfRanges();
+    final IntArrayList finalChromatograms = mzToChromMap.getIdsSortedByMz();
 
-    int numChromatograms = finalRangeMap.size();
+    int numChromatograms = finalChromatograms.size();
     progressStep = numChromatograms > 0 ? 0.45 / numChromatograms : 0.0;
 
     // Create new feature list
@@ -323,13 +352,21 @@ public class ModularADAPChromatogramBuilderTask extends AbstractTask {
 
     int newFeatureID = 1;
     // add chromatograms that match criteria
-    for (ADAPChromatogram chromatogram : finalRangeMap.values()) {
+    for (int chrom : finalChromatograms) {
       if (isCanceled()) {
         return;
       }
 
       progress += progressStep;
 
+      // only create one chromatogram at a time, data points are added in the original order
+      final ADAPChromatogram chromatogram = new ADAPChromatogram();
+      for (int i = chromStarts[chrom]; i < chromStarts[chrom + 1]; i++) {
+        final int dp = chromDps[i];
+        final Scan scan = dataScans[scanIndices[dp]];
+        chromatogram.addMzFeature(scan, new ExpandedDataPoint(mzs[dp], intensities[dp], scan));
+      }
+
       // And remove chromatograms who dont have a certain number of continous points above the
       // IntensityThresh2 level.
       var dps = chromatogram.getNumberOfDataPoints();
@@ -374,47 +411,39 @@ public class ModularADAPChromatogramBuilderTask extends AbstractTask {
    * Starts a new chromatogram and limits its range so that it does not overlap with existing m/z
    * ranges
    *
-   * @param rangeToChromMap started chromatograms with their non overlapping m/z range
-   * @param mzFeature       current tested data point
+   * @param mzToChromMap started chromatograms with their non overlapping m/z range
+   * @param mz           m/z of the current tested data point
+   * @return the chromatogram that the data point is added to
    */
-  @SuppressWarnings("UnstableApiUsage")
-  private void startNewChromatogramLimitMzRanges(RangeMap<Double, ADAPChromatogram> rangeToChromMap,
-      ExpandedDataPoint mzFeature) {
+  private int startNewChromatogramLimitMzRanges(MzIntervalMap mzToChromMap, double mz) {
     // start new chromatogram and create new range (subract overlapping existing ranges)
-    Range<Double> toleranceRange = mzTolerance.getToleranceRange(mzFeature.getMZ());
+    Range<Double> toleranceRange = mzTolerance.getToleranceRange(mz);
 
     // look +- mz tolerance to see if ther is a range near by.
     // If there is use the proper boundry of that range for the
     // new range to insure than NON OF THE RANGES OVERLAP.
-    final Entry<Range<Double>, ADAPChromatogram> minusRange = rangeToChromMap.getEntry(
-        toleranceRange.lowerEndpoint());
-    final Entry<Range<Double>, ADAPChromatogram> plusRange = rangeToChromMap.getEntry(
-        toleranceRange.upperEndpoint());
+    final int minusRange = mzToChromMap.find(toleranceRange.lowerEndpoint());
+    final int plusRange = mzToChromMap.find(toleranceRange.upperEndpoint());
 
     // If both of the above ranges are null then we make the new range spaning the full
     // mz tolerance range.
     // If one or both are not null we need to properly modify the range of the new
     // chromatogram so that none of the points are overlapping.
-    Double toBeLowerBound =
-        minusRange == null ? toleranceRange.lowerEndpoint() : minusRange.getKey().upperEndpoint();
-    Double toBeUpperBound =
-        plusRange == null ? toleranceRange.upperEndpoint() : plusRange.getKey().lowerEndpoint();
+    double toBeLowerBound = minusRange == -1 ? toleranceRange.lowerEndpoint()
+        : mzToChromMap.getUpper(minusRange);
+    double toBeUpperBound = plusRange == -1 ? toleranceRange.upperEndpoint()
+        : mzToChromMap.getLower(plusRange);
 
     if (toBeLowerBound < toBeUpperBound) {
-      // use closed open so that every value may be captured by rangeMap
-      Range<Double> newRange = Range.closedOpen(toBeLowerBound, toBeUpperBound);
-      ADAPChromatogram newChrom = new ADAPChromatogram();
-      newChrom.addMzFeature(mzFeature.getScan(), mzFeature);
-
-      rangeToChromMap.put(newRange, newChrom);
-    } else if (toBeLowerBound.equals(toBeUpperBound) && plusRange != null) {
-      plusRange.getValue().addMzFeature(mzFeature.getScan(), mzFeature);
+      // use closed open so that every value may be captured by the map
+      return mzToChromMap.add(toBeLowerBound, toBeUpperBound);
+    } else if (toBeLowerBound == toBeUpperBound && plusRange != -1) {
+      return plusRange;
     } else {
       throw new IllegalStateException(
           String.format("Incorrect range [%f, %f] for m/z %f", toBeLowerBound, toBeUpperBound,
-              mzFeature.getMZ()));
+              mz));
     }
   }
 
 }
-
@@ -32,6 +32,7 @@ import io.github.mzmine.modules.MZmineModuleCategory;
 import io.github.mzmine.modules.MZmineProcessingModule;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.taskcontrol.Task;
+import io.github.mzmine.taskcontrol.ThreadBudget;
 import io.github.mzmine.util.ExitCode;
 import io.github.mzmine.util.MemoryMapStorage;
 import java.time.Instant;
@@ -57,9 +58,11 @@ public abstract class FeatureResolverModule implements MZmineProcessingModule {
 
     FeatureList[] peakLists = parameters.getParameter(GeneralResolverParameters.PEAK_LISTS)
         .getValue().getMatchingFeatureLists();
+    // threads that are not used by other feature lists resolve chunks of rows in parallel
+    final int threadsPerList = ThreadBudget.threadsPerTask(peakLists.length);
     for (final FeatureList peakList : peakLists) {
       tasks.add(new FeatureResolverTask(project, storage, peakList, parameters,
-          FeatureDataUtils.DEFAULT_CENTER_FUNCTION, moduleCallDate));
+          FeatureDataUtils.DEFAULT_CENTER_FUNCTION, moduleCallDate, threadsPerList));
     }
 
     return ExitCode.OK;
@@ -35,6 +35,7 @@ import io.github.mzmine.datamodel.featuredata.IonMobilogramTimeSeries;
 import io.github.mzmine.datamodel.featuredata.IonTimeSeries;
 import io.github.mzmine.datamodel.features.Feature;
 import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeature;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.ModularFeatureListRow;
@@ -55,17 +56,25 @@ import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.R.REngineType;
 import io.github.mzmine.util.R.RSessionWrapper;
 import io.github.mzmine.util.R.RSessionWrapperException;
+import io.github.mzmine.util.concurrent.OrderedParallelProcessor;
 import io.github.mzmine.util.maths.CenterFunction;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.apache.commons.lang3.mutable.MutableInt;
 import org.jetbrains.annotations.NotNull;
 
 public class FeatureResolverTask extends AbstractTask {
 
   // Logger.
   private static final Logger logger = Logger.getLogger(FeatureResolverTask.class.getName());
+  private static final int MIN_CHUNK_SIZE = 64;
+  /**
+   * Limits the rows that are resolved but not yet added
+   */
+  private static final int MAX_QUEUED_ROWS = 2048;
 
   // Feature lists.
   private final MZmineProject project;
@@ -84,6 +93,10 @@ public class FeatureResolverTask extends AbstractTask {
   private double msmsRange;
   private float RTRangeMSMS;
   private GroupMS2Processor groupMS2Task;
+  private final int numThreads;
+  private final int minChunkSize;
+  // resolved features with 3 or less scans
+  private int numShortFeatures;
 
   /**
    * Create the task.
@@ -95,6 +108,31 @@ public class FeatureResolverTask extends AbstractTask {
   public FeatureResolverTask(final MZmineProject project, MemoryMapStorage storage,
       final FeatureList list, final ParameterSet parameterSet, CenterFunction mzCenterFunction,
       @NotNull Instant moduleCallDate) {
+    this(project, storage, list, parameterSet, mzCenterFunction, moduleCallDate, 1);
+  }
+
+  /**
+   * Create the task.
+   *
+   * @param list         feature list to operate on.
+   * @param parameterSet task parameters.
+   * @param numThreads   resolves chunks of rows in parallel if > 1. The resolved rows are added in
+   *                     the original order and receive the same IDs as a single thread.
+   */
+  public FeatureResolverTask(final MZmineProject project, MemoryMapStorage storage,
+      final FeatureList list, final ParameterSet parameterSet, CenterFunction mzCenterFunction,
+      @NotNull Instant moduleCallDate, int numThreads) {
+    this(project, storage, list, parameterSet, mzCenterFunction, moduleCallDate, numThreads,
+        MIN_CHUNK_SIZE);
+  }
+
+  /**
+   * @param minChunkSize minimum rows per parallel chunk, lists with fewer rows are resolved on
+   *                     the calling thread
+   */
+  FeatureResolverTask(final MZmineProject project, MemoryMapStorage storage,
+      final FeatureList list, final ParameterSet parameterSet, CenterFunction mzCenterFunction,
+      @NotNull Instant moduleCallDate, int numThreads, int minChunkSize) {
     super(storage, moduleCallDate);
 
     // Initialize.
@@ -105,6 +143,8 @@ public class FeatureResolverTask extends AbstractTask {
     processedRows = 0;
     totalRows = 0;
     this.mzCenterFunction = mzCenterFunction;
+    this.numThreads = Math.max(1, numThreads);
+    this.minChunkSize = Math.max(1, minChunkSize);
   }
 
   @Override
@@ -147,6 +187,9 @@ public class FeatureResolverTask extends AbstractTask {
             legacyResolve();
           }
           // resolving finished
+          if (isCanceled()) {
+            return;
+          }
 
           // sort and reset IDs here to ahve the same sorting for every feature list
           FeatureListUtils.sortByDefaultRT(newPeakList, true);
@@ -252,55 +295,128 @@ public class FeatureResolverTask extends AbstractTask {
       return;
     }
 
-    final RawDataFile dataFile = originalFeatureList.getRawDataFile(0);
     final ModularFeatureList resolvedFeatureList = createNewFeatureList(originalFeatureList);
 
-    final FeatureDataAccess access = EfficientDataAccess.of(originalFeatureList,
-        EfficientDataAccess.FeatureDataType.INCLUDE_ZEROS, dataFile);
-
     processedRows = 0;
     totalRows = originalFeatureList.getNumberOfRows();
-    int peakId = 1;
+    numShortFeatures = 0;
 
-    int c = 0;
+    final boolean finished;
+    if (numThreads > 1 && totalRows > minChunkSize) {
+      finished = resolveParallel(originalFeatureList, resolvedFeatureList);
+    } else {
+      finished = resolveSequential(resolver, originalFeatureList, resolvedFeatureList);
+    }
+    if (!finished) {
+      return;
+    }
 
+    logger.info(numShortFeatures + "/" + resolvedFeatureList.getNumberOfRows()
+        + " have less than 4 scans (frames for IMS data)");
+    //    QualityParameters.calculateAndSetModularQualityParameters(resolvedFeatureList);
+
+    resolvedFeatureList.addDescriptionOfAppliedTask(
+        new SimpleFeatureListAppliedMethod(resolver.getModuleClass(), parameters,
+            getModuleCallDate()));
+
+    newPeakList = resolvedFeatureList;
+  }
+
+  /**
+   * @return false if canceled
+   */
+  private boolean resolveSequential(Resolver resolver, ModularFeatureList originalFeatureList,
+      ModularFeatureList resolvedFeatureList) {
+    final FeatureDataAccess access = EfficientDataAccess.of(originalFeatureList,
+        EfficientDataAccess.FeatureDataType.INCLUDE_ZEROS, originalFeatureList.getRawDataFile(0));
+
+    int peakId = 1;
     while (access.hasNextFeature()) {
+      if (isCanceled()) {
+        return false;
+      }
       final ModularFeature originalFeature = (ModularFeature) access.nextFeature();
       final List<IonTimeSeries<? extends Scan>> resolvedSeries = resolver.resolve(access,
           getMemoryMapStorage());
 
-      for (IonTimeSeries<? extends Scan> resolved : resolvedSeries) {
-        final ModularFeatureListRow newRow = new ModularFeatureListRow(resolvedFeatureList,
-            peakId++);
-        final ModularFeature f = new ModularFeature(resolvedFeatureList,
-            originalFeature.getRawDataFile(), resolved, originalFeature.getFeatureStatus());
-
-        if (originalFeature.getMobilityUnit() != null) {
-          f.set(MobilityUnitType.class, originalFeature.getMobilityUnit());
-        }
-        if (originalFeature.get(ImageType.class) != null) {
-          f.set(ImageType.class, true);
-        }
-        if(originalFeature.get(MaldiSpotType.class) != null) {
-          f.set(MaldiSpotType.class, originalFeature.get(MaldiSpotType.class));
-        }
-        newRow.addFeature(originalFeature.getRawDataFile(), f);
-        resolvedFeatureList.addRow(newRow);
-        if (resolved.getSpectra().size() <= 3) {
-          c++;
-        }
-      }
+      peakId = addResolvedRows(resolvedFeatureList, originalFeature, resolvedSeries, peakId);
       processedRows++;
     }
-    logger.info(c + "/" + resolvedFeatureList.getNumberOfRows()
-        + " have less than 4 scans (frames for IMS data)");
-    //    QualityParameters.calculateAndSetModularQualityParameters(resolvedFeatureList);
+    return true;
+  }
 
-    resolvedFeatureList.addDescriptionOfAppliedTask(
-        new SimpleFeatureListAppliedMethod(resolver.getModuleClass(), parameters,
-            getModuleCallDate()));
+  /**
+   * Resolves chunks of rows on worker threads, each with its own resolver and data access. The
+   * resolved rows are added in the order of the original rows, so that IDs and sorting are the
+   * same as for a single thread. Only chunks of up to {@link #MAX_QUEUED_ROWS} rows are resolved
+   * ahead of the next chunk to add, independent of the number of rows.
+   *
+   * @return false if canceled
+   */
+  private boolean resolveParallel(ModularFeatureList originalFeatureList,
+      ModularFeatureList resolvedFeatureList) {
+    final List<FeatureListRow> rows = List.copyOf(originalFeatureList.getRows());
+    final MutableInt peakId = new MutableInt(1);
+    return new OrderedParallelProcessor("Resolver " + originalFeatureList.getName(), numThreads,
+        minChunkSize, MAX_QUEUED_ROWS).process(rows, _ -> 1,
+        chunk -> resolveChunk(originalFeatureList, chunk), resolved -> {
+          peakId.setValue(addResolvedRows(resolvedFeatureList, resolved.originalFeature(),
+              resolved.series(), peakId.intValue()));
+          processedRows++;
+        }, this::isCanceled);
+  }
 
-    newPeakList = resolvedFeatureList;
+  private List<ResolvedSeries> resolveChunk(ModularFeatureList originalFeatureList,
+      List<FeatureListRow> chunk) {
+    if (isCanceled()) {
+      return List.of();
+    }
+    // resolvers keep buffers, one per chunk
+    final Resolver resolver = ((GeneralResolverParameters) parameters).getResolver(parameters,
+        originalFeatureList);
+    final FeatureDataAccess access = EfficientDataAccess.of(originalFeatureList,
+        EfficientDataAccess.FeatureDataType.INCLUDE_ZEROS, originalFeatureList.getRawDataFile(0),
+        chunk);
+
+    final List<ResolvedSeries> results = new ArrayList<>(chunk.size());
+    while (access.hasNextFeature()) {
+      final ModularFeature originalFeature = (ModularFeature) access.nextFeature();
+      results.add(new ResolvedSeries(originalFeature,
+          resolver.resolve(access, getMemoryMapStorage())));
+    }
+    return results;
+  }
+
+  /**
+   * Adds one row for each resolved series. Not thread safe.
+   *
+   * @return the next peak ID
+   */
+  private int addResolvedRows(ModularFeatureList resolvedFeatureList,
+      ModularFeature originalFeature, List<IonTimeSeries<? extends Scan>> resolvedSeries,
+      int peakId) {
+    for (IonTimeSeries<? extends Scan> resolved : resolvedSeries) {
+      final ModularFeatureListRow newRow = new ModularFeatureListRow(resolvedFeatureList,
+          peakId++);
+      final ModularFeature f = new ModularFeature(resolvedFeatureList,
+          originalFeature.getRawDataFile(), resolved, originalFeature.getFeatureStatus());
+
+      if (originalFeature.getMobilityUnit() != null) {
+        f.set(MobilityUnitType.class, originalFeature.getMobilityUnit());
+      }
+      if (originalFeature.get(ImageType.class) != null) {
+        f.set(ImageType.class, true);
+      }
+      if(originalFeature.get(MaldiSpotType.class) != null) {
+        f.set(MaldiSpotType.class, originalFeature.get(MaldiSpotType.class));
+      }
+      newRow.addFeature(originalFeature.getRawDataFile(), f);
+      resolvedFeatureList.addRow(newRow);
+      if (resolved.getSpectra().size() <= 3) {
+        numShortFeatures++;
+      }
+    }
+    return peakId;
   }
 
   @Override
@@ -410,4 +526,9 @@ public class FeatureResolverTask extends AbstractTask {
 
     return resolvedFeatureList;
   }
+
+  private record ResolvedSeries(ModularFeature originalFeature,
+                                List<IonTimeSeries<? extends Scan>> series) {
+
+  }
 }
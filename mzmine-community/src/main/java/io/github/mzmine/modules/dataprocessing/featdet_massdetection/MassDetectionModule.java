@@ -31,6 +31,7 @@ import io.github.mzmine.modules.MZmineModuleCategory;
 import io.github.mzmine.modules.MZmineProcessingModule;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.taskcontrol.Task;
+import io.github.mzmine.taskcontrol.ThreadBudget;
 import io.github.mzmine.util.ExitCode;
 import io.github.mzmine.util.MemoryMapStorage;
 import java.time.Instant;
@@ -65,8 +66,13 @@ public class MassDetectionModule implements MZmineProcessingModule {
     // i.e., in the same mass detection run
     final MemoryMapStorage storageMemoryMap = MemoryMapStorage.forMassList();
 
+    // one task per file. Threads that are not used by other files detect blocks of scans in
+    // parallel within each file, e.g., for single large files
+    final int threadsPerFile = ThreadBudget.threadsPerTask(dataFiles.length);
+
     for (RawDataFile dataFile : dataFiles) {
-      Task newTask = new MassDetectionTask(dataFile, parameters, storageMemoryMap, moduleCallDate);
+      Task newTask = new MassDetectionTask(dataFile, parameters, storageMemoryMap, moduleCallDate,
+          threadsPerFile);
       tasks.add(newTask);
     }
 
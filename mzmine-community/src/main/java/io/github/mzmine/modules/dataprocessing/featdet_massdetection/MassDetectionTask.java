@@ -25,11 +25,13 @@
 
 package io.github.mzmine.modules.dataprocessing.featdet_massdetection;
 
+import io.github.mzmine.datamodel.Frame;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.data_access.EfficientDataAccess;
 import io.github.mzmine.datamodel.data_access.ScanDataAccess;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
+import io.github.mzmine.datamodel.impl.MobilityScanStorage;
 import io.github.mzmine.datamodel.impl.SimpleFrame;
 import io.github.mzmine.datamodel.impl.masslist.SimpleMassList;
 import io.github.mzmine.parameters.ParameterSet;
@@ -37,8 +39,11 @@ import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.MemoryMapStorage;
+import io.github.mzmine.util.concurrent.OrderedParallelProcessor;
 import io.github.mzmine.util.scans.ScanUtils;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
@@ -46,19 +51,36 @@ import org.jetbrains.annotations.NotNull;
 public class MassDetectionTask extends AbstractTask {
 
   private static final Logger logger = Logger.getLogger(MassDetectionTask.class.getName());
+  private static final int MIN_BLOCK_SIZE = 16;
+  /**
+   * Limits the spectra that are detected but not yet added. A frame counts as one spectrum per
+   * mobility scan.
+   */
+  private static final int MAX_QUEUED_SPECTRA = 4096;
   private final RawDataFile dataFile;
   private final ScanSelection scanSelection;
   private final SelectedScanTypes scanTypes;
   private final Boolean denormalizeMSnScans;
   private final ParameterSet parameters;
   private final MassDetector detector;
-  private int processedScans = 0, totalScans = 0;
+  private final int numThreads;
+  private volatile int processedScans = 0, totalScans = 0;
 
   public MassDetectionTask(RawDataFile dataFile, ParameterSet parameters,
       MemoryMapStorage storageMemoryMap, @NotNull Instant moduleCallDate) {
+    this(dataFile, parameters, storageMemoryMap, moduleCallDate, 1);
+  }
+
+  /**
+   * @param numThreads detects masses of blocks of scans in parallel if > 1. Mass lists are still
+   *                   added in scan order, the results are identical to a single thread.
+   */
+  public MassDetectionTask(RawDataFile dataFile, ParameterSet parameters,
+      MemoryMapStorage storageMemoryMap, @NotNull Instant moduleCallDate, int numThreads) {
     super(storageMemoryMap, moduleCallDate);
 
     this.dataFile = dataFile;
+    this.numThreads = Math.max(1, numThreads);
 
     var massDetectorStep = parameters.getValue(MassDetectionParameters.massDetector);
     detector = MassDetectorUtils.createMassDetector(massDetectorStep);
@@ -93,47 +115,9 @@ public class MassDetectionTask extends AbstractTask {
 
       logger.info("Started mass detector on " + dataFile);
 
-      // uses only a single array for each (mz and intensity) to loop over all scans
-      ScanDataAccess data = EfficientDataAccess.of(dataFile, EfficientDataAccess.ScanDataType.RAW,
-          scanSelection);
-      totalScans = data.getNumberOfScans();
-
-      // all scans
-      while (data.hasNextScan()) {
-        if (isCanceled()) {
-          return;
-        }
-
-        Scan scan = data.nextScan();
-        assert scan != null;
-
-        double[][] mzPeaks;
-        if (scanTypes.applyTo(scan)) {
-          // run mass detection on data object
-          // [mzs, intensities]
-          mzPeaks = detector.getMassValues(data);
-
-          // denormalize scan intensities if injection time of trapped instrument was used.
-          // this is only done for MS2 because absolute intensities do not matter there
-          // MS1 needs to be normalized by injection time, which is already done during data acquisition
-          if (denormalizeMSnScans && scan.getMSLevel() > 1) {
-            ScanUtils.denormalizeIntensitiesMultiplyByInjectTime(mzPeaks[1],
-                scan.getInjectionTime());
-          }
-
-          // add mass list to scans and frames
-          scan.addMassList(new SimpleMassList(getMemoryMapStorage(), mzPeaks[0], mzPeaks[1]));
-        }
-
-        if (scan instanceof SimpleFrame frame && (scanTypes == SelectedScanTypes.MOBLITY_SCANS
-            || scanTypes == SelectedScanTypes.SCANS)) {
-          // for ion mobility, detect subscans, too
-          frame.getMobilityScanStorage()
-              .generateAndAddMobilityScanMassLists(getMemoryMapStorage(), detector,
-                  denormalizeMSnScans);
-        }
-
-        processedScans++;
+      final boolean finished = numThreads > 1 ? detectParallel() : detectSequential();
+      if (!finished) {
+        return;
       }
 
       dataFile.getAppliedMethods().add(
@@ -150,4 +134,128 @@ public class MassDetectionTask extends AbstractTask {
 
     logger.info("Finished mass detector on " + dataFile);
   }
+
+  /**
+   * @return false if canceled
+   */
+  private boolean detectSequential() {
+    // uses only a single array for each (mz and intensity) to loop over all scans
+    ScanDataAccess data = EfficientDataAccess.of(dataFile, EfficientDataAccess.ScanDataType.RAW,
+        scanSelection);
+    totalScans = data.getNumberOfScans();
+
+    // all scans
+    while (data.hasNextScan()) {
+      if (isCanceled()) {
+        return false;
+      }
+
+      Scan scan = data.nextScan();
+      assert scan != null;
+
+      addMasses(detectMasses(data, scan));
+      processedScans++;
+    }
+    return true;
+  }
+
+  /**
+   * Splits the scans into blocks that are detected on worker threads, each with its own data
+   * access. The mass lists are added in scan order to keep the storage layout of a single thread.
+   * Only blocks of up to {@link #MAX_QUEUED_SPECTRA} spectra are detected ahead of the next block
+   * to add, independent of the number of scans.
+   *
+   * @return false if canceled
+   */
+  private boolean detectParallel() {
+    final List<Scan> scans = List.of(scanSelection.getMatchingScans(dataFile));
+    totalScans = scans.size();
+    return new OrderedParallelProcessor("Mass detection " + dataFile.getName(), numThreads,
+        MIN_BLOCK_SIZE, MAX_QUEUED_SPECTRA).process(scans, this::countSpectra, this::detectBlock,
+        masses -> {
+          addMasses(masses);
+          processedScans++;
+        }, this::isCanceled);
+  }
+
+  private int countSpectra(Scan scan) {
+    return scan instanceof Frame frame ? 1 + frame.getNumberOfMobilityScans() : 1;
+  }
+
+  private List<DetectedMasses> detectBlock(List<Scan> block) {
+    if (isCanceled()) {
+      return List.of();
+    }
+    final ScanDataAccess data = EfficientDataAccess.of(dataFile,
+        EfficientDataAccess.ScanDataType.RAW, block);
+    final List<DetectedMasses> results = new ArrayList<>(block.size());
+    while (data.hasNextScan()) {
+      Scan scan = data.nextScan();
+      assert scan != null;
+      results.add(detectMasses(data, scan));
+    }
+    return results;
+  }
+
+  /**
+   * Detects the masses of the current scan of data without changing the scan. Thread safe.
+   */
+  private DetectedMasses detectMasses(ScanDataAccess data, Scan scan) {
+    double[][] mzPeaks = null;
+    if (scanTypes.applyTo(scan)) {
+      // run mass detection on data object
+      // [mzs, intensities]
+      mzPeaks = detector.getMassValues(data);
+
+      // denormalize scan intensities if injection time of trapped instrument was used.
+      // this is only done for MS2 because absolute intensities do not matter there
+      // MS1 needs to be normalized by injection time, which is already done during data acquisition
+      if (denormalizeMSnScans && scan.getMSLevel() > 1) {
+        ScanUtils.denormalizeIntensitiesMultiplyByInjectTime(mzPeaks[1],
+            scan.getInjectionTime());
+      }
+    }
+
+    List<double[][]> mobilityScanMasses = null;
+    boolean detectMobilityScans = false;
+    if (scan instanceof SimpleFrame frame && (scanTypes == SelectedScanTypes.MOBLITY_SCANS
+        || scanTypes == SelectedScanTypes.SCANS)) {
+      // for ion mobility, detect subscans, too
+      detectMobilityScans = true;
+      mobilityScanMasses = frame.getMobilityScanStorage()
+          .detectMobilityScanMassLists(detector, denormalizeMSnScans);
+    }
+    return new DetectedMasses(scan, mzPeaks, detectMobilityScans, mobilityScanMasses);
+  }
+
+  /**
+   * Adds the mass lists to the scan and frame and stores the data. Not thread safe.
+   */
+  private void addMasses(DetectedMasses masses) {
+    if (masses.mzPeaks() != null) {
+      // add mass list to scans and frames
+      masses.scan().addMassList(
+          new SimpleMassList(getMemoryMapStorage(), masses.mzPeaks()[0], masses.mzPeaks()[1]));
+    }
+
+    if (masses.detectMobilityScans() && masses.scan() instanceof SimpleFrame frame) {
+      final MobilityScanStorage storage = frame.getMobilityScanStorage();
+      if (masses.mobilityScanMasses() != null) {
+        storage.setMassLists(getMemoryMapStorage(), masses.mobilityScanMasses());
+      } else {
+        // no active filters, uses the raw data
+        storage.generateAndAddMobilityScanMassLists(getMemoryMapStorage(), detector,
+            denormalizeMSnScans);
+      }
+    }
+  }
+
+  /**
+   * @param mzPeaks            [mzs, intensities] or null if the scan type was not selected
+   * @param mobilityScanMasses masses of all mobility scans or null to use the raw data
+   */
+  private record DetectedMasses(Scan scan, double[][] mzPeaks, boolean detectMobilityScans,
+                                List<double[][]> mobilityScanMasses) {
+
+  }
 }
@@ -0,0 +1,324 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.featdet_recursiveimsbuilder;
+
+import io.github.mzmine.datamodel.Frame;
+import io.github.mzmine.datamodel.IMSRawDataFile;
+import io.github.mzmine.datamodel.MobilityScan;
+import io.github.mzmine.datamodel.data_access.EfficientDataAccess.MobilityScanDataType;
+import io.github.mzmine.datamodel.data_access.MobilityScanDataAccess;
+import io.github.mzmine.datamodel.featuredata.impl.StorageUtils;
+import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.util.MemoryMapStorage;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Builds {@link TempIMTrace}s from the mobility scans of an {@link IMSRawDataFile} without creating
+ * objects for single data points. The frames are split into blocks of consecutive retention times
+ * that are processed in parallel. Each block streams its frames through a
+ * {@link MobilityScanDataAccess} into primitive arrays, bins the data points of each frame by m/z
+ * into mobilograms and then bins the mobilograms of the block into traces. The block traces are
+ * merged across the block edges by m/z and only the merged traces that may pass the minimum
+ * requirements are converted to {@link TempIMTrace}s.
+ * <p>
+ * The data points of a finished block are moved to the {@link MemoryMapStorage}, only the m/z and
+ * intensity of the mobilograms and traces stay on the heap until all blocks are merged. The block
+ * size is limited, so that the data points of the blocks in progress stay small.
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+public class BlockIMSTraceBuilder {
+
+  private static final int MIN_FRAMES_PER_BLOCK = 20;
+  private static final int MAX_FRAMES_PER_BLOCK = 200;
+
+  private final IMSRawDataFile file;
+  private final List<Frame> frames;
+  private final ScanSelection scanSelection;
+  private final MZTolerance tolerance;
+  private final int recursiveThreshold;
+  private final MemoryMapStorage storage;
+  private final BooleanSupplier isCanceled;
+  private final AtomicInteger processedFrames;
+
+  /**
+   * @param frames             the eligible frames sorted by retention time
+   * @param scanSelection      filters the mobility scans of the frames
+   * @param recursiveThreshold leftover data points and mobilograms are only binned again if there
+   *                           are more than this number
+   * @param storage            stores the data points of finished blocks and the mobilograms of
+   *                           the resulting traces
+   * @param processedFrames    incremented for every processed frame
+   */
+  public BlockIMSTraceBuilder(@NotNull IMSRawDataFile file, @NotNull List<Frame> frames,
+      @Nullable ScanSelection scanSelection, @NotNull MZTolerance tolerance,
+      int recursiveThreshold, @Nullable MemoryMapStorage storage,
+      @NotNull BooleanSupplier isCanceled, @NotNull AtomicInteger processedFrames) {
+    this.file = file;
+    this.frames = frames;
+    this.scanSelection = scanSelection;
+    this.tolerance = tolerance;
+    this.recursiveThreshold = recursiveThreshold;
+    this.storage = storage;
+    this.isCanceled = isCanceled;
+    this.processedFrames = processedFrames;
+  }
+
+  /**
+   * @param minDataPoints  traces with fewer data points are not converted
+   * @param minMobilograms traces with fewer mobilograms are not converted
+   * @return the traces or null if canceled
+   */
+  @Nullable
+  public List<TempIMTrace> buildTraces(int minDataPoints, int minMobilograms) {
+    final int numFrames = frames.size();
+    final int numThreads = Runtime.getRuntime().availableProcessors();
+    final int framesPerBlock = Math.clamp((long) Math.ceil(numFrames / (double) (numThreads * 2)),
+        MIN_FRAMES_PER_BLOCK, MAX_FRAMES_PER_BLOCK);
+    final int numBlocks = (numFrames + framesPerBlock - 1) / framesPerBlock;
+
+    final List<FrameBlock> blocks = IntStream.range(0, numBlocks).parallel().mapToObj(
+            b -> buildBlock(b * framesPerBlock, Math.min(numFrames, (b + 1) * framesPerBlock)))
+        .toList();
+    if (isCanceled.getAsBoolean()) {
+      return null;
+    }
+
+    // merge the traces of all blocks. The slot of a block trace is its block
+    final int[] blockOffsets = new int[numBlocks + 1];
+    for (int b = 0; b < numBlocks; b++) {
+      blockOffsets[b + 1] = blockOffsets[b] + blocks.get(b).getNumberOfTraces();
+    }
+    final int numBlockTraces = blockOffsets[numBlocks];
+    final double[] traceMzs = new double[numBlockTraces];
+    final double[] traceIntensities = new double[numBlockTraces];
+    final int[] traceBlocks = new int[numBlockTraces];
+    for (int b = 0; b < numBlocks; b++) {
+      final FrameBlock block = blocks.get(b);
+      for (int t = 0; t < block.getNumberOfTraces(); t++) {
+        traceMzs[blockOffsets[b] + t] = block.traceMzs.getDouble(t);
+        traceIntensities[blockOffsets[b] + t] = block.traceIntensities.getDouble(t);
+        traceBlocks[blockOffsets[b] + t] = b;
+      }
+    }
+    // bin all block traces again, so that no trace is lost
+    final List<int[]> mergedTraces = new MzBinner(traceMzs, traceIntensities, traceBlocks,
+        tolerance, true, false, 0).bin(numBlockTraces);
+    final IntFunction<int[]> mobilogramsOf = blockTrace -> blocks.get(
+        traceBlocks[blockTrace]).traces.get(blockTrace - blockOffsets[traceBlocks[blockTrace]]);
+
+    return mergedTraces.parallelStream().filter(merged -> {
+      int numDataPoints = 0;
+      int numMobilograms = 0;
+      for (final int blockTrace : merged) {
+        final FrameBlock block = blocks.get(traceBlocks[blockTrace]);
+        final int[] mobilograms = mobilogramsOf.apply(blockTrace);
+        numMobilograms += mobilograms.length;
+        for (final int mobilogram : mobilograms) {
+          numDataPoints += block.getNumberOfDataPoints(mobilogram);
+        }
+      }
+      return numDataPoints >= minDataPoints && numMobilograms >= minMobilograms;
+    }).map(merged -> {
+      final List<BuildingIonMobilitySeries> mobilograms = new ArrayList<>();
+      for (final int blockTrace : merged) {
+        final FrameBlock block = blocks.get(traceBlocks[blockTrace]);
+        for (final int mobilogram : mobilogramsOf.apply(blockTrace)) {
+          mobilograms.add(block.toBuildingSeries(mobilogram, storage));
+        }
+      }
+      final TempIMTrace trace = new TempIMTrace();
+      trace.addMobilograms(mobilograms);
+      return trace;
+    }).toList();
+  }
+
+  /**
+   * Builds the mobilograms and traces of a block of frames
+   *
+   * @param from first frame index (inclusive)
+   * @param to   last frame index (exclusive)
+   * @return the block or null if canceled
+   */
+  @Nullable
+  private FrameBlock buildBlock(int from, int to) {
+    final FrameBlock block = new FrameBlock(frames.subList(from, to));
+    final MobilityScanDataAccess access = new MobilityScanDataAccess(file,
+        MobilityScanDataType.MASS_LIST, block.frames, scanSelection);
+
+    final DoubleArrayList mzs = new DoubleArrayList();
+    final DoubleArrayList intensities = new DoubleArrayList();
+    final IntArrayList scanNumbers = new IntArrayList();
+    for (int frameIndex = 0; access.hasNextFrame(); frameIndex++) {
+      if (isCanceled.getAsBoolean()) {
+        return null;
+      }
+      access.nextFrame();
+
+      mzs.clear();
+      intensities.clear();
+      scanNumbers.clear();
+      while (access.hasNextMobilityScan()) {
+        final int scanNumber = access.nextMobilityScan().getMobilityScanNumber();
+        for (int i = 0; i < access.getNumberOfDataPoints(); i++) {
+          mzs.add(access.getMzValue(i));
+          intensities.add(access.getIntensityValue(i));
+          scanNumbers.add(scanNumber);
+        }
+      }
+
+      final List<int[]> mobilograms = new MzBinner(mzs.elements(), intensities.elements(),
+          scanNumbers.elements(), tolerance, false, true, recursiveThreshold).bin(mzs.size());
+      for (final int[] mobilogram : mobilograms) {
+        block.addMobilogram(frameIndex, mobilogram, mzs.elements(), intensities.elements(),
+            scanNumbers.elements());
+      }
+      processedFrames.getAndIncrement();
+    }
+
+    // the slot of a mobilogram is its frame
+    final int numMobilograms = block.mobFrames.size();
+    final List<int[]> traces = new MzBinner(block.mobMzs.elements(),
+        block.mobIntensities.elements(), block.mobFrames.elements(), tolerance, true, false,
+        recursiveThreshold).bin(numMobilograms);
+    for (final int[] trace : traces) {
+      block.addTrace(trace);
+    }
+    block.storeDataPoints(storage);
+    return block;
+  }
+
+  /**
+   * Mobilograms and traces of consecutive frames in primitive arrays
+   */
+  private static class FrameBlock {
+
+    private final List<Frame> frames;
+
+    // mobilograms: frame index in this block, average m/z, summed intensity and first data point
+    private final IntArrayList mobFrames = new IntArrayList();
+    private final DoubleArrayList mobMzs = new DoubleArrayList();
+    private final DoubleArrayList mobIntensities = new DoubleArrayList();
+    private final IntArrayList mobStarts = new IntArrayList(new int[]{0});
+
+    // data points of all mobilograms, moved to the buffers when the block is finished
+    private DoubleArrayList mzs = new DoubleArrayList();
+    private DoubleArrayList intensities = new DoubleArrayList();
+    private IntArrayList scanNumbers = new IntArrayList();
+    private DoubleBuffer storedMzs;
+    private DoubleBuffer storedIntensities;
+    private IntBuffer storedScanNumbers;
+
+    // traces: mobilograms sorted by frame, center m/z and summed intensity
+    private final List<int[]> traces = new ArrayList<>();
+    private final DoubleArrayList traceMzs = new DoubleArrayList();
+    private final DoubleArrayList traceIntensities = new DoubleArrayList();
+
+    private FrameBlock(List<Frame> frames) {
+      this.frames = frames;
+    }
+
+    private void addMobilogram(int frameIndex, int[] dps, double[] frameMzs,
+        double[] frameIntensities, int[] frameScanNumbers) {
+      double weightedMz = 0d;
+      double summedIntensity = 0d;
+      for (final int dp : dps) {
+        mzs.add(frameMzs[dp]);
+        intensities.add(frameIntensities[dp]);
+        scanNumbers.add(frameScanNumbers[dp]);
+        weightedMz += frameMzs[dp] * frameIntensities[dp];
+        summedIntensity += frameIntensities[dp];
+      }
+      mobFrames.add(frameIndex);
+      mobMzs.add(weightedMz / summedIntensity);
+      mobIntensities.add(summedIntensity);
+      mobStarts.add(mzs.size());
+    }
+
+    private void addTrace(int[] mobilograms) {
+      double weightedMz = 0d;
+      double summedIntensity = 0d;
+      for (final int mobilogram : mobilograms) {
+        weightedMz += mobMzs.getDouble(mobilogram) * mobIntensities.getDouble(mobilogram);
+        summedIntensity += mobIntensities.getDouble(mobilogram);
+      }
+      traces.add(mobilograms);
+      traceMzs.add(weightedMz / summedIntensity);
+      traceIntensities.add(summedIntensity);
+    }
+
+    /**
+     * Moves the data points to the storage. Only the mobilograms and traces stay on the heap.
+     */
+    private void storeDataPoints(@Nullable MemoryMapStorage storage) {
+      mzs.trim();
+      intensities.trim();
+      scanNumbers.trim();
+      storedMzs = StorageUtils.storeValuesToDoubleBuffer(storage, mzs.elements());
+      storedIntensities = StorageUtils.storeValuesToDoubleBuffer(storage, intensities.elements());
+      storedScanNumbers = StorageUtils.storeValuesToIntBuffer(storage, scanNumbers.elements());
+      mzs = null;
+      intensities = null;
+      scanNumbers = null;
+    }
+
+    private int getNumberOfTraces() {
+      return traces.size();
+    }
+
+    private int getNumberOfDataPoints(int mobilogram) {
+      return mobStarts.getInt(mobilogram + 1) - mobStarts.getInt(mobilogram);
+    }
+
+    private BuildingIonMobilitySeries toBuildingSeries(int mobilogram,
+        @Nullable MemoryMapStorage storage) {
+      final int start = mobStarts.getInt(mobilogram);
+      final int end = mobStarts.getInt(mobilogram + 1);
+      final Frame frame = frames.get(mobFrames.getInt(mobilogram));
+      final List<MobilityScan> scans = new ArrayList<>(end - start);
+      for (int i = start; i < end; i++) {
+        scans.add(frame.getMobilityScan(storedScanNumbers.get(i)));
+      }
+      final double[] seriesMzs = new double[end - start];
+      final double[] seriesIntensities = new double[end - start];
+      storedMzs.get(start, seriesMzs);
+      storedIntensities.get(start, seriesIntensities);
+      return new BuildingIonMobilitySeries(storage, seriesMzs, seriesIntensities, scans);
+    }
+  }
+}
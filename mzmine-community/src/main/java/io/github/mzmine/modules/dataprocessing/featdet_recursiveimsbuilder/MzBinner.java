@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.featdet_recursiveimsbuilder;
+
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.util.collections.MzIntervalMap;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Bins values by m/z into non-overlapping m/z ranges. Each bin holds at most one value per slot,
+ * e.g., one data point per mobility scan or one mobilogram per frame. The values are only referred
+ * to by their index into primitive arrays of m/z, intensity and slot.
+ * <p>
+ * This is the primitive version of the mobilogram and {@link TempIMTrace} building. Values are
+ * binned by descending intensity. If a slot is already taken, the value that fits better is kept
+ * and the other one is binned again in another pass with new bins, as long as there are more
+ * leftover values than the recursive threshold. A value only replaces the value in its slot if it
+ * is closer to the bin center (or equally close, if ties replace) and its intensity is closer to
+ * the average intensity of the nearest occupied slots below and above, same as
+ * {@link TempIMTrace#keepBetterFittingDataPoint}.
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+final class MzBinner {
+
+  private final double[] mzs;
+  private final double[] intensities;
+  private final int[] slots;
+  private final MZTolerance tolerance;
+  private final boolean limitNewRanges;
+  private final boolean replaceOnTie;
+  private final int recursiveThreshold;
+
+  /**
+   * @param mzs                m/z of all values
+   * @param intensities        intensity of all values
+   * @param slots              slot of all values (>= 0)
+   * @param tolerance          the m/z tolerance of a bin
+   * @param limitNewRanges     true: new bins are limited by the neighboring bins. false: values
+   *                           are left over if the full tolerance range of a new bin overlaps other
+   *                           bins
+   * @param replaceOnTie       true: a value with the same m/z distance to the bin center as the
+   *                           value in its slot may replace it (data points of mobilograms). false:
+   *                           only closer values may replace (mobilograms of traces)
+   * @param recursiveThreshold leftover values are only binned again in another pass if there are
+   *                           more than this number of values
+   */
+  MzBinner(double[] mzs, double[] intensities, int[] slots, MZTolerance tolerance,
+      boolean limitNewRanges, boolean replaceOnTie, int recursiveThreshold) {
+    this.mzs = mzs;
+    this.intensities = intensities;
+    this.slots = slots;
+    this.tolerance = tolerance;
+    this.limitNewRanges = limitNewRanges;
+    this.replaceOnTie = replaceOnTie;
+    this.recursiveThreshold = recursiveThreshold;
+  }
+
+  /**
+   * Sorts value indices by descending intensity. Equal intensities keep the ascending index order.
+   */
+  static void sortByIntensity(int[] values, double[] intensities) {
+    IntArrays.quickSort(values, (a, b) -> {
+      final int result = Double.compare(intensities[b], intensities[a]);
+      return result != 0 ? result : Integer.compare(a, b);
+    });
+  }
+
+  /**
+   * @param numValues bins the values 0 to numValues (exclusive)
+   * @return the bins of all passes, each pass sorted by m/z. The values of a bin are sorted by
+   * slot.
+   */
+  @NotNull
+  List<int[]> bin(int numValues) {
+    final int[] values = new int[numValues];
+    Arrays.setAll(values, i -> i);
+    return bin(values);
+  }
+
+  /**
+   * @param values the value indices, will be sorted by intensity
+   * @return the bins of all passes, each pass sorted by m/z. The values of a bin are sorted by
+   * slot.
+   */
+  @NotNull
+  List<int[]> bin(int[] values) {
+    final List<int[]> bins = new ArrayList<>();
+    while (values.length > 0) {
+      sortByIntensity(values, intensities);
+      final IntArrayList leftover = new IntArrayList();
+      binPass(values, bins, leftover);
+      if (leftover.size() <= recursiveThreshold) {
+        break;
+      }
+      values = leftover.toIntArray();
+    }
+    return bins;
+  }
+
+  private void binPass(int[] values, List<int[]> bins, IntArrayList leftover) {
+    final MzIntervalMap map = new MzIntervalMap();
+    final DoubleArrayList weightedMzSums = new DoubleArrayList();
+    final DoubleArrayList intensitySums = new DoubleArrayList();
+    // the lowest and highest occupied slot of each bin
+    final IntArrayList minSlots = new IntArrayList();
+    final IntArrayList maxSlots = new IntArrayList();
+    // the value of each bin and slot
+    final Long2IntOpenHashMap binSlots = new Long2IntOpenHashMap(values.length);
+    binSlots.defaultReturnValue(-1);
+
+    for (final int value : values) {
+      final double mz = mzs[value];
+      if (Double.isNaN(mz)) {
+        continue;
+      }
+      int bin = map.find(mz);
+      if (bin == -1) {
+        bin = startNewBin(map, mz);
+        if (bin == -1) {
+          leftover.add(value);
+          continue;
+        }
+        weightedMzSums.add(0d);
+        intensitySums.add(0d);
+        minSlots.add(Integer.MAX_VALUE);
+        maxSlots.add(Integer.MIN_VALUE);
+      }
+
+      final int slot = slots[value];
+      final long key = key(bin, slot);
+      final int current = binSlots.putIfAbsent(key, value);
+      if (current == -1) {
+        weightedMzSums.set(bin, weightedMzSums.getDouble(bin) + mz * intensities[value]);
+        intensitySums.set(bin, intensitySums.getDouble(bin) + intensities[value]);
+        minSlots.set(bin, Math.min(minSlots.getInt(bin), slot));
+        maxSlots.set(bin, Math.max(maxSlots.getInt(bin), slot));
+        continue;
+      }
+
+      // slot is taken, keep the better fitting value
+      final double center = weightedMzSums.getDouble(bin) / intensitySums.getDouble(bin);
+      final double delta = Math.abs(center - mz);
+      final double currentDelta = Math.abs(center - mzs[current]);
+      if (delta < currentDelta || (replaceOnTie && delta == currentDelta)) {
+        final int previous = findOccupied(binSlots, bin, slot, -1, minSlots.getInt(bin));
+        final int next = findOccupied(binSlots, bin, slot, 1, maxSlots.getInt(bin));
+        if (previous != -1 && next != -1) {
+          final double avgIntensity = (intensities[previous] + intensities[next]) / 2;
+          if (Math.abs(avgIntensity - intensities[value]) < Math.abs(
+              avgIntensity - intensities[current])) {
+            binSlots.put(key, value);
+            weightedMzSums.set(bin, weightedMzSums.getDouble(bin) + mz * intensities[value]
+                - mzs[current] * intensities[current]);
+            intensitySums.set(bin,
+                intensitySums.getDouble(bin) + intensities[value] - intensities[current]);
+            leftover.add(current);
+            continue;
+          }
+        }
+      }
+      leftover.add(value);
+    }
+
+    // group values by bin. Bins that were covered by a later bin are dropped like in a range map
+    final int numBins = map.getNumberOfIds();
+    final int[] binSizes = new int[numBins];
+    for (final int value : values) {
+      final int bin = binOf(map, binSlots, value);
+      if (bin != -1) {
+        binSizes[bin]++;
+      }
+    }
+    final int[][] binValues = new int[numBins][];
+    for (int bin = 0; bin < numBins; bin++) {
+      binValues[bin] = new int[binSizes[bin]];
+      binSizes[bin] = 0;
+    }
+    for (final int value : values) {
+      final int bin = binOf(map, binSlots, value);
+      if (bin != -1) {
+        binValues[bin][binSizes[bin]++] = value;
+      }
+    }
+    for (final int bin : map.getIdsSortedByMz()) {
+      final int[] binned = binValues[bin];
+      if (binned.length > 0) {
+        IntArrays.quickSort(binned, (a, b) -> Integer.compare(slots[a], slots[b]));
+        bins.add(binned);
+      }
+    }
+  }
+
+  /**
+   * @param step  -1 to search below the slot, 1 to search above
+   * @param limit the lowest or highest occupied slot of the bin
+   * @return the value of the nearest occupied slot of the bin or -1
+   */
+  private static int findOccupied(Long2IntOpenHashMap binSlots, int bin, int slot, int step,
+      int limit) {
+    for (int s = slot + step; step < 0 ? s >= limit : s <= limit; s += step) {
+      final int value = binSlots.get(key(bin, s));
+      if (value != -1) {
+        return value;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return the bin of a value or -1 if the value was not binned
+   */
+  private int binOf(MzIntervalMap map, Long2IntOpenHashMap binSlots, int value) {
+    final int bin = map.find(mzs[value]);
+    return bin != -1 && binSlots.get(key(bin, slots[value])) == value ? bin : -1;
+  }
+
+  /**
+   * @return the new bin or -1 if no bin can be started
+   */
+  private int startNewBin(MzIntervalMap map, double mz) {
+    final double absTolerance = tolerance.getMzToleranceForMass(mz);
+    final int lowerBin = map.find(mz - absTolerance);
+    final int upperBin = map.find(mz + absTolerance);
+    if (!limitNewRanges) {
+      return lowerBin == -1 && upperBin == -1 ? map.add(mz - absTolerance, mz + absTolerance) : -1;
+    }
+
+    final double lower = lowerBin == -1 ? mz - absTolerance : map.getUpper(lowerBin);
+    final double upper = upperBin == -1 ? mz + absTolerance : map.getLower(upperBin);
+    return lower < upper ? map.add(lower, upper) : -1;
+  }
+
+  private static long key(int bin, int slot) {
+    return (long) bin << 32 | (slot & 0xFFFFFFFFL);
+  }
+}
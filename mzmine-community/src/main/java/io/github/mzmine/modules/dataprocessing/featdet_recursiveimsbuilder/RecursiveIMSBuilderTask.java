@@ -25,24 +25,18 @@
 
 package io.github.mzmine.modules.dataprocessing.featdet_recursiveimsbuilder;
 
-import com.google.common.collect.Range;
-import com.google.common.collect.RangeMap;
-import com.google.common.collect.TreeRangeMap;
 import io.github.mzmine.datamodel.Frame;
 import io.github.mzmine.datamodel.IMSRawDataFile;
 import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.MobilityScan;
 import io.github.mzmine.datamodel.data_access.BinningMobilogramDataAccess;
 import io.github.mzmine.datamodel.data_access.EfficientDataAccess;
-import io.github.mzmine.datamodel.data_access.EfficientDataAccess.MobilityScanDataType;
-import io.github.mzmine.datamodel.data_access.MobilityScanDataAccess;
 import io.github.mzmine.datamodel.featuredata.IonMobilitySeries;
 import io.github.mzmine.datamodel.features.ModularFeature;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.ModularFeatureListRow;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
 import io.github.mzmine.datamodel.features.types.FeatureShapeMobilogramType;
-import io.github.mzmine.modules.dataprocessing.featdet_ionmobilitytracebuilder.RetentionTimeMobilityDataPoint;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
@@ -53,22 +47,18 @@ import io.github.mzmine.util.FeatureConvertors;
 import io.github.mzmine.util.FeatureListUtils;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.exceptions.MissingMassListException;
-import io.github.mzmine.util.scans.SpectraMerging;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
 import java.time.Instant;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
-import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -81,7 +71,7 @@ public class RecursiveIMSBuilderTask extends AbstractTask {
 
   private static final Logger logger = Logger.getLogger(RecursiveIMSBuilderTask.class.getName());
   private static final int RECURSIVE_THRESHOLD = 50;
-  private static final int STEPS = 5;
+  private static final int STEPS = 4;
 
   private final IMSRawDataFile file;
   private final ParameterSet parameters;
@@ -89,7 +79,6 @@ public class RecursiveIMSBuilderTask extends AbstractTask {
   private final MZmineProject project;
   private final MZTolerance tolerance;
   private final MemoryMapStorage tempStorage = MemoryMapStorage.forFeatureList();
-  private final boolean enableRecursive = true;
   private final int numConsecutiveFrames;
   private final int numDataPoints;
   private final int binWidth;
@@ -162,26 +151,27 @@ public class RecursiveIMSBuilderTask extends AbstractTask {
   public void run() {
     setStatus(TaskStatus.PROCESSING);
 
-    final MobilityScanDataAccess access = EfficientDataAccess
-        .of(file, MobilityScanDataType.MASS_LIST, scanSelection);
+    final List<Frame> eligibleFrames = (List<Frame>) scanSelection.getMatchingScans(
+        file.getFrames());
 
-    logger.finest(() -> "Extracting data points from mobility scans and building mobilograms...");
+    logger.finest(() -> "Extracting data points from mobility scans and building traces...");
     stepProcessed.set(0);
-    stepTotal = access.getNumberOfScans();
+    stepTotal = eligibleFrames.size();
 
-    // build mobilograms for all frames
-    final TreeSet<BuildingIonMobilitySeries> sortedMobilograms = buildFrameMobilograms(access);
-    if (isCanceled()) {
+    // build mobilograms and traces in parallel blocks of frames
+    final BlockIMSTraceBuilder traceBuilder = new BlockIMSTraceBuilder(file, eligibleFrames,
+        scanSelection, tolerance, RECURSIVE_THRESHOLD, tempStorage, this::isCanceled,
+        stepProcessed);
+    final List<TempIMTrace> ionMobilityTraces;
+    try {
+      ionMobilityTraces = traceBuilder.buildTraces(numDataPoints, numConsecutiveFrames);
+    } catch (MissingMassListException e) {
+      logger.log(Level.WARNING, e.getMessage(), e);
+      setErrorMessage(e.getMessage());
+      setStatus(TaskStatus.ERROR);
       return;
     }
-
-    // create ion traces from mobilograms
-    currentStep++;
-    stepProcessed.set(0);
-    stepTotal = sortedMobilograms.size();
-    final List<TempIMTrace> ionMobilityTraces = createTempIMTraces(
-        sortedMobilograms, tolerance);
-    if (isCanceled()) {
+    if (isCanceled() || ionMobilityTraces == null) {
       return;
     }
 
@@ -192,7 +182,7 @@ public class RecursiveIMSBuilderTask extends AbstractTask {
     logger.finest(() -> "Removing noise from traces...");
     final List<TempIMTrace> validTraces = ionMobilityTraces.parallelStream().filter(trace -> {
       stepProcessed.getAndIncrement();
-      return checkConsecutiveRemoveNoise(trace, access.getEligibleFrames(), numConsecutiveFrames,
+      return checkConsecutiveRemoveNoise(trace, eligibleFrames, numConsecutiveFrames,
           numDataPoints);
     }).collect(Collectors.toList());
 
@@ -206,7 +196,7 @@ public class RecursiveIMSBuilderTask extends AbstractTask {
     currentStep++;
     stepTotal = validTraces.size();
     logger.finest(() -> "Adding leading and trailing zeros...");
-    addZerosForFrames(validTraces, access.getEligibleFrames());
+    addZerosForFrames(validTraces, eligibleFrames);
     logger.finest(() -> "Leading and trailing zeros added.");
 
     // build feature list
@@ -215,7 +205,7 @@ public class RecursiveIMSBuilderTask extends AbstractTask {
     currentStep++;
     final ModularFeatureList flist = new ModularFeatureList(file.getName(), getMemoryMapStorage(),
         file);
-    flist.setSelectedScans(file, access.getEligibleFrames());
+    flist.setSelectedScans(file, eligibleFrames);
     logger.finest(() -> "Creation BinningMobilogramDataAccess for raw data file " + file.getName());
     final BinningMobilogramDataAccess binningMobilogramDataAccess = EfficientDataAccess
         .of(file, binWidth);
@@ -387,158 +377,6 @@ public class RecursiveIMSBuilderTask extends AbstractTask {
     );
   }
 
-  private TreeSet<BuildingIonMobilitySeries> buildFrameMobilograms(MobilityScanDataAccess access) {
-    Set<BuildingIonMobilitySeries> buildingTraces = new HashSet<>();
-    try {
-
-      while (access.hasNextFrame()) {
-        if (isCanceled()) {
-          return null;
-        }
-
-        final Frame frame = access.nextFrame();
-
-        final TreeSet<RetentionTimeMobilityDataPoint> dps = new TreeSet<>(
-            (o1, o2) -> {
-              if (o1.getIntensity() > o2.getIntensity()) {
-                return -1;
-              }
-              return 1;
-            });
-        // get all datapoints
-        while (access.hasNextMobilityScan()) {
-          final MobilityScan currentMobilityScan = access.nextMobilityScan();
-          for (int i = 0; i < access.getNumberOfDataPoints(); i++) {
-            dps.add(new RetentionTimeMobilityDataPoint(currentMobilityScan, access.getMzValue(i),
-                access.getIntensityValue(i)));
-          }
-        }
-
-        final Set<TempMobilogram> mobilogramMap = calcMobilograms(dps, tolerance);
-        final List<BuildingIonMobilitySeries> storedTraces = storeBuldingMobilograms(mobilogramMap);
-        buildingTraces.addAll(storedTraces);
-
-        stepProcessed.getAndIncrement();
-      }
-    } catch (MissingMassListException e) {
-      e.printStackTrace();
-    }
-
-    // now sort chromatograms like the adap builder
-    logger.finest(() -> "Sorting mobilograms");
-    final TreeSet<BuildingIonMobilitySeries> sortedMobilograms = new TreeSet<>(
-        (o1, o2) -> {
-          if (o1.getSummedIntensity() > o2.getSummedIntensity()) {
-            return -1;
-          }
-          return 1;
-        });
-    sortedMobilograms.addAll(buildingTraces);
-
-    logger.finest(() -> "Mobilograms sorted");
-
-    return sortedMobilograms;
-  }
-
-  @NotNull
-  private Set<TempMobilogram> calcMobilograms(Collection<RetentionTimeMobilityDataPoint> dps,
-      final MZTolerance tolerance) {
-    final RangeMap<Double, TempMobilogram> map = TreeRangeMap.create();
-    Set<RetentionTimeMobilityDataPoint> leftoverDataPoints = new TreeSet<>((o1, o2) -> {
-      if (o1.getIntensity() > o2.getIntensity()) {
-        return -1;
-      }
-      return 1;
-    });
-
-    for (final var dp : dps) {
-      TempMobilogram mobilogram = map.get(dp.getMZ());
-      if (mobilogram == null) {
-        final Range<Double> proposed = tolerance.getToleranceRange(dp.getMZ());
-        final Range<Double> actual = SpectraMerging.createNewNonOverlappingRange(map, proposed);
-        if (proposed.equals(actual)) {
-          mobilogram = new TempMobilogram();
-          map.put(actual, mobilogram);
-        } else {
-          leftoverDataPoints.add(dp);
-          continue;
-        }
-      }
-      final RetentionTimeMobilityDataPoint previousDp = mobilogram.keepBetterFittingDataPoint(dp);
-      if (previousDp != null) {
-        leftoverDataPoints.add(previousDp);
-      }
-    }
-
-    Set<TempMobilogram> mobilograms = new HashSet<>(map.asMapOfRanges().values());
-
-    if (!leftoverDataPoints.isEmpty()) {
-      if (enableRecursive && leftoverDataPoints.size() > RECURSIVE_THRESHOLD) {
-        Set<TempMobilogram> recursiveMobilograms = calcMobilograms(leftoverDataPoints, tolerance);
-//        logger.finest(() -> "Created additional " + recursiveMobilograms.size()
-//            + " mobilograms recursively from " + leftoverDataPoints.size() + " datapoints. "
-//            + leftoverDataPoints.stream().findFirst().get().getMobilityScan().getFrame()
-//            .getFrameId());
-        mobilograms.addAll(recursiveMobilograms);
-      }
-    }
-    return mobilograms;
-  }
-
-  private List<BuildingIonMobilitySeries> storeBuldingMobilograms(
-      final Set<TempMobilogram> traces) {
-    List<BuildingIonMobilitySeries> storedTraces = new ArrayList<>(traces.size());
-    for (TempMobilogram trace : traces) {
-      final BuildingIonMobilitySeries building = trace.toBuildingSeries(tempStorage);
-      storedTraces.add(building);
-    }
-    return storedTraces;
-  }
-
-  @Nullable
-  private List<TempIMTrace> createTempIMTraces(
-      Collection<BuildingIonMobilitySeries> ionMobilitySeries, MZTolerance tolerance) {
-    final RangeMap<Double, TempIMTrace> map = TreeRangeMap.create();
-    Set<BuildingIonMobilitySeries> leftoverMobilograms = new HashSet<>();
-    for (final var mobilogram : ionMobilitySeries) {
-      if (isCanceled()) {
-        return null;
-      }
-
-      TempIMTrace trace = map.get(mobilogram.getAvgMZ());
-      if (trace == null) {
-        final Range<Double> mzRange = SpectraMerging
-            .createNewNonOverlappingRange(map, tolerance.getToleranceRange(mobilogram.getAvgMZ()));
-        trace = new TempIMTrace();
-        map.put(mzRange, trace);
-      }
-      final BuildingIonMobilitySeries previousDp = trace.keepBetterFittingDataPoint(mobilogram);
-      if (previousDp != null) {
-        leftoverMobilograms.add(previousDp);
-      }
-
-      stepProcessed.getAndIncrement();
-    }
-
-    List<TempIMTrace> traces = new ArrayList<>(map.asMapOfRanges().values());
-
-    if (!leftoverMobilograms.isEmpty()) {
-      logger.finest(() -> leftoverMobilograms.size() + "/" + ionMobilitySeries.size()
-          + " leftover mobilograms");
-      if (enableRecursive && leftoverMobilograms.size() > RECURSIVE_THRESHOLD) {
-        List<TempIMTrace> recursiveTraces = createTempIMTraces(leftoverMobilograms, tolerance);
-        if (recursiveTraces != null) {
-          logger.finest(() -> "Created additional " + recursiveTraces.size()
-              + " traces recursively from " + leftoverMobilograms.size() + " mobilograms.");
-          traces.addAll(recursiveTraces);
-        }
-      }
-    }
-
-    return traces;
-  }
-
-
   /**
    * Taken from https://stackoverflow.com/a/48821002
    *
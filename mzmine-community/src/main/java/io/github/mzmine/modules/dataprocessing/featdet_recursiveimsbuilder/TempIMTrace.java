@@ -34,7 +34,7 @@ import java.util.logging.Logger;
 
 public class TempIMTrace {
 
-  private static Logger logger = Logger.getLogger(TempMobilogram.class.getName());
+  private static Logger logger = Logger.getLogger(TempIMTrace.class.getName());
 
   protected final TreeMap<Integer, BuildingIonMobilitySeries> mobilograms = new TreeMap<>();
   protected double lowestMz = Double.MAX_VALUE;
@@ -60,6 +60,19 @@ public class TempIMTrace {
     return currentValue;
   }
 
+  /**
+   * Adds all mobilograms of different frames at once. Mobilograms of frames that are already
+   * contained in this trace are ignored.
+   *
+   * @param mobilograms the mobilograms
+   */
+  public void addMobilograms(Collection<BuildingIonMobilitySeries> mobilograms) {
+    for (BuildingIonMobilitySeries mobilogram : mobilograms) {
+      this.mobilograms.putIfAbsent(mobilogram.getFrame().getFrameId(), mobilogram);
+    }
+    updateValues();
+  }
+
   /**
    * @param mobilogram
    * @return The replaced data point
@@ -126,15 +126,19 @@ public class SmoothingTask extends AbstractTask {
     final FeatureDataAccess dataAccess = EfficientDataAccess
         .of(smoothedList, FeatureDataType.INCLUDE_ZEROS);
 
-    while (dataAccess.hasNextFeature()) {
-      final ModularFeature feature = (ModularFeature) dataAccess.nextFeature();
-
-      final IonTimeSeries<? extends Scan> smoothedSeries = smoother
-          .smoothFeature(getMemoryMapStorage(), dataAccess, feature, zht);
-      feature.set(io.github.mzmine.datamodel.features.types.FeatureDataType.class, smoothedSeries);
-      FeatureDataUtils.recalculateIonSeriesDependingTypes(feature);
-
-      processedFeatures.getAndIncrement();
+    // recalculate each row once after all features were smoothed
+    try (var _ = smoothedList.startBulkUpdate()) {
+      while (dataAccess.hasNextFeature()) {
+        final ModularFeature feature = (ModularFeature) dataAccess.nextFeature();
+
+        final IonTimeSeries<? extends Scan> smoothedSeries = smoother
+            .smoothFeature(getMemoryMapStorage(), dataAccess, feature, zht);
+        feature.set(io.github.mzmine.datamodel.features.types.FeatureDataType.class,
+            smoothedSeries);
+        FeatureDataUtils.recalculateIonSeriesDependingTypes(feature);
+
+        processedFeatures.getAndIncrement();
+      }
     }
 
     if (isCanceled()) {
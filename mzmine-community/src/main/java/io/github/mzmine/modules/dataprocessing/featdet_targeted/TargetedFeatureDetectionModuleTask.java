@@ -45,6 +45,7 @@ import io.github.mzmine.datamodel.features.compoundannotations.CompoundDBAnnotat
 import io.github.mzmine.datamodel.features.types.numbers.MzPpmDifferenceType;
 import io.github.mzmine.datamodel.features.types.numbers.RtRelativeErrorType;
 import io.github.mzmine.modules.dataprocessing.gapfill_peakfinder.Gap;
+import io.github.mzmine.modules.dataprocessing.gapfill_peakfinder.GapRtIndex;
 import io.github.mzmine.modules.dataprocessing.gapfill_peakfinder.multithreaded.ImsGap;
 import io.github.mzmine.modules.dataprocessing.id_ion_identity_networking.ionidnetworking.IonNetworkLibrary;
 import io.github.mzmine.parameters.ParameterSet;
@@ -304,7 +305,8 @@ class TargetedFeatureDetectionModuleTask extends AbstractTask {
     final MobilityScanDataAccess access = new MobilityScanDataAccess(imsFile,
         MobilityScanDataType.MASS_LIST,
         (List<Frame>) processedFeatureList.getSeletedScans(imsFile));
-    List<ImsGap> imsGaps = (List<ImsGap>) gaps;
+    // only offer each frame to the gaps that overlap its retention time
+    final GapRtIndex<ImsGap> imsGaps = new GapRtIndex<>((List<ImsGap>) gaps);
 
     while (access.hasNextFrame()) {
       if (isCanceled()) {
@@ -312,10 +314,10 @@ class TargetedFeatureDetectionModuleTask extends AbstractTask {
       }
 
       final Frame frame = access.nextFrame();
-      for (ImsGap gap : imsGaps) {
+      imsGaps.forEachOverlapping(frame.getRetentionTime(), gap -> {
         access.resetMobilityScan();
         gap.offerNextScan(access);
-      }
+      });
       processedScans++;
     }
 
@@ -331,6 +333,8 @@ class TargetedFeatureDetectionModuleTask extends AbstractTask {
   private boolean processLcmsFile(List<Gap> gaps) {
     final ScanDataAccess access = EfficientDataAccess.of(dataFile, ScanDataType.MASS_LIST,
         matchingScans);
+    // only offer each scan to the gaps that overlap its retention time
+    final GapRtIndex<Gap> gapIndex = new GapRtIndex<>(gaps);
 
     while (access.hasNextScan()) {
       access.nextScan();
@@ -339,10 +343,8 @@ class TargetedFeatureDetectionModuleTask extends AbstractTask {
         return false;
       }
 
-      // Feed this scan to all gaps
-      for (Gap gap : gaps) {
-        gap.offerNextScan(access);
-      }
+      // Feed this scan to all gaps in RT range
+      gapIndex.forEachOverlapping(access.getRetentionTime(), gap -> gap.offerNextScan(access));
 
       processedScans++;
     }
@@ -268,4 +268,12 @@ public class Gap {
   public FeatureListRow getFeatureListRow() {
     return featureListRow;
   }
+
+  public Range<Double> getMzRange() {
+    return mzRange;
+  }
+
+  public Range<Float> getRtRange() {
+    return rtRange;
+  }
 }
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.gapfill_peakfinder;
+
+import com.google.common.collect.Range;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Static interval tree over the retention time ranges of gaps. A {@link Gap} ignores all scans
+ * outside of its RT range, so only the gaps that overlap a scan need to be offered this scan.
+ * Instead of scans x gaps calls, each scan reaches the overlapping gaps in O(log(gaps) + hits).
+ * <p>
+ * The gaps are sorted by the lower RT bound and form an implicit balanced binary tree, where each
+ * node also stores the maximum upper RT bound of its subtree.
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+public class GapRtIndex<T extends Gap> {
+
+  private final List<T> gaps;
+  private final float[] lower;
+  private final float[] maxUpper;
+
+  public GapRtIndex(@NotNull Collection<T> gaps) {
+    final List<T> unsorted = new ArrayList<>(gaps);
+    final int n = unsorted.size();
+    final float[] unsortedLower = new float[n];
+    for (int i = 0; i < n; i++) {
+      unsortedLower[i] = unsorted.get(i).getRtRange().lowerEndpoint();
+    }
+    // stable sort keeps the original order of gaps with the same lower bound
+    final int[] order = new int[n];
+    for (int i = 0; i < n; i++) {
+      order[i] = i;
+    }
+    IntArrays.stableSort(order, (a, b) -> Float.compare(unsortedLower[a], unsortedLower[b]));
+
+    this.gaps = new ArrayList<>(n);
+    lower = new float[n];
+    maxUpper = new float[n];
+    for (int i = 0; i < n; i++) {
+      final T gap = unsorted.get(order[i]);
+      this.gaps.add(gap);
+      lower[i] = unsortedLower[order[i]];
+      maxUpper[i] = gap.getRtRange().upperEndpoint();
+    }
+    buildMaxUpper(0, n);
+  }
+
+  /**
+   * @return the maximum upper bound in the subtree [from, toExclusive)
+   */
+  private float buildMaxUpper(int from, int toExclusive) {
+    if (from >= toExclusive) {
+      return Float.NEGATIVE_INFINITY;
+    }
+    final int mid = (from + toExclusive) >>> 1;
+    final float left = buildMaxUpper(from, mid);
+    final float right = buildMaxUpper(mid + 1, toExclusive);
+    maxUpper[mid] = Math.max(maxUpper[mid], Math.max(left, right));
+    return maxUpper[mid];
+  }
+
+  /**
+   * Applies the consumer to all gaps with an RT range that contains the retention time. Gaps are
+   * visited in ascending order of their lower RT bound.
+   *
+   * @param rt       retention time of a scan
+   * @param consumer applied to each overlapping gap
+   */
+  public void forEachOverlapping(float rt, @NotNull Consumer<? super T> consumer) {
+    forEachOverlapping(rt, 0, gaps.size(), consumer);
+  }
+
+  private void forEachOverlapping(float rt, int from, int toExclusive,
+      Consumer<? super T> consumer) {
+    if (from >= toExclusive) {
+      return;
+    }
+    final int mid = (from + toExclusive) >>> 1;
+    // no range in this subtree reaches the rt
+    if (maxUpper[mid] < rt) {
+      return;
+    }
+    forEachOverlapping(rt, from, mid, consumer);
+    // all ranges of mid and the right subtree start after the rt
+    if (lower[mid] > rt) {
+      return;
+    }
+    final T gap = gaps.get(mid);
+    if (gap.getRtRange().contains(rt)) {
+      consumer.accept(gap);
+    }
+    forEachOverlapping(rt, mid + 1, toExclusive, consumer);
+  }
+
+  /**
+   * @param rt retention time of a scan
+   * @return all gaps with an RT range that contains the retention time
+   */
+  public List<T> findOverlapping(float rt) {
+    final List<T> overlapping = new ArrayList<>();
+    forEachOverlapping(rt, overlapping::add);
+    return overlapping;
+  }
+
+  /**
+   * @return all gaps sorted by their lower RT bound
+   */
+  public List<T> getGaps() {
+    return gaps;
+  }
+
+  public int size() {
+    return gaps.size();
+  }
+
+  public boolean isEmpty() {
+    return gaps.isEmpty();
+  }
+}
@@ -99,6 +99,33 @@ class PeakFinderTask extends AbstractTask {
     // Create new feature list
     processedPeakList = peakList.createCopy(peakList + " " + suffix, getMemoryMapStorage(), false);
 
+    // filled rows are recalculated once, after all files were processed
+    try (var bulkUpdate = processedPeakList.startBulkUpdate()) {
+      fillGaps();
+      // terminate - stream only skips all elements
+      if (isCanceled()) {
+        bulkUpdate.discard();
+        return;
+      }
+    }
+
+    // Append processed feature list to the project
+    handleOriginal.reflectNewFeatureListToProject(suffix, project, processedPeakList, peakList);
+
+    // Add task description to peakList
+    processedPeakList
+        .addDescriptionOfAppliedTask(new SimpleFeatureListAppliedMethod("Gap filling ",
+            PeakFinderModule.class, parameters, getModuleCallDate()));
+
+    logger.info("Finished gap-filling on " + peakList);
+    setStatus(TaskStatus.FINISHED);
+
+  }
+
+  /**
+   * Fills the gaps of all raw data files
+   */
+  private void fillGaps() {
     if (rtCorrection) {
       totalScans *= 2;
       // Fill the gaps of a random sample using all the other samples and
@@ -169,27 +196,14 @@ class PeakFinderTask extends AbstractTask {
           }
         });
 
-        // Finalize gaps
+        // Finalize gaps, the row bindings are applied at the end of the bulk update
         for (Gap gap : gaps) {
-          gap.noMoreOffers();
+          if (gap.noMoreOffers()) {
+            processedPeakList.applyRowBindings(gap.getFeatureListRow());
+          }
         }
       });
     }
-    // terminate - stream only skips all elements
-    if (isCanceled())
-      return;
-
-    // Append processed feature list to the project
-    handleOriginal.reflectNewFeatureListToProject(suffix, project, processedPeakList, peakList);
-
-    // Add task description to peakList
-    processedPeakList
-        .addDescriptionOfAppliedTask(new SimpleFeatureListAppliedMethod("Gap filling ",
-            PeakFinderModule.class, parameters, getModuleCallDate()));
-
-    logger.info("Finished gap-filling on " + peakList);
-    setStatus(TaskStatus.FINISHED);
-
   }
 
   public void fillList(boolean masterList) {
@@ -285,9 +299,11 @@ class PeakFinderTask extends AbstractTask {
           return;
         }
 
-        // Finalize gaps
+        // Finalize gaps, the row bindings are applied at the end of the bulk update
         for (Gap gap : gaps) {
-          gap.noMoreOffers();
+          if (gap.noMoreOffers()) {
+            processedPeakList.applyRowBindings(gap.getFeatureListRow());
+          }
         }
       }
     }
@@ -29,6 +29,7 @@ import com.google.common.util.concurrent.AtomicDouble;
 import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.features.FeatureList;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureList.BulkUpdate;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
 import io.github.mzmine.gui.preferences.MZminePreferences;
 import io.github.mzmine.gui.preferences.NumOfThreadsParameter;
@@ -109,6 +110,9 @@ class MultiThreadPeakFinderMainTask extends AbstractTask {
     // Submit the tasks to the task controller for processing
     List<AbstractTask> tasks = createSubTasks(raw, maxRunningThreads);
 
+    // the sub tasks mark the filled rows, which are recalculated once when all tasks finished
+    final BulkUpdate bulkUpdate = processedPeakList.startBulkUpdate();
+
     final AbstractTask thistask = this;
     new AllTasksFinishedListener(tasks, true,
         // succeed
@@ -121,10 +125,10 @@ class MultiThreadPeakFinderMainTask extends AbstractTask {
               new SimpleFeatureListAppliedMethod("Gap filling ", MultiThreadPeakFinderModule.class,
                   parameters, getModuleCallDate()));
 
-          // update all rows by row bindings (average values)
+          // update all filled rows by row bindings (average values)
           // this needs to be done after all tasks finish because values were not updated when
           // adding features
-          processedPeakList.applyRowBindings();
+          bulkUpdate.close();
 
           // add / remove or rename the new feature list in project
           originalFeatureListOption.reflectNewFeatureListToProject(suffix, project,
@@ -136,6 +140,7 @@ class MultiThreadPeakFinderMainTask extends AbstractTask {
             thistask.setStatus(TaskStatus.FINISHED);
           }
         }, lerror -> {
+      endBulkUpdate(bulkUpdate);
       setErrorMessage("Error in gap filling");
       thistask.setStatus(TaskStatus.ERROR);
       for (AbstractTask task : tasks) {
@@ -143,7 +148,10 @@ class MultiThreadPeakFinderMainTask extends AbstractTask {
       }
     },
         // cancel if one was cancelled
-        listCancelled -> cancel()) {
+        listCancelled -> {
+          endBulkUpdate(bulkUpdate);
+          cancel();
+        }) {
       @Override
       public void taskStatusChanged(Task task, TaskStatus newStatus, TaskStatus oldStatus) {
         super.taskStatusChanged(task, newStatus, oldStatus);
@@ -159,6 +167,18 @@ class MultiThreadPeakFinderMainTask extends AbstractTask {
     TaskUtils.waitForTasksToFinish(thistask, wrappedTasks);
   }
 
+  /**
+   * Keeps the filled rows of a list that is processed in place consistent after an error or cancel.
+   * New lists are discarded.
+   */
+  private void endBulkUpdate(BulkUpdate bulkUpdate) {
+    if (originalFeatureListOption == OriginalFeatureListOption.PROCESS_IN_PLACE) {
+      bulkUpdate.close();
+    } else {
+      bulkUpdate.discard();
+    }
+  }
+
   private int getMaxThreads() {
     int maxRunningThreads = 1;
     NumOfThreadsParameter parameter = MZmineCore.getConfiguration().getPreferences()
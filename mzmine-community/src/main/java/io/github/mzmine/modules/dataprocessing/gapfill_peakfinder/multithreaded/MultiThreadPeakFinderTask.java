@@ -41,6 +41,7 @@ import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.types.numbers.MobilityType;
 import io.github.mzmine.modules.dataprocessing.gapfill_peakfinder.Gap;
+import io.github.mzmine.modules.dataprocessing.gapfill_peakfinder.GapRtIndex;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance;
@@ -162,6 +163,8 @@ class MultiThreadPeakFinderTask extends AbstractTask {
       for (Gap gap : gaps) {
         if (gap.noMoreOffers(minDataPoints)) {
           filled++;
+          // applied once at the end of the bulk update of the main task
+          processedPeakList.applyRowBindings(gap.getFeatureListRow());
         }
       }
 
@@ -211,7 +214,9 @@ class MultiThreadPeakFinderTask extends AbstractTask {
     if (file instanceof IMSRawDataFile imsFile && peakList.hasFeatureType(MobilityType.class)) {
       final MobilityScanDataAccess access = new MobilityScanDataAccess(imsFile,
           MobilityScanDataType.MASS_LIST, (List<Frame>) peakList.getSeletedScans(file));
-      List<ImsGap> imsGaps = (List<ImsGap>) (List<? extends Gap>) gaps;
+      // only offer each frame to the gaps that overlap its retention time
+      final GapRtIndex<ImsGap> imsGaps = new GapRtIndex<>(
+          (List<ImsGap>) (List<? extends Gap>) gaps);
 
       while (access.hasNextFrame()) {
         if (isCanceled()) {
@@ -219,10 +224,10 @@ class MultiThreadPeakFinderTask extends AbstractTask {
         }
 
         final Frame frame = access.nextFrame();
-        for (ImsGap gap : imsGaps) {
+        imsGaps.forEachOverlapping(frame.getRetentionTime(), gap -> {
           access.resetMobilityScan();
           gap.offerNextScan(access);
-        }
+        });
         processedScans.incrementAndGet();
       }
 
@@ -231,15 +236,16 @@ class MultiThreadPeakFinderTask extends AbstractTask {
 
       final ScanDataAccess scanAccess = EfficientDataAccess.of(file, ScanDataType.MASS_LIST,
           peakList.getSeletedScans(file));
+      // only offer each scan to the gaps that overlap its retention time
+      final GapRtIndex<Gap> gapIndex = new GapRtIndex<>(gaps);
       while (scanAccess.hasNextScan()) {
         if (isCanceled()) {
           return;
         }
         scanAccess.nextScan();
-        // Feed this scan to all gaps
-        for (Gap gap : gaps) {
-          gap.offerNextScan(scanAccess);
-        }
+        // Feed this scan to all gaps in RT range
+        gapIndex.forEachOverlapping(scanAccess.getRetentionTime(),
+            gap -> gap.offerNextScan(scanAccess));
 
         processedScans.incrementAndGet();
       }
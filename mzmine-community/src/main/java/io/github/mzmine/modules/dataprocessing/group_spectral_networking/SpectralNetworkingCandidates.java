@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.group_spectral_networking;
+
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.util.scans.similarity.Weights;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Candidate generation for the modified cosine networking. All fragment signals and neutral losses
+ * (precursor - fragment) of all spectra are put into a bucketed inverted index. Each spectrum A is
+ * queried against the index to count the signals that have at least one partner in spectrum B (as
+ * fragment or as neutral loss) and to sum up their weighted intensity. These are upper bounds for
+ * the number of matched signals and for the cosine similarity:
+ * <p>
+ * cosine <= sqrt(sum of squared weighted intensities of A signals with partner / sum of all)
+ * <p>
+ * Pairs that cannot reach the minimum matched signals or the minimum cosine are pruned before the
+ * alignment. The bounds are conservative so the final edges stay the same.
+ * <p>
+ * Spectra are grouped (e.g., all spectra of one row) and pairs are reported between groups.
+ * Spectra have to be added in ascending group order.
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+class SpectralNetworkingCandidates {
+
+  // maximum number of buckets for each index
+  private static final int MAX_BUCKETS = 1 << 24;
+  // compensate rounding of the cosine bound
+  private static final double COSINE_EPSILON = 1E-6;
+
+  private final MZTolerance mzTol;
+  private final int minMatch;
+  private final double minCosine;
+  private final Weights weights;
+
+  // one entry per spectrum
+  private final IntArrayList spectrumGroups = new IntArrayList();
+  private final IntArrayList spectrumOffsets = new IntArrayList();
+  private final DoubleArrayList spectrumTotalEnergy = new DoubleArrayList();
+  // one entry per signal
+  private final DoubleArrayList signalMzs = new DoubleArrayList();
+  private final DoubleArrayList signalLosses = new DoubleArrayList();
+  private final DoubleArrayList signalEnergy = new DoubleArrayList();
+
+  // result: sorted partner groups > group
+  private int[][] partnersOfGroup;
+  private int numGroups;
+
+  /**
+   * @param mzTol     tolerance to match signals
+   * @param minMatch  minimum matched signals
+   * @param minCosine minimum cosine similarity
+   * @param weights   weights of the cosine calculation
+   */
+  SpectralNetworkingCandidates(@NotNull MZTolerance mzTol, int minMatch, double minCosine,
+      @NotNull Weights weights) {
+    this.mzTol = mzTol;
+    this.minMatch = minMatch;
+    this.minCosine = minCosine;
+    this.weights = weights;
+  }
+
+  /**
+   * @param group       group of this spectrum, ascending
+   * @param precursorMz precursor m/z used for the modified cosine
+   * @param dps         filtered data points
+   */
+  void addSpectrum(int group, double precursorMz, @NotNull DataPoint[] dps) {
+    spectrumGroups.add(group);
+    spectrumOffsets.add(signalMzs.size());
+    numGroups = Math.max(numGroups, group + 1);
+    double total = 0;
+    for (DataPoint dp : dps) {
+      final double mz = dp.getMZ();
+      final double weighted =
+          Math.pow(dp.getIntensity(), weights.getIntensity()) * Math.pow(mz, weights.getMz());
+      final double energy = weighted * weighted;
+      total += energy;
+      signalMzs.add(mz);
+      signalLosses.add(precursorMz - mz);
+      signalEnergy.add(energy);
+    }
+    spectrumTotalEnergy.add(total);
+  }
+
+  /**
+   * Build the index and find all candidate pairs
+   */
+  void build() {
+    final int numSpectra = spectrumGroups.size();
+    spectrumOffsets.add(signalMzs.size());
+
+    final double[] mzs = signalMzs.toDoubleArray();
+    final double[] losses = signalLosses.toDoubleArray();
+    final double[] energy = signalEnergy.toDoubleArray();
+    final int[] signalSpectrum = new int[mzs.length];
+    for (int s = 0; s < numSpectra; s++) {
+      Arrays.fill(signalSpectrum, spectrumOffsets.getInt(s), spectrumOffsets.getInt(s + 1), s);
+    }
+
+    // maximum tolerance for all signals - shifted signals may end up higher than the max m/z
+    double maxMz = 0;
+    for (double mz : mzs) {
+      maxMz = Math.max(maxMz, mz);
+    }
+    final double radius = mzTol.getMzToleranceForMass(maxMz * 1.01) * 1.01 + 1E-9;
+
+    final BucketIndex mzIndex = new BucketIndex(mzs, radius);
+    final BucketIndex lossIndex = new BucketIndex(losses, radius);
+
+    final int[][] partnersOfSpectrum = new int[numSpectra][];
+    final ThreadLocal<Scratch> scratches = ThreadLocal.withInitial(() -> new Scratch(numSpectra));
+    IntStream.range(0, numSpectra).parallel().forEach(a -> {
+      final Scratch scratch = scratches.get();
+      final int groupA = spectrumGroups.getInt(a);
+      for (int s = spectrumOffsets.getInt(a); s < spectrumOffsets.getInt(a + 1); s++) {
+        // stamp with signal index to count each signal only once per spectrum b
+        final int stamp = s + 1;
+        final double signalEnergy = energy[s];
+        mzIndex.forEachWithin(mzs[s], signal -> scratch.count(signalSpectrum[signal], groupA,
+            stamp, signalEnergy));
+        lossIndex.forEachWithin(losses[s], signal -> scratch.count(signalSpectrum[signal], groupA,
+            stamp, signalEnergy));
+      }
+      partnersOfSpectrum[a] = scratch.collectAndReset(spectrumTotalEnergy.getDouble(a));
+    });
+
+    // merge spectra of the same group
+    partnersOfGroup = new int[numGroups][];
+    int start = 0;
+    while (start < numSpectra) {
+      final int group = spectrumGroups.getInt(start);
+      int end = start + 1;
+      while (end < numSpectra && spectrumGroups.getInt(end) == group) {
+        end++;
+      }
+      partnersOfGroup[group] = merge(partnersOfSpectrum, start, end);
+      start = end;
+    }
+  }
+
+  private static int[] merge(int[][] partners, int start, int end) {
+    if (end - start == 1) {
+      return partners[start];
+    }
+    final IntArrayList all = new IntArrayList();
+    for (int i = start; i < end; i++) {
+      all.addElements(all.size(), partners[i]);
+    }
+    final int[] sorted = all.toIntArray();
+    IntArrays.quickSort(sorted);
+    int unique = 0;
+    for (int i = 0; i < sorted.length; i++) {
+      if (i == 0 || sorted[i] != sorted[i - 1]) {
+        sorted[unique++] = sorted[i];
+      }
+    }
+    return Arrays.copyOf(sorted, unique);
+  }
+
+  /**
+   * @return true if groups a and b may reach the minimum requirements
+   */
+  boolean isCandidate(int groupA, int groupB) {
+    if (groupA > groupB) {
+      return isCandidate(groupB, groupA);
+    }
+    final int[] partners = groupA < numGroups ? partnersOfGroup[groupA] : null;
+    return partners != null && Arrays.binarySearch(partners, groupB) >= 0;
+  }
+
+  /**
+   * @return number of candidate pairs
+   */
+  long getNumCandidatePairs() {
+    long sum = 0;
+    for (int[] partners : partnersOfGroup) {
+      sum += partners == null ? 0 : partners.length;
+    }
+    return sum;
+  }
+
+  /**
+   * Per thread counters for all spectra
+   */
+  private class Scratch {
+
+    private final int[] lastStamp;
+    private final int[] matches;
+    private final double[] matchedEnergy;
+    private final IntArrayList touched = new IntArrayList();
+
+    private Scratch(int numSpectra) {
+      lastStamp = new int[numSpectra];
+      matches = new int[numSpectra];
+      matchedEnergy = new double[numSpectra];
+    }
+
+    private void count(int b, int groupA, int stamp, double energy) {
+      // only pairs to higher groups
+      if (spectrumGroups.getInt(b) <= groupA || lastStamp[b] == stamp) {
+        return;
+      }
+      lastStamp[b] = stamp;
+      if (matches[b] == 0) {
+        touched.add(b);
+      }
+      matches[b]++;
+      matchedEnergy[b] += energy;
+    }
+
+    private int[] collectAndReset(double totalEnergy) {
+      final IntArrayList partnerGroups = new IntArrayList();
+      for (int i = 0; i < touched.size(); i++) {
+        final int b = touched.getInt(i);
+        if (matches[b] >= minMatch
+            && Math.sqrt(matchedEnergy[b] / totalEnergy) + COSINE_EPSILON >= minCosine) {
+          partnerGroups.add(spectrumGroups.getInt(b));
+        }
+        matches[b] = 0;
+        matchedEnergy[b] = 0;
+      }
+      touched.clear();
+      final int[] result = partnerGroups.toIntArray();
+      IntArrays.quickSort(result);
+      return result;
+    }
+  }
+
+  /**
+   * Inverted index of values in buckets of width >= 2 * radius
+   */
+  private static class BucketIndex {
+
+    private final double[] values;
+    private final double radius;
+    private final double min;
+    private final double bucketWidth;
+    // CSR layout: signals of bucket i are in bucketSignals[bucketStarts[i] ... bucketStarts[i+1]]
+    private final int[] bucketStarts;
+    private final int[] bucketSignals;
+
+    private BucketIndex(double[] values, double radius) {
+      this.values = values;
+      this.radius = radius;
+      double min = Double.POSITIVE_INFINITY;
+      double max = Double.NEGATIVE_INFINITY;
+      for (double v : values) {
+        min = Math.min(min, v);
+        max = Math.max(max, v);
+      }
+      if (values.length == 0) {
+        min = 0;
+        max = 0;
+      }
+      this.min = min;
+      bucketWidth = Math.max(2 * radius, (max - min) / (MAX_BUCKETS - 1));
+      final int numBuckets = bucket(max) + 1;
+
+      bucketStarts = new int[numBuckets + 1];
+      for (double v : values) {
+        bucketStarts[bucket(v) + 1]++;
+      }
+      for (int i = 0; i < numBuckets; i++) {
+        bucketStarts[i + 1] += bucketStarts[i];
+      }
+      bucketSignals = new int[values.length];
+      final int[] fill = Arrays.copyOf(bucketStarts, numBuckets);
+      for (int s = 0; s < values.length; s++) {
+        bucketSignals[fill[bucket(values[s])]++] = s;
+      }
+    }
+
+    private int bucket(double value) {
+      return (int) ((value - min) / bucketWidth);
+    }
+
+    private void forEachWithin(double value, IntConsumer consumer) {
+      final int first = Math.max(0, bucket(Math.max(min, value - radius)));
+      final int last = Math.min(bucketStarts.length - 2, bucket(value + radius));
+      for (int b = first; b <= last; b++) {
+        for (int i = bucketStarts[b]; i < bucketStarts[b + 1]; i++) {
+          final int signal = bucketSignals[i];
+          if (Math.abs(values[signal] - value) <= radius) {
+            consumer.accept(signal);
+          }
+        }
+      }
+    }
+  }
+}
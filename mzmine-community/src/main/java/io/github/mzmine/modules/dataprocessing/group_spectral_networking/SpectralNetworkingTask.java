@@ -86,6 +86,8 @@ public class SpectralNetworkingTask extends AbstractTask {
   private static final Logger logger = Logger.getLogger(SpectralNetworkingTask.class.getName());
   // Logger.
   private final AtomicLong processedPairs = new AtomicLong(0);
+  // pairs pruned by the candidate generation
+  private final AtomicLong prunedPairs = new AtomicLong(0);
   private final int minMatch;
   private final MZTolerance mzTolerance;
   private final double minCosineSimilarity;
@@ -444,6 +446,16 @@ public class SpectralNetworkingTask extends AbstractTask {
     final int numRows = filteredRows.size();
     totalMaxPairs = Combinatorics.uniquePairs(filteredRows);
     logger.log(Level.INFO, MessageFormat.format("Checking MS2 similarity on {0} rows", numRows));
+
+    // prune pairs that cannot reach min matched signals or min cosine
+    final SpectralNetworkingCandidates candidates = createCandidates();
+    if (candidates != null) {
+      for (int i = 0; i < numRows; i++) {
+        FilteredRowData data = filteredRows.get(i);
+        candidates.addSpectrum(i, data.row().getAverageMZ(), data.data());
+      }
+      candidates.build();
+    }
     // try map multi for all pairs
     long comparedPairs = IntStream.range(0, numRows - 1).boxed()
         .<Pair<FilteredRowData, FilteredRowData>>mapMulti((i, consumer) -> {
@@ -458,6 +470,11 @@ public class SpectralNetworkingTask extends AbstractTask {
             if (deltaMz > maxMzDelta) {
               return; // out of range so stop searching
             }
+            if (candidates != null && !candidates.isCandidate(i, j)) {
+              prunedPairs.incrementAndGet();
+              processedPairs.incrementAndGet();
+              continue;
+            }
             // within range so add to queue
             consumer.accept(Pair.of(a, b));
           }
@@ -469,7 +486,24 @@ public class SpectralNetworkingTask extends AbstractTask {
           return 1;
         }).sum();
 
-    logger.info("Spectral networking: Performed %d pairwise comparisons.".formatted(comparedPairs));
+    logger.info(
+        "Spectral networking: Performed %d pairwise comparisons, pruned %d pairs before comparison.".formatted(
+            comparedPairs, prunedPairs.get()));
+  }
+
+  /**
+   * The candidate generation is only applied to the modified cosine. The neutral loss similarity
+   * compares all pairwise signal differences and needs all pairs.
+   *
+   * @return candidates or null if all pairs need to be checked
+   */
+  @Nullable
+  private SpectralNetworkingCandidates createCandidates() {
+    if (checkNeutralLoss) {
+      return null;
+    }
+    return new SpectralNetworkingCandidates(mzTolerance, minMatch, minCosineSimilarity,
+        Weights.SQRT);
   }
 
   private void checkSpectralPair(final FilteredRowData a, final FilteredRowData b,
@@ -530,6 +564,20 @@ public class SpectralNetworkingTask extends AbstractTask {
     logger.log(Level.INFO,
         () -> MessageFormat.format("Checking MS2 similarity on {0} rows", numRows));
 
+    // prune pairs that cannot reach min matched signals or min cosine
+    final SpectralNetworkingCandidates candidates = createCandidates();
+    if (candidates != null) {
+      for (int i = 0; i < numRows; i++) {
+        for (Feature feature : filteredRows.get(i).getFeatures()) {
+          FilteredRowData data = mapFeatureData.get(feature);
+          if (data != null && data.data() != null) {
+            candidates.addSpectrum(i, feature.getMZ(), data.data());
+          }
+        }
+      }
+      candidates.build();
+    }
+
     // try map multi for all pairs
     long comparedPairs = IntStream.range(0, numRows - 1).boxed()
         .<Pair<FeatureListRow, FeatureListRow>>mapMulti((i, consumer) -> {
@@ -545,6 +593,11 @@ public class SpectralNetworkingTask extends AbstractTask {
             if (deltaMz > maxMzDelta) {
               return; // out of range so stop searching
             }
+            if (candidates != null && !candidates.isCandidate(i, j)) {
+              prunedPairs.incrementAndGet();
+              processedPairs.incrementAndGet();
+              continue;
+            }
             // within range so add to queue
             consumer.accept(Pair.of(a, b));
           }
@@ -558,7 +611,8 @@ public class SpectralNetworkingTask extends AbstractTask {
         }).sum();
 
     logger.info(
-        "Spectral networking: Performed %d pairwise comparisons of rows.".formatted(comparedPairs));
+        "Spectral networking: Performed %d pairwise comparisons of rows, pruned %d pairs before comparison.".formatted(
+            comparedPairs, prunedPairs.get()));
   }
 
   private void checkR2RAllFeaturesMs2Similarity(Map<Feature, FilteredRowData> mapFeatureData,
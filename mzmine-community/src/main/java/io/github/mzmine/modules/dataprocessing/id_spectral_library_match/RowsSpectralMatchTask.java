@@ -25,6 +25,7 @@
 
 package io.github.mzmine.modules.dataprocessing.id_spectral_library_match;
 
+import com.google.common.collect.Range;
 import io.github.mzmine.datamodel.DataPoint;
 import io.github.mzmine.datamodel.IMSRawDataFile;
 import io.github.mzmine.datamodel.MassList;
@@ -48,6 +49,7 @@ import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.parameters.parametertypes.tolerances.PercentTolerance;
 import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance;
 import io.github.mzmine.taskcontrol.AbstractTask;
+import io.github.mzmine.util.RangeUtils;
 import io.github.mzmine.util.exceptions.MissingMassListException;
 import io.github.mzmine.util.scans.FragmentScanSelection;
 import io.github.mzmine.util.scans.FragmentScanSelection.IncludeInputSpectra;
@@ -307,6 +309,13 @@ public class RowsSpectralMatchTask extends AbstractTask {
               getCount(), getErrorCount(), entries.size(), scan));
     }
 
+    // prepare the precursor index before matching in parallel
+    if (usePrecursorIndex()) {
+      for (var lib : libraries) {
+        lib.getPrecursorIndex();
+      }
+    }
+
     // run in parallel
     if (rows != null) {
       logger.info(() -> String.format("Comparing %d library spectra to %d feature list rows",
@@ -341,9 +350,11 @@ public class RowsSpectralMatchTask extends AbstractTask {
 
       // get a ccs for the precursor of this scan
       final Float precursorCCS = getPrecursorCCSFromMsMs(scan);
+      float rt = scan.getRetentionTime();
 
-      for (var entry : entries) {
-        float rt = scan.getRetentionTime();
+      final List<SpectralLibraryEntry> candidates = getCandidateEntries(entries, scanPrecursorMZ,
+          null, rt, precursorCCS);
+      for (var entry : candidates) {
         final SpectralSimilarity sim = matchSpectrum(rt, scanPrecursorMZ,
             precursorCCS, masses, entry);
         if (sim != null) {
@@ -395,9 +406,79 @@ public class RowsSpectralMatchTask extends AbstractTask {
   }
 
   /**
-   * Match row against all entries, add matches, sort them by score
+   * @return true if the precursor m/z filter is active and candidate entries are selected by the
+   * {@link SpectralLibrary#getPrecursorIndex()}
+   */
+  private boolean usePrecursorIndex() {
+    return mzTolerancePrecursor != null && !msLevelFilter.isMs1Only();
+  }
+
+  /**
+   * Select all library entries that may match the precursor m/z, polarity, RT and CCS. The exact
+   * tolerance checks are still applied in {@link #matchSpectrum}, the candidates are a superset.
    *
-   * @param entries combined library entries
+   * @param entries     combined library entries, used if no precursor filter is applied
+   * @param precursorMz precursor m/z of the query
+   * @param polarity    polarity of all query scans or null if mixed or unknown
+   * @param rt          retention time of the query
+   * @param ccs         ccs of the query
+   * @return all candidates in the same order as the combined entries
+   */
+  private List<SpectralLibraryEntry> getCandidateEntries(List<SpectralLibraryEntry> entries,
+      double precursorMz, @Nullable PolarityType polarity, @Nullable Float rt,
+      @Nullable Float ccs) {
+    if (!usePrecursorIndex()) {
+      return entries;
+    }
+    if (ccsTolerance != null && ccs == null) {
+      // ccs filter cannot match
+      return List.of();
+    }
+
+    // the tolerance is applied to the library precursor m/z - double the window to cover all
+    final double mzTol = mzTolerancePrecursor.getMzToleranceForMass(precursorMz) * 2d;
+    // small margin to compensate float rounding - exact checks are performed later
+    final Range<Float> rtRange =
+        useRT && rt != null && rtTolerance.isAbsolute() ? RangeUtils.rangeAround(rt,
+            rtTolerance.getToleranceInMinutes() * 2f + 0.001f) : null;
+    final Range<Float> ccsRange = ccsTolerance == null ? null
+        : RangeUtils.rangeAround(ccs, (float) (ccs * ccsTolerance.getTolerance() * 2.02d));
+
+    List<SpectralLibraryEntry> candidates = new ArrayList<>();
+    for (var lib : libraries) {
+      final List<SpectralLibraryEntry> libEntries = lib.getEntries();
+      final int[] indices = lib.getPrecursorIndex()
+          .findCandidates(precursorMz - mzTol, precursorMz + mzTol, polarity, rtRange, ccsRange);
+      for (int index : indices) {
+        candidates.add(libEntries.get(index));
+      }
+    }
+    return candidates;
+  }
+
+  /**
+   * @return the polarity of all scans or null if polarities are mixed or unknown
+   */
+  @Nullable
+  private static PolarityType getCommonPolarity(List<Scan> scans) {
+    PolarityType polarity = null;
+    for (Scan scan : scans) {
+      final PolarityType scanPolarity = scan.getPolarity();
+      if (scanPolarity == null || scanPolarity == PolarityType.UNKNOWN || (polarity != null
+                                                                          && polarity
+                                                                             != scanPolarity)) {
+        return null;
+      }
+      polarity = scanPolarity;
+    }
+    return polarity;
+  }
+
+  /**
+   * Match row against all entries, add matches, sort them by score. Uses the precursor index of
+   * each library to only check entries within the precursor tolerance.
+   *
+   * @param entries combined library entries, all are checked if no precursor filter is applied
    * @param row     target row
    */
   public int matchRowToLibraries(List<SpectralLibraryEntry> entries, FeatureListRow row) {
@@ -419,8 +500,10 @@ public class RowsSpectralMatchTask extends AbstractTask {
 
       final Float rowCCS = row.getAverageCCS();
       List<SpectralDBAnnotation> ids = null;
-      // match against all library entries
-      for (SpectralLibraryEntry ident : entries) {
+      // only entries within precursor tolerance or all if no precursor filter is active
+      final List<SpectralLibraryEntry> candidates = getCandidateEntries(entries,
+          row.getAverageMZ(), getCommonPolarity(scans), row.getAverageRT(), rowCCS);
+      for (SpectralLibraryEntry ident : candidates) {
 
         final String entryPolarity = ident.getOrElse(DBEntryField.POLARITY, null);
 
@@ -27,10 +27,11 @@ package io.github.mzmine.modules.io.export_features_metaboanalyst;
 
 import io.github.mzmine.datamodel.AbundanceMeasure;
 import io.github.mzmine.datamodel.RawDataFile;
-import io.github.mzmine.datamodel.features.Feature;
+import io.github.mzmine.datamodel.features.AbundanceMatrix;
 import io.github.mzmine.datamodel.features.FeatureList;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.modules.dataanalysis.utils.StatisticUtils;
 import io.github.mzmine.modules.visualization.projectmetadata.table.MetadataTable;
 import io.github.mzmine.modules.visualization.projectmetadata.table.columns.MetadataColumn;
 import io.github.mzmine.parameters.ParameterSet;
@@ -45,6 +46,7 @@ import java.io.IOException;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.logging.Level;
@@ -204,7 +206,12 @@ class MetaboAnalystExportTask extends AbstractTask {
 
     writer.append("\n");
 
-    // Write data rows
+    // Write data rows from the shared abundance matrix
+    final List<RawDataFile> files = List.of(rawDataFiles);
+    final AbundanceMatrix matrix = StatisticUtils.getAbundanceMatrix(featureList.getRows(),
+        FEATURE_INTENSITY);
+    final int[] fileIndices = matrix != null ? matrix.indicesOf(files) : null;
+    final double[] abundances = new double[rawDataFiles.length];
     for (FeatureListRow featureListRow : featureList.getRows()) {
       // Cancel?
       if (isCanceled()) {
@@ -215,19 +222,12 @@ class MetaboAnalystExportTask extends AbstractTask {
 
       writer.append(CSVUtils.escape(rowName, fieldSeparator));
 
-      for (RawDataFile dataFile : rawDataFiles) {
+      StatisticUtils.copyAbundances(matrix, featureListRow, files, fileIndices, FEATURE_INTENSITY,
+          abundances, 0);
+      for (double abundance : abundances) {
         writer.append(fieldSeparator);
-
-        Feature feature = featureListRow.getFeature(dataFile);
-        if (feature != null) {
-          if(FEATURE_INTENSITY==AbundanceMeasure.Area){
-            final double area = feature.getArea();
-            writer.append(String.valueOf(area));
-          }else{
-            final double height = feature.getHeight();
-            writer.append(String.valueOf(height));
-          }
-
+        if (!Double.isNaN(abundance)) {
+          writer.append(String.valueOf(abundance));
         }
       }
 
@@ -1,5 +1,6 @@
 package io.github.mzmine.modules.io.import_rawdata_all;
 
+import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.modules.visualization.projectmetadata.io.ProjectMetadataImportParameters;
 import io.github.mzmine.modules.visualization.projectmetadata.io.ProjectMetadataImportTask;
 import io.github.mzmine.parameters.ParameterSet;
@@ -15,12 +16,14 @@ import org.jetbrains.annotations.NotNull;
 
 public class AllSpectralDataImportMainTask extends AbstractTask {
 
+  private final MZmineProject project;
   private final ThreadPoolTask mainImportTask;
   private final File metadataFile;
 
-  public AllSpectralDataImportMainTask(final List<? extends Task> tasks,
-      final @NotNull ParameterSet parameters) {
+  public AllSpectralDataImportMainTask(final @NotNull MZmineProject project,
+      final List<? extends Task> tasks, final @NotNull ParameterSet parameters) {
     super(Instant.now(), "Main data import task");
+    this.project = project;
     mainImportTask = ThreadPoolTask.createDefaultTaskManagerPool("Importing data", tasks);
     metadataFile = parameters.getEmbeddedParameterValueIfSelectedOrElse(
         AllSpectralDataImportParameters.metadataFile, null);
@@ -62,7 +65,7 @@ public class AllSpectralDataImportMainTask extends AbstractTask {
 
   private Task loadMetadata() {
     var metaParams = ProjectMetadataImportParameters.create(metadataFile, false);
-    var metadataTask = new ProjectMetadataImportTask(metaParams, moduleCallDate);
+    var metadataTask = new ProjectMetadataImportTask(project, metaParams, moduleCallDate);
     metadataTask.run();
     return metadataTask;
   }
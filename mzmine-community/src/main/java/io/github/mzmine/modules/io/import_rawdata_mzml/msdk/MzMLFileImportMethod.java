@@ -28,8 +28,11 @@ package io.github.mzmine.modules.io.import_rawdata_mzml.msdk;
 import com.fasterxml.aalto.stax.InputFactoryImpl;
 import io.github.msdk.MSDKException;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.ScanImportProcessorConfig;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.BuildingMzMLMsScan;
 import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLParser;
 import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLRawDataFile;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLTags;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.util.MzMLSpectrumIndex;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.MemoryMapStorage;
@@ -42,8 +45,10 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 import java.util.zip.DataFormatException;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
@@ -54,24 +59,42 @@ import org.jetbrains.annotations.Nullable;
 /**
  * This class contains methods which parse data in MzML format from {@link java.io.File File},
  * {@link Path} or {@link InputStream InputStream} <br> scans will be parsed, and the values
- * pre-loaded. Scans can be filtered out.
+ * pre-loaded. Scans can be filtered out. Files are split into chunks of spectra that are parsed in
+ * parallel, see {@link MzMLSpectrumIndex}.
  */
 public class MzMLFileImportMethod extends AbstractTask {
 
   private static final Logger logger = Logger.getLogger(MzMLFileImportMethod.class.getName());
+  /**
+   * Files with more spectra are parsed in chunks of spectra in parallel
+   */
+  public static final int DEFAULT_SPECTRA_PER_CHUNK = 256;
   private final File mzMLFile;
   private final InputStream inputStream;
   private MzMLParser parser;
 
   private MzMLRawDataFile newRawFile;
   private final @NotNull ScanImportProcessorConfig scanProcessorConfig;
+  private final int spectraPerChunk;
 
   /**
    * Read file
    */
   public MzMLFileImportMethod(@NotNull Instant moduleCallDate, File mzMLFile,
       MemoryMapStorage storage, @NotNull ScanImportProcessorConfig scanProcessorConfig) {
-    this(moduleCallDate, mzMLFile, null, storage, scanProcessorConfig);
+    this(moduleCallDate, mzMLFile, storage, scanProcessorConfig, DEFAULT_SPECTRA_PER_CHUNK);
+  }
+
+  /**
+   * Read file
+   *
+   * @param spectraPerChunk files with more spectra are parsed in chunks of this size in parallel.
+   *                        0 to parse sequentially
+   */
+  public MzMLFileImportMethod(@NotNull Instant moduleCallDate, File mzMLFile,
+      MemoryMapStorage storage, @NotNull ScanImportProcessorConfig scanProcessorConfig,
+      int spectraPerChunk) {
+    this(moduleCallDate, mzMLFile, null, storage, scanProcessorConfig, spectraPerChunk);
   }
 
 
@@ -82,7 +105,7 @@ public class MzMLFileImportMethod extends AbstractTask {
    */
   public MzMLFileImportMethod(@NotNull Instant moduleCallDate, InputStream inputStream,
       MemoryMapStorage storage, @NotNull ScanImportProcessorConfig scanProcessorConfig) {
-    this(moduleCallDate, null, inputStream, storage, scanProcessorConfig);
+    this(moduleCallDate, null, inputStream, storage, scanProcessorConfig, 0);
   }
 
 
@@ -91,11 +114,12 @@ public class MzMLFileImportMethod extends AbstractTask {
    */
   private MzMLFileImportMethod(@NotNull Instant moduleCallDate, File mzMLFile,
       InputStream inputStream, @Nullable MemoryMapStorage storage,
-      @NotNull ScanImportProcessorConfig scanProcessorConfig) {
+      @NotNull ScanImportProcessorConfig scanProcessorConfig, int spectraPerChunk) {
     super(storage, moduleCallDate);
     this.mzMLFile = mzMLFile;
     this.inputStream = inputStream;
     this.scanProcessorConfig = scanProcessorConfig;
+    this.spectraPerChunk = spectraPerChunk;
   }
 
   @Override
@@ -142,6 +166,10 @@ public class MzMLFileImportMethod extends AbstractTask {
         }
       } else if (mzMLFile != null) {
         logger.finest("Began parsing file: " + mzMLFile.getAbsolutePath());
+        final long[] spectrumOffsets = spectraPerChunk > 0 ? findSpectrumOffsets() : new long[0];
+        if (spectraPerChunk > 0 && spectrumOffsets.length > spectraPerChunk) {
+          return parseMzMlChunks(factory, spectrumOffsets);
+        }
         // buffered reader had no performance gains. most likely because the XMLStreamReader already buffers
 //        try (BufferedReader br = Files.newBufferedReader(mzMLFile.toPath(),
         try (var fis = Files.newInputStream(mzMLFile.toPath()); Reader br = new InputStreamReader(
@@ -157,7 +185,98 @@ public class MzMLFileImportMethod extends AbstractTask {
     }
   }
 
+  /**
+   * @return the offsets of all spectra or an empty array to parse the file sequentially
+   */
+  private long[] findSpectrumOffsets() {
+    try {
+      return MzMLSpectrumIndex.findSpectrumOffsets(mzMLFile.toPath());
+    } catch (IOException e) {
+      logger.log(Level.WARNING,
+          "Cannot index spectra of " + mzMLFile.getName() + ", parsing sequentially", e);
+      return new long[0];
+    }
+  }
+
+  /**
+   * Parses the header until the first spectrum and then chunks of spectra in parallel. Chunks are
+   * merged in file order, so the scan order is the same as for sequential parsing.
+   *
+   * @param spectrumOffsets the byte offsets of all spectra in the file
+   */
+  private MzMLRawDataFile parseMzMlChunks(InputFactoryImpl factory, long[] spectrumOffsets)
+      throws IOException, XMLStreamException, MSDKException {
+    try (var fis = Files.newInputStream(mzMLFile.toPath()); Reader br = new InputStreamReader(
+        fis, StandardCharsets.UTF_8)) {
+      parseMzMlInternal(factory.createXMLStreamReader(br), true);
+    }
+    if (isCanceled()) {
+      return null;
+    }
+
+    final int numChunks = (spectrumOffsets.length + spectraPerChunk - 1) / spectraPerChunk;
+    logger.finest(() -> "Parsing %d spectra of %s in %d chunks".formatted(spectrumOffsets.length,
+        mzMLFile.getName(), numChunks));
+
+    final List<List<BuildingMzMLMsScan>> chunks = IntStream.range(0, numChunks).parallel()
+        .mapToObj(chunk -> parseChunk(spectrumOffsets, chunk)).toList();
+    if (isCanceled()) {
+      return null;
+    }
+    for (final List<BuildingMzMLMsScan> spectra : chunks) {
+      parser.addSpectra(spectra);
+    }
+    logger.finest("Parsing Complete");
+    return newRawFile;
+  }
+
+  private List<BuildingMzMLMsScan> parseChunk(long[] spectrumOffsets, int chunk) {
+    if (isCanceled()) {
+      return List.of();
+    }
+    final int first = chunk * spectraPerChunk;
+    final int next = first + spectraPerChunk;
+    final long end = next < spectrumOffsets.length ? spectrumOffsets[next] : -1;
+
+    final MzMLParser chunkParser = parser.createChunkParser();
+    final InputFactoryImpl factory = new InputFactoryImpl();
+    factory.configureForSpeed();
+    try (var in = MzMLSpectrumIndex.openChunk(mzMLFile.toPath(), spectrumOffsets[first], end);
+        Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+      final XMLStreamReader xmlStreamReader = factory.createXMLStreamReader(reader);
+      // skip the spectrumList root element that wraps the chunk
+      xmlStreamReader.nextTag();
+
+      while (xmlStreamReader.hasNext() && !isCanceled()) {
+        switch (xmlStreamReader.next()) {
+          case XMLStreamConstants.START_ELEMENT -> chunkParser.processOpeningTag(xmlStreamReader,
+              xmlStreamReader.getLocalName());
+          case XMLStreamConstants.END_ELEMENT -> {
+            final String closingTagName = xmlStreamReader.getLocalName();
+            if (closingTagName.equals(MzMLTags.TAG_SPECTRUM_LIST)) {
+              return chunkParser.getSpectra();
+            }
+            chunkParser.processClosingTag(xmlStreamReader, closingTagName);
+          }
+        }
+      }
+    } catch (IOException | XMLStreamException | DataFormatException e) {
+      throw new RuntimeException(
+          "Error while parsing spectra at byte " + spectrumOffsets[first] + " of " + mzMLFile, e);
+    }
+    return chunkParser.getSpectra();
+  }
+
   private MzMLRawDataFile parseMzMlInternal(XMLStreamReader xmlStreamReader) throws MSDKException {
+    return parseMzMlInternal(xmlStreamReader, false);
+  }
+
+  /**
+   * @param onlyHeader stop at the first spectrum, used to parse the header before parsing chunks
+   *                   of spectra
+   */
+  private MzMLRawDataFile parseMzMlInternal(XMLStreamReader xmlStreamReader, boolean onlyHeader)
+      throws MSDKException {
     try {
       this.parser = new MzMLParser(this, storage, scanProcessorConfig);
       this.newRawFile = parser.getMzMLRawFile();
@@ -175,6 +294,9 @@ public class MzMLFileImportMethod extends AbstractTask {
           switch (eventType) {
             case XMLStreamConstants.START_ELEMENT -> {
               final String openingTagName = xmlStreamReader.getLocalName();
+              if (onlyHeader && openingTagName.equals(MzMLTags.TAG_SPECTRUM)) {
+                return newRawFile;
+              }
               parser.processOpeningTag(xmlStreamReader, openingTagName);
             }
             case XMLStreamConstants.END_ELEMENT -> {
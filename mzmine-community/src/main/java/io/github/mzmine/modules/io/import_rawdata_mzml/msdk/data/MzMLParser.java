@@ -37,6 +37,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -62,7 +63,9 @@ public class MzMLParser {
   private final MemoryMapStorage storage;
   private final @NotNull ScanImportProcessorConfig scanProcessorConfig;
 
-  private int totalScans = 0, parsedScans = 0;
+  private int totalScans = 0;
+  // shared with the parsers of spectrum chunks
+  private final AtomicInteger parsedScans;
   private final MzMLRawDataFile newRawFile;
   private final Pattern scanNumberPattern = Pattern.compile("scan=([0-9]+)");
   private final Pattern agilentScanNumberPattern = Pattern.compile("scan[iI]d=([0-9]+)");
@@ -85,6 +88,49 @@ public class MzMLParser {
         vars.spectrumList, vars.chromatogramsList);
     this.storage = storage;
     this.scanProcessorConfig = scanProcessorConfig;
+    this.parsedScans = new AtomicInteger(0);
+  }
+
+  /**
+   * Parser for a chunk of spectrum elements that are wrapped in a spectrumList element. Uses the
+   * referenceable param groups of the header parser, which has parsed everything before the first
+   * spectrum.
+   *
+   * @param header the parser of the file header
+   */
+  private MzMLParser(MzMLParser header) {
+    this.vars = new Vars();
+    vars.referenceableParamGroupList = header.vars.referenceableParamGroupList;
+    this.tracker = new TagTracker();
+    this.importer = header.importer;
+    this.newRawFile = header.newRawFile;
+    this.storage = header.storage;
+    this.scanProcessorConfig = header.scanProcessorConfig;
+    this.parsedScans = header.parsedScans;
+  }
+
+  /**
+   * @return a parser for a chunk of spectra that starts inside the spectrum list. The spectrumList
+   * element itself is not passed to this parser
+   */
+  public MzMLParser createChunkParser() {
+    final MzMLParser chunkParser = new MzMLParser(this);
+    chunkParser.tracker.enter(MzMLTags.TAG_SPECTRUM_LIST);
+    return chunkParser;
+  }
+
+  /**
+   * @return the spectra parsed by this parser in file order
+   */
+  public List<BuildingMzMLMsScan> getSpectra() {
+    return vars.spectrumList;
+  }
+
+  /**
+   * Adds the spectra of a chunk parser, chunks need to be added in file order
+   */
+  public void addSpectra(List<BuildingMzMLMsScan> spectra) {
+    vars.spectrumList.addAll(spectra);
   }
 
   /**
@@ -453,7 +499,7 @@ public class MzMLParser {
     tracker.exit(closingTagName);
 
     if (closingTagName.equals(MzMLTags.TAG_SPECTRUM)) {
-      this.parsedScans++;
+      parsedScans.incrementAndGet();
     }
 
     if (closingTagName.equals(MzMLTags.TAG_REF_PARAM_GROUP)) {
@@ -745,17 +791,18 @@ public class MzMLParser {
   }
 
   public int getParsedScans() {
-    return parsedScans;
+    return parsedScans.get();
   }
 
   public Float getFinishedPercentage() {
     if (totalScans == 0) {
       return 0.0f;
     }
-    if (parsedScans > totalScans) {
+    final int parsed = parsedScans.get();
+    if (parsed > totalScans) {
       return 1.0f;
     }
-    return ((float) parsedScans) / totalScans;
+    return ((float) parsed) / totalScans;
   }
 
 }
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.import_rawdata_mzml.msdk.util;
+
+import com.fasterxml.aalto.stax.InputFactoryImpl;
+import com.google.common.io.ByteStreams;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLTags;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Byte offsets of all spectrum elements in an mzML file. Uses the offset list of indexedmzML files
+ * and falls back to scanning the bytes for spectrum start tags if there is no valid index. The
+ * offsets are used to split the spectrum list into chunks that are parsed independently.
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+public final class MzMLSpectrumIndex {
+
+  private static final Logger logger = Logger.getLogger(MzMLSpectrumIndex.class.getName());
+
+  private static final byte[] SPECTRUM_START = ("<" + MzMLTags.TAG_SPECTRUM).getBytes(
+      StandardCharsets.US_ASCII);
+  private static final Pattern INDEX_LIST_OFFSET = Pattern.compile(
+      "<" + MzMLTags.TAG_INDEX_LIST_OFFSET + ">\\s*(\\d+)\\s*</");
+  private static final int TAIL_LENGTH = 4096;
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  private MzMLSpectrumIndex() {
+  }
+
+  /**
+   * @param file mzML file
+   * @return the sorted byte offsets of all spectrum elements. Empty if none were found
+   */
+  @NotNull
+  public static long[] findSpectrumOffsets(@NotNull Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      final long[] indexed = readIndexedOffsets(file, channel);
+      if (indexed != null) {
+        return indexed;
+      }
+      logger.finest(() -> "No valid spectrum offset index in " + file + ", scanning for spectra");
+      return scanSpectrumOffsets(channel);
+    }
+  }
+
+  /**
+   * Opens a chunk of spectrum elements wrapped in a spectrumList root element
+   *
+   * @param start offset of the first spectrum
+   * @param end   offset of the first spectrum after this chunk or -1 to read until the end of the
+   *              spectrum list
+   */
+  @NotNull
+  public static InputStream openChunk(@NotNull Path file, long start, long end)
+      throws IOException {
+    InputStream in = Files.newInputStream(file);
+    try {
+      in.skipNBytes(start);
+    } catch (IOException e) {
+      in.close();
+      throw e;
+    }
+    final InputStream root = stream("<" + MzMLTags.TAG_SPECTRUM_LIST + ">");
+    if (end < 0) {
+      // the closing tag of the original spectrum list ends the root element
+      return new SequenceInputStream(root, in);
+    }
+    return new SequenceInputStream(Collections.enumeration(
+        List.of(root, ByteStreams.limit(in, end - start),
+            stream("</" + MzMLTags.TAG_SPECTRUM_LIST + ">"))));
+  }
+
+  private static InputStream stream(String text) {
+    return new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  /**
+   * @return the spectrum offsets of the index list or null if there is no valid index
+   */
+  private static long[] readIndexedOffsets(Path file, FileChannel channel) throws IOException {
+    final long size = channel.size();
+    final ByteBuffer tail = ByteBuffer.allocate((int) Math.min(size, TAIL_LENGTH));
+    readFully(channel, tail, size - tail.capacity());
+    final Matcher matcher = INDEX_LIST_OFFSET.matcher(
+        new String(tail.array(), 0, tail.position(), StandardCharsets.US_ASCII));
+    if (!matcher.find()) {
+      return null;
+    }
+    final long indexListOffset = Long.parseLong(matcher.group(1));
+    if (indexListOffset <= 0 || indexListOffset >= size) {
+      return null;
+    }
+
+    final LongArrayList offsets = new LongArrayList();
+    try (InputStream in = Files.newInputStream(file)) {
+      in.skipNBytes(indexListOffset);
+      final InputFactoryImpl factory = new InputFactoryImpl();
+      factory.configureForSpeed();
+      final XMLStreamReader reader = factory.createXMLStreamReader(in);
+      boolean spectrumIndex = false;
+      while (reader.hasNext()) {
+        final int event = reader.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          final String tag = reader.getLocalName();
+          if (tag.equals(MzMLTags.TAG_INDEX)) {
+            spectrumIndex = MzMLTags.TAG_SPECTRUM.equals(reader.getAttributeValue(null, "name"));
+          } else if (spectrumIndex && tag.equals(MzMLTags.TAG_OFFSET)) {
+            offsets.add(Long.parseLong(reader.getElementText().trim()));
+          }
+        } else if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName()
+            .equals(MzMLTags.TAG_INDEX_LIST)) {
+          break;
+        }
+      }
+    } catch (XMLStreamException | NumberFormatException e) {
+      logger.log(Level.FINE, "Cannot read index list of " + file, e);
+      return null;
+    }
+
+    // some converters write wrong offsets, verify that all point to spectrum elements in order
+    long previous = -1;
+    for (long offset : offsets) {
+      if (offset <= previous || offset >= size || !isSpectrumStart(channel, offset)) {
+        logger.fine(() -> "Index list of %s points to offset %d that is no spectrum".formatted(file,
+            offset));
+        return null;
+      }
+      previous = offset;
+    }
+    return offsets.isEmpty() ? null : offsets.toLongArray();
+  }
+
+  private static boolean isSpectrumStart(FileChannel channel, long offset) throws IOException {
+    final ByteBuffer buffer = ByteBuffer.allocate(SPECTRUM_START.length + 1);
+    readFully(channel, buffer, offset);
+    return buffer.position() == buffer.capacity() && isSpectrumStart(buffer.array(), 0);
+  }
+
+  private static boolean isSpectrumStart(byte[] bytes, int i) {
+    for (int k = 0; k < SPECTRUM_START.length; k++) {
+      if (bytes[i + k] != SPECTRUM_START[k]) {
+        return false;
+      }
+    }
+    // excludes spectrumList
+    final byte next = bytes[i + SPECTRUM_START.length];
+    return next == ' ' || next == '\t' || next == '\n' || next == '\r';
+  }
+
+  /**
+   * Reads all bytes and finds spectrum start tags. Base64 data and attribute values cannot contain
+   * the tag, only comments could.
+   */
+  private static long[] scanSpectrumOffsets(FileChannel channel) throws IOException {
+    final LongArrayList offsets = new LongArrayList();
+    final byte[] bytes = new byte[BUFFER_SIZE];
+    final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    // file offset of bytes[0]
+    long position = 0;
+    int length = 0;
+    while (true) {
+      buffer.limit(bytes.length).position(length);
+      final int read = channel.read(buffer, position + length);
+      if (read <= 0) {
+        break;
+      }
+      length += read;
+      // a match needs the tag and one more byte
+      final int last = length - SPECTRUM_START.length;
+      for (int i = 0; i < last; i++) {
+        if (bytes[i] == '<' && isSpectrumStart(bytes, i)) {
+          offsets.add(position + i);
+        }
+      }
+      // keep the unchecked tail for matches across buffers
+      final int keep = Math.min(length, SPECTRUM_START.length);
+      System.arraycopy(bytes, length - keep, bytes, 0, keep);
+      position += length - keep;
+      length = keep;
+    }
+    return offsets.toLongArray();
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      final int read = channel.read(buffer, position + buffer.position());
+      if (read <= 0) {
+        return;
+      }
+    }
+  }
+}
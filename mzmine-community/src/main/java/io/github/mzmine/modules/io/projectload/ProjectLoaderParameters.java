@@ -27,6 +27,7 @@ package io.github.mzmine.modules.io.projectload;
 
 import io.github.mzmine.parameters.Parameter;
 import io.github.mzmine.parameters.impl.SimpleParameterSet;
+import io.github.mzmine.parameters.parametertypes.BooleanParameter;
 import io.github.mzmine.parameters.parametertypes.filenames.FileNameParameter;
 import io.github.mzmine.parameters.parametertypes.filenames.FileSelectionType;
 import io.github.mzmine.util.ExitCode;
@@ -45,8 +46,14 @@ public class ProjectLoaderParameters extends SimpleParameterSet {
   public static final FileNameParameter projectFile = new FileNameParameter("Project file",
       "File name of project to be loaded", extensions, FileSelectionType.OPEN);
 
+  public static final BooleanParameter mapFeatureData = new BooleanParameter(
+      "Map feature data series",
+      "Maps the m/z and intensity series of features read only from the extracted project instead "
+      + "of reading them into memory. Opens large projects faster, the series are read from disk "
+      + "on first access. All other feature values are still loaded.", false);
+
   public ProjectLoaderParameters() {
-    super(new Parameter[]{projectFile});
+    super(new Parameter[]{projectFile, mapFeatureData});
   }
 
   @Override
@@ -66,6 +66,7 @@ public class ProjectOpeningTask extends AbstractTask {
   private Logger logger = Logger.getLogger(this.getClass().getName());
 
   private File openFile;
+  private final boolean mapFeatureData;
   private MZmineProjectImpl newProject;
 
   private RawDataFileOpenHandler rawDataFileOpenHandler;
@@ -84,11 +85,13 @@ public class ProjectOpeningTask extends AbstractTask {
   public ProjectOpeningTask(ParameterSet parameters, @NotNull Instant moduleCallDate) {
     super(null, moduleCallDate);
     this.openFile = parameters.getParameter(ProjectLoaderParameters.projectFile).getValue();
+    this.mapFeatureData = parameters.getValue(ProjectLoaderParameters.mapFeatureData);
   }
 
   public ProjectOpeningTask(File openFile, @NotNull Instant moduleCallDate) {
     super(null, moduleCallDate);
     this.openFile = openFile;
+    this.mapFeatureData = false;
   }
 
   /**
@@ -356,7 +359,7 @@ public class ProjectOpeningTask extends AbstractTask {
   private void loadFeatureList(ZipFile zipFile) {
 
     FeatureListLoadTask task = new FeatureListLoadTask(MemoryMapStorage.forFeatureList(),
-        newProject, zipFile);
+        newProject, zipFile, mapFeatureData);
     MZmineCore.getTaskController().addTask(task);
     currentLoadedObjectName = "Feature lists";
     while (task.getStatus() != TaskStatus.FINISHED && !task.isCanceled() && !isCanceled()) {
@@ -0,0 +1,408 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.projectload.version_3_0;
+
+import static io.github.mzmine.modules.io.projectsave.FeatureListBlockWriter.ENCODING_DOUBLE;
+import static io.github.mzmine.modules.io.projectsave.FeatureListBlockWriter.ENCODING_FLOAT;
+import static io.github.mzmine.modules.io.projectsave.FeatureListBlockWriter.ENCODING_INTEGER;
+import static io.github.mzmine.modules.io.projectsave.FeatureListBlockWriter.ENCODING_SERIES;
+import static io.github.mzmine.modules.io.projectsave.FeatureListBlockWriter.ENCODING_XML;
+
+import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.featuredata.impl.SimpleIonTimeSeries;
+import io.github.mzmine.datamodel.features.ModularDataModel;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.features.types.DataType;
+import io.github.mzmine.datamodel.features.types.DataTypes;
+import io.github.mzmine.modules.io.projectload.CachedIMSFrame;
+import io.github.mzmine.modules.io.projectload.CachedIMSRawDataFile;
+import io.github.mzmine.modules.io.projectsave.FeatureListBlockWriter;
+import io.github.mzmine.util.ParsingUtils;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.events.XMLEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Reads feature lists written by {@link FeatureListBlockWriter}. Blocks are decoded independently
+ * (in parallel) by {@link #decodeBlock(File)}, primitive columns and feature data are created
+ * during decoding. The decoded blocks are then applied to the rows in order by
+ * {@link #applyBlock(DecodedBlock)}, which also parses the xml columns.
+ * <p>
+ * Mapped series buffers are an opt-in load mode: the block files are mapped read only and the
+ * feature data series use the mapped m/z and intensity values in place. The series values are not
+ * copied and only paged in on first access. All features, primitive values and xml columns are
+ * still created when a block is decoded and applied.
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+public class FeatureListBlockReader {
+
+  private static final Logger logger = Logger.getLogger(FeatureListBlockReader.class.getName());
+
+  private final MZmineProject project;
+  private final ModularFeatureList flist;
+  private final List<RawDataFile> files = new ArrayList<>();
+  /**
+   * Map the block files instead of reading them. The feature data series then directly use the
+   * read only mapped files and are only paged into memory on access.
+   */
+  private final boolean mapSeriesBuffers;
+  private int numBlocks;
+
+  /**
+   * Reads all values into memory
+   */
+  public FeatureListBlockReader(@NotNull MZmineProject project, @NotNull ModularFeatureList flist) {
+    this(project, flist, false);
+  }
+
+  /**
+   * @param mapSeriesBuffers map the block files and use the mapped series buffers in place. The
+   *                         block files must not be changed or deleted while the feature list is
+   *                         used.
+   */
+  public FeatureListBlockReader(@NotNull MZmineProject project, @NotNull ModularFeatureList flist,
+      boolean mapSeriesBuffers) {
+    this.project = project;
+    this.flist = flist;
+    this.mapSeriesBuffers = mapSeriesBuffers;
+  }
+
+  private static BitSet readBitSet(ByteBuffer buffer) {
+    final long[] words = new long[buffer.getInt()];
+    for (int i = 0; i < words.length; i++) {
+      words[i] = buffer.getLong();
+    }
+    return BitSet.valueOf(words);
+  }
+
+  /**
+   * Reads a string written by {@link java.io.DataOutput#writeUTF(String)}
+   */
+  private static String readUTF(ByteBuffer buffer) throws IOException {
+    final byte[] bytes = new byte[Short.BYTES + Short.toUnsignedInt(
+        buffer.getShort(buffer.position()))];
+    buffer.get(bytes);
+    return new DataInputStream(new ByteArrayInputStream(bytes)).readUTF();
+  }
+
+  private static <T> void setValue(ModularDataModel model, DataType<T> type, Object value) {
+    try {
+      model.set(type, (T) value);
+    } catch (RuntimeException e) {
+      logger.log(Level.WARNING, () -> String.format(
+          "DataType %s and value %s were not set. Maybe incompatible during loading?", type,
+          value));
+    }
+  }
+
+  /**
+   * Reads the header, creates all rows with their ids and maps the raw data files by name.
+   *
+   * @param headerFile the header file
+   * @return the number of blocks
+   */
+  public int readHeaderCreateRows(@NotNull File headerFile) throws IOException {
+    try (DataInputStream in = new DataInputStream(
+        new ByteArrayInputStream(Files.readAllBytes(headerFile.toPath())))) {
+      if (in.readInt() != FeatureListBlockWriter.MAGIC) {
+        throw new IOException("Not a feature list data file " + headerFile.getAbsolutePath());
+      }
+      final int version = in.readInt();
+      if (version > FeatureListBlockWriter.VERSION) {
+        throw new IOException(
+            "Feature list data file version " + version + " is not supported. Update MZmine.");
+      }
+      final String name = in.readUTF();
+      final String date = in.readUTF();
+      if (!flist.getName().equals(name) || !flist.getDateCreated().equals(date)) {
+        throw new IllegalArgumentException(
+            "Feature list names do not match. " + flist.getName() + " != " + name);
+      }
+
+      final int numRows = in.readInt();
+      in.readInt(); // rows per block
+      numBlocks = in.readInt();
+      for (int i = 0; i < numRows; i++) {
+        flist.addRow(new ModularFeatureListRow(flist, in.readInt()));
+      }
+
+      final List<RawDataFile> projectFiles = project.getCurrentRawDataFiles();
+      final int numFiles = in.readInt();
+      for (int i = 0; i < numFiles; i++) {
+        final String fileName = in.readUTF();
+        files.add(projectFiles.stream().filter(f -> f.getName().equals(fileName)).findFirst()
+            .orElse(null));
+      }
+    }
+    return numBlocks;
+  }
+
+  /**
+   * Decodes a block. Thread safe, blocks may be decoded in parallel.
+   *
+   * @param blockFile the block file
+   * @return the decoded block to be applied in order
+   */
+  public DecodedBlock decodeBlock(@NotNull File blockFile) throws IOException {
+    final ByteBuffer buffer;
+    if (mapSeriesBuffers) {
+      // the mapping stays valid after closing the channel
+      try (FileChannel channel = FileChannel.open(blockFile.toPath(), StandardOpenOption.READ)) {
+        buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+      }
+    } else {
+      buffer = ByteBuffer.wrap(Files.readAllBytes(blockFile.toPath()));
+    }
+
+    final int firstRow = buffer.getInt();
+    final int numRows = buffer.getInt();
+    final List<DecodedColumn> rowColumns = readColumns(buffer, numRows, null);
+
+    final int numFeatures = buffer.getInt();
+    final int[] featureRows = new int[numFeatures];
+    final RawDataFile[] featureFiles = new RawDataFile[numFeatures];
+    for (int i = 0; i < numFeatures; i++) {
+      featureRows[i] = buffer.getInt();
+      featureFiles[i] = files.get(buffer.getInt());
+    }
+    final List<DecodedColumn> featureColumns = readColumns(buffer, numFeatures, featureFiles);
+    return new DecodedBlock(firstRow, numRows, rowColumns, featureRows, featureFiles,
+        featureColumns);
+  }
+
+  /**
+   * Sets the values of a decoded block to its rows and adds the features. Blocks need to be
+   * applied in order.
+   */
+  public void applyBlock(@NotNull DecodedBlock block) {
+    final ModularFeatureListRow[] rows = new ModularFeatureListRow[block.numRows()];
+    for (int i = 0; i < rows.length; i++) {
+      rows[i] = (ModularFeatureListRow) flist.getRow(block.firstRow() + i);
+    }
+    for (DecodedColumn column : block.rowColumns()) {
+      applyColumn(column, rows, rows, null);
+    }
+
+    final int numFeatures = block.featureRows().length;
+    final ModularFeature[] features = new ModularFeature[numFeatures];
+    final ModularFeatureListRow[] featureRows = new ModularFeatureListRow[numFeatures];
+    for (int i = 0; i < numFeatures; i++) {
+      featureRows[i] = rows[block.featureRows()[i]];
+      final RawDataFile file = block.featureFiles()[i];
+      if (file == null) {
+        final int id = featureRows[i].getID();
+        logger.warning(() -> "Cannot load feature for row id " + id
+                             + ". File does not exist in project.");
+        continue;
+      }
+      // create feature with original file, but use buffered file for data type loading.
+      final RawDataFile originalFile =
+          file instanceof CachedIMSRawDataFile c ? c.getOriginalFile() : file;
+      features[i] = new ModularFeature(flist, originalFile, null, null);
+    }
+    for (DecodedColumn column : block.featureColumns()) {
+      applyColumn(column, features, featureRows, block.featureFiles());
+    }
+
+    for (int i = 0; i < numFeatures; i++) {
+      if (features[i] != null) {
+        featureRows[i].addFeature(features[i].getRawDataFile(), features[i]);
+      }
+    }
+  }
+
+  private List<DecodedColumn> readColumns(ByteBuffer buffer, int numModels,
+      @Nullable RawDataFile[] featureFiles) throws IOException {
+    final int numColumns = buffer.getInt();
+    final List<DecodedColumn> columns = new ArrayList<>(numColumns);
+    for (int c = 0; c < numColumns; c++) {
+      final String typeId = readUTF(buffer);
+      final byte encoding = buffer.get();
+      final int length = buffer.getInt();
+      final ByteBuffer data = buffer.slice(buffer.position(), length);
+      buffer.position(buffer.position() + length);
+
+      final DataType<?> type = DataTypes.getTypeForId(typeId);
+      if (type == null) {
+        logger.info(() -> "No data type for id " + typeId);
+        continue;
+      }
+      columns.add(switch (encoding) {
+        case ENCODING_XML -> {
+          final byte[] xml = new byte[length];
+          data.get(xml);
+          yield new DecodedColumn(type, xml, null);
+        }
+        case ENCODING_SERIES -> new DecodedColumn(type, null, readSeries(data, featureFiles));
+        default -> new DecodedColumn(type, null, readPrimitives(data, numModels, encoding));
+      });
+    }
+    return columns;
+  }
+
+  private Object[] readPrimitives(ByteBuffer data, int numModels, byte encoding)
+      throws IOException {
+    final Object[] values = new Object[numModels];
+    final BitSet present = readBitSet(data);
+    for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+      switch (encoding) {
+        case ENCODING_INTEGER -> values[i] = data.getInt();
+        case ENCODING_FLOAT -> values[i] = data.getFloat();
+        case ENCODING_DOUBLE -> values[i] = data.getDouble();
+        default -> throw new IOException("Unknown column encoding " + encoding);
+      }
+    }
+    return values;
+  }
+
+  private Object[] readSeries(ByteBuffer data, RawDataFile[] featureFiles) throws IOException {
+    if (featureFiles == null) {
+      throw new IOException("Feature data is only supported for features");
+    }
+    final Object[] values = new Object[featureFiles.length];
+    final BitSet present = readBitSet(data);
+    for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+      final int numValues = data.getInt();
+      final int[] indices = new int[numValues];
+      for (int j = 0; j < numValues; j++) {
+        indices[j] = data.getInt();
+      }
+      final DoubleBuffer mzs = readDoubles(data, numValues);
+      final DoubleBuffer intensities = readDoubles(data, numValues);
+
+      final RawDataFile file = featureFiles[i];
+      if (file == null) {
+        continue;
+      }
+      List<Scan> scans = ParsingUtils.getSublistFromIndices(file.getScans(), indices);
+      // if the scans were CachedFrames, we have to replace them when storing them to the series,
+      // otherwise, we would keep the refences to cached mobility scans alive.
+      if (!scans.isEmpty() && scans.get(0) instanceof CachedIMSFrame) {
+        scans = scans.stream().map(scan -> ((CachedIMSFrame) scan).getOriginalFrame())
+            .map(f -> (Scan) f).toList();
+      }
+      values[i] = new SimpleIonTimeSeries(mzs, intensities, scans);
+    }
+    return values;
+  }
+
+  /**
+   * @return a read only view on the mapped values or the values copied to memory
+   */
+  private DoubleBuffer readDoubles(ByteBuffer data, int length) {
+    final ByteBuffer bytes = data.slice(data.position(), length * Double.BYTES);
+    data.position(data.position() + length * Double.BYTES);
+    if (mapSeriesBuffers) {
+      return bytes.asDoubleBuffer();
+    }
+    final double[] values = new double[length];
+    bytes.asDoubleBuffer().get(values);
+    return DoubleBuffer.wrap(values);
+  }
+
+  private void applyColumn(DecodedColumn column, ModularDataModel[] models,
+      ModularFeatureListRow[] rows, @Nullable RawDataFile[] featureFiles) {
+    final DataType<?> type = column.type();
+    if (column.values() != null) {
+      final Object[] values = column.values();
+      for (int i = 0; i < values.length; i++) {
+        if (values[i] != null && models[i] != null) {
+          setValue(models[i], type, values[i]);
+        }
+      }
+      return;
+    }
+
+    try {
+      final XMLStreamReader reader = XMLInputFactory.newInstance()
+          .createXMLStreamReader(new ByteArrayInputStream(column.xml()));
+      while (reader.hasNext()) {
+        if (reader.next() != XMLEvent.START_ELEMENT || !reader.getLocalName()
+            .equals(CONST.XML_DATA_TYPE_ELEMENT)) {
+          continue;
+        }
+        final String index = reader.getAttributeValue(null, FeatureListBlockWriter.XML_INDEX_ATTR);
+        if (index == null) {
+          continue;
+        }
+        final int i = Integer.parseInt(index);
+        if (models[i] == null) {
+          continue;
+        }
+        final ModularFeature feature = models[i] instanceof ModularFeature f ? f : null;
+        final Object value = FeatureListLoadTask.parseDataType(reader, type, project, flist,
+            rows[i], feature, featureFiles != null ? featureFiles[i] : null);
+        if (value != null) {
+          setValue(models[i], type, value);
+        }
+      }
+    } catch (XMLStreamException e) {
+      logger.log(Level.WARNING, "Error while parsing column of data type " + type.getUniqueID(),
+          e);
+    }
+  }
+
+  /**
+   * A column with either the decoded values or the xml that is parsed when the block is applied.
+   */
+  public record DecodedColumn(@NotNull DataType<?> type, @Nullable byte[] xml,
+                              @Nullable Object[] values) {
+
+  }
+
+  /**
+   * @param featureRows  the row index in this block of each feature
+   * @param featureFiles the file of each feature, null if the file is not in the project
+   */
+  public record DecodedBlock(int firstRow, int numRows, List<DecodedColumn> rowColumns,
+                             int[] featureRows, RawDataFile[] featureFiles,
+                             List<DecodedColumn> featureColumns) {
+
+  }
+}
@@ -38,6 +38,7 @@ import io.github.mzmine.datamodel.features.types.DataTypes;
 import io.github.mzmine.datamodel.features.types.numbers.IDType;
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.modules.io.projectload.CachedIMSRawDataFile;
+import io.github.mzmine.modules.io.projectload.version_3_0.FeatureListBlockReader.DecodedBlock;
 import io.github.mzmine.modules.io.projectsave.FeatureListSaveTask;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
@@ -49,6 +50,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -59,6 +61,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
+import java.util.stream.IntStream;
 import java.util.zip.ZipFile;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -82,8 +85,9 @@ import org.xml.sax.SAXException;
 public class FeatureListLoadTask extends AbstractTask {
 
   public static final String TEMP_FLIST_DATA_FOLDER = "mzmine_featurelists_temp";
-  public static final Pattern fileNamePattern = Pattern
-      .compile("([^\\n]+)(" + FeatureListSaveTask.DATA_FILE_SUFFIX + ")");
+  public static final Pattern fileNamePattern = Pattern.compile(
+      "([^\\n]+)(" + FeatureListSaveTask.DATA_FILE_SUFFIX + "|"
+      + FeatureListSaveTask.BINARY_DATA_FILE_SUFFIX + ")");
 
   private static final Logger logger = Logger.getLogger(FeatureListLoadTask.class.getName());
   final String idTypeUniqueID = new IDType().getUniqueID();
@@ -95,12 +99,24 @@ public class FeatureListLoadTask extends AbstractTask {
   private String currentFlist = "";
   private int numFlists = 1;
   private int processedFlists;
+  // map the feature data series of binary feature lists in place
+  private final boolean mapSeriesBuffers;
 
   public FeatureListLoadTask(@Nullable MemoryMapStorage storage, @NotNull MZmineProject project,
       ZipFile zip) {
+    this(storage, project, zip, false);
+  }
+
+  /**
+   * @param mapSeriesBuffers map the feature data series of the extracted feature lists read only
+   *                         instead of reading them into memory
+   */
+  public FeatureListLoadTask(@Nullable MemoryMapStorage storage, @NotNull MZmineProject project,
+      ZipFile zip, boolean mapSeriesBuffers) {
     super(storage, Instant.now());
     this.project = project;
     this.zip = zip;
+    this.mapSeriesBuffers = mapSeriesBuffers;
   }
 
   /**
@@ -173,10 +189,26 @@ public class FeatureListLoadTask extends AbstractTask {
         }
         rowCounter.set(0);
 
+        // projects saved before the binary format contain xml data files
+        final boolean binary = flistFile.getName()
+            .endsWith(FeatureListSaveTask.BINARY_DATA_FILE_SUFFIX);
+        final String dataSuffix = binary ? FeatureListSaveTask.BINARY_DATA_FILE_SUFFIX
+            : FeatureListSaveTask.DATA_FILE_SUFFIX;
         final File metadataFile = new File(flistFile.toString()
-            .replace(FeatureListSaveTask.DATA_FILE_SUFFIX,
-                FeatureListSaveTask.METADATA_FILE_SUFFIX));
-        ModularFeatureList flist = createRows(storage, flistFile, metadataFile);
+            .replace(dataSuffix, FeatureListSaveTask.METADATA_FILE_SUFFIX));
+
+        final ModularFeatureList flist;
+        if (binary) {
+          flist = readMetadataCreateFeatureList(metadataFile, storage);
+          if (flist != null) {
+            parseBinaryFeatureList(project, flist, flistFile, tempDirectory.toFile());
+          }
+        } else {
+          flist = createRows(storage, flistFile, metadataFile);
+          if (flist != null) {
+            parseFeatureList(storage, project, flist, flistFile);
+          }
+        }
 
         if (flist == null) {
           logger.severe(
@@ -184,7 +216,6 @@ public class FeatureListLoadTask extends AbstractTask {
                     + metadataFile.getAbsolutePath());
           continue;
         }
-        parseFeatureList(storage, project, flist, flistFile);
 
         // disable buffering after the import (replace references to CachedIMSRawDataFiles with IMSRawDataFiles
         flist.replaceCachedFilesAndScans();
@@ -244,6 +275,45 @@ public class FeatureListLoadTask extends AbstractTask {
     }
   }
 
+  /**
+   * Reads the feature list data of the binary format. The blocks are decoded in parallel and
+   * applied to the rows in order.
+   *
+   * @param headerFile    The header file with the row ids.
+   * @param tempDirectory The directory the feature lists were unzipped to.
+   */
+  private void parseBinaryFeatureList(MZmineProject project, ModularFeatureList flist,
+      File headerFile, File tempDirectory) throws IOException {
+    currentFlist = flist.getName();
+    processedRows = 0;
+
+    final FeatureListBlockReader blockReader = new FeatureListBlockReader(project, flist,
+        mapSeriesBuffers);
+    final int numBlocks = blockReader.readHeaderCreateRows(headerFile);
+    totalRows = Math.max(1, flist.getNumberOfRows());
+
+    final int parallelBlocks = Runtime.getRuntime().availableProcessors() * 2;
+    for (int first = 0; first < numBlocks; first += parallelBlocks) {
+      if (isCanceled()) {
+        return;
+      }
+      final List<DecodedBlock> blocks = IntStream.range(first,
+          Math.min(numBlocks, first + parallelBlocks)).parallel().mapToObj(block -> {
+        try {
+          return blockReader.decodeBlock(new File(tempDirectory,
+              FeatureListSaveTask.getBlockFileName(flist.getName(), block)));
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }).toList();
+
+      for (DecodedBlock block : blocks) {
+        blockReader.applyBlock(block);
+        processedRows += block.numRows();
+      }
+    }
+  }
+
   /**
    * Creates the modular feature list from the metadata file using {@link
    * this#readMetadataCreateFeatureList(File, MemoryMapStorage)}.
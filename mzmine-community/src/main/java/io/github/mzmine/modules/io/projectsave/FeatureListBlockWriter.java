@@ -0,0 +1,413 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.projectsave;
+
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.featuredata.impl.SimpleIonTimeSeries;
+import io.github.mzmine.datamodel.features.ModularDataModel;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.features.types.DataType;
+import io.github.mzmine.datamodel.features.types.FeatureDataType;
+import io.github.mzmine.datamodel.features.types.FeaturesType;
+import io.github.mzmine.datamodel.features.types.numbers.abstr.DoubleType;
+import io.github.mzmine.datamodel.features.types.numbers.abstr.FloatType;
+import io.github.mzmine.datamodel.features.types.numbers.abstr.IntegerType;
+import io.github.mzmine.modules.io.projectload.version_3_0.CONST;
+import io.github.mzmine.util.ParsingUtils;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Writes the rows of a feature list in a columnar binary format. The rows are split into blocks of
+ * {@link #ROWS_PER_BLOCK} that are serialized independently, so they can be written in parallel
+ * and stored as separate zip entries. Number types and the feature data are stored as primitive
+ * columns, all other data types as one xml document per column created by
+ * {@link DataType#saveToXML}. The header lists all row ids and the raw data files referenced by
+ * the features.
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+public class FeatureListBlockWriter {
+
+  public static final int MAGIC = 0x4D5A464C;
+  public static final int VERSION = 1;
+  public static final int ROWS_PER_BLOCK = 512;
+
+  public static final byte ENCODING_XML = 0;
+  public static final byte ENCODING_INTEGER = 1;
+  public static final byte ENCODING_FLOAT = 2;
+  public static final byte ENCODING_DOUBLE = 3;
+  public static final byte ENCODING_SERIES = 4;
+
+  public static final String XML_COLUMN_ELEMENT = "column";
+  public static final String XML_INDEX_ATTR = "index";
+
+  private static final Logger logger = Logger.getLogger(FeatureListBlockWriter.class.getName());
+
+  private final ModularFeatureList flist;
+  private final List<ModularFeatureListRow> rows;
+  private final List<RawDataFile> files;
+  private final Object2IntMap<RawDataFile> fileIndices = new Object2IntOpenHashMap<>();
+  private final Map<DataType<?>, Byte> encodings = new ConcurrentHashMap<>();
+
+  public FeatureListBlockWriter(@NotNull ModularFeatureList flist) {
+    this.flist = flist;
+    rows = flist.getRows().stream().map(ModularFeatureListRow.class::cast).toList();
+
+    // all files of the feature list and files of features that may not be part of it
+    final Set<RawDataFile> allFiles = new LinkedHashSet<>(flist.getRawDataFiles());
+    for (ModularFeatureListRow row : rows) {
+      for (ModularFeature feature : row.getFeatures()) {
+        if (feature.getRawDataFile() != null) {
+          allFiles.add(feature.getRawDataFile());
+        }
+      }
+    }
+    files = List.copyOf(allFiles);
+    for (int i = 0; i < files.size(); i++) {
+      fileIndices.put(files.get(i), i);
+    }
+  }
+
+  /**
+   * @return The encoding used for the values of this data type if all values are of the value
+   * class. Only data types that do not change the xml methods of the number types are stored as
+   * primitives.
+   */
+  private static byte findEncoding(DataType<?> type) {
+    if (type.getClass().equals(FeatureDataType.class)) {
+      return ENCODING_SERIES;
+    }
+    try {
+      final Class<?> save = type.getClass()
+          .getMethod("saveToXML", XMLStreamWriter.class, Object.class, ModularFeatureList.class,
+              ModularFeatureListRow.class, ModularFeature.class, RawDataFile.class)
+          .getDeclaringClass();
+      final Class<?> load = type.getClass()
+          .getMethod("loadFromXML", XMLStreamReader.class, MZmineProject.class,
+              ModularFeatureList.class, ModularFeatureListRow.class, ModularFeature.class,
+              RawDataFile.class).getDeclaringClass();
+      if (!save.equals(load)) {
+        return ENCODING_XML;
+      }
+      if (save.equals(IntegerType.class)) {
+        return ENCODING_INTEGER;
+      } else if (save.equals(FloatType.class)) {
+        return ENCODING_FLOAT;
+      } else if (save.equals(DoubleType.class)) {
+        return ENCODING_DOUBLE;
+      }
+    } catch (NoSuchMethodException e) {
+      // use xml
+    }
+    return ENCODING_XML;
+  }
+
+  private static void writeBitSet(DataOutputStream out, BitSet present) throws IOException {
+    final long[] words = present.toLongArray();
+    out.writeInt(words.length);
+    for (long word : words) {
+      out.writeLong(word);
+    }
+  }
+
+  private static void writeDoubles(DataOutputStream out, DoubleBuffer values, int length)
+      throws IOException {
+    final ByteBuffer buffer = ByteBuffer.allocate(length * Double.BYTES);
+    buffer.asDoubleBuffer().put(0, values, 0, length);
+    out.write(buffer.array());
+  }
+
+  public int getNumBlocks() {
+    return (rows.size() + ROWS_PER_BLOCK - 1) / ROWS_PER_BLOCK;
+  }
+
+  public int getNumRows(int block) {
+    return Math.min(ROWS_PER_BLOCK, rows.size() - block * ROWS_PER_BLOCK);
+  }
+
+  /**
+   * @return The header with the feature list name and date, all row ids and the file names
+   */
+  public byte[] writeHeader() throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeUTF(flist.getName());
+    out.writeUTF(flist.getDateCreated());
+    out.writeInt(rows.size());
+    out.writeInt(ROWS_PER_BLOCK);
+    out.writeInt(getNumBlocks());
+    for (ModularFeatureListRow row : rows) {
+      out.writeInt(row.getID());
+    }
+    out.writeInt(files.size());
+    for (RawDataFile file : files) {
+      out.writeUTF(file.getName());
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Serializes all rows and features of a block. Thread safe, blocks may be written in parallel.
+   *
+   * @param block the block index
+   * @return the serialized block
+   */
+  public byte[] writeBlock(int block) throws IOException {
+    final int firstRow = block * ROWS_PER_BLOCK;
+    final List<ModularFeatureListRow> blockRows = rows.subList(firstRow,
+        firstRow + getNumRows(block));
+
+    final List<ModularFeature> features = new ArrayList<>();
+    final IntList featureRows = new IntArrayList();
+    for (int i = 0; i < blockRows.size(); i++) {
+      for (ModularFeature feature : blockRows.get(i).getFeatures()) {
+        if (feature.getRawDataFile() == null
+            || feature.getFeatureStatus() == FeatureStatus.UNKNOWN) {
+          continue;
+        }
+        features.add(feature);
+        featureRows.add(i);
+      }
+    }
+
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(firstRow);
+    out.writeInt(blockRows.size());
+    writeColumns(out, blockRows, blockRows);
+
+    out.writeInt(features.size());
+    for (int i = 0; i < features.size(); i++) {
+      out.writeInt(featureRows.getInt(i));
+      out.writeInt(fileIndices.getInt(features.get(i).getRawDataFile()));
+    }
+    writeColumns(out, features,
+        featureRows.intStream().mapToObj(blockRows::get).toList());
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Writes all data types of the models as columns: type id, encoding, length of the column data
+   * and the data. Columns of unknown types can be skipped by the length.
+   */
+  private void writeColumns(DataOutputStream out, List<? extends ModularDataModel> models,
+      List<ModularFeatureListRow> modelRows) throws IOException {
+    // columns in order of their first occurrence
+    final Map<DataType<?>, Object[]> columns = new LinkedHashMap<>();
+    for (int i = 0; i < models.size(); i++) {
+      final int model = i;
+      models.get(i).forEach((type, value) -> {
+        if (!(type instanceof FeaturesType) && value != null) {
+          columns.computeIfAbsent(type, k -> new Object[models.size()])[model] = value;
+        }
+      });
+    }
+
+    // the reader applies the columns in order. Write the feature data first, xml types may
+    // depend on it during loading (same as the feature data being the first element in the xml)
+    final List<DataType<?>> types = new ArrayList<>(columns.keySet());
+    final Map<DataType<?>, Byte> columnEncodings = new HashMap<>();
+    for (DataType<?> type : types) {
+      columnEncodings.put(type, getEncoding(type, columns.get(type)));
+    }
+    types.sort(Comparator.comparingInt(type -> switch (columnEncodings.get(type)) {
+      case ENCODING_SERIES -> 0;
+      case ENCODING_XML -> 2;
+      default -> 1;
+    }));
+
+    out.writeInt(types.size());
+    final ByteArrayOutputStream columnBytes = new ByteArrayOutputStream();
+    final DataOutputStream column = new DataOutputStream(columnBytes);
+    for (DataType<?> type : types) {
+      final Object[] values = columns.get(type);
+      final byte encoding = columnEncodings.get(type);
+
+      columnBytes.reset();
+      switch (encoding) {
+        case ENCODING_XML -> writeXmlColumn(columnBytes, type, values, models, modelRows);
+        case ENCODING_SERIES -> writeSeriesColumn(column, values, models);
+        default -> writePrimitiveColumn(column, encoding, values);
+      }
+      column.flush();
+
+      out.writeUTF(type.getUniqueID());
+      out.writeByte(encoding);
+      out.writeInt(columnBytes.size());
+      columnBytes.writeTo(out);
+    }
+  }
+
+  /**
+   * @return the encoding of the type or xml if any value is not of the expected value class
+   */
+  private byte getEncoding(DataType<?> type, Object[] values) {
+    final byte encoding = encodings.computeIfAbsent(type, FeatureListBlockWriter::findEncoding);
+    final Class<?> valueClass = switch (encoding) {
+      case ENCODING_INTEGER -> Integer.class;
+      case ENCODING_FLOAT -> Float.class;
+      case ENCODING_DOUBLE -> Double.class;
+      case ENCODING_SERIES -> SimpleIonTimeSeries.class;
+      default -> null;
+    };
+    if (valueClass == null) {
+      return ENCODING_XML;
+    }
+    for (Object value : values) {
+      if (value != null && !value.getClass().equals(valueClass)) {
+        return ENCODING_XML;
+      }
+    }
+    return encoding;
+  }
+
+  private void writePrimitiveColumn(DataOutputStream out, byte encoding, Object[] values)
+      throws IOException {
+    final BitSet present = getPresent(values);
+    writeBitSet(out, present);
+    for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+      switch (encoding) {
+        case ENCODING_INTEGER -> out.writeInt((Integer) values[i]);
+        case ENCODING_FLOAT -> out.writeFloat((Float) values[i]);
+        case ENCODING_DOUBLE -> out.writeDouble((Double) values[i]);
+        default -> throw new IllegalArgumentException("Not a primitive encoding " + encoding);
+      }
+    }
+  }
+
+  /**
+   * Scan indices in all scans of the raw data file, m/z and intensity values of each series.
+   */
+  private void writeSeriesColumn(DataOutputStream out, Object[] values,
+      List<? extends ModularDataModel> models) throws IOException {
+    final BitSet present = getPresent(values);
+    writeBitSet(out, present);
+    for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+      final SimpleIonTimeSeries series = (SimpleIonTimeSeries) values[i];
+      final int numValues = series.getNumberOfValues();
+      out.writeInt(numValues);
+      if (numValues == 0) {
+        continue;
+      }
+      final List<Scan> allScans = ((ModularFeature) models.get(i)).getRawDataFile().getScans();
+      for (int index : ParsingUtils.getIndicesOfSubListElements(series.getSpectra(), allScans)) {
+        out.writeInt(index);
+      }
+      writeDoubles(out, series.getMZValueBuffer(), numValues);
+      writeDoubles(out, series.getIntensityValueBuffer(), numValues);
+    }
+  }
+
+  /**
+   * One xml document for the column with a data type element for each value. The index attribute
+   * points to the row or feature in this block.
+   */
+  private void writeXmlColumn(ByteArrayOutputStream out, DataType<?> type, Object[] values,
+      List<? extends ModularDataModel> models, List<ModularFeatureListRow> modelRows)
+      throws IOException {
+    try {
+      final XMLStreamWriter writer = XMLOutputFactory.newInstance()
+          .createXMLStreamWriter(out, "UTF-8");
+      writer.writeStartDocument("UTF-8", "1.0");
+      writer.writeStartElement(XML_COLUMN_ELEMENT);
+      for (int i = 0; i < values.length; i++) {
+        if (values[i] == null) {
+          continue;
+        }
+        final ModularFeature feature =
+            models.get(i) instanceof ModularFeature f ? f : null;
+        writer.writeStartElement(CONST.XML_DATA_TYPE_ELEMENT);
+        writer.writeAttribute(CONST.XML_DATA_TYPE_ID_ATTR, type.getUniqueID());
+        writer.writeAttribute(XML_INDEX_ATTR, String.valueOf(i));
+        writeDataType(writer, type, values[i], modelRows.get(i), feature,
+            feature != null ? feature.getRawDataFile() : null);
+        writer.writeEndElement();
+      }
+      writer.writeEndElement();
+      writer.writeEndDocument();
+      writer.flush();
+      writer.close();
+    } catch (XMLStreamException e) {
+      throw new IOException("Cannot write column of data type " + type.getUniqueID(), e);
+    }
+  }
+
+  private void writeDataType(XMLStreamWriter writer, DataType<?> dataType,
+      @Nullable final Object value, @NotNull final ModularFeatureListRow row,
+      @Nullable final ModularFeature feature, @Nullable final RawDataFile file) {
+    try { // catch here, so we can easily debug and don't destroy the flist while saving in case an unexpected exception happens
+      dataType.saveToXML(writer, value, flist, row, feature, file);
+    } catch (XMLStreamException e) {
+      logger.warning(() -> "Error while writing data type " + dataType.getClass().getSimpleName()
+                           + " with value " + value + " to xml.");
+      e.printStackTrace();
+    }
+  }
+
+  private static BitSet getPresent(Object[] values) {
+    final BitSet present = new BitSet(values.length);
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] != null) {
+        present.set(i);
+      }
+    }
+    return present;
+  }
+}
@@ -25,18 +25,10 @@
 
 package io.github.mzmine.modules.io.projectsave;
 
-import com.sun.xml.txw2.output.IndentingXMLStreamWriter;
-import io.github.mzmine.datamodel.FeatureStatus;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.features.FeatureList.FeatureListAppliedMethod;
-import io.github.mzmine.datamodel.features.FeatureListRow;
-import io.github.mzmine.datamodel.features.ModularFeature;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
-import io.github.mzmine.datamodel.features.ModularFeatureListRow;
-import io.github.mzmine.datamodel.features.types.DataType;
-import io.github.mzmine.datamodel.features.types.FeaturesType;
-import io.github.mzmine.datamodel.features.types.numbers.IDType;
 import io.github.mzmine.modules.io.projectload.version_3_0.CONST;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
@@ -46,36 +38,36 @@ import io.github.mzmine.util.XMLUtils;
 import io.github.mzmine.util.files.FileAndPathUtil;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.Instant;
 import java.util.List;
-import java.util.Map.Entry;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.stream.XMLOutputFactory;
-import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.XMLStreamWriter;
 import javax.xml.transform.TransformerException;
-import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
 public class FeatureListSaveTask extends AbstractTask {
 
   public static final String METADATA_FILE_SUFFIX = "_metadata.xml";
+  /**
+   * Feature list data of projects saved before the binary format. Only used for loading.
+   */
   public static final String DATA_FILE_SUFFIX = "_data.xml";
+  public static final String BINARY_DATA_FILE_SUFFIX = "_data.bin";
+  public static final String BLOCK_FILE_SUFFIX = ".bin";
+  public static final String BLOCK_FILE_INFIX = "_block_";
   public static final String FLIST_FOLDER = "featurelists/";
   private static final Logger logger = Logger.getLogger(FeatureListSaveTask.class.getName());
-  private static final IDType idType = new IDType();
 
   private final ModularFeatureList flist;
   private final ZipOutputStream zos;
@@ -95,6 +87,16 @@ public class FeatureListSaveTask extends AbstractTask {
     return FLIST_FOLDER + CONST.XML_FEATURE_LIST_ELEMENT + "_" + flistname + DATA_FILE_SUFFIX;
   }
 
+  public static String getBinaryDataFileName(String flistname) {
+    return FLIST_FOLDER + CONST.XML_FEATURE_LIST_ELEMENT + "_" + flistname
+           + BINARY_DATA_FILE_SUFFIX;
+  }
+
+  public static String getBlockFileName(String flistname, int block) {
+    return FLIST_FOLDER + CONST.XML_FEATURE_LIST_ELEMENT + "_" + flistname + BLOCK_FILE_INFIX
+           + block + BLOCK_FILE_SUFFIX;
+  }
+
   public static String getMetadataFileName(String flistname) {
     return FLIST_FOLDER + CONST.XML_FEATURE_LIST_ELEMENT + "_" + flistname + METADATA_FILE_SUFFIX;
   }
@@ -209,118 +211,47 @@ public class FeatureListSaveTask extends AbstractTask {
   }
 
   private boolean saveFeatureData() {
-    logger.finest(() -> "Creating temporary file for feature list " + flist.getName() + ".");
-    File tempFile;
-    try {
-      tempFile = FileAndPathUtil.createTempFile("mzmine_featurelist_data", ".tmp");
-    } catch (IOException e) {
-      logger.log(Level.SEVERE, "Cannot create temporary file.", e);
-      setStatus(TaskStatus.ERROR);
-      return false;
-    }
+    final FeatureListBlockWriter blockWriter = new FeatureListBlockWriter(flist);
+    final int numBlocks = blockWriter.getNumBlocks();
+    final int parallelBlocks = Runtime.getRuntime().availableProcessors() * 2;
 
-    try (OutputStream os = new FileOutputStream(tempFile)) {
-      final XMLOutputFactory xof = XMLOutputFactory.newInstance();
-      final XMLStreamWriter writer = new IndentingXMLStreamWriter(xof.createXMLStreamWriter(os));
-      writer.writeStartDocument("UTF-8", "1.0");
-
-      writer.writeStartElement("featurelist");
-      writer.writeAttribute(CONST.XML_FLIST_NAME_ATTR, flist.getName());
-      writer.writeAttribute(CONST.XML_NUM_ROWS_ATTR, String.valueOf(flist.getNumberOfRows()));
-      writer.writeAttribute(CONST.XML_DATE_CREATED_ATTR, flist.getDateCreated());
+    // the numeric data compresses poorly, favor speed over size
+    zos.setLevel(Deflater.BEST_SPEED);
+    try {
+      writeEntry(getBinaryDataFileName(flist.getName()), blockWriter.writeHeader());
 
-      for (FeatureListRow r : flist.getRows()) {
+      for (int first = 0; first < numBlocks; first += parallelBlocks) {
         if (isCanceled()) {
-          break;
+          return false;
+        }
+        // serialize blocks in parallel and write them in order
+        final List<byte[]> blocks = IntStream.range(first,
+            Math.min(numBlocks, first + parallelBlocks)).parallel().mapToObj(block -> {
+          try {
+            return blockWriter.writeBlock(block);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }).toList();
+
+        for (int i = 0; i < blocks.size(); i++) {
+          writeEntry(getBlockFileName(flist.getName(), first + i), blocks.get(i));
+          processedRows += blockWriter.getNumRows(first + i);
         }
-
-        ModularFeatureListRow row = (ModularFeatureListRow) r;
-        writeRow(writer, row);
-
-        processedRows++;
       }
-      writer.writeEndElement();
-      writer.writeEndDocument();
-      writer.flush();
-      writer.close();
-    } catch (IOException | XMLStreamException e) {
-      logger.log(Level.SEVERE, e.getMessage(), e);
-      setStatus(TaskStatus.ERROR);
-      return false;
-    }
-
-    if (isCanceled()) {
-      tempFile.delete();
-      return false;
-    }
-
-    try (FileInputStream is = new FileInputStream(tempFile)) {
-      zos.putNextEntry(new ZipEntry(getDataFileName(flist.getName())));
-      copy.copy(is, zos);
-    } catch (IOException e) {
+    } catch (IOException | UncheckedIOException e) {
       logger.log(Level.SEVERE, e.getMessage(), e);
       setStatus(TaskStatus.ERROR);
       return false;
+    } finally {
+      zos.setLevel(Deflater.DEFAULT_COMPRESSION);
     }
-
-//    tempFile.delete();
     return true;
   }
 
-  private void writeRow(XMLStreamWriter writer, ModularFeatureListRow row)
-      throws XMLStreamException {
-
-    writer.writeStartElement(CONST.XML_ROW_ELEMENT);
-    writer.writeAttribute(idType.getUniqueID(), String.valueOf(row.getID()));
-
-    for (Entry<DataType, Object> entry : row.getMap().entrySet()) {
-      DataType dataType = entry.getKey();
-      Object value = entry.getValue();
-      if (dataType instanceof FeaturesType) {
-        continue;
-      }
-      writeDataType(writer, dataType, value, flist, row, null, null);
-    }
-
-    for (ModularFeature feature : row.getFeatures()) {
-      writeFeature(writer, row, feature);
-    }
-
-    writer.writeEndElement();
-  }
-
-  private void writeDataType(XMLStreamWriter writer, DataType<?> dataType,
-      @Nullable final Object value, @NotNull final ModularFeatureList flist,
-      @NotNull final ModularFeatureListRow row, @Nullable final ModularFeature feature,
-      @Nullable final RawDataFile file) throws XMLStreamException {
-
-    writer.writeStartElement(CONST.XML_DATA_TYPE_ELEMENT);
-    writer.writeAttribute(CONST.XML_DATA_TYPE_ID_ATTR, dataType.getUniqueID());
-
-    try { // catch here, so we can easily debug and don't destroy the flist while saving in case an unexpected exception happens
-      dataType.saveToXML(writer, value, flist, row, feature, file);
-    } catch (XMLStreamException e) {
-      logger.warning(() -> "Error while writing data type " + dataType.getClass().getSimpleName()
-          + " with value " + value + " to xml.");
-      e.printStackTrace();
-    }
-    writer.writeEndElement();
-  }
-
-  private void writeFeature(XMLStreamWriter writer, ModularFeatureListRow row,
-      ModularFeature feature) throws XMLStreamException {
-    final RawDataFile rawDataFile = feature.getRawDataFile();
-    if (rawDataFile == null || feature.getFeatureStatus() == FeatureStatus.UNKNOWN) {
-      return;
-    }
-
-    writer.writeStartElement(CONST.XML_FEATURE_ELEMENT);
-    writer.writeAttribute(CONST.XML_RAW_FILE_ELEMENT, rawDataFile.getName());
-
-    for (Entry<DataType, Object> entry : feature.getMap().entrySet()) {
-      writeDataType(writer, entry.getKey(), entry.getValue(), flist, row, feature, rawDataFile);
-    }
-
-    writer.writeEndElement();
+  private void writeEntry(String name, byte[] data) throws IOException {
+    zos.putNextEntry(new ZipEntry(name));
+    zos.write(data);
+    zos.closeEntry();
   }
 }
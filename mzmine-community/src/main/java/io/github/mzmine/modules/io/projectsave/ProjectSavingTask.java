@@ -45,7 +45,6 @@ import java.time.Instant;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.ZipEntry;
@@ -72,6 +71,7 @@ public class ProjectSavingTask extends AbstractTask {
   private final Hashtable<RawDataFile, String> dataFilesIDMap;
   private RawDataFileSaveHandler rawDataFileSaveHandler;
   private PeakListSaveHandler peakListSaveHandler;
+  private FeatureListSaveTask featureListSaveTask;
   private UserParameterSaveHandler userParameterSaveHandler;
   private int currentStage;
   private String currentSavedObjectName;
@@ -110,8 +110,8 @@ public class ProjectSavingTask extends AbstractTask {
         }
         break;
       case 3:
-        if (peakListSaveHandler != null) {
-          currentItemProgress = peakListSaveHandler.getProgress();
+        if (featureListSaveTask != null) {
+          currentItemProgress = featureListSaveTask.getFinishedPercentage();
         }
         break;
       case 4:
@@ -139,6 +139,10 @@ public class ProjectSavingTask extends AbstractTask {
       peakListSaveHandler.cancel();
     }
 
+    if (featureListSaveTask != null) {
+      featureListSaveTask.cancel();
+    }
+
     if (userParameterSaveHandler != null) {
       userParameterSaveHandler.cancel();
     }
@@ -318,45 +322,27 @@ public class ProjectSavingTask extends AbstractTask {
   }
 
   /**
-   * Save the raw data files
+   * Save the raw data files. The handler runs in this thread as the project is written
+   * sequentially.
    */
   private void saveRawDataFiles(ZipOutputStream zipStream)
       throws IOException, ParserConfigurationException {
 
-    AtomicBoolean finished = new AtomicBoolean(false);
     rawDataFileSaveHandler = new RawDataFileSaveHandler(savedProject, zipStream,
         Objects.requireNonNullElse(savedProject.isStandalone(), true), getModuleCallDate());
-    rawDataFileSaveHandler.addTaskStatusListener((task, newStatus, oldStatus) -> {
-      switch (newStatus) {
-        case WAITING, PROCESSING -> {
-        }
-        case FINISHED -> {
-          finished.set(true);
-        }
-        case CANCELED -> {
-          finished.set(true);
-          setStatus(TaskStatus.CANCELED);
-        }
-        case ERROR -> {
-          finished.set(true);
-          setErrorMessage("Error while saving raw data files.");
-          setStatus(TaskStatus.ERROR);
-        }
-      }
-    });
-    MZmineCore.getTaskController().addTask(rawDataFileSaveHandler);
-
-    while (!finished.get() && !isCanceled()) {
-      try {
-        Thread.sleep(100);
-      } catch (InterruptedException e) {
-        logger.log(Level.SEVERE, e.getMessage(), e);
+    rawDataFileSaveHandler.run();
+
+    switch (rawDataFileSaveHandler.getStatus()) {
+      case CANCELED -> setStatus(TaskStatus.CANCELED);
+      case ERROR -> throw new IOException("Error while saving raw data files.");
+      default -> {
       }
     }
   }
 
   /**
-   * Save the feature lists
+   * Save the feature lists. Each feature list is serialized in parallel by its save task, which
+   * runs in this thread.
    *
    * @throws SAXException
    * @throws TransformerConfigurationException
@@ -366,29 +352,13 @@ public class ProjectSavingTask extends AbstractTask {
 
     final List<FeatureList> currentFeatureLists = savedProject.getCurrentFeatureLists();
     for (FeatureList featureList : currentFeatureLists) {
-      FeatureListSaveTask saveTask = new FeatureListSaveTask((ModularFeatureList) featureList,
-          zipStream);
-
-      AtomicBoolean finished = new AtomicBoolean(false);
-      saveTask.addTaskStatusListener((task, newStatus, oldStatus) -> {
-        switch (newStatus) {
-          case WAITING, PROCESSING -> {
-          }
-          case FINISHED, ERROR, CANCELED -> {
-            finished.set(true);
-          }
-        }
-      });
-      MZmineCore.getTaskController().addTask(saveTask);
-
-      while (!finished.get()) {
-        try {
-          Thread.sleep(50);
-        } catch (InterruptedException e) {
-          logger.log(Level.SEVERE, e.getMessage(), e);
-        }
-      }
+      currentSavedObjectName = featureList.getName();
+      featureListSaveTask = new FeatureListSaveTask((ModularFeatureList) featureList, zipStream);
+      featureListSaveTask.run();
 
+      if (featureListSaveTask.getStatus() == TaskStatus.ERROR) {
+        throw new IOException("Error while saving feature list " + featureList.getName());
+      }
       if (isCanceled()) {
         break;
       }
@@ -551,12 +551,14 @@ public class FeatureTableContextMenu extends ContextMenu {
     }
     R2RMap<RowsRelationship> rowsRelationshipR2RMap = rowMapOptional.get();
 
-    List<FeatureListRow> allRows = selectedRow.getFeatureList().getRows();
-    for (FeatureListRow row : allRows) {
-      if (row != selectedRow && rowsRelationshipR2RMap.get(selectedRow, row) != null) {
-        if (rowsRelationshipR2RMap.get(selectedRow, row).getScore() > 0) {
-          return true;
-        }
+    final int selectedID = selectedRow.getID();
+    for (int neighbourID : rowsRelationshipR2RMap.getNeighbourIDs(selectedID)) {
+      if (neighbourID == selectedID) {
+        continue;
+      }
+      RowsRelationship relationship = rowsRelationshipR2RMap.get(selectedID, neighbourID);
+      if (relationship != null && relationship.getScore() > 0) {
+        return true;
       }
     }
 
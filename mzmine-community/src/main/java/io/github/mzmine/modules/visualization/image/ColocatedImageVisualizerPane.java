@@ -135,8 +135,8 @@ public class ColocatedImageVisualizerPane extends AbstractFeatureListRowsPane {
 
     final R2RMap<RowsRelationship> rowsRelationshipR2RMap = opt.get();
     final List<RowsRelationship> sortedRelationships = rowsRelationshipR2RMap.streamAllCorrelatedRows(
-            selectedRow, flist.getRows())
-        .sorted(Comparator.comparingDouble(RowsRelationship::getScore).reversed()).toList();
+        selectedRow).sorted(Comparator.comparingDouble(RowsRelationship::getScore).reversed())
+        .toList();
 
     if (sortedRelationships.isEmpty()) {
       colocatedImagePane.updateContent(null, null, null);
@@ -309,11 +309,7 @@ public class FeatureNetworkGenerator {
       if (r2rMap == null) {
         continue;
       }
-      for (RowsRelationship rel : r2rMap.values()) {
-        if (rel != null) {
-          addMS2SimEdges(rel.getRowA(), rel.getRowB(), rel);
-        }
-      }
+      r2rMap.forEachValue(rel -> addMS2SimEdges(rel.getRowA(), rel.getRowB(), rel));
     }
   }
 
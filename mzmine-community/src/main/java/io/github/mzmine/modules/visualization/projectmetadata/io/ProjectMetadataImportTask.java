@@ -25,9 +25,10 @@
 
 package io.github.mzmine.modules.visualization.projectmetadata.io;
 
-import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.modules.visualization.projectmetadata.table.MetadataTable;
 import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.project.ProjectService;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import java.io.File;
@@ -38,6 +39,7 @@ import org.jetbrains.annotations.NotNull;
 public class ProjectMetadataImportTask extends AbstractTask {
 
   private static final Logger logger = Logger.getLogger(ProjectMetadataImportTask.class.getName());
+  private final MZmineProject project;
   private final File[] files;
   private final int totalFiles;
   private final Boolean skipColOnError;
@@ -45,7 +47,16 @@ public class ProjectMetadataImportTask extends AbstractTask {
 
   public ProjectMetadataImportTask(@NotNull ParameterSet parameters,
       @NotNull Instant moduleCallDate) {
+    this(ProjectService.getProject(), parameters, moduleCallDate);
+  }
+
+  /**
+   * @param project the metadata is imported into this project
+   */
+  public ProjectMetadataImportTask(@NotNull MZmineProject project,
+      @NotNull ParameterSet parameters, @NotNull Instant moduleCallDate) {
     super(null, moduleCallDate);
+    this.project = project;
     File file = parameters.getValue(ProjectMetadataImportParameters.fileName);
     this.files = new File[]{file};
     this.totalFiles = files.length;
@@ -66,7 +77,7 @@ public class ProjectMetadataImportTask extends AbstractTask {
   public void run() {
     setStatus(TaskStatus.PROCESSING);
 
-    MetadataTable metadataTable = MZmineCore.getProjectMetadata();
+    MetadataTable metadataTable = project.getProjectMetadata();
     metadataTable.clearData();
     // try to import parameters from each selected .tsv file
     for (File fileName : files) {
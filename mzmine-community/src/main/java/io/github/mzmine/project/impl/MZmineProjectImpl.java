@@ -263,7 +263,8 @@ public class MZmineProjectImpl implements MZmineProject {
       // avoid duplicate file names
       final List<String> names = featureLists.stream().map(FeatureList::getName).toList();
       if (names.contains(featureList.getName())) {
-        featureList.setName(getUniqueName(featureList.getName(), names));
+        // unique in this project, setName would check the current project of MZmine
+        featureList.setNameNoChecks(getUniqueName(featureList.getName(), names));
       }
       featureLists.add(featureList);
       fireFeatureListsChangeEvent(List.of(featureList), Type.ADDED);
@@ -282,6 +283,19 @@ public class MZmineProjectImpl implements MZmineProject {
     } finally {
       featureLock.writeLock().unlock();
     }
+    releaseValues(List.of(featureList));
+  }
+
+  /**
+   * Releases the columns of removed feature lists so that their values are freed even if rows are
+   * still referenced somewhere
+   */
+  private static void releaseValues(@NotNull List<FeatureList> removed) {
+    for (FeatureList flist : removed) {
+      if (flist instanceof ModularFeatureList modular) {
+        modular.releaseValues();
+      }
+    }
   }
 
   @Override
@@ -335,6 +349,7 @@ public class MZmineProjectImpl implements MZmineProject {
     } finally {
       featureLock.writeLock().unlock();
     }
+    releaseValues(featureLists);
   }
 
   @Override
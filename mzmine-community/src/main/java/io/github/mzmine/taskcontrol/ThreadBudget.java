@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.taskcontrol;
+
+import io.github.mzmine.main.MZmineCore;
+import java.util.function.Supplier;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Splits the configured number of threads between tasks that run in parallel. Modules that start
+ * one task per file may be called for one file at a time by several callers in parallel, like the
+ * per-file batch pipeline, which share the threads.
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+public final class ThreadBudget {
+
+  /**
+   * Number of callers that start tasks in parallel to the current thread
+   */
+  private static final ThreadLocal<Integer> parallelCallers = ThreadLocal.withInitial(() -> 1);
+
+  private ThreadBudget() {
+  }
+
+  /**
+   * @param numTasks number of tasks started by the current thread
+   * @return the threads for each task, at least 1
+   */
+  public static int threadsPerTask(int numTasks) {
+    final int threads = MZmineCore.getConfiguration().getNumOfThreads() / parallelCallers.get();
+    return Math.max(1, threads / Math.max(1, numTasks));
+  }
+
+  /**
+   * Runs the call with a share of the threads
+   *
+   * @param parallelCallers number of callers that run in parallel, including this call
+   */
+  public static <T> T callShared(int parallelCallers, @NotNull Supplier<T> call) {
+    final Integer previous = ThreadBudget.parallelCallers.get();
+    ThreadBudget.parallelCallers.set(Math.max(1, parallelCallers) * previous);
+    try {
+      return call.get();
+    } finally {
+      ThreadBudget.parallelCallers.set(previous);
+    }
+  }
+}
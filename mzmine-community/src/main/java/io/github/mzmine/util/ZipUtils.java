@@ -30,7 +30,12 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
@@ -106,15 +111,20 @@ public class ZipUtils {
     }
   }
 
+  /**
+   * Extracts all entries of a folder in the zip file. The entries are extracted in parallel, as
+   * project files may contain many large entries.
+   *
+   * @param folder            the folder in the zip file
+   * @param zipFile           the zip file
+   * @param destinationFolder the destination folder
+   */
   public static void unzipDirectory(String folder, ZipFile zipFile, File destinationFolder)
       throws IOException {
-    int readLen;
-    byte readBuffer[] = new byte[10000000];
-
-    ZipEntry entry = null;
-    Enumeration<? extends ZipEntry> entries = zipFile.entries();
+    final List<ZipEntry> files = new ArrayList<>();
+    final Enumeration<? extends ZipEntry> entries = zipFile.entries();
     while (entries.hasMoreElements()) {
-      entry = entries.nextElement();
+      final ZipEntry entry = entries.nextElement();
 
       // only extract the given folder
       if (!entry.getName().startsWith(folder)) {
@@ -122,7 +132,7 @@ public class ZipUtils {
       }
 
       File extractedFile = new File(destinationFolder, entry.getName());
-      if(!extractedFile.toPath().normalize().startsWith(destinationFolder.toPath())) {
+      if (!extractedFile.toPath().normalize().startsWith(destinationFolder.toPath())) {
         throw new IllegalArgumentException("Bad zip entry.");
       }
 
@@ -130,24 +140,23 @@ public class ZipUtils {
         extractedFile.mkdirs();
         continue;
       }
-      if (!extractedFile.exists()) {
-        if (!extractedFile.getParentFile().exists()) {
-          extractedFile.getParentFile().mkdirs();
-        }
-        extractedFile.createNewFile();
+      if (!extractedFile.getParentFile().exists()) {
+        extractedFile.getParentFile().mkdirs();
       }
+      files.add(entry);
+    }
 
-      final InputStream zipStream = zipFile.getInputStream(entry);
-      try (FileOutputStream outputStream = new FileOutputStream(extractedFile)) {
-        while ((readLen = zipStream.read(readBuffer)) != -1) {
-          outputStream.write(readBuffer, 0, readLen);
+    try {
+      files.parallelStream().forEach(entry -> {
+        final File extractedFile = new File(destinationFolder, entry.getName());
+        try (InputStream zipStream = zipFile.getInputStream(entry)) {
+          Files.copy(zipStream, extractedFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
         }
-        outputStream.flush();
-        outputStream.close();
-      } catch (IOException e) {
-        zipStream.close();
-      }
-      zipStream.close();
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
     }
   }
 }
@@ -193,11 +193,36 @@ public class ScanAlignment {
   public static DataPoint[][] cropToOverlap(MZTolerance mzTol, DataPoint[] a, DataPoint[] b,
       final Double aMz, final double bMz) {
     Range<Double> overlap = getOverlapMZ(mzTol, a, b, aMz, bMz);
-    DataPoint[] newa = Arrays.stream(a).filter(d -> overlap.contains(d.getMZ()))
-        .toArray(DataPoint[]::new);
-    DataPoint[] newb = Arrays.stream(b).filter(d -> overlap.contains(d.getMZ()))
-        .toArray(DataPoint[]::new);
-    return new DataPoint[][]{newa, newb};
+    final double min = overlap.lowerEndpoint();
+    final double max = overlap.upperEndpoint();
+    return new DataPoint[][]{cropToMzRange(a, min, max), cropToMzRange(b, min, max)};
+  }
+
+  /**
+   * @param min inclusive lower bound
+   * @param max inclusive upper bound
+   * @return the same array if all data points are within range or a new array
+   */
+  private static DataPoint[] cropToMzRange(DataPoint[] dps, double min, double max) {
+    int size = 0;
+    for (DataPoint dp : dps) {
+      final double mz = dp.getMZ();
+      if (mz >= min && mz <= max) {
+        size++;
+      }
+    }
+    if (size == dps.length) {
+      return dps;
+    }
+    DataPoint[] cropped = new DataPoint[size];
+    int i = 0;
+    for (DataPoint dp : dps) {
+      final double mz = dp.getMZ();
+      if (mz >= min && mz <= max) {
+        cropped[i++] = dp;
+      }
+    }
+    return cropped;
   }
 
   /**
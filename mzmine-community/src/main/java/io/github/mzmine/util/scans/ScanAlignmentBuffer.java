@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.scans;
+
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.util.scans.similarity.HandleUnmatchedSignalOptions;
+import io.github.mzmine.util.scans.similarity.Weights;
+import it.unimi.dsi.fastutil.Arrays;
+import it.unimi.dsi.fastutil.Swapper;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.ints.IntComparator;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Primitive, allocation free version of {@link ScanAlignment#align(MZTolerance, DataPoint[],
+ * DataPoint[])} followed by the weighted cosine scoring. Each thread uses its own buffer
+ * ({@link #get()}) and the internal arrays are only reallocated if a larger spectrum is aligned.
+ * <p>
+ * The alignment and the score are identical to the {@link DataPoint} based implementation: signals
+ * are sorted by intensity (descending), each signal of spectrum A is matched to the most intense
+ * unmatched signal of B within the m/z tolerance and the sums are calculated in the same order.
+ * <p>
+ * Usage: call one of the align methods and then {@link #getOverlap()} or
+ * {@link #weightedCosine(Weights, HandleUnmatchedSignalOptions)} on the same thread.
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+public final class ScanAlignmentBuffer {
+
+  private static final ThreadLocal<ScanAlignmentBuffer> BUFFERS = ThreadLocal.withInitial(
+      ScanAlignmentBuffer::new);
+
+  // both spectra sorted by intensity descending
+  private double[] mzA;
+  private double[] intensityA;
+  private double[] mzB;
+  private double[] intensityB;
+  private int numA;
+  private int numB;
+  // indices of B (in intensity order) sorted by m/z for the binary search
+  private int[] bIndicesByMz;
+  private double[] sortedMzB;
+  // index of the matched signal in B or -1
+  private int[] matchOfA;
+  private boolean[] matchedB;
+  private int overlap;
+
+  // sorting of the current arrays
+  private double[] sortMz;
+  private double[] sortIntensity;
+  private final IntComparator intensityDescending = (i, j) -> {
+    int result = Double.compare(sortIntensity[j], sortIntensity[i]);
+    return result != 0 ? result : Double.compare(sortMz[j], sortMz[i]);
+  };
+  private final Swapper swapper = (i, j) -> {
+    double mz = sortMz[i];
+    sortMz[i] = sortMz[j];
+    sortMz[j] = mz;
+    double intensity = sortIntensity[i];
+    sortIntensity[i] = sortIntensity[j];
+    sortIntensity[j] = intensity;
+  };
+  private final IntComparator mzBAscending = (i, j) -> Double.compare(mzB[i], mzB[j]);
+
+  private ScanAlignmentBuffer() {
+    ensureCapacityA(64);
+    ensureCapacityB(64);
+  }
+
+  /**
+   * @return the buffer of the current thread
+   */
+  @NotNull
+  public static ScanAlignmentBuffer get() {
+    return BUFFERS.get();
+  }
+
+  private void ensureCapacityA(int size) {
+    if (mzA != null && mzA.length >= size) {
+      return;
+    }
+    mzA = new double[size];
+    intensityA = new double[size];
+    matchOfA = new int[size];
+  }
+
+  private void ensureCapacityB(int size) {
+    if (mzB != null && mzB.length >= size) {
+      return;
+    }
+    mzB = new double[size];
+    intensityB = new double[size];
+    bIndicesByMz = new int[size];
+    sortedMzB = new double[size];
+    matchedB = new boolean[size];
+  }
+
+  /**
+   * Align two spectra. The input arrays are not changed.
+   *
+   * @param mzTol tolerance to match signals
+   * @param a     usually the library spectrum
+   * @param b     usually the query spectrum
+   * @return number of matched signals
+   */
+  public int align(@NotNull MZTolerance mzTol, @NotNull DataPoint[] a, @NotNull DataPoint[] b) {
+    ensureCapacityA(a.length);
+    for (int i = 0; i < a.length; i++) {
+      mzA[i] = a[i].getMZ();
+      intensityA[i] = a[i].getIntensity();
+    }
+    ensureCapacityB(b.length);
+    for (int i = 0; i < b.length; i++) {
+      mzB[i] = b[i].getMZ();
+      intensityB[i] = b[i].getIntensity();
+    }
+    return alignLoaded(mzTol, a.length, b.length);
+  }
+
+  /**
+   * Align two spectra. The input arrays are not changed and may be in any order.
+   *
+   * @param mzTol       tolerance to match signals
+   * @param mzsA        m/z values of spectrum a, usually the library spectrum
+   * @param intensitiesA intensities of spectrum a
+   * @param numA        number of values in spectrum a
+   * @param mzsB        m/z values of spectrum b, usually the query spectrum
+   * @param intensitiesB intensities of spectrum b
+   * @param numB        number of values in spectrum b
+   * @return number of matched signals
+   */
+  public int align(@NotNull MZTolerance mzTol, double[] mzsA, double[] intensitiesA, int numA,
+      double[] mzsB, double[] intensitiesB, int numB) {
+    ensureCapacityA(numA);
+    System.arraycopy(mzsA, 0, mzA, 0, numA);
+    System.arraycopy(intensitiesA, 0, intensityA, 0, numA);
+    ensureCapacityB(numB);
+    System.arraycopy(mzsB, 0, mzB, 0, numB);
+    System.arraycopy(intensitiesB, 0, intensityB, 0, numB);
+    return alignLoaded(mzTol, numA, numB);
+  }
+
+  private int alignLoaded(MZTolerance mzTol, int numA, int numB) {
+    this.numA = numA;
+    this.numB = numB;
+    overlap = 0;
+    sortByIntensity(mzA, intensityA, numA);
+    sortByIntensity(mzB, intensityB, numB);
+
+    // index of B by m/z
+    for (int i = 0; i < numB; i++) {
+      bIndicesByMz[i] = i;
+      matchedB[i] = false;
+    }
+    IntArrays.quickSort(bIndicesByMz, 0, numB, mzBAscending);
+    for (int i = 0; i < numB; i++) {
+      sortedMzB[i] = mzB[bIndicesByMz[i]];
+    }
+
+    for (int a = 0; a < numA; a++) {
+      final double mz = mzA[a];
+      final double tolerance = mzTol.getMzToleranceForMass(mz);
+      final double lower = mz - tolerance;
+      final double upper = mz + tolerance;
+      // first unmatched signal of B in intensity order (lowest index)
+      int match = -1;
+      for (int k = lowerBound(lower); k < numB && sortedMzB[k] <= upper; k++) {
+        final int b = bIndicesByMz[k];
+        if (!matchedB[b] && (match == -1 || b < match)) {
+          match = b;
+        }
+      }
+      matchOfA[a] = match;
+      if (match != -1) {
+        matchedB[match] = true;
+        overlap++;
+      }
+    }
+    return overlap;
+  }
+
+  /**
+   * @return first index in sortedMzB with a value >= lower
+   */
+  private int lowerBound(double lower) {
+    int low = 0;
+    int high = numB;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (sortedMzB[mid] < lower) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private void sortByIntensity(double[] mzs, double[] intensities, int size) {
+    sortMz = mzs;
+    sortIntensity = intensities;
+    Arrays.quickSort(0, size, intensityDescending, swapper);
+  }
+
+  /**
+   * @return number of matched signals of the last alignment
+   */
+  public int getOverlap() {
+    return overlap;
+  }
+
+  /**
+   * Weighted cosine similarity of the last alignment. Same as
+   * {@link ScanAlignment#toIntensityMatrixWeighted} with
+   * {@link io.github.mzmine.util.maths.similarity.Similarity#COSINE}
+   *
+   * @param weights         weights for m/z and intensity
+   * @param handleUnmatched defines which unmatched signals are kept and matched against 0
+   * @return the cosine similarity
+   */
+  public double weightedCosine(@NotNull Weights weights,
+      @NotNull HandleUnmatchedSignalOptions handleUnmatched) {
+    final double weightIntensity = weights.getIntensity();
+    final double weightMz = weights.getMz();
+    final boolean keepUnmatchedA = switch (handleUnmatched) {
+      case KEEP_ALL_AND_MATCH_TO_ZERO, KEEP_LIBRARY_SIGNALS -> true;
+      case REMOVE_ALL, KEEP_EXPERIMENTAL_SIGNALS -> false;
+    };
+    final boolean keepUnmatchedB = switch (handleUnmatched) {
+      case KEEP_ALL_AND_MATCH_TO_ZERO, KEEP_EXPERIMENTAL_SIGNALS -> true;
+      case REMOVE_ALL, KEEP_LIBRARY_SIGNALS -> false;
+    };
+
+    // same order of summation as the aligned list: all of A then unmatched of B
+    double dot = 0;
+    double normA = 0;
+    double normB = 0;
+    for (int a = 0; a < numA; a++) {
+      final int b = matchOfA[a];
+      if (b == -1 && !keepUnmatchedA) {
+        continue;
+      }
+      final double weightedA =
+          Math.pow(intensityA[a], weightIntensity) * Math.pow(mzA[a], weightMz);
+      normA += weightedA * weightedA;
+      if (b != -1) {
+        final double weightedB =
+            Math.pow(intensityB[b], weightIntensity) * Math.pow(mzB[b], weightMz);
+        dot += weightedA * weightedB;
+        normB += weightedB * weightedB;
+      }
+    }
+    if (keepUnmatchedB) {
+      for (int b = 0; b < numB; b++) {
+        if (!matchedB[b]) {
+          final double weightedB =
+              Math.pow(intensityB[b], weightIntensity) * Math.pow(mzB[b], weightMz);
+          normB += weightedB * weightedB;
+        }
+      }
+    }
+    return dot / (Math.sqrt(normA) * Math.sqrt(normB));
+  }
+}
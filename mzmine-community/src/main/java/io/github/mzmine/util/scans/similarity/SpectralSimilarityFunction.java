@@ -30,6 +30,7 @@ import java.util.List;
 import org.jetbrains.annotations.Nullable;
 
 import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.datamodel.impl.SimpleDataPoint;
 import io.github.mzmine.modules.MZmineModule;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
@@ -64,6 +65,32 @@ public abstract class SpectralSimilarityFunction implements MZmineModule {
   public abstract SpectralSimilarity getSimilarity(ParameterSet parameters, MZTolerance mzTol,
       int minMatch, DataPoint[] library, DataPoint[] query);
 
+  /**
+   * Score two spectra given as primitive arrays. Implementations that support an allocation free
+   * scoring path (see {@link io.github.mzmine.util.scans.ScanAlignmentBuffer}) override this
+   * method. The score has to be equal to the score of
+   * {@link #getSimilarity(ParameterSet, MZTolerance, int, DataPoint[], DataPoint[])}. The default
+   * implementation creates data points and calls getSimilarity.
+   *
+   * @param minMatch minimum overlap in signals
+   * @return the similarity score or {@link Double#NaN} if the requirements were not met
+   */
+  public double getSimilarityScore(ParameterSet parameters, MZTolerance mzTol, int minMatch,
+      double[] libraryMzs, double[] libraryIntensities, int numLibrary, double[] queryMzs,
+      double[] queryIntensities, int numQuery) {
+    DataPoint[] library = new DataPoint[numLibrary];
+    for (int i = 0; i < numLibrary; i++) {
+      library[i] = new SimpleDataPoint(libraryMzs[i], libraryIntensities[i]);
+    }
+    DataPoint[] query = new DataPoint[numQuery];
+    for (int i = 0; i < numQuery; i++) {
+      query[i] = new SimpleDataPoint(queryMzs[i], queryIntensities[i]);
+    }
+    final SpectralSimilarity similarity = getSimilarity(parameters, mzTol, minMatch, library,
+        query);
+    return similarity == null ? Double.NaN : similarity.getScore();
+  }
+
   /**
    * Align two mass lists. Override if alignement is changed in a specific spectral similarity
    * function.
@@ -30,6 +30,7 @@ import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.util.maths.similarity.Similarity;
 import io.github.mzmine.util.scans.ScanAlignment;
+import io.github.mzmine.util.scans.ScanAlignmentBuffer;
 import io.github.mzmine.util.scans.similarity.HandleUnmatchedSignalOptions;
 import io.github.mzmine.util.scans.similarity.SpectralSimilarity;
 import io.github.mzmine.util.scans.similarity.SpectralSimilarityFunction;
@@ -59,6 +60,13 @@ public class WeightedCosineSpectralSimilarity extends SpectralSimilarityFunction
     HandleUnmatchedSignalOptions handleUnmatched = parameters
         .getParameter(WeightedCosineSpectralSimilarityParameters.handleUnmatched).getValue();
 
+    // primitive alignment and scoring first - most comparisons do not match
+    final ScanAlignmentBuffer buffer = ScanAlignmentBuffer.get();
+    if (buffer.align(mzTol, library, query) < minMatch
+        || !(buffer.weightedCosine(weights, handleUnmatched) >= minCos)) {
+      return null;
+    }
+
     // align
     List<DataPoint[]> aligned = alignDataPoints(mzTol, library, query);
     // removes all signals which were not found in both masslists
@@ -80,6 +88,26 @@ public class WeightedCosineSpectralSimilarity extends SpectralSimilarityFunction
     return null;
   }
 
+  @Override
+  public double getSimilarityScore(ParameterSet parameters, MZTolerance mzTol, int minMatch,
+      double[] libraryMzs, double[] libraryIntensities, int numLibrary, double[] queryMzs,
+      double[] queryIntensities, int numQuery) {
+    Weights weights =
+        parameters.getParameter(WeightedCosineSpectralSimilarityParameters.weight).getValue();
+    double minCos =
+        parameters.getParameter(WeightedCosineSpectralSimilarityParameters.minCosine).getValue();
+    HandleUnmatchedSignalOptions handleUnmatched = parameters
+        .getParameter(WeightedCosineSpectralSimilarityParameters.handleUnmatched).getValue();
+
+    final ScanAlignmentBuffer buffer = ScanAlignmentBuffer.get();
+    if (buffer.align(mzTol, libraryMzs, libraryIntensities, numLibrary, queryMzs,
+        queryIntensities, numQuery) < minMatch) {
+      return Double.NaN;
+    }
+    final double cosine = buffer.weightedCosine(weights, handleUnmatched);
+    return cosine >= minCos ? cosine : Double.NaN;
+  }
+
   @Override
   @NotNull
   public String getName() {
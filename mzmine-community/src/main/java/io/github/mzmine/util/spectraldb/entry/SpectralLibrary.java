@@ -54,6 +54,8 @@ public class SpectralLibrary {
   @Nullable
   private final MemoryMapStorage storage;
   private final ObservableSet<DataType> types = FXCollections.observableSet(new LinkedHashSet<>());
+  // lazily created on first access and reset when entries are added
+  private volatile SpectralLibraryPrecursorIndex precursorIndex;
 
   public SpectralLibrary(@Nullable MemoryMapStorage storage, @NotNull File path) {
     this(storage, path.getName(), path);
@@ -74,12 +76,34 @@ public class SpectralLibrary {
   public void addEntry(SpectralLibraryEntry entry) {
     entry.setLibrary(this);
     entries.add(entry);
+    precursorIndex = null;
   }
 
   public void addEntries(Collection<SpectralLibraryEntry> entries) {
     entries.forEach(this::addEntry);
   }
 
+  /**
+   * Index of all entries sorted by precursor m/z. Created on first access and recreated after new
+   * entries were added. Indices returned by the index point into {@link #getEntries()}.
+   *
+   * @return the precursor index of this library
+   */
+  @NotNull
+  public SpectralLibraryPrecursorIndex getPrecursorIndex() {
+    SpectralLibraryPrecursorIndex index = precursorIndex;
+    if (index == null) {
+      synchronized (this) {
+        index = precursorIndex;
+        if (index == null) {
+          index = SpectralLibraryPrecursorIndex.create(entries);
+          precursorIndex = index;
+        }
+      }
+    }
+    return index;
+  }
+
   @NotNull
   public File getPath() {
     return path;
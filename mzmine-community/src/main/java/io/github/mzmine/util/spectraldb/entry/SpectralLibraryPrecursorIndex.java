@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.spectraldb.entry;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.util.collections.BinarySearch;
+import io.github.mzmine.util.collections.IndexRange;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Primitive index of all {@link SpectralLibraryEntry} in a {@link SpectralLibrary} sorted by their
+ * precursor m/z. Entries are partitioned by polarity, retention time and CCS are kept as primitive
+ * columns to pre-filter candidates without touching the entry field maps. Entries without precursor
+ * m/z are not part of the index, they are only matched if the precursor filter is turned off (e.g.,
+ * MS1 matching) and the full entry list is used.
+ * <p>
+ * All query methods return a superset of the matching entries - the exact tolerance checks still
+ * need to be applied by the caller. The index is immutable and thread safe.
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+public class SpectralLibraryPrecursorIndex {
+
+  private final int totalEntries;
+  // one partition for each polarity: positive, negative, unknown
+  private final Partition positive;
+  private final Partition negative;
+  private final Partition unknown;
+
+  private SpectralLibraryPrecursorIndex(int totalEntries, Partition positive, Partition negative,
+      Partition unknown) {
+    this.totalEntries = totalEntries;
+    this.positive = positive;
+    this.negative = negative;
+    this.unknown = unknown;
+  }
+
+  /**
+   * @param entries all library entries. The index in this list is used as reference to the entry
+   * @return a new index over all entries with precursor m/z
+   */
+  @NotNull
+  public static SpectralLibraryPrecursorIndex create(@NotNull List<SpectralLibraryEntry> entries) {
+    final PartitionBuilder pos = new PartitionBuilder();
+    final PartitionBuilder neg = new PartitionBuilder();
+    final PartitionBuilder unknown = new PartitionBuilder();
+
+    for (int i = 0; i < entries.size(); i++) {
+      final SpectralLibraryEntry entry = entries.get(i);
+      final Double precursorMZ = entry.getPrecursorMZ();
+      if (precursorMZ == null || Double.isNaN(precursorMZ)) {
+        continue;
+      }
+      final float rt = entry.getAsFloat(DBEntryField.RT).orElse(Float.NaN);
+      final float ccs = entry.getAsFloat(DBEntryField.CCS).orElse(Float.NaN);
+      final PartitionBuilder target = switch (entry.getPolarity()) {
+        case POSITIVE -> pos;
+        case NEGATIVE -> neg;
+        default -> unknown;
+      };
+      target.add(i, precursorMZ, rt, ccs);
+    }
+
+    return new SpectralLibraryPrecursorIndex(entries.size(), pos.build(), neg.build(),
+        unknown.build());
+  }
+
+  /**
+   * @return number of entries with a precursor m/z in this index
+   */
+  public int size() {
+    return positive.size() + negative.size() + unknown.size();
+  }
+
+  /**
+   * @return number of entries in the library when this index was created
+   */
+  public int getTotalEntries() {
+    return totalEntries;
+  }
+
+  /**
+   * Find all candidate entries within the precursor m/z range. The returned indices point into the
+   * entry list that was used to create this index and are sorted ascending to keep the original
+   * order of entries.
+   *
+   * @param mzRange  precursor m/z range, both bounds included
+   * @param polarity only entries of this or unknown polarity are returned. null or
+   *                 {@link PolarityType#UNKNOWN} to search all polarities
+   * @param rtRange  optional retention time filter. Entries without RT are always included
+   * @param ccsRange optional CCS filter. Entries without CCS are excluded if this filter is set
+   * @return sorted indices of library entries
+   */
+  public int[] findCandidates(@NotNull Range<Double> mzRange, @Nullable PolarityType polarity,
+      @Nullable Range<Float> rtRange, @Nullable Range<Float> ccsRange) {
+    return findCandidates(mzRange.lowerEndpoint(), mzRange.upperEndpoint(), polarity, rtRange,
+        ccsRange);
+  }
+
+  /**
+   * Find all candidate entries within the precursor m/z range. The returned indices point into the
+   * entry list that was used to create this index and are sorted ascending to keep the original
+   * order of entries.
+   *
+   * @param lowerMz  lower precursor m/z bound, included
+   * @param upperMz  upper precursor m/z bound, included
+   * @param polarity only entries of this or unknown polarity are returned. null or
+   *                 {@link PolarityType#UNKNOWN} to search all polarities
+   * @param rtRange  optional retention time filter. Entries without RT are always included
+   * @param ccsRange optional CCS filter. Entries without CCS are excluded if this filter is set
+   * @return sorted indices of library entries
+   */
+  public int[] findCandidates(double lowerMz, double upperMz, @Nullable PolarityType polarity,
+      @Nullable Range<Float> rtRange, @Nullable Range<Float> ccsRange) {
+    final IntArrayList result = new IntArrayList();
+    if (polarity != PolarityType.NEGATIVE) {
+      positive.addCandidates(result, lowerMz, upperMz, rtRange, ccsRange);
+    }
+    if (polarity != PolarityType.POSITIVE) {
+      negative.addCandidates(result, lowerMz, upperMz, rtRange, ccsRange);
+    }
+    unknown.addCandidates(result, lowerMz, upperMz, rtRange, ccsRange);
+
+    final int[] indices = result.toIntArray();
+    // restore the original entry order
+    IntArrays.quickSort(indices);
+    return indices;
+  }
+
+  /**
+   * Sorted primitive columns of one polarity
+   */
+  private record Partition(double[] precursorMzs, int[] entryIndices, float[] rts, float[] ccs) {
+
+    public int size() {
+      return precursorMzs.length;
+    }
+
+    private void addCandidates(IntArrayList result, double lowerMz, double upperMz,
+        @Nullable Range<Float> rtRange, @Nullable Range<Float> ccsRange) {
+      if (precursorMzs.length == 0) {
+        return;
+      }
+      final IndexRange range = BinarySearch.indexRange(precursorMzs, lowerMz, upperMz);
+      if (range.isEmpty()) {
+        return;
+      }
+      for (int i = range.min(); i < range.maxExclusive(); i++) {
+        final float rt = rts[i];
+        if (rtRange != null && !Float.isNaN(rt) && !rtRange.contains(rt)) {
+          continue;
+        }
+        final float entryCCS = ccs[i];
+        if (ccsRange != null && (Float.isNaN(entryCCS) || !ccsRange.contains(entryCCS))) {
+          continue;
+        }
+        result.add(entryIndices[i]);
+      }
+    }
+  }
+
+  private static class PartitionBuilder {
+
+    private final IntArrayList entryIndices = new IntArrayList();
+    private final DoubleArrayList mzs = new DoubleArrayList();
+    private final FloatArrayList rts = new FloatArrayList();
+    private final FloatArrayList ccs = new FloatArrayList();
+
+    private void add(int entryIndex, double mz, float rt, float ccs) {
+      entryIndices.add(entryIndex);
+      mzs.add(mz);
+      rts.add(rt);
+      this.ccs.add(ccs);
+    }
+
+    private Partition build() {
+      final int n = mzs.size();
+      final double[] unsortedMzs = mzs.toDoubleArray();
+      // sort positions by precursor m/z
+      final int[] order = new int[n];
+      for (int i = 0; i < n; i++) {
+        order[i] = i;
+      }
+      IntArrays.quickSort(order, (a, b) -> Double.compare(unsortedMzs[a], unsortedMzs[b]));
+
+      final double[] sortedMzs = new double[n];
+      final int[] sortedIndices = new int[n];
+      final float[] sortedRts = new float[n];
+      final float[] sortedCCS = new float[n];
+      for (int i = 0; i < n; i++) {
+        final int o = order[i];
+        sortedMzs[i] = unsortedMzs[o];
+        sortedIndices[i] = entryIndices.getInt(o);
+        sortedRts[i] = rts.getFloat(o);
+        sortedCCS[i] = ccs.getFloat(o);
+      }
+      return new Partition(sortedMzs, sortedIndices, sortedRts, sortedCCS);
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.features;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.datamodel.AbundanceMeasure;
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.types.DetectionType;
+import io.github.mzmine.datamodel.features.types.RawFileType;
+import io.github.mzmine.datamodel.features.types.numbers.AreaType;
+import io.github.mzmine.datamodel.features.types.numbers.HeightType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+class AbundanceMatrixTest {
+
+  RawDataFile a;
+  RawDataFile b;
+  ModularFeatureList flist;
+  ModularFeatureListRow row1;
+  ModularFeatureListRow row2;
+
+  @BeforeEach
+  void setUp() {
+    a = Mockito.mock(RawDataFile.class);
+    b = Mockito.mock(RawDataFile.class);
+    flist = new ModularFeatureList("List", null, a, b);
+    row1 = new ModularFeatureListRow(flist, 1, createFeature(a, 10f));
+    row1.addFeature(b, createFeature(b, 20f));
+    row2 = new ModularFeatureListRow(flist, 2, createFeature(b, 5f));
+    flist.addRow(row1);
+    flist.addRow(row2);
+  }
+
+  private ModularFeature createFeature(RawDataFile raw, float height) {
+    ModularFeature f = new ModularFeature(flist);
+    f.set(RawFileType.class, raw);
+    f.set(HeightType.class, height);
+    f.set(AreaType.class, height * 2);
+    f.set(DetectionType.class, FeatureStatus.DETECTED);
+    return f;
+  }
+
+  @Test
+  void values() {
+    final AbundanceMatrix heights = flist.getAbundanceMatrix(AbundanceMeasure.Height);
+    assertEquals(2, heights.getNumberOfRows());
+    assertEquals(2, heights.getNumberOfFiles());
+    assertEquals(10d, heights.get(row1, a));
+    assertEquals(20d, heights.get(row1, b));
+    assertTrue(Double.isNaN(heights.get(row2, a)));
+    assertEquals(5d, heights.get(row2, b));
+
+    final AbundanceMatrix areas = flist.getAbundanceMatrix(AbundanceMeasure.Area);
+    assertEquals(40f, areas.get(areas.indexOf(row1), areas.indexOf(b)));
+
+    final double[] dst = new double[3];
+    heights.copyRow(heights.indexOf(row1), new int[]{1, -1, 0}, dst, 0);
+    assertEquals(20d, dst[0]);
+    assertTrue(Double.isNaN(dst[1]));
+    assertEquals(10d, dst[2]);
+  }
+
+  @Test
+  void invalidation() {
+    final AbundanceMatrix first = flist.getAbundanceMatrix(AbundanceMeasure.Height);
+    assertSame(first, flist.getAbundanceMatrix(AbundanceMeasure.Height));
+
+    // changed abundance
+    row2.getFeature(b).set(HeightType.class, 7f);
+    final AbundanceMatrix changed = flist.getAbundanceMatrix(AbundanceMeasure.Height);
+    assertNotSame(first, changed);
+    assertEquals(7d, changed.get(row2, b));
+
+    // removed feature
+    row1.removeFeature(b);
+    assertTrue(Double.isNaN(flist.getAbundanceMatrix(AbundanceMeasure.Height).get(row1, b)));
+
+    // removed row
+    flist.removeRow(row2);
+    final AbundanceMatrix removed = flist.getAbundanceMatrix(AbundanceMeasure.Height);
+    assertEquals(1, removed.getNumberOfRows());
+    assertEquals(-1, removed.indexOf(row2));
+  }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.features;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.types.DataType;
+import io.github.mzmine.datamodel.features.types.DataTypes;
+import io.github.mzmine.datamodel.features.types.annotations.CommentType;
+import io.github.mzmine.datamodel.features.types.numbers.HeightType;
+import io.github.mzmine.datamodel.features.types.numbers.IDType;
+import io.github.mzmine.datamodel.features.types.numbers.MZType;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Test;
+
+class ColumnarDataStoreTest {
+
+  private final HeightType height = DataTypes.get(HeightType.class);
+  private final MZType mz = DataTypes.get(MZType.class);
+  private final IDType id = DataTypes.get(IDType.class);
+  private final CommentType comment = DataTypes.get(CommentType.class);
+
+  @Test
+  void primitiveAndObjectColumns() {
+    final List<DataType> added = new ArrayList<>();
+    final ColumnarDataStore store = new ColumnarDataStore(added::add);
+    final Object model = new Object();
+    final int slot = store.allocate(model).index();
+
+    assertNull(store.put(slot, height, 5f));
+    assertEquals(5f, store.put(slot, height, 7f));
+    store.put(slot, mz, 200.5d);
+    store.put(slot, id, 12);
+    store.put(slot, comment, "text");
+
+    assertEquals(7f, store.get(slot, height));
+    assertEquals(200.5d, store.get(slot, mz));
+    assertEquals(12, store.get(slot, id));
+    assertEquals("text", store.get(slot, comment));
+    assertEquals(List.of(height, mz, id, comment), added);
+    assertEquals(4, store.size(slot));
+
+    assertEquals("text", store.remove(slot, comment));
+    assertFalse(store.containsKey(slot, comment));
+    assertEquals(3, store.size(slot));
+    Reference.reachabilityFence(model);
+  }
+
+  @Test
+  void nullMappingsAndNaN() {
+    final ColumnarDataStore store = new ColumnarDataStore(_ -> {
+    });
+    final Object model = new Object();
+    final int slot = store.allocate(model).index();
+
+    store.put(slot, height, null);
+    assertTrue(store.containsKey(slot, height));
+    assertNull(store.get(slot, height));
+
+    store.put(slot, height, Float.NaN);
+    assertTrue(Float.isNaN((Float) store.get(slot, height)));
+    Reference.reachabilityFence(model);
+  }
+
+  @Test
+  void manySlotsAndRelease() {
+    final ColumnarDataStore store = new ColumnarDataStore(_ -> {
+    });
+    final int n = 10_000;
+    final Object[] models = new Object[n];
+    final ColumnarDataStore.Slot[] slots = new ColumnarDataStore.Slot[n];
+    for (int i = 0; i < n; i++) {
+      models[i] = new Object();
+      slots[i] = store.allocate(models[i]);
+      store.put(slots[i].index(), id, i);
+    }
+    for (int i = 0; i < n; i++) {
+      assertEquals(i, store.get(slots[i].index(), id));
+    }
+
+    // released slots are cleared and reused
+    final int released = slots[42].index();
+    slots[42].cleanable().clean();
+    assertFalse(store.containsKey(released, id));
+    final Object model = new Object();
+    assertEquals(released, store.allocate(model).index());
+    Reference.reachabilityFence(models);
+    Reference.reachabilityFence(model);
+  }
+
+  @Test
+  void mapView() {
+    final ColumnarDataStore store = new ColumnarDataStore(_ -> {
+    });
+    final Object model = new Object();
+    final int slot = store.allocate(model).index();
+    final Map<DataType, Object> map = store.mapView(slot, model);
+    assertTrue(map.isEmpty());
+
+    map.put(height, 3f);
+    map.put(comment, "a");
+    assertEquals(3f, store.get(slot, height));
+    assertEquals(Map.of(height, 3f, comment, "a"), Map.copyOf(map));
+
+    map.entrySet().removeIf(e -> e.getKey().equals(comment));
+    assertEquals(1, map.size());
+  }
+
+  @Test
+  void otherValueClassesInPrimitiveColumns() {
+    final ColumnarDataStore store = new ColumnarDataStore(_ -> {
+    });
+    final Object model = new Object();
+    final int slot = store.allocate(model).index();
+
+    // raw types may put other classes into primitive columns
+    store.put(slot, height, 5d);
+    assertEquals(5d, store.get(slot, height));
+    assertEquals(5d, store.put(slot, height, 6f));
+    assertEquals(6f, store.get(slot, height));
+
+    store.put(slot, id, "text");
+    assertEquals("text", store.remove(slot, id));
+    assertFalse(store.containsKey(slot, id));
+    Reference.reachabilityFence(model);
+  }
+
+  @Test
+  void forEachAndIsEmpty() {
+    final ColumnarDataStore store = new ColumnarDataStore(_ -> {
+    });
+    final Object model = new Object();
+    final int slot = store.allocate(model).index();
+    assertTrue(store.isEmpty(slot));
+
+    store.put(slot, height, 3f);
+    store.put(slot, comment, null);
+    assertFalse(store.isEmpty(slot));
+
+    final Map<DataType, Object> values = new HashMap<>();
+    store.forEach(slot, values::put);
+    final Map<DataType, Object> expected = new HashMap<>();
+    expected.put(height, 3f);
+    expected.put(comment, null);
+    assertEquals(expected, values);
+    Reference.reachabilityFence(model);
+  }
+
+  @Test
+  void removedRowKeepsValuesWithoutSlots() {
+    final RawDataFile file = new RawDataFileImpl("file", null, null, Color.BLACK);
+    final ModularFeatureList flist = new ModularFeatureList("flist", null, file);
+    final ModularFeatureListRow row = addRow(flist, file, 1);
+    final ModularFeature feature = row.getFeature(file);
+
+    flist.removeRow(row);
+    // values moved out of the columns of the feature list
+    assertEquals(1f, feature.getHeight());
+    assertEquals("row 1", row.get(CommentType.class));
+    final ModularFeatureListRow other = addRow(flist, file, 2);
+    assertEquals(1f, feature.getHeight());
+    assertEquals(2f, other.getFeature(file).getHeight());
+
+    // added again
+    flist.addRow(row);
+    assertEquals(1f, feature.getHeight());
+    assertEquals("row 1", row.get(CommentType.class));
+    row.set(comment, "changed");
+    assertEquals("row 2", other.get(CommentType.class));
+  }
+
+  @Test
+  void releaseValuesOfDiscardedFeatureList() {
+    final RawDataFile file = new RawDataFileImpl("file", null, null, Color.BLACK);
+    final ModularFeatureList flist = new ModularFeatureList("flist", null, file);
+    final ModularFeatureListRow row = addRow(flist, file, 1);
+    final ModularFeature feature = row.getFeature(file);
+
+    flist.releaseValues();
+    assertNull(row.get(CommentType.class));
+    assertNull(feature.getHeight());
+    // new rows do not see old values in reused slots
+    final ModularFeatureListRow other = addRow(flist, file, 2);
+    assertNull(row.get(CommentType.class));
+    assertEquals("row 2", other.get(CommentType.class));
+  }
+
+  @Test
+  void featureListIsCollected() throws InterruptedException {
+    final WeakReference<ModularFeatureList> flist = createFeatureList();
+    for (int i = 0; i < 50 && flist.get() != null; i++) {
+      System.gc();
+      Thread.sleep(20);
+    }
+    assertNull(flist.get(), "Feature list is still reachable from the columns");
+  }
+
+  private static WeakReference<ModularFeatureList> createFeatureList() {
+    final RawDataFile file = new RawDataFileImpl("file", null, null, Color.BLACK);
+    final ModularFeatureList flist = new ModularFeatureList("flist", null, file);
+    for (int id = 1; id <= 100; id++) {
+      addRow(flist, file, id);
+    }
+    return new WeakReference<>(flist);
+  }
+
+  private static ModularFeatureListRow addRow(ModularFeatureList flist, RawDataFile file,
+      int id) {
+    final ModularFeatureListRow row = new ModularFeatureListRow(flist, id);
+    final ModularFeature feature = new ModularFeature(flist, file, null, FeatureStatus.DETECTED);
+    feature.set(HeightType.class, (float) id);
+    row.addFeature(file, feature);
+    row.set(CommentType.class, "row " + id);
+    flist.addRow(row);
+    return row;
+  }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.features;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.ModularFeatureList.BulkUpdate;
+import io.github.mzmine.datamodel.features.types.DataTypes;
+import io.github.mzmine.datamodel.features.types.DetectionType;
+import io.github.mzmine.datamodel.features.types.modifiers.BindingsType;
+import io.github.mzmine.datamodel.features.types.numbers.HeightType;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Row bindings in {@link ModularFeatureList#startBulkUpdate()} scopes
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+class ModularFeatureListBulkUpdateTest {
+
+  private static final int NUM_ROWS = 200;
+
+  private ModularFeatureList flist;
+  private final List<ModularFeature> features = new ArrayList<>();
+  private CountingBinding binding;
+
+  @BeforeEach
+  void setUp() {
+    final RawDataFile file = new RawDataFileImpl("file", null, null, Color.BLACK);
+    flist = new ModularFeatureList("flist", null, file);
+    for (int id = 1; id <= NUM_ROWS; id++) {
+      final ModularFeatureListRow row = new ModularFeatureListRow(flist, id);
+      final ModularFeature feature = new ModularFeature(flist, file, null, null);
+      feature.set(DetectionType.class, FeatureStatus.DETECTED);
+      feature.set(HeightType.class, 0f);
+      row.addFeature(file, feature);
+      flist.addRow(row);
+      features.add(feature);
+    }
+    binding = new CountingBinding(flist);
+    flist.addRowBinding(List.of(binding));
+    binding.counts.clear();
+  }
+
+  private static float rowHeight(ModularFeature feature) {
+    return feature.getRow().get(HeightType.class);
+  }
+
+  @Test
+  void bindingsAppliedOncePerDirtyRowOnClose() {
+    try (var _ = flist.startBulkUpdate()) {
+      for (int i = 0; i < NUM_ROWS; i += 2) {
+        features.get(i).set(HeightType.class, 1f);
+        features.get(i).set(HeightType.class, 2f);
+      }
+      // deferred
+      assertTrue(binding.counts.isEmpty());
+      assertEquals(0f, rowHeight(features.get(0)));
+    }
+
+    assertEquals(NUM_ROWS / 2, binding.counts.size());
+    for (int i = 0; i < NUM_ROWS; i++) {
+      final ModularFeature feature = features.get(i);
+      assertEquals(i % 2 == 0 ? 1 : 0, binding.count(feature.getRow()));
+      assertEquals(i % 2 == 0 ? 2f : 0f, rowHeight(feature));
+    }
+    assertFalse(binding.appliedInScope.get());
+
+    // applied directly without a scope
+    features.get(1).set(HeightType.class, 3f);
+    assertEquals(1, binding.count(features.get(1).getRow()));
+    assertEquals(3f, rowHeight(features.get(1)));
+  }
+
+  @Test
+  void nestedScopes() {
+    try (var _ = flist.startBulkUpdate()) {
+      try (var _ = flist.startBulkUpdate()) {
+        features.getFirst().set(HeightType.class, 1f);
+      }
+      // the outer scope is still open
+      assertTrue(flist.isBulkUpdate());
+      assertTrue(binding.counts.isEmpty());
+      features.getFirst().set(HeightType.class, 2f);
+    }
+    assertFalse(flist.isBulkUpdate());
+    assertEquals(1, binding.count(features.getFirst().getRow()));
+    assertEquals(2f, rowHeight(features.getFirst()));
+    assertFalse(binding.appliedInScope.get());
+  }
+
+  @Test
+  void closingTwiceHasNoEffect() {
+    final BulkUpdate outer = flist.startBulkUpdate();
+    final BulkUpdate inner = flist.startBulkUpdate();
+    inner.close();
+    inner.close();
+    assertTrue(flist.isBulkUpdate());
+    outer.close();
+    assertFalse(flist.isBulkUpdate());
+  }
+
+  @Test
+  void concurrentDeferral() {
+    try (var _ = flist.startBulkUpdate()) {
+      // threads share the scope and open their own nested scopes
+      IntStream.range(0, NUM_ROWS * 10).parallel().forEach(i -> {
+        try (var _ = flist.startBulkUpdate()) {
+          final ModularFeature feature = features.get(i % NUM_ROWS);
+          feature.set(HeightType.class, (float) i);
+        }
+      });
+      assertTrue(binding.counts.isEmpty());
+    }
+
+    for (ModularFeature feature : features) {
+      assertEquals(1, binding.count(feature.getRow()));
+      assertEquals(feature.get(HeightType.class), rowHeight(feature));
+    }
+    assertFalse(binding.appliedInScope.get());
+  }
+
+  @Test
+  void changesWhileLastScopeClosesAreNotLost() throws InterruptedException {
+    final AtomicBoolean done = new AtomicBoolean();
+    final Thread scopes = new Thread(() -> {
+      while (!done.get()) {
+        flist.startBulkUpdate().close();
+      }
+    });
+    scopes.start();
+    for (int i = 0; i < 20_000; i++) {
+      // either this or the other scope is the last one to close
+      try (var _ = flist.startBulkUpdate()) {
+        features.get(i % NUM_ROWS).set(HeightType.class, (float) i);
+      }
+    }
+    done.set(true);
+    scopes.join();
+
+    // each change was applied by the last closing scope
+    for (ModularFeature feature : features) {
+      assertEquals(feature.get(HeightType.class), rowHeight(feature));
+    }
+  }
+
+  @Test
+  void discardDropsDirtyRows() {
+    try (var scope = flist.startBulkUpdate()) {
+      features.getFirst().set(HeightType.class, 1f);
+      scope.discard();
+    }
+    assertFalse(flist.isBulkUpdate());
+    assertTrue(binding.counts.isEmpty());
+
+    // not applied by the next scope
+    flist.startBulkUpdate().close();
+    assertTrue(binding.counts.isEmpty());
+  }
+
+  /**
+   * Counts the applications per row
+   */
+  private static class CountingBinding extends SimpleRowBinding {
+
+    private final ModularFeatureList flist;
+    private final Map<FeatureListRow, AtomicInteger> counts = new ConcurrentHashMap<>();
+    private final AtomicBoolean appliedInScope = new AtomicBoolean();
+
+    private CountingBinding(ModularFeatureList flist) {
+      super(DataTypes.get(HeightType.class), BindingsType.MAX);
+      this.flist = flist;
+    }
+
+    @Override
+    public void apply(FeatureListRow row) {
+      if (row != null) {
+        counts.computeIfAbsent(row, _ -> new AtomicInteger()).incrementAndGet();
+        if (flist.isBulkUpdate()) {
+          appliedInScope.set(true);
+        }
+      }
+      super.apply(row);
+    }
+
+    private int count(FeatureListRow row) {
+      final AtomicInteger count = counts.get(row);
+      return count == null ? 0 : count.get();
+    }
+  }
+}
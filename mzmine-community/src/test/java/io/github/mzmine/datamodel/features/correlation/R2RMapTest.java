@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.features.correlation;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class R2RMapTest {
+
+  @Test
+  void undirectedKey() {
+    assertEquals(R2RMap.toKey(3, 70000), R2RMap.toKey(70000, 3));
+    // old int pairing overflowed for large IDs
+    assertTrue(R2RMap.toKey(100_000, 100_001) != R2RMap.toKey(100_001, 100_002));
+
+    R2RMap<String> map = new R2RMap<>();
+    assertTrue(map.isEmpty());
+    assertNull(map.put(5, 2, "a"));
+    assertEquals("a", map.put(2, 5, "b"));
+    assertEquals("b", map.get(5, 2));
+    assertEquals(1, map.size());
+    assertArrayEquals(new int[]{2}, map.getNeighbourIDs(5));
+    assertArrayEquals(new int[]{5}, map.getNeighbourIDs(2));
+    assertEquals(0, map.getNeighbourIDs(3).length);
+  }
+
+  @Test
+  void concurrentAddAndAdjacency() {
+    final int rows = 500;
+    R2RMap<Integer> map = new R2RMap<>();
+    // edges between all rows with the same ID modulo 7
+    IntStream.range(0, rows).parallel().forEach(a -> {
+      for (int b = a + 1; b < rows; b++) {
+        if (a % 7 == b % 7) {
+          map.put(a, b, a * rows + b);
+        }
+      }
+    });
+
+    long expectedEdges = IntStream.range(0, 7).mapToLong(r -> {
+      long n = IntStream.range(0, rows).filter(i -> i % 7 == r).count();
+      return n * (n - 1) / 2;
+    }).sum();
+    assertEquals(expectedEdges, map.size());
+    assertEquals(expectedEdges, map.values().size());
+
+    for (int a = 0; a < rows; a++) {
+      final int row = a;
+      int[] expected = IntStream.range(0, rows).filter(b -> b != row && b % 7 == row % 7)
+          .toArray();
+      int[] neighbours = map.getNeighbourIDs(a);
+      Arrays.sort(neighbours);
+      assertArrayEquals(expected, neighbours);
+    }
+
+    R2RMap<Integer> copy = new R2RMap<>();
+    copy.putAll(map);
+    assertEquals(map.size(), copy.size());
+    assertEquals(7 * rows + 14, copy.get(14, 7));
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.features.types;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings("rawtypes")
+class DataTypeRegistryTest {
+
+  @Test
+  void registryEqualsClassPath() {
+    final List<DataType> registry = DataTypeRegistry.loadRegistry();
+    // registry is only generated by the gradle build
+    Assumptions.assumeTrue(registry != null, "No data type registry on the classpath");
+
+    assertEquals(toIdMap(DataTypeRegistry.scanClassPath()), toIdMap(registry),
+        "Data type registry is outdated, run the gradle task generateDataTypeRegistry");
+  }
+
+  @Test
+  void allScannedTypesResolve() {
+    for (DataType type : DataTypeRegistry.scanClassPath()) {
+      final DataType<?> byId = DataTypes.getTypeForId(type.getUniqueID());
+      assertNotNull(byId, type.getUniqueID());
+      assertSame(byId, DataTypes.get(type.getClass().getName()));
+    }
+  }
+
+  private static Map<String, String> toIdMap(List<DataType> types) {
+    final Map<String, String> map = new TreeMap<>();
+    for (DataType type : types) {
+      map.put(type.getClass().getName(), type.getUniqueID());
+    }
+    return map;
+  }
+}
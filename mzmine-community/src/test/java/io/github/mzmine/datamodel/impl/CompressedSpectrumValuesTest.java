@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.impl;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.datamodel.impl.CompressedSpectrumValues.DeltaValues;
+import io.github.mzmine.datamodel.impl.CompressedSpectrumValues.FloatValues;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class CompressedSpectrumValuesTest {
+
+  private static void assertLossless(double[] values, CompressedSpectrumValues compressed) {
+    assertEquals(values.length, compressed.size());
+    final double[] decoded = new double[values.length];
+    compressed.get(decoded);
+    assertArrayEquals(values, decoded);
+    for (int i = 0; i < values.length; i++) {
+      assertEquals(Double.doubleToRawLongBits(values[i]),
+          Double.doubleToRawLongBits(compressed.get(i)));
+    }
+  }
+
+  @Test
+  void sortedMzsAreDeltaEncoded() throws IOException {
+    final Random random = new Random(42);
+    final double[] mzs = new double[1001];
+    double mz = 50;
+    for (int i = 0; i < mzs.length; i++) {
+      // profile like spacing with some duplicates
+      mz += i % 50 == 0 ? 0 : random.nextDouble() * 0.01;
+      mzs[i] = mz;
+    }
+
+    final CompressedSpectrumValues compressed = CompressedSpectrumValues.compress(null, mzs);
+    assertTrue(compressed instanceof DeltaValues);
+    assertTrue(compressed.getStoredBytes() < mzs.length * Double.BYTES);
+    assertLossless(mzs, compressed);
+  }
+
+  @Test
+  void floatExactValuesAreStoredAsFloat() throws IOException {
+    final Random random = new Random(7);
+    final double[] intensities = new double[100];
+    for (int i = 0; i < intensities.length; i++) {
+      intensities[i] = random.nextFloat() * 1E6f;
+    }
+
+    final CompressedSpectrumValues compressed = CompressedSpectrumValues.compress(null,
+        intensities);
+    assertTrue(compressed instanceof FloatValues);
+    assertEquals(intensities.length * Float.BYTES, compressed.getStoredBytes());
+    assertLossless(intensities, compressed);
+  }
+
+  @Test
+  void incompressibleValuesStayUncompressed() throws IOException {
+    final Random random = new Random(3);
+    final double[] values = new double[100];
+    Arrays.setAll(values, i -> random.nextDouble() * 1E6);
+
+    assertNull(CompressedSpectrumValues.compress(null, values));
+    assertNull(CompressedSpectrumValues.compress(null, new double[0]));
+    // negative values are not delta encoded
+    assertNull(CompressedSpectrumValues.compress(null, new double[]{-0.1, 0.1}));
+  }
+
+  @Test
+  void blockBoundaries() throws IOException {
+    for (int n : new int[]{2, 31, 32, 33, 64, 65}) {
+      final double[] mzs = new double[n];
+      for (int i = 0; i < n; i++) {
+        mzs[i] = 100 + i * 0.001;
+      }
+      final CompressedSpectrumValues compressed = CompressedSpectrumValues.compress(null, mzs);
+      if (compressed != null) {
+        assertLossless(mzs, compressed);
+      }
+    }
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.impl;
+
+import io.github.mzmine.datamodel.MassSpectrum;
+import java.lang.foreign.MemorySegment;
+import java.nio.DoubleBuffer;
+
+/**
+ * Access to the stored values of spectra to test the storage layout
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+public class StorableSpectrumTestUtils {
+
+  /**
+   * @return the native address of the memory mapped m/z values or -1 if the values are not mapped
+   */
+  public static long mzValuesAddress(MassSpectrum spectrum) {
+    if (spectrum instanceof AbstractStorableSpectrum storable) {
+      final DoubleBuffer mzs = storable.getMzValues();
+      if (mzs.isDirect()) {
+        return MemorySegment.ofBuffer(mzs).address();
+      }
+    }
+    return -1;
+  }
+}
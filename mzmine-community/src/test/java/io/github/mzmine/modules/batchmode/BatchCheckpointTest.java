@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.batchmode;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.modules.batchmode.BatchCheckpoint.Cursor;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.MassDetectionParameters;
+import io.github.mzmine.modules.io.projectsave.ProjectSaveOption;
+import io.github.mzmine.parameters.parametertypes.selectors.RawDataFilesSelection;
+import io.github.mzmine.parameters.parametertypes.selectors.RawDataFilesSelectionType;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+import testutils.MZmineTestUtil;
+
+@TestInstance(Lifecycle.PER_CLASS)
+class BatchCheckpointTest {
+
+  @TempDir
+  Path tempDir;
+
+  @BeforeAll
+  void initialize() {
+    MZmineTestUtil.startMzmineCore();
+  }
+
+  @Test
+  void cursorRoundTrip() throws IOException {
+    final BatchCheckpoint checkpoint = new BatchCheckpoint(tempDir.toFile(),
+        ProjectSaveOption.REFERENCING, "hash");
+    assertNull(checkpoint.readCursor());
+
+    final Cursor cursor = new Cursor("hash", 4, "batch_checkpoint_step4_1.mzmine",
+        List.of("a.mzML", "b.mzML"), List.of("a.mzML chromatograms", "b.mzML chromatograms"));
+    checkpoint.writeCursor(cursor);
+    assertEquals(cursor, checkpoint.readCursor());
+
+    // replaced by the next checkpoint
+    final Cursor next = new Cursor("hash", 6, "batch_checkpoint_step6_2.mzmine", List.of(),
+        List.of("Aligned feature list"));
+    checkpoint.writeCursor(next);
+    assertEquals(next, checkpoint.readCursor());
+  }
+
+  @Test
+  void loadRejectsOtherBatch() throws IOException {
+    new BatchCheckpoint(tempDir.toFile(), ProjectSaveOption.REFERENCING, "hash").writeCursor(
+        new Cursor("hash", 2, "project.mzmine", List.of("a.mzML"), List.of()));
+
+    final BatchCheckpoint other = new BatchCheckpoint(tempDir.toFile(),
+        ProjectSaveOption.REFERENCING, "otherHash");
+    assertThrows(IOException.class, other::load);
+  }
+
+  @Test
+  void deleteCursorAndProject() throws IOException {
+    final Path project = Files.createFile(tempDir.resolve("project.mzmine"));
+    final BatchCheckpoint checkpoint = new BatchCheckpoint(tempDir.toFile(),
+        ProjectSaveOption.REFERENCING, "hash");
+    checkpoint.writeCursor(new Cursor("hash", 2, "project.mzmine", List.of(), List.of()));
+
+    checkpoint.delete();
+    assertNull(checkpoint.readCursor());
+    assertFalse(Files.exists(project));
+  }
+
+  @Test
+  void hashBatch() throws Exception {
+    final File dataFile = tempDir.resolve("DOM_a.mzML").toFile();
+    Files.copy(getResource("rawdatafiles/DOM_a.mzML").toPath(), dataFile.toPath(),
+        StandardCopyOption.REPLACE_EXISTING);
+
+    final String hash = BatchCheckpoint.hashBatch(loadQueue(dataFile));
+    assertEquals(hash, BatchCheckpoint.hashBatch(loadQueue(dataFile)));
+
+    // changed parameters
+    final BatchQueue changed = loadQueue(dataFile);
+    changed.get(1).getParameterSet().setParameter(MassDetectionParameters.dataFiles,
+        new RawDataFilesSelection(RawDataFilesSelectionType.ALL_FILES));
+    assertNotEquals(hash, BatchCheckpoint.hashBatch(changed));
+
+    // changed input file
+    Files.writeString(dataFile.toPath(), "\n", StandardOpenOption.APPEND);
+    assertTrue(dataFile.setLastModified(dataFile.lastModified() + 1000));
+    assertNotEquals(hash, BatchCheckpoint.hashBatch(loadQueue(dataFile)));
+  }
+
+  private static BatchQueue loadQueue(File dataFile) throws Exception {
+    final Document xml = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+        .parse(getResource("rawdatafiles/test_batch_small.xml"));
+    final BatchQueue queue = BatchQueue.loadFromXml(xml.getDocumentElement(), new ArrayList<>(),
+        false);
+    assertTrue(queue.setImportFiles(new File[]{dataFile}, new File[0]));
+    return queue;
+  }
+
+  private static File getResource(String name) {
+    return new File(BatchCheckpointTest.class.getClassLoader().getResource(name).getFile());
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.batchmode;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.modules.dataprocessing.id_spectral_library_match.SpectralLibrarySearchModule;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.project.impl.MZmineProjectImpl;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+import testutils.MZmineTestUtil;
+
+@TestInstance(Lifecycle.PER_CLASS)
+class ConcurrentDatasetBatchRunnerTest {
+
+  private static final String LIBRARY = """
+      BEGIN IONS
+      NAME=Test compound
+      PEPMASS=300.1234
+      CHARGE=1+
+      100.0 1000
+      150.0 500
+      200.0 250
+      END IONS
+      """;
+
+  @TempDir
+  Path tempDir;
+
+  @BeforeAll
+  void initialize() {
+    MZmineTestUtil.startMzmineCore();
+  }
+
+  @Test
+  void projectSelectionsRunOneDatasetAfterTheOther() throws Exception {
+    final BatchQueue queue = loadQueue();
+    // library matching reads the libraries of the current project
+    assertTrue(queue.stream()
+        .anyMatch(step -> step.getModule() instanceof SpectralLibrarySearchModule));
+    assertFalse(ConcurrentDatasetBatchRunner.canRunConcurrently(queue));
+
+    // only results of the previous steps
+    final BatchQueue perFile = loadQueue();
+    perFile.remove(6, perFile.size());
+    assertTrue(ConcurrentDatasetBatchRunner.canRunConcurrently(perFile));
+  }
+
+  @Test
+  void twoDatasetsWithLibraryMatching() throws Exception {
+    final File libraryFile = tempDir.resolve("library.mgf").toFile();
+    Files.writeString(libraryFile.toPath(), LIBRARY);
+    final BatchQueue queue = loadQueue();
+    assertTrue(queue.setImportFiles(null, new File[]{libraryFile}));
+
+    final File parentDir = tempDir.resolve("datasets").toFile();
+    final List<File> datasetDirs = new ArrayList<>();
+    for (String name : new String[]{"DOM_a.mzML", "DOM_b.mzXML"}) {
+      final Path datasetDir = parentDir.toPath().resolve(name.substring(0, name.indexOf('.')));
+      Files.createDirectories(datasetDir);
+      Files.copy(getResource("rawdatafiles/" + name).toPath(), datasetDir.resolve(name));
+      datasetDirs.add(datasetDir.toFile());
+    }
+
+    final ParameterSet parameters = new BatchModeParameters().cloneParameterSet();
+    parameters.getParameter(BatchModeParameters.batchQueue).setValue(queue);
+    parameters.setParameter(BatchModeParameters.advanced, true);
+    final ParameterSet advanced = parameters.getParameter(BatchModeParameters.advanced)
+        .getEmbeddedParameters();
+    advanced.setParameter(AdvancedBatchModeParameters.processingParentDir, parentDir);
+    advanced.setParameter(AdvancedBatchModeParameters.skipOnError, false);
+    advanced.setParameter(AdvancedBatchModeParameters.createResultsDirectory, true);
+    advanced.setParameter(AdvancedBatchModeParameters.includeSubdirectories, false);
+    advanced.setParameter(AdvancedBatchModeParameters.parallelDatasets, true, 2);
+
+    final BatchTask task = new BatchTask(new MZmineProjectImpl(), parameters, Instant.now(),
+        datasetDirs);
+    task.run();
+    assertEquals(TaskStatus.FINISHED, task.getStatus(), task.getErrorMessage());
+
+    // each dataset exported its results
+    for (File datasetDir : datasetDirs) {
+      final Path results = parentDir.toPath().resolve("results").resolve(datasetDir.getName());
+      assertTrue(Files.isDirectory(results), results.toString());
+      assertTrue(countFiles(results) > 0, results.toString());
+    }
+  }
+
+  private static long countFiles(Path dir) throws IOException {
+    try (Stream<Path> files = Files.list(dir)) {
+      return files.count();
+    }
+  }
+
+  private static BatchQueue loadQueue() throws Exception {
+    final Document xml = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+        .parse(getResource("rawdatafiles/test_batch_small.xml"));
+    return BatchQueue.loadFromXml(xml.getDocumentElement(), new ArrayList<>(), false);
+  }
+
+  private static File getResource(String name) {
+    return new File(
+        ConcurrentDatasetBatchRunnerTest.class.getClassLoader().getResource(name).getFile());
+  }
+}
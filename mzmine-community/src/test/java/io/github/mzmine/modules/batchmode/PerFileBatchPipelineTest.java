@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.batchmode;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.Feature;
+import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.MassDetectionParameters;
+import io.github.mzmine.parameters.parametertypes.selectors.RawDataFilesSelection;
+import io.github.mzmine.parameters.parametertypes.selectors.RawDataFilesSelectionType;
+import io.github.mzmine.project.impl.MZmineProjectImpl;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.taskcontrol.ThreadBudget;
+import io.github.mzmine.util.FeatureListRowSorter;
+import java.io.File;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.w3c.dom.Document;
+import testutils.MZmineTestUtil;
+
+@TestInstance(Lifecycle.PER_CLASS)
+class PerFileBatchPipelineTest {
+
+  /**
+   * import, 2x mass detection, chromatogram builder, resolver
+   */
+  private static final int PER_FILE_STEPS = 5;
+  /**
+   * per-file steps and the join aligner
+   */
+  private static final int ALIGNED_STEPS = PER_FILE_STEPS + 1;
+
+  @BeforeAll
+  void initialize() {
+    MZmineTestUtil.startMzmineCore();
+  }
+
+  @Test
+  void countPipelinedSteps() throws Exception {
+    final BatchQueue queue = loadQueue();
+    assertEquals(PER_FILE_STEPS, PerFileBatchPipeline.countPipelinedSteps(queue));
+
+    // the aligner combines files
+    assertFalse(PerFileBatchPipeline.isPerFileStep(queue.get(PER_FILE_STEPS)));
+
+    // other files than the results of the previous step
+    queue.get(2).getParameterSet().setParameter(MassDetectionParameters.dataFiles,
+        new RawDataFilesSelection(RawDataFilesSelectionType.ALL_FILES));
+    assertFalse(PerFileBatchPipeline.isPerFileStep(queue.get(2)));
+    assertEquals(2, PerFileBatchPipeline.countPipelinedSteps(queue));
+
+    // needs the data import as first step followed by a per-file step
+    queue.remove(0);
+    assertEquals(0, PerFileBatchPipeline.countPipelinedSteps(queue));
+    assertEquals(0, PerFileBatchPipeline.countPipelinedSteps(new BatchQueue()));
+  }
+
+  @Test
+  void pipelinedFilesShareThreads() {
+    final int threads = MZmineCore.getConfiguration().getNumOfThreads();
+    assertEquals(Math.max(1, threads / 2), ThreadBudget.threadsPerTask(2));
+    assertEquals(Math.max(1, threads / 4),
+        ThreadBudget.callShared(2, () -> ThreadBudget.threadsPerTask(2)));
+    assertEquals(Math.max(1, threads / 3),
+        ThreadBudget.callShared(3, () -> ThreadBudget.threadsPerTask(1)));
+    // reset after the call
+    assertEquals(threads, ThreadBudget.threadsPerTask(1));
+  }
+
+  @Test
+  void pipelinedEqualsStepByStep() throws Exception {
+    final FeatureList stepByStep = runAligned(null);
+    final FeatureList pipelined = runAligned(2);
+
+    assertEquals(stepByStep.getNumberOfRawDataFiles(), pipelined.getNumberOfRawDataFiles());
+    assertEquals(stepByStep.getNumberOfRows(), pipelined.getNumberOfRows());
+    assertTrue(stepByStep.getNumberOfRows() > 0);
+
+    final List<RawDataFile> expectedFiles = stepByStep.getRawDataFiles();
+    final List<RawDataFile> actualFiles = pipelined.getRawDataFiles();
+    for (int f = 0; f < expectedFiles.size(); f++) {
+      assertEquals(expectedFiles.get(f).getName(), actualFiles.get(f).getName());
+    }
+
+    final List<FeatureListRow> expectedRows = sortedRows(stepByStep);
+    final List<FeatureListRow> actualRows = sortedRows(pipelined);
+    for (int i = 0; i < expectedRows.size(); i++) {
+      final FeatureListRow expected = expectedRows.get(i);
+      final FeatureListRow actual = actualRows.get(i);
+      assertEquals(expected.getAverageMZ(), actual.getAverageMZ());
+      assertEquals(expected.getAverageRT(), actual.getAverageRT());
+      for (int f = 0; f < expectedFiles.size(); f++) {
+        assertEqualFeature(expected.getFeature(expectedFiles.get(f)),
+            actual.getFeature(actualFiles.get(f)));
+      }
+    }
+  }
+
+  /**
+   * Runs the per-file steps and the alignment in a new project
+   *
+   * @param pipelineFiles files in parallel or null to run step by step
+   * @return the aligned feature list
+   */
+  private FeatureList runAligned(@Nullable Integer pipelineFiles) throws Exception {
+    final BatchQueue queue = loadQueue();
+    queue.remove(ALIGNED_STEPS, queue.size());
+
+    final MZmineProjectImpl project = new MZmineProjectImpl();
+    final BatchTask task = new BatchTask(project, queue, pipelineFiles, "test", Instant.now());
+    task.run();
+    assertEquals(TaskStatus.FINISHED, task.getStatus(), task.getErrorMessage());
+
+    final FeatureList aligned = project.getCurrentFeatureLists().stream()
+        .filter(flist -> flist.getNumberOfRawDataFiles() > 1).findFirst().orElse(null);
+    assertNotNull(aligned);
+    return aligned;
+  }
+
+  private static void assertEqualFeature(@Nullable Feature expected, @Nullable Feature actual) {
+    if (expected == null) {
+      assertNull(actual);
+      return;
+    }
+    assertNotNull(actual);
+    assertEquals(expected.getMZ(), actual.getMZ());
+    assertEquals(expected.getRT(), actual.getRT());
+    assertEquals(expected.getHeight(), actual.getHeight());
+    assertEquals(expected.getArea(), actual.getArea());
+    assertEquals(expected.getNumberOfDataPoints(), actual.getNumberOfDataPoints());
+  }
+
+  private static List<FeatureListRow> sortedRows(FeatureList flist) {
+    final List<FeatureListRow> rows = new ArrayList<>(flist.getRows());
+    rows.sort(FeatureListRowSorter.MZ_ASCENDING);
+    return rows;
+  }
+
+  private static BatchQueue loadQueue() throws Exception {
+    final Document xml = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+        .parse(getResource("rawdatafiles/test_batch_small.xml"));
+    final BatchQueue queue = BatchQueue.loadFromXml(xml.getDocumentElement(), new ArrayList<>(),
+        false);
+    assertTrue(queue.setImportFiles(new File[]{getResource("rawdatafiles/DOM_a.mzML"),
+        getResource("rawdatafiles/DOM_b.mzXML")}, new File[0]));
+    return queue;
+  }
+
+  private static File getResource(String name) {
+    return new File(PerFileBatchPipelineTest.class.getClassLoader().getResource(name).getFile());
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.featuredata.FeatureDataUtils;
+import io.github.mzmine.datamodel.featuredata.IonTimeSeries;
+import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.modules.dataprocessing.featdet_adapchromatogrambuilder.ADAPChromatogramBuilderParameters;
+import io.github.mzmine.modules.dataprocessing.featdet_adapchromatogrambuilder.ModularADAPChromatogramBuilderModule;
+import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.minimumsearch.MinimumSearchFeatureResolverParameters;
+import io.github.mzmine.modules.io.import_rawdata_all.AdvancedSpectraImportParameters;
+import io.github.mzmine.modules.tools.batchwizard.subparameters.MassDetectorWizardOptions;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.parameters.parametertypes.OriginalFeatureListHandlingParameter.OriginalFeatureListOption;
+import io.github.mzmine.parameters.parametertypes.selectors.FeatureListsSelection;
+import io.github.mzmine.parameters.parametertypes.selectors.RawDataFilesSelectionType;
+import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.project.ProjectService;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.MemoryMapStorage;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import testutils.MZmineTestUtil;
+import testutils.TaskResult;
+
+/**
+ * The parallel resolving adds the same rows with the same IDs and series as a single thread
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+@TestInstance(Lifecycle.PER_CLASS)
+class FeatureResolverTaskTest {
+
+  private static final String FILE = "rawdatafiles/DOM_b.mzXML";
+  // small chunks to resolve many chunks on few threads
+  private static final int NUM_THREADS = 3;
+  private static final int MIN_CHUNK_SIZE = 8;
+
+  private ModularFeatureList chromatograms;
+
+  @BeforeAll
+  void initialize() throws InterruptedException {
+    MZmineTestUtil.startMzmineCore();
+    MZmineTestUtil.cleanProject();
+
+    var advancedImport = AdvancedSpectraImportParameters.create(
+        MassDetectorWizardOptions.ABSOLUTE_NOISE_LEVEL, 0d, 0d, null, ScanSelection.ALL_SCANS,
+        false);
+    MZmineTestUtil.importFiles(List.of(FILE), 30, advancedImport);
+
+    ADAPChromatogramBuilderParameters paramChrom = new ADAPChromatogramBuilderParameters();
+    paramChrom.getParameter(ADAPChromatogramBuilderParameters.dataFiles)
+        .setValue(RawDataFilesSelectionType.ALL_FILES);
+    paramChrom.setParameter(ADAPChromatogramBuilderParameters.scanSelection, new ScanSelection(1));
+    paramChrom.setParameter(ADAPChromatogramBuilderParameters.minimumConsecutiveScans, 4);
+    paramChrom.setParameter(ADAPChromatogramBuilderParameters.mzTolerance,
+        new MZTolerance(0.002, 10));
+    paramChrom.setParameter(ADAPChromatogramBuilderParameters.minHighestPoint, 3E5);
+    paramChrom.setParameter(ADAPChromatogramBuilderParameters.minGroupIntensity, 1E5);
+    paramChrom.setParameter(ADAPChromatogramBuilderParameters.suffix, "chrom");
+    TaskResult finished = MZmineTestUtil.callModuleWithTimeout(30,
+        ModularADAPChromatogramBuilderModule.class, paramChrom);
+    assertInstanceOf(TaskResult.FINISHED.class, finished, finished.description());
+
+    chromatograms = (ModularFeatureList) ProjectService.getProject().getCurrentFeatureLists()
+        .getFirst();
+    assertTrue(chromatograms.getNumberOfRows() > NUM_THREADS * MIN_CHUNK_SIZE);
+  }
+
+  @AfterAll
+  void tearDown() {
+    MZmineTestUtil.cleanProject();
+  }
+
+  private ParameterSet createParameters(String suffix) {
+    final ParameterSet param = new MinimumSearchFeatureResolverParameters().cloneParameterSet();
+    param.getParameter(MinimumSearchFeatureResolverParameters.PEAK_LISTS)
+        .setValue(new FeatureListsSelection(chromatograms));
+    param.setParameter(MinimumSearchFeatureResolverParameters.handleOriginal,
+        OriginalFeatureListOption.KEEP);
+    param.setParameter(MinimumSearchFeatureResolverParameters.CHROMATOGRAPHIC_THRESHOLD_LEVEL,
+        0.8);
+    param.setParameter(MinimumSearchFeatureResolverParameters.dimension,
+        ResolvingDimension.RETENTION_TIME);
+    param.setParameter(MinimumSearchFeatureResolverParameters.MIN_ABSOLUTE_HEIGHT, 3E5);
+    param.setParameter(MinimumSearchFeatureResolverParameters.MIN_NUMBER_OF_DATAPOINTS, 4);
+    param.setParameter(MinimumSearchFeatureResolverParameters.MIN_RATIO, 1.8);
+    param.setParameter(MinimumSearchFeatureResolverParameters.MIN_RELATIVE_HEIGHT, 0d);
+    param.setParameter(MinimumSearchFeatureResolverParameters.PEAK_DURATION,
+        Range.closed(0.02, 1d));
+    param.setParameter(MinimumSearchFeatureResolverParameters.SEARCH_RT_RANGE, 0.15);
+    param.setParameter(MinimumSearchFeatureResolverParameters.groupMS2Parameters, false);
+    param.setParameter(MinimumSearchFeatureResolverParameters.SUFFIX, suffix);
+    return param;
+  }
+
+  private FeatureList resolve(String suffix, int numThreads) {
+    final FeatureResolverTask task = new FeatureResolverTask(ProjectService.getProject(),
+        MemoryMapStorage.forFeatureList(), chromatograms, createParameters(suffix),
+        FeatureDataUtils.DEFAULT_CENTER_FUNCTION, Instant.now(), numThreads, MIN_CHUNK_SIZE);
+    task.run();
+    assertEquals(TaskStatus.FINISHED, task.getStatus(), task.getErrorMessage());
+    return ProjectService.getProject().getCurrentFeatureLists().stream()
+        .filter(flist -> flist.getName().endsWith(suffix)).findFirst().orElseThrow();
+  }
+
+  @Test
+  void parallelEqualsSequential() {
+    final FeatureList sequential = resolve("sequential", 1);
+    final FeatureList parallel = resolve("parallel", NUM_THREADS);
+
+    assertEquals(sequential.getNumberOfRows(), parallel.getNumberOfRows());
+    for (int i = 0; i < sequential.getNumberOfRows(); i++) {
+      final FeatureListRow expected = sequential.getRow(i);
+      final FeatureListRow actual = parallel.getRow(i);
+      assertEquals(expected.getID(), actual.getID(), "Row " + i);
+
+      final IonTimeSeries<? extends Scan> expectedSeries = expected.getBestFeature()
+          .getFeatureData();
+      final IonTimeSeries<? extends Scan> actualSeries = actual.getBestFeature().getFeatureData();
+      assertNotNull(actualSeries);
+      assertEquals(expectedSeries.getSpectra(), actualSeries.getSpectra(), "Row " + i);
+      assertArrayEquals(expectedSeries.getMzValues(new double[0]),
+          actualSeries.getMzValues(new double[0]), "Row " + i);
+      assertArrayEquals(expectedSeries.getIntensityValues(new double[0]),
+          actualSeries.getIntensityValues(new double[0]), "Row " + i);
+    }
+  }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.featdet_massdetection;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.datamodel.MassList;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.impl.MobilityScanStorage;
+import io.github.mzmine.datamodel.impl.SimpleFrame;
+import io.github.mzmine.datamodel.impl.StorableSpectrumTestUtils;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.factor_of_lowest.FactorOfLowestMassDetectorParameters;
+import io.github.mzmine.modules.impl.MZmineProcessingStepImpl;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.MemoryMapStorage;
+import java.io.File;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import testutils.MZmineTestUtil;
+
+/**
+ * The parallel mass detection adds the same mass lists in the same storage order as a single
+ * thread
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+@TestInstance(Lifecycle.PER_CLASS)
+class MassDetectionTaskTest {
+
+  private static final int NUM_THREADS = 4;
+
+  @BeforeAll
+  void initialize() {
+    MZmineTestUtil.startMzmineCore();
+  }
+
+  @AfterAll
+  void tearDown() {
+    MZmineTestUtil.cleanProject();
+  }
+
+  private static ParameterSet createParameters() {
+    final ParameterSet detectorParam = MassDetectors.FACTOR_OF_LOWEST.getParametersCopy();
+    detectorParam.setParameter(FactorOfLowestMassDetectorParameters.noiseFactor, 3d);
+    final ParameterSet parameters = new MassDetectionParameters().cloneParameterSet();
+    parameters.setParameter(MassDetectionParameters.massDetector,
+        new MZmineProcessingStepImpl<>(MassDetectors.FACTOR_OF_LOWEST.getDefaultModule(),
+            detectorParam));
+    parameters.setParameter(MassDetectionParameters.scanSelection, ScanSelection.ALL_SCANS);
+    parameters.setParameter(MassDetectionParameters.scanTypes, SelectedScanTypes.SCANS);
+    parameters.setParameter(MassDetectionParameters.denormalizeMSnScans, false);
+    return parameters;
+  }
+
+  private static DetectedData detect(RawDataFile raw, int numThreads) {
+    final MemoryMapStorage storage = MemoryMapStorage.create();
+    final MassDetectionTask task = new MassDetectionTask(raw, createParameters(), storage,
+        Instant.now(), numThreads);
+    task.run();
+    assertEquals(TaskStatus.FINISHED, task.getStatus(), task.getErrorMessage());
+    return DetectedData.of(raw, storage);
+  }
+
+  @Test
+  void parallelEqualsSequential() throws InterruptedException {
+    compareParallelToSequential("rawdatafiles/DOM_b.mzXML");
+  }
+
+  @Test
+  @DisabledOnOs(OS.MAC)
+  void parallelEqualsSequentialMobilityScans() throws InterruptedException {
+    compareParallelToSequential("rawdatafiles/additional/lc-tims-ms-pasef-a.d");
+  }
+
+  private void compareParallelToSequential(String fileName) throws InterruptedException {
+    MZmineTestUtil.cleanProject();
+    MZmineTestUtil.importFiles(List.of(fileName), 60);
+    final RawDataFile raw = MZmineTestUtil.getRawFromProject(new File(fileName).getName());
+    assertNotNull(raw);
+
+    final DetectedData sequential = detect(raw, 1);
+    final DetectedData parallel = detect(raw, NUM_THREADS);
+
+    assertEquals(sequential.masses().size(), parallel.masses().size());
+    for (int i = 0; i < sequential.masses().size(); i++) {
+      final String msg = "Scan " + i + " of " + raw.getName();
+      assertArrayEquals(sequential.masses().get(i), parallel.masses().get(i), msg);
+    }
+    assertEquals(sequential.mobilityMasses().size(), parallel.mobilityMasses().size());
+    for (int i = 0; i < sequential.mobilityMasses().size(); i++) {
+      assertArrayEquals(sequential.mobilityMasses().get(i), parallel.mobilityMasses().get(i),
+          "Mobility scan " + i + " of " + raw.getName());
+    }
+
+    // same layout in the storage, mass lists were stored in scan order
+    assertArrayEquals(sequential.storageOffsets(), parallel.storageOffsets());
+    long last = -1;
+    for (long offset : parallel.storageOffsets()) {
+      if (offset >= 0) {
+        assertTrue(offset > last, "Mass lists are not stored in scan order");
+        last = offset;
+      }
+    }
+  }
+
+  /**
+   * @param masses         mzs and intensities of all mass lists in scan order
+   * @param mobilityMasses mzs, intensities and storage offset of all mobility scan mass lists
+   * @param storageOffsets offsets of the stored mass lists relative to the first, -1 if not mapped
+   * @param storage        keeps the mapped values alive
+   */
+  private record DetectedData(List<double[][]> masses, List<double[][]> mobilityMasses,
+                              long[] storageOffsets, MemoryMapStorage storage) {
+
+    static DetectedData of(RawDataFile raw, MemoryMapStorage storage) {
+      final List<double[][]> masses = new ArrayList<>();
+      final List<double[][]> mobilityMasses = new ArrayList<>();
+      final List<Scan> scans = raw.getScans();
+      final long[] offsets = new long[scans.size()];
+      long first = -1;
+      for (int i = 0; i < scans.size(); i++) {
+        final Scan scan = scans.get(i);
+        final MassList massList = scan.getMassList();
+        assertNotNull(massList, "No mass list for scan " + i);
+        masses.add(values(massList));
+
+        final long address = StorableSpectrumTestUtils.mzValuesAddress(massList);
+        if (address >= 0 && first < 0) {
+          first = address;
+        }
+        offsets[i] = address < 0 ? -1 : address - first;
+
+        if (scan instanceof SimpleFrame frame) {
+          final MobilityScanStorage mobilityScans = frame.getMobilityScanStorage();
+          for (int m = 0; m < frame.getNumberOfMobilityScans(); m++) {
+            final double[][] values = values(mobilityScans.getMassList(m));
+            mobilityMasses.add(new double[][]{values[0], values[1],
+                {mobilityScans.getMassListStorageOffset(m)}});
+          }
+        }
+      }
+      return new DetectedData(masses, mobilityMasses, offsets, storage);
+    }
+
+    private static double[][] values(MassList massList) {
+      assertNotNull(massList);
+      return new double[][]{massList.getMzValues(new double[0]),
+          massList.getIntensityValues(new double[0])};
+    }
+  }
+}
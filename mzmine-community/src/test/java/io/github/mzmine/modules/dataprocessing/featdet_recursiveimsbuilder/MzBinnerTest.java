@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.featdet_recursiveimsbuilder;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class MzBinnerTest {
+
+  private final MZTolerance tolerance = new MZTolerance(0.005, 0);
+
+  @Test
+  void binsSortedByMzAndSlot() {
+    final double[] mzs = {200.001, 100.000, 100.002, 200.000, 100.001};
+    final double[] intensities = {10, 20, 5, 30, 15};
+    final int[] slots = {1, 2, 0, 0, 1};
+
+    final List<int[]> bins = new MzBinner(mzs, intensities, slots, tolerance, false, true, 0).bin(5);
+    assertEquals(2, bins.size());
+    assertArrayEquals(new int[]{2, 4, 1}, bins.get(0));
+    assertArrayEquals(new int[]{3, 0}, bins.get(1));
+  }
+
+  @Test
+  void leftoverValuesAreBinnedInAnotherPass() {
+    // both values in the same slot
+    final double[] mzs = {100.000, 100.001};
+    final double[] intensities = {20, 10};
+    final int[] slots = {0, 0};
+
+    final List<int[]> bins = new MzBinner(mzs, intensities, slots, tolerance, false, true, 0).bin(2);
+    assertEquals(2, bins.size());
+    assertArrayEquals(new int[]{0}, bins.get(0));
+    assertArrayEquals(new int[]{1}, bins.get(1));
+
+    // dropped if there are not more leftovers than the threshold
+    assertEquals(1, new MzBinner(mzs, intensities, slots, tolerance, false, true, 1).bin(2).size());
+  }
+
+  @Test
+  void newBinsAreLimitedByNeighbors() {
+    final double[] mzs = {100.000, 100.008};
+    final double[] intensities = {20, 10};
+    final int[] slots = {0, 0};
+
+    // the full tolerance range of the second value overlaps the first bin
+    assertEquals(1, new MzBinner(mzs, intensities, slots, tolerance, false, true, 1).bin(2).size());
+    assertEquals(2, new MzBinner(mzs, intensities, slots, tolerance, true, false, 1).bin(2).size());
+  }
+
+  @Test
+  void replaceUsesNearestOccupiedSlots() {
+    // 0 and 2 are the neighbors of 3 in slot 2, with empty slots 1 and 3 in between
+    final double[] mzs = {100.000, 100.002, 100.000, 100.0005};
+    final double[] intensities = {60, 100, 60, 50};
+    final int[] slots = {0, 2, 4, 2};
+
+    // 3 is closer to the center and the average intensity of the neighbors
+    final List<int[]> bins = new MzBinner(mzs, intensities, slots, tolerance, false, true,
+        0).bin(4);
+    assertEquals(2, bins.size());
+    assertArrayEquals(new int[]{0, 3, 2}, bins.get(0));
+    assertArrayEquals(new int[]{1}, bins.get(1));
+
+    // no neighbor below the slot
+    slots[0] = 3;
+    final List<int[]> noReplace = new MzBinner(mzs, intensities, slots, tolerance, false, true,
+        0).bin(4);
+    assertArrayEquals(new int[]{1, 0, 2}, noReplace.get(0));
+    assertArrayEquals(new int[]{3}, noReplace.get(1));
+  }
+
+  @Test
+  void replaceOnEqualDistance() {
+    // 3 has the same m/z as 1 and fits better to the average intensity of the neighbors
+    final double[] mzs = {100.000, 100.002, 100.000, 100.002};
+    final double[] intensities = {60, 100, 60, 50};
+    final int[] slots = {0, 2, 4, 2};
+
+    final List<int[]> replaced = new MzBinner(mzs, intensities, slots, tolerance, false, true,
+        0).bin(4);
+    assertArrayEquals(new int[]{0, 3, 2}, replaced.get(0));
+    assertArrayEquals(new int[]{1}, replaced.get(1));
+
+    final List<int[]> kept = new MzBinner(mzs, intensities, slots, tolerance, true, false,
+        0).bin(4);
+    assertArrayEquals(new int[]{0, 1, 2}, kept.get(0));
+    assertArrayEquals(new int[]{3}, kept.get(1));
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.gapfill_peakfinder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.google.common.collect.Range;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class GapRtIndexTest {
+
+  @Test
+  void sameGapsAsBruteForce() {
+    Random rand = new Random(7);
+    List<Gap> gaps = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      float center = rand.nextFloat() * 30f;
+      // mostly narrow windows and some wide ones
+      float width = rand.nextInt(20) == 0 ? rand.nextFloat() * 10f : rand.nextFloat() * 0.3f;
+      Range<Float> rtRange = Range.closed(center - width, center + width);
+      gaps.add(new Gap(null, null, Range.closed(100d, 100.01d), rtRange, 0.5));
+    }
+    // open bounds are respected
+    gaps.add(new Gap(null, null, Range.closed(100d, 100.01d), Range.open(5f, 6f), 0.5));
+
+    GapRtIndex<Gap> index = new GapRtIndex<>(gaps);
+    assertEquals(gaps.size(), index.size());
+
+    float[] rts = new float[1000];
+    for (int i = 0; i < rts.length - 2; i++) {
+      rts[i] = -1f + rand.nextFloat() * 42f;
+    }
+    rts[rts.length - 2] = 5f;
+    rts[rts.length - 1] = 6f;
+
+    for (float rt : rts) {
+      var expected = new HashSet<Gap>();
+      for (Gap gap : gaps) {
+        if (gap.getRtRange().contains(rt)) {
+          expected.add(gap);
+        }
+      }
+      List<Gap> found = index.findOverlapping(rt);
+      assertEquals(expected.size(), found.size());
+      assertEquals(expected, new HashSet<>(found));
+    }
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.group_spectral_networking;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.datamodel.impl.SimpleDataPoint;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.util.DataPointSorter;
+import io.github.mzmine.util.maths.similarity.Similarity;
+import io.github.mzmine.util.scans.ScanAlignment;
+import io.github.mzmine.util.scans.similarity.Weights;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class SpectralNetworkingCandidatesTest {
+
+  private final MZTolerance mzTol = new MZTolerance(0.003, 5);
+
+  @Test
+  void noFalseNegatives() {
+    Random rand = new Random(7);
+    // spectra are created from templates to get matches, shifted matches and random signals
+    int numTemplates = 8;
+    double[][] templates = new double[numTemplates][];
+    for (int t = 0; t < numTemplates; t++) {
+      templates[t] = rand.doubles(15, 50, 400).toArray();
+    }
+    int numSpectra = 200;
+    int minMatch = 4;
+    double minCosine = 0.6;
+
+    double[] precursors = new double[numSpectra];
+    DataPoint[][] spectra = new DataPoint[numSpectra][];
+    for (int i = 0; i < numSpectra; i++) {
+      double[] template = templates[rand.nextInt(numTemplates)];
+      // modifications of the precursor
+      double shift = rand.nextInt(3) * 14.01565;
+      precursors[i] = 400 + shift;
+      DataPoint[] dps = new DataPoint[3 + rand.nextInt(template.length - 2)];
+      for (int d = 0; d < dps.length; d++) {
+        boolean random = rand.nextInt(5) == 0;
+        double mz =
+            random ? 50 + rand.nextDouble() * 350 : template[d] + rand.nextGaussian() * 0.001;
+        if (rand.nextInt(4) == 0) {
+          // fragment carries the modification
+          mz += shift;
+        }
+        // decreasing template intensities with noise
+        double intensity =
+            random ? rand.nextInt(100) : 1000d / (d + 1) * (0.7 + rand.nextDouble() * 0.6);
+        dps[d] = new SimpleDataPoint(mz, 1 + intensity);
+      }
+      Arrays.sort(dps, DataPointSorter.DEFAULT_INTENSITY);
+      spectra[i] = dps;
+    }
+
+    SpectralNetworkingCandidates candidates = new SpectralNetworkingCandidates(mzTol, minMatch,
+        minCosine, Weights.SQRT);
+    for (int i = 0; i < numSpectra; i++) {
+      candidates.addSpectrum(i, precursors[i], spectra[i]);
+    }
+    candidates.build();
+
+    int edges = 0;
+    for (int i = 0; i < numSpectra - 1; i++) {
+      for (int j = i + 1; j < numSpectra; j++) {
+        // same alignment as the modified cosine in the networking
+        List<DataPoint[]> aligned = ScanAlignment.alignOfSortedModAware(mzTol, spectra[j],
+            spectra[i], precursors[j], precursors[i]);
+        int overlap = SpectralNetworkingTask.calcOverlap(aligned);
+        double cosine = Similarity.COSINE.calc(
+            ScanAlignment.toIntensityMatrixWeighted(aligned, Weights.SQRT.getIntensity(),
+                Weights.SQRT.getMz()));
+        if (overlap >= minMatch && cosine >= minCosine) {
+          edges++;
+          assertTrue(candidates.isCandidate(i, j), "Pruned pair %d, %d".formatted(i, j));
+          assertTrue(candidates.isCandidate(j, i));
+        }
+      }
+    }
+    assertTrue(edges > 0);
+    assertTrue(candidates.getNumCandidatePairs() < (long) numSpectra * (numSpectra - 1) / 2);
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.import_rawdata_mzml.msdk;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.ScanImportProcessorConfig;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.BuildingMzMLMsScan;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLRawDataFile;
+import java.io.File;
+import java.nio.DoubleBuffer;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Parsing in chunks of spectra results in the same scans as parsing sequentially
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+class MzMLFileImportMethodTest {
+
+  private static final File FILE = new File(MzMLFileImportMethodTest.class.getClassLoader()
+      .getResource("rawdatafiles/additional/gc_orbi_profile_21scans.mzML").getFile());
+
+  private static MzMLRawDataFile parse(File file, int spectraPerChunk) throws Exception {
+    final MzMLRawDataFile raw = new MzMLFileImportMethod(Instant.now(), file, null,
+        ScanImportProcessorConfig.createDefault(), spectraPerChunk).parseMzMl();
+    assertNotNull(raw);
+    return raw;
+  }
+
+  @Test
+  void chunkedEqualsSequential() throws Exception {
+    final List<BuildingMzMLMsScan> sequential = parse(FILE, 0).getScans();
+    assertEquals(21, sequential.size());
+    // single spectra, a last chunk that is not full, and two chunks
+    for (int spectraPerChunk : new int[]{1, 4, 20}) {
+      assertEqualScans(sequential, parse(FILE, spectraPerChunk).getScans(), spectraPerChunk);
+    }
+  }
+
+  private static void assertEqualScans(List<BuildingMzMLMsScan> sequential,
+      List<BuildingMzMLMsScan> chunked, int spectraPerChunk) {
+    assertEquals(sequential.size(), chunked.size());
+    for (int i = 0; i < sequential.size(); i++) {
+      final BuildingMzMLMsScan expected = sequential.get(i);
+      final BuildingMzMLMsScan actual = chunked.get(i);
+      final String msg = "Scan " + i + " with chunks of " + spectraPerChunk;
+      assertEquals(expected.getId(), actual.getId(), msg);
+      assertEquals(expected.getScanNumber(), actual.getScanNumber(), msg);
+      assertEquals(expected.getMSLevel(), actual.getMSLevel(), msg);
+      assertEquals(expected.getRetentionTime(), actual.getRetentionTime(), msg);
+      assertEquals(expected.getPolarity(), actual.getPolarity(), msg);
+      assertEquals(expected.getSpectrumType(), actual.getSpectrumType(), msg);
+      assertEquals(expected.getPrecursorMz(), actual.getPrecursorMz(), msg);
+      assertEquals(expected.getPrecursorCharge(), actual.getPrecursorCharge(), msg);
+      assertArrayEquals(values(expected.getDoubleBufferMzValues()),
+          values(actual.getDoubleBufferMzValues()), msg);
+      assertArrayEquals(values(expected.getDoubleBufferIntensityValues()),
+          values(actual.getDoubleBufferIntensityValues()), msg);
+    }
+  }
+
+  private static double[] values(DoubleBuffer buffer) {
+    final double[] values = new double[buffer.limit()];
+    buffer.get(0, values);
+    return values;
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.import_rawdata_mzml.msdk.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.junit.jupiter.api.Test;
+
+class MzMLSpectrumIndexTest {
+
+  private static final Path FILE = new File(MzMLSpectrumIndexTest.class.getClassLoader()
+      .getResource("rawdatafiles/additional/gc_orbi_profile_21scans.mzML").getFile()).toPath();
+
+  @Test
+  void indexedOffsetsPointToSpectra() throws IOException {
+    final long[] offsets = MzMLSpectrumIndex.findSpectrumOffsets(FILE);
+    assertEquals(21, offsets.length);
+
+    final byte[] bytes = Files.readAllBytes(FILE);
+    for (long offset : offsets) {
+      assertEquals("<spectrum ",
+          new String(bytes, (int) offset, 10, StandardCharsets.US_ASCII));
+    }
+  }
+
+  @Test
+  void scannedOffsetsEqualIndex() throws IOException {
+    final long[] indexed = MzMLSpectrumIndex.findSpectrumOffsets(FILE);
+
+    // remove the index list offset to fall back to scanning
+    final String text = Files.readString(FILE, StandardCharsets.UTF_8);
+    final Path noIndex = Files.createTempFile("noindex", ".mzML");
+    try {
+      Files.writeString(noIndex, text.substring(0, text.indexOf("<indexListOffset>")),
+          StandardCharsets.UTF_8);
+      assertArrayEquals(indexed, MzMLSpectrumIndex.findSpectrumOffsets(noIndex));
+    } finally {
+      Files.delete(noIndex);
+    }
+  }
+
+  @Test
+  void chunksContainAllSpectra() throws IOException, XMLStreamException {
+    final long[] offsets = MzMLSpectrumIndex.findSpectrumOffsets(FILE);
+    final int chunkSize = 5;
+    int spectra = 0;
+    for (int first = 0; first < offsets.length; first += chunkSize) {
+      final int next = first + chunkSize;
+      final long end = next < offsets.length ? offsets[next] : -1;
+      spectra += countSpectra(MzMLSpectrumIndex.openChunk(FILE, offsets[first], end));
+    }
+    assertEquals(offsets.length, spectra);
+  }
+
+  private static int countSpectra(InputStream chunk) throws XMLStreamException, IOException {
+    try (chunk) {
+      final XMLStreamReader reader = XMLInputFactory.newFactory().createXMLStreamReader(chunk);
+      int spectra = 0;
+      while (reader.hasNext()) {
+        final int event = reader.next();
+        if (event == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("spectrum")) {
+          spectra++;
+        } else if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName()
+            .equals("spectrumList")) {
+          // the wrapping root element of the chunk ends, ignore the rest of the file
+          break;
+        }
+      }
+      return spectra;
+    }
+  }
+}
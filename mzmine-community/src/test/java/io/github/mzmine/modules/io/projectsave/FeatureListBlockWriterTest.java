@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.projectsave;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.featuredata.impl.SimpleIonTimeSeries;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.features.types.DataType;
+import io.github.mzmine.datamodel.features.types.DetectionType;
+import io.github.mzmine.datamodel.features.types.FeatureDataType;
+import io.github.mzmine.datamodel.features.types.annotations.CommentType;
+import io.github.mzmine.datamodel.features.types.numbers.ChargeType;
+import io.github.mzmine.datamodel.features.types.numbers.HeightType;
+import io.github.mzmine.datamodel.features.types.numbers.MZType;
+import io.github.mzmine.datamodel.features.types.numbers.RTType;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.modules.io.projectload.version_3_0.FeatureListBlockReader;
+import io.github.mzmine.project.impl.MZmineProjectImpl;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import io.github.mzmine.util.MemoryMapStorage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import javafx.scene.paint.Color;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Saves an aligned feature list with {@link FeatureListBlockWriter} and loads it with
+ * {@link FeatureListBlockReader}. Covers primitive, feature data and xml columns and missing
+ * features and values, loaded into memory and from mapped block files.
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+class FeatureListBlockWriterTest {
+
+  // more than one block
+  private static final int NUM_ROWS = FeatureListBlockWriter.ROWS_PER_BLOCK + 100;
+
+  @TempDir
+  File tempDir;
+
+  private MZmineProject project;
+  private RawDataFile fileA;
+  private RawDataFile fileB;
+  private ModularFeatureList flist;
+
+  private static RawDataFile createFile(String name) throws IOException {
+    final RawDataFile file = new RawDataFileImpl(name, null, null, Color.BLACK);
+    for (int i = 0; i < 20; i++) {
+      file.addScan(new SimpleScan(file, i, 1, 0.1f * i, null, new double[0], new double[0],
+          MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, "", Range.closed(0d, 1d)));
+    }
+    return file;
+  }
+
+  private static ModularFeature createFeature(ModularFeatureList flist, RawDataFile file, int id) {
+    final ModularFeature feature = new ModularFeature(flist, file, null, null);
+    final List<Scan> scans = file.getScans().subList(id % 10, id % 10 + 5);
+    feature.set(FeatureDataType.class, new SimpleIonTimeSeries(null,
+        new double[]{150d + id, 150d + id, 150d + id, 150d + id, 150d + id},
+        new double[]{1d, 5d, 20d + id, 5d, 1d}, scans));
+    feature.set(DetectionType.class, FeatureStatus.DETECTED);
+    feature.set(MZType.class, 150d + id);
+    feature.set(RTType.class, 0.1f * (id % 10 + 2));
+    // differs from the height of the feature data and must not be recalculated on load
+    if (id % 5 != 0) {
+      feature.set(HeightType.class, 1000f + id);
+    }
+    return feature;
+  }
+
+  @BeforeEach
+  void setUp() throws IOException {
+    fileA = createFile("a");
+    fileB = createFile("b");
+    flist = new ModularFeatureList("flist", null, fileA, fileB);
+    for (int id = 1; id <= NUM_ROWS; id++) {
+      final ModularFeatureListRow row = new ModularFeatureListRow(flist, id);
+      row.addFeature(fileA, createFeature(flist, fileA, id));
+      // missing features in the second file
+      if (id % 3 != 0) {
+        row.addFeature(fileB, createFeature(flist, fileB, id));
+      }
+      if (id % 2 == 0) {
+        row.set(ChargeType.class, id % 4);
+        row.set(CommentType.class, "comment " + id);
+      }
+      flist.addRow(row);
+    }
+
+    project = new MZmineProjectImpl();
+    project.addFile(fileA);
+    project.addFile(fileB);
+    project.addFeatureList(flist);
+  }
+
+  /**
+   * @param storage          the storage of the loaded feature list
+   * @param mapSeriesBuffers map the block files and use the series buffers in place
+   */
+  private ModularFeatureList saveAndLoad(@Nullable MemoryMapStorage storage,
+      boolean mapSeriesBuffers) throws IOException {
+    final FeatureListBlockWriter writer = new FeatureListBlockWriter(flist);
+    final File header = new File(tempDir, "header");
+    Files.write(header.toPath(), writer.writeHeader());
+    final List<File> blocks = new ArrayList<>();
+    for (int i = 0; i < writer.getNumBlocks(); i++) {
+      final File block = new File(tempDir, "block" + i);
+      Files.write(block.toPath(), writer.writeBlock(i));
+      blocks.add(block);
+    }
+
+    final ModularFeatureList loaded = new ModularFeatureList(flist.getName(), storage,
+        flist.getRawDataFiles());
+    loaded.setDateCreated(flist.getDateCreated());
+    final FeatureListBlockReader reader = new FeatureListBlockReader(project, loaded,
+        mapSeriesBuffers);
+    Assertions.assertEquals(blocks.size(), reader.readHeaderCreateRows(header));
+    for (File block : blocks) {
+      reader.applyBlock(reader.decodeBlock(block));
+    }
+    return loaded;
+  }
+
+  private static <T> void assertEqualValue(ModularFeatureListRow expected,
+      ModularFeatureListRow actual, Class<? extends DataType<T>> type) {
+    Assertions.assertEquals(expected.get(type), actual.get(type),
+        () -> type.getSimpleName() + " of row " + expected.getID());
+  }
+
+  private static <T> void assertEqualValue(ModularFeature expected, ModularFeature actual,
+      Class<? extends DataType<T>> type) {
+    Assertions.assertEquals(expected.get(type), actual.get(type),
+        () -> type.getSimpleName() + " of feature " + expected.getRow().getID());
+  }
+
+  @Test
+  void testSaveLoad() throws IOException {
+    Assertions.assertTrue(new FeatureListBlockWriter(flist).getNumBlocks() > 1);
+    final ModularFeatureList loaded = saveAndLoad(null, false);
+    assertEqualFeatureLists(loaded);
+
+    final DoubleBuffer intensities = ((ModularFeature) loaded.getRow(0)
+        .getFeature(fileA)).getFeatureData().getIntensityValueBuffer();
+    Assertions.assertFalse(intensities.isDirect());
+
+    // mapping is opt-in, also for memory mapped feature lists
+    final DoubleBuffer storageIntensities = ((ModularFeature) saveAndLoad(MemoryMapStorage.create(),
+        false).getRow(0).getFeature(fileA)).getFeatureData().getIntensityValueBuffer();
+    Assertions.assertFalse(storageIntensities.isReadOnly());
+  }
+
+  @Test
+  void testMappedSaveLoad() throws IOException {
+    final ModularFeatureList loaded = saveAndLoad(null, true);
+    assertEqualFeatureLists(loaded);
+
+    // the feature data uses the mapped block files in place
+    final DoubleBuffer intensities = ((ModularFeature) loaded.getRow(0)
+        .getFeature(fileA)).getFeatureData().getIntensityValueBuffer();
+    Assertions.assertTrue(intensities.isDirect());
+    Assertions.assertTrue(intensities.isReadOnly());
+  }
+
+  private void assertEqualFeatureLists(ModularFeatureList loaded) {
+    Assertions.assertEquals(flist.getNumberOfRows(), loaded.getNumberOfRows());
+    for (int r = 0; r < flist.getNumberOfRows(); r++) {
+      final ModularFeatureListRow row = (ModularFeatureListRow) flist.getRow(r);
+      final ModularFeatureListRow loadedRow = (ModularFeatureListRow) loaded.getRow(r);
+      Assertions.assertEquals(row.getID(), loadedRow.getID());
+      assertEqualValue(row, loadedRow, ChargeType.class);
+      assertEqualValue(row, loadedRow, CommentType.class);
+      Assertions.assertEquals(row.getNumberOfFeatures(), loadedRow.getNumberOfFeatures());
+
+      for (RawDataFile file : List.of(fileA, fileB)) {
+        final ModularFeature feature = row.getFeature(file);
+        final ModularFeature loadedFeature = loadedRow.getFeature(file);
+        if (feature == null) {
+          Assertions.assertNull(loadedFeature);
+          continue;
+        }
+        Assertions.assertNotNull(loadedFeature);
+        assertEqualValue(feature, loadedFeature, FeatureDataType.class);
+        assertEqualValue(feature, loadedFeature, DetectionType.class);
+        assertEqualValue(feature, loadedFeature, MZType.class);
+        assertEqualValue(feature, loadedFeature, RTType.class);
+        assertEqualValue(feature, loadedFeature, HeightType.class);
+      }
+    }
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeMap;
+import com.google.common.collect.TreeRangeMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class MzIntervalMapTest {
+
+  @Test
+  void sameIntervalsAsTreeRangeMap() {
+    Random rand = new Random(42);
+    RangeMap<Double, Integer> expected = TreeRangeMap.create();
+    MzIntervalMap map = new MzIntervalMap();
+
+    for (int n = 0; n < 200000; n++) {
+      final double mz = 100 + rand.nextDouble() * 100;
+      final Entry<Range<Double>, Integer> existing = expected.getEntry(mz);
+      assertEquals(existing == null ? -1 : existing.getValue(), map.find(mz));
+      if (existing != null) {
+        continue;
+      }
+
+      // same as the chromatogram builder: limit the new range by neighboring ranges
+      final double tolerance = rand.nextInt(20) == 0 ? 0.05 : 0.002;
+      final var minus = expected.getEntry(mz - tolerance);
+      final var plus = expected.getEntry(mz + tolerance);
+      final double lower = minus == null ? mz - tolerance : minus.getKey().upperEndpoint();
+      final double upper = plus == null ? mz + tolerance : plus.getKey().lowerEndpoint();
+      if (minus != null) {
+        assertEquals(lower, map.getUpper(map.find(mz - tolerance)));
+      }
+      if (plus != null) {
+        assertEquals(upper, map.getLower(map.find(mz + tolerance)));
+      }
+      if (lower < upper) {
+        final int id = map.add(lower, upper);
+        expected.put(Range.closedOpen(lower, upper), id);
+      }
+    }
+
+    final List<Integer> expectedIds = new ArrayList<>(expected.asMapOfRanges().values());
+    assertEquals(expectedIds.size(), map.size());
+    final List<Integer> ids = new ArrayList<>(map.getIdsSortedByMz());
+    assertEquals(expectedIds, ids);
+  }
+}
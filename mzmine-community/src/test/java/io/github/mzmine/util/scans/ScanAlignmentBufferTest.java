@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.scans;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.datamodel.impl.SimpleDataPoint;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.util.maths.similarity.Similarity;
+import io.github.mzmine.util.scans.similarity.HandleUnmatchedSignalOptions;
+import io.github.mzmine.util.scans.similarity.Weights;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class ScanAlignmentBufferTest {
+
+  private final MZTolerance mzTol = new MZTolerance(0.005, 10);
+
+  private static DataPoint[] randomSpectrum(Random rand, int size, double[] sharedMzs) {
+    DataPoint[] dps = new DataPoint[size];
+    for (int i = 0; i < size; i++) {
+      // some shared m/z values with small deviation to create matches and conflicts
+      double mz = rand.nextBoolean() ? sharedMzs[rand.nextInt(sharedMzs.length)]
+                                       + rand.nextGaussian() * 0.002 : 50 + rand.nextDouble() * 900;
+      // rounded intensities to create ties
+      double intensity = Math.round(rand.nextDouble() * 20) * 500d;
+      dps[i] = new SimpleDataPoint(mz, intensity);
+    }
+    return dps;
+  }
+
+  @Test
+  void equalToDataPointAlignment() {
+    Random rand = new Random(42);
+    double[] sharedMzs = rand.doubles(30, 50, 950).toArray();
+    ScanAlignmentBuffer buffer = ScanAlignmentBuffer.get();
+
+    for (int test = 0; test < 500; test++) {
+      DataPoint[] a = randomSpectrum(rand, 1 + rand.nextInt(80), sharedMzs);
+      DataPoint[] b = randomSpectrum(rand, 1 + rand.nextInt(80), sharedMzs);
+
+      for (HandleUnmatchedSignalOptions handle : HandleUnmatchedSignalOptions.values()) {
+        for (Weights weights : Weights.VALUES) {
+          List<DataPoint[]> aligned = handle.handleUnmatched(
+              ScanAlignment.align(mzTol, a.clone(), b.clone()));
+          int overlap = (int) aligned.stream().filter(dp -> dp[0] != null && dp[1] != null)
+              .count();
+          double expected = Similarity.COSINE.calc(
+              ScanAlignment.toIntensityMatrixWeighted(aligned, weights.getIntensity(),
+                  weights.getMz()));
+
+          assertEquals(overlap, buffer.align(mzTol, a, b));
+          // exact equality
+          assertEquals(expected, buffer.weightedCosine(weights, handle), 0d);
+        }
+      }
+    }
+  }
+
+  @Test
+  void primitiveInput() {
+    double[] mzA = {100, 200.001, 300, 400};
+    double[] intensityA = {10, 50, 20, 0};
+    double[] mzB = {400.002, 100.003, 200, 250};
+    double[] intensityB = {5, 10, 50, 1};
+    ScanAlignmentBuffer buffer = ScanAlignmentBuffer.get();
+    assertEquals(3, buffer.align(mzTol, mzA, intensityA, 4, mzB, intensityB, 4));
+    // only length of 3 used
+    assertEquals(2, buffer.align(mzTol, mzA, intensityA, 3, mzB, intensityB, 3));
+    // input arrays are not changed
+    assertEquals(100, mzA[0]);
+    assertEquals(400.002, mzB[0]);
+  }
+}
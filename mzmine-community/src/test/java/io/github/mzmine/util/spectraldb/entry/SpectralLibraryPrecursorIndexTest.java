@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.spectraldb.entry;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.PolarityType;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SpectralLibraryPrecursorIndexTest {
+
+  SpectralLibrary library;
+
+  @BeforeEach
+  void init() {
+    library = new SpectralLibrary(null, new File("test_library.json"));
+    // unsorted precursor m/z to check sorting and original order of results
+    addEntry(300d, "+", 5f, null); // 0
+    addEntry(100d, "-", 2f, 150f); // 1
+    addEntry(null, "+", null, null); // 2 no precursor
+    addEntry(200d, null, null, 170f); // 3
+    addEntry(100.001d, "+", 8f, 155f); // 4
+    addEntry(200.0005d, "-", 3f, null); // 5
+  }
+
+  private void addEntry(Double precursorMz, String polarity, Float rt, Float ccs) {
+    Map<DBEntryField, Object> fields = new HashMap<>();
+    if (precursorMz != null) {
+      fields.put(DBEntryField.PRECURSOR_MZ, precursorMz);
+    }
+    if (polarity != null) {
+      fields.put(DBEntryField.POLARITY, polarity);
+    }
+    if (rt != null) {
+      fields.put(DBEntryField.RT, rt);
+    }
+    if (ccs != null) {
+      fields.put(DBEntryField.CCS, ccs);
+    }
+    library.addEntry(new SpectralDBEntry(null, new double[]{50d}, new double[]{1d}, fields));
+  }
+
+  @Test
+  void size() {
+    var index = library.getPrecursorIndex();
+    assertEquals(5, index.size());
+    assertEquals(6, index.getTotalEntries());
+  }
+
+  @Test
+  void findByMz() {
+    var index = library.getPrecursorIndex();
+    assertArrayEquals(new int[]{1, 4}, index.findCandidates(99.99, 100.01, null, null, null));
+    assertArrayEquals(new int[]{1, 3, 4, 5}, index.findCandidates(100, 200.001, null, null, null));
+    assertArrayEquals(new int[]{0, 1, 3, 4, 5}, index.findCandidates(0, 1000, null, null, null));
+    assertArrayEquals(new int[0], index.findCandidates(400, 1000, null, null, null));
+    assertArrayEquals(new int[0], index.findCandidates(150, 150, null, null, null));
+  }
+
+  @Test
+  void findByPolarity() {
+    var index = library.getPrecursorIndex();
+    assertArrayEquals(new int[]{0, 3, 4},
+        index.findCandidates(0, 1000, PolarityType.POSITIVE, null, null));
+    assertArrayEquals(new int[]{1, 3, 5},
+        index.findCandidates(0, 1000, PolarityType.NEGATIVE, null, null));
+    assertArrayEquals(new int[]{0, 1, 3, 4, 5},
+        index.findCandidates(0, 1000, PolarityType.UNKNOWN, null, null));
+  }
+
+  @Test
+  void findByRtAndCCS() {
+    var index = library.getPrecursorIndex();
+    // entries without RT are kept
+    assertArrayEquals(new int[]{1, 3, 5},
+        index.findCandidates(0, 1000, null, Range.closed(1f, 4f), null));
+    // entries without CCS are removed
+    assertArrayEquals(new int[]{1, 4},
+        index.findCandidates(Range.closed(0d, 1000d), null, null, Range.closed(140f, 160f)));
+  }
+
+  @Test
+  void indexIsResetOnAdd() {
+    assertEquals(5, library.getPrecursorIndex().size());
+    addEntry(500d, "+", null, null);
+    assertEquals(6, library.getPrecursorIndex().size());
+    assertArrayEquals(new int[]{6}, library.getPrecursorIndex()
+        .findCandidates(Range.closed(499d, 501d), PolarityType.POSITIVE, null, null));
+  }
+}
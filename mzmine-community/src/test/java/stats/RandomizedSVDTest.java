@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package stats;
+
+import io.github.mzmine.modules.dataanalysis.pca_new.PCAResult;
+import io.github.mzmine.modules.dataanalysis.pca_new.RandomizedSVD;
+import io.github.mzmine.modules.dataanalysis.utils.ColumnMajorMatrix;
+import io.github.mzmine.modules.dataanalysis.utils.StatisticUtils;
+import io.github.mzmine.modules.dataanalysis.utils.imputation.OneFifthOfMinimumImputer;
+import io.github.mzmine.modules.dataanalysis.utils.scaling.AutoScalingFunction;
+import java.util.Random;
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.linear.SingularValueDecomposition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class RandomizedSVDTest {
+
+  /**
+   * 5 strong components and noise in 60 samples x 400 features
+   */
+  private static RealMatrix createLowRankData() {
+    final Random rand = new Random(1);
+    final int samples = 60;
+    final int features = 400;
+    final double[][] data = new double[samples][features];
+    for (int c = 0; c < 5; c++) {
+      final double weight = 100d / (c + 1);
+      final double[] scores = rand.doubles(samples).map(v -> v - 0.5).toArray();
+      final double[] loadings = rand.doubles(features).map(v -> v - 0.5).toArray();
+      for (int s = 0; s < samples; s++) {
+        for (int f = 0; f < features; f++) {
+          data[s][f] += weight * scores[s] * loadings[f];
+        }
+      }
+    }
+    for (int s = 0; s < samples; s++) {
+      for (int f = 0; f < features; f++) {
+        data[s][f] += rand.nextGaussian() * 0.01;
+      }
+    }
+    return new Array2DRowRealMatrix(data, false);
+  }
+
+  @Test
+  void testTruncatedEqualsFullSVD() {
+    final RealMatrix data = createLowRankData();
+    final SingularValueDecomposition full = new SingularValueDecomposition(data);
+    final PCAResult truncated = RandomizedSVD.decompose(ColumnMajorMatrix.of(data), 3);
+
+    Assertions.assertEquals(3, truncated.componentCount());
+    Assertions.assertEquals(60, truncated.u().getRowDimension());
+    Assertions.assertEquals(400, truncated.v().getRowDimension());
+    for (int c = 0; c < 3; c++) {
+      Assertions.assertEquals(full.getSingularValues()[c], truncated.singularValues()[c],
+          full.getSingularValues()[c] * 1E-6);
+      // components are equal up to the sign
+      final double dotU = full.getU().getColumnVector(c)
+          .dotProduct(truncated.u().getColumnVector(c));
+      final double dotV = full.getV().getColumnVector(c)
+          .dotProduct(truncated.v().getColumnVector(c));
+      Assertions.assertEquals(1, Math.abs(dotU), 1E-6);
+      Assertions.assertEquals(1, Math.abs(dotV), 1E-6);
+      Assertions.assertEquals(Math.signum(dotU), Math.signum(dotV));
+    }
+  }
+
+  @Test
+  void testSmallMatrixIsExact() {
+    final RealMatrix data = createLowRankData().getSubMatrix(0, 9, 0, 19);
+    final SingularValueDecomposition full = new SingularValueDecomposition(data);
+    final PCAResult truncated = RandomizedSVD.decompose(ColumnMajorMatrix.of(data), 20);
+
+    Assertions.assertEquals(10, truncated.componentCount());
+    Assertions.assertArrayEquals(full.getSingularValues(), truncated.singularValues(), 1E-10);
+  }
+
+  @Test
+  void testPretreatmentEqualsRealMatrix() {
+    final RealMatrix data = createLowRankData().getSubMatrix(0, 9, 0, 19);
+    // only positive values with missing values
+    for (int r = 0; r < data.getRowDimension(); r++) {
+      for (int c = 0; c < data.getColumnDimension(); c++) {
+        data.setEntry(r, c, (r + c) % 7 == 0 ? Double.NaN : Math.abs(data.getEntry(r, c)));
+      }
+    }
+    final ColumnMajorMatrix columnMajor = ColumnMajorMatrix.of(data);
+    columnMajor.imputeMissingValues(new OneFifthOfMinimumImputer());
+    columnMajor.centerAndScale(new AutoScalingFunction());
+
+    final RealMatrix imputed = StatisticUtils.imputeMissingValues(data, false,
+        new OneFifthOfMinimumImputer());
+    final RealMatrix expected = StatisticUtils.centerAndScale(imputed, new AutoScalingFunction(),
+        false);
+    for (int r = 0; r < data.getRowDimension(); r++) {
+      for (int c = 0; c < data.getColumnDimension(); c++) {
+        Assertions.assertEquals(expected.getEntry(r, c), columnMajor.getEntry(r, c), 1E-10);
+      }
+    }
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package stats;
+
+import io.github.mzmine.modules.dataanalysis.significance.MultipleTestingCorrection;
+import io.github.mzmine.modules.dataanalysis.significance.SignificanceTests;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.apache.commons.math3.stat.inference.TestUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class SignificanceTestsTest {
+
+  private final Random rand = new Random(5);
+
+  private double[] sample(int n, double mean) {
+    final double[] values = new double[n];
+    for (int i = 0; i < n; i++) {
+      values[i] = mean + rand.nextGaussian() * mean * 0.2;
+    }
+    return values;
+  }
+
+  /**
+   * buffers may be longer than the number of values
+   */
+  private static double[] buffer(double[] values) {
+    return Arrays.copyOf(values, values.length + 3);
+  }
+
+  @Test
+  void testTTestEqualsCommonsMath() {
+    for (int i = 0; i < 20; i++) {
+      final double[] a = sample(3 + i, 1000);
+      final double[] b = sample(5 + i / 2, 1000 + i * 50);
+      Assertions.assertEquals(TestUtils.tTest(a, b),
+          SignificanceTests.tTest(buffer(a), a.length, buffer(b), b.length), 1E-12);
+
+      final double[] c = sample(a.length, 1100);
+      Assertions.assertEquals(TestUtils.pairedTTest(a, c),
+          SignificanceTests.pairedTTest(buffer(a), buffer(c), a.length), 1E-12);
+    }
+  }
+
+  @Test
+  void testAnovaEqualsCommonsMath() {
+    for (int i = 0; i < 20; i++) {
+      final List<double[]> groups = List.of(sample(3, 1000), sample(4 + i, 1000 + i * 20),
+          sample(5, 1100));
+      final double[][] buffers = groups.stream().map(SignificanceTestsTest::buffer)
+          .toArray(double[][]::new);
+      final int[] counts = groups.stream().mapToInt(g -> g.length).toArray();
+
+      final double f = SignificanceTests.oneWayAnovaFValue(buffers, counts);
+      Assertions.assertEquals(TestUtils.oneWayAnovaFValue(groups), f, 1E-9);
+      Assertions.assertEquals(TestUtils.oneWayAnovaPValue(groups),
+          SignificanceTests.oneWayAnovaPValue(f, counts.length, Arrays.stream(counts).sum()),
+          1E-12);
+    }
+  }
+
+  @Test
+  void testMultipleTestingCorrection() {
+    final double[] p = {0.01, 0.04, Double.NaN, 0.03, 0.005};
+    Assertions.assertArrayEquals(p, MultipleTestingCorrection.NONE.adjust(p));
+    Assertions.assertArrayEquals(new double[]{0.04, 0.16, Double.NaN, 0.12, 0.02},
+        MultipleTestingCorrection.BONFERRONI.adjust(p), 1E-12);
+    Assertions.assertArrayEquals(new double[]{0.02, 0.04, Double.NaN, 0.04, 0.02},
+        MultipleTestingCorrection.BENJAMINI_HOCHBERG.adjust(p), 1E-12);
+  }
+}
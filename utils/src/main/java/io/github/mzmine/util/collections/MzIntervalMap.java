@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.collections;
+
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sorted, non-overlapping m/z intervals [lower, upper) that each map to an id. Replaces a
+ * {@link com.google.common.collect.TreeRangeMap} in the feature builders: the intervals are stored
+ * in sorted chunks of primitive arrays, so a lookup is two binary searches and an insert only
+ * shifts values within one chunk.
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+public class MzIntervalMap {
+
+  private static final int MAX_CHUNK_SIZE = 512;
+
+  private final List<Chunk> chunks = new ArrayList<>();
+  // bounds of all intervals by id
+  private final DoubleArrayList lowers = new DoubleArrayList();
+  private final DoubleArrayList uppers = new DoubleArrayList();
+  private int size;
+
+  /**
+   * @return the id of the interval that contains mz or -1
+   */
+  public int find(double mz) {
+    final int c = floorChunk(mz);
+    if (c < 0) {
+      return -1;
+    }
+    final Chunk chunk = chunks.get(c);
+    final int i = chunk.floorIndex(mz);
+    return i >= 0 && mz < chunk.uppers[i] ? chunk.ids[i] : -1;
+  }
+
+  public double getLower(int id) {
+    return lowers.getDouble(id);
+  }
+
+  public double getUpper(int id) {
+    return uppers.getDouble(id);
+  }
+
+  /**
+   * Adds a new interval. Same as a TreeRangeMap, intervals that are fully covered by the new
+   * interval are removed. Partial overlaps are not supported.
+   *
+   * @return the id of the new interval. Ids are assigned consecutively starting at 0.
+   */
+  public int add(double lower, double upper) {
+    if (!(lower < upper)) {
+      throw new IllegalArgumentException("Empty interval [%f, %f)".formatted(lower, upper));
+    }
+    final int id = lowers.size();
+    lowers.add(lower);
+    uppers.add(upper);
+
+    removeCovered(lower, upper);
+
+    if (chunks.isEmpty()) {
+      chunks.add(new Chunk());
+    }
+    int c = Math.max(0, floorChunk(lower));
+    Chunk chunk = chunks.get(c);
+    if (chunk.size == MAX_CHUNK_SIZE) {
+      final Chunk upperHalf = chunk.split();
+      chunks.add(c + 1, upperHalf);
+      if (lower >= upperHalf.lowers[0]) {
+        chunk = upperHalf;
+      }
+    }
+    chunk.insert(chunk.floorIndex(lower) + 1, lower, upper, id);
+    size++;
+    return id;
+  }
+
+  private void removeCovered(double lower, double upper) {
+    int c = Math.max(0, floorChunk(lower));
+    while (c < chunks.size()) {
+      final Chunk chunk = chunks.get(c);
+      int i = chunk.floorIndex(lower);
+      if (i >= 0 && chunk.lowers[i] < lower) {
+        // starts before the new interval
+        if (chunk.uppers[i] > lower) {
+          throw new IllegalStateException("Partially overlapping intervals are not supported");
+        }
+        i++;
+      } else {
+        i = Math.max(i, 0);
+      }
+      final int first = i;
+      while (i < chunk.size && chunk.uppers[i] <= upper) {
+        i++;
+      }
+      if (i < chunk.size && chunk.lowers[i] < upper) {
+        throw new IllegalStateException("Partially overlapping intervals are not supported");
+      }
+      // covered intervals may continue in the next chunk
+      final boolean continues = i == chunk.size;
+      chunk.remove(first, i);
+      size -= i - first;
+      if (!continues) {
+        return;
+      }
+      if (chunk.size == 0) {
+        chunks.remove(c);
+      } else {
+        c++;
+      }
+    }
+  }
+
+  /**
+   * @return the index of the last chunk with a first lower bound <= mz or -1
+   */
+  private int floorChunk(double mz) {
+    int low = 0;
+    int high = chunks.size() - 1;
+    while (low <= high) {
+      final int mid = (low + high) >>> 1;
+      if (chunks.get(mid).lowers[0] <= mz) {
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return high;
+  }
+
+  /**
+   * @return the number of current intervals
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return the number of ids assigned, including ids of removed intervals
+   */
+  public int getNumberOfIds() {
+    return lowers.size();
+  }
+
+  /**
+   * @return the ids of all intervals sorted by ascending m/z
+   */
+  public IntArrayList getIdsSortedByMz() {
+    final IntArrayList ids = new IntArrayList(size);
+    for (Chunk chunk : chunks) {
+      ids.addElements(ids.size(), chunk.ids, 0, chunk.size);
+    }
+    return ids;
+  }
+
+  private static class Chunk {
+
+    private final double[] lowers = new double[MAX_CHUNK_SIZE];
+    private final double[] uppers = new double[MAX_CHUNK_SIZE];
+    private final int[] ids = new int[MAX_CHUNK_SIZE];
+    private int size;
+
+    /**
+     * @return the index of the last interval with lower bound <= mz or -1
+     */
+    private int floorIndex(double mz) {
+      int low = 0;
+      int high = size - 1;
+      while (low <= high) {
+        final int mid = (low + high) >>> 1;
+        if (lowers[mid] <= mz) {
+          low = mid + 1;
+        } else {
+          high = mid - 1;
+        }
+      }
+      return high;
+    }
+
+    private void insert(int index, double lower, double upper, int id) {
+      System.arraycopy(lowers, index, lowers, index + 1, size - index);
+      System.arraycopy(uppers, index, uppers, index + 1, size - index);
+      System.arraycopy(ids, index, ids, index + 1, size - index);
+      lowers[index] = lower;
+      uppers[index] = upper;
+      ids[index] = id;
+      size++;
+    }
+
+    /**
+     * Removes the intervals from (inclusive) to (exclusive)
+     */
+    private void remove(int from, int to) {
+      System.arraycopy(lowers, to, lowers, from, size - to);
+      System.arraycopy(uppers, to, uppers, from, size - to);
+      System.arraycopy(ids, to, ids, from, size - to);
+      size -= to - from;
+    }
+
+    /**
+     * Moves the upper half to a new chunk
+     */
+    private Chunk split() {
+      final Chunk upperHalf = new Chunk();
+      final int half = size / 2;
+      upperHalf.size = size - half;
+      System.arraycopy(lowers, half, upperHalf.lowers, 0, upperHalf.size);
+      System.arraycopy(uppers, half, upperHalf.uppers, 0, upperHalf.size);
+      System.arraycopy(ids, half, upperHalf.ids, 0, upperHalf.size);
+      size = half;
+      return upperHalf;
+    }
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.concurrent;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Processes blocks of items on a dedicated pool of worker threads and commits the results on the
+ * calling thread in the original order. Only blocks of up to a maximum weight are processed ahead
+ * of the next block to commit, independent of the number of items. The results are the same as
+ * for a single thread if the block function is independent of other blocks.
+ *
+ * @author Robin Schmid (https://github.com/robinschmid)
+ */
+public final class OrderedParallelProcessor {
+
+  private final @NotNull String threadName;
+  private final int numThreads;
+  private final int minBlockWeight;
+  private final int maxQueuedWeight;
+
+  /**
+   * @param threadName      name of the worker threads
+   * @param numThreads      number of worker threads
+   * @param minBlockWeight  minimum weight of a block, e.g., to amortize per block buffers
+   * @param maxQueuedWeight maximum weight of the blocks that are processed but not committed. The
+   *                        first block is always processed, even if it exceeds this limit.
+   */
+  public OrderedParallelProcessor(@NotNull String threadName, int numThreads, int minBlockWeight,
+      int maxQueuedWeight) {
+    this.threadName = threadName;
+    this.numThreads = Math.max(1, numThreads);
+    this.minBlockWeight = Math.max(1, minBlockWeight);
+    this.maxQueuedWeight = maxQueuedWeight;
+  }
+
+  /**
+   * Blocks are sized to balance the threads with at least two blocks per thread within the queued
+   * weight.
+   *
+   * @param items      all items in order
+   * @param weight     weight of an item, e.g., the number of spectra
+   * @param process    processes a block of items on a worker thread, returns one result per item
+   * @param commit     consumes the results in order on the calling thread
+   * @param isCanceled stops committing if true, blocks that did not start are skipped
+   * @return false if canceled
+   */
+  public <T, R> boolean process(@NotNull List<T> items, @NotNull ToIntFunction<T> weight,
+      @NotNull Function<List<T>, List<R>> process, @NotNull Consumer<R> commit,
+      @NotNull BooleanSupplier isCanceled) {
+    long totalWeight = 0;
+    for (T item : items) {
+      totalWeight += weight.applyAsInt(item);
+    }
+    final int blockWeight = Math.clamp((long) Math.ceil(totalWeight / (numThreads * 8d)),
+        minBlockWeight, Math.max(minBlockWeight, maxQueuedWeight / (numThreads * 2)));
+
+    final Deque<Block<R>> queue = new ArrayDeque<>();
+    int queuedWeight = 0;
+    int nextBlockStart = 0;
+    try (ExecutorService executor = Executors.newFixedThreadPool(numThreads, runnable -> {
+      final Thread thread = new Thread(runnable, threadName);
+      thread.setDaemon(true);
+      return thread;
+    })) {
+      try {
+        while (nextBlockStart < items.size() || !queue.isEmpty()) {
+          while (nextBlockStart < items.size()) {
+            int end = nextBlockStart;
+            int blockItemsWeight = 0;
+            while (end < items.size() && (blockItemsWeight < blockWeight
+                || end == nextBlockStart)) {
+              blockItemsWeight += weight.applyAsInt(items.get(end));
+              end++;
+            }
+            if (!queue.isEmpty() && queuedWeight + blockItemsWeight > maxQueuedWeight) {
+              break;
+            }
+            final List<T> block = items.subList(nextBlockStart, end);
+            queue.add(new Block<>(CompletableFuture.supplyAsync(() -> process.apply(block),
+                executor), blockItemsWeight));
+            queuedWeight += blockItemsWeight;
+            nextBlockStart = end;
+          }
+
+          if (isCanceled.getAsBoolean()) {
+            return false;
+          }
+
+          final Block<R> block = queue.poll();
+          block.results().join().forEach(commit);
+          queuedWeight -= block.weight();
+        }
+      } finally {
+        // blocks that did not start are skipped, the executor waits for running blocks
+        queue.forEach(b -> b.results().cancel(false));
+      }
+    }
+    return true;
+  }
+
+  private record Block<R>(CompletableFuture<List<R>> results, int weight) {
+
+  }
+}